@@ -1,5 +1,16 @@
 package edu.uniquindio.dentalmanagementsystembackend.Enum;
 
 public enum EstadoCitas {
-    PENDIENTE, CONFIRMADA, CANCELADA, COMPLETADA
+    PENDIENTE, CONFIRMADA, CANCELADA, COMPLETADA,
+    // Pendiente que nunca se confirmó y cuyo horario ya pasó
+    EXPIRADA,
+    // Confirmada cuyo horario pasó sin que se completara
+    NO_ASISTIO;
+
+    /**
+     * Indica si una cita en este estado bloquea su horario en la agenda del doctor.
+     */
+    public boolean ocupaHorario() {
+        return this != CANCELADA && this != EXPIRADA && this != NO_ASISTIO;
+    }
 }
@@ -0,0 +1,13 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+public enum EstadoListaEspera {
+    ESPERANDO,
+    // Se le ofreció un horario liberado y tiene un tiempo corto para aceptarlo
+    OFERTADA,
+    // Aceptó un horario y ya tiene su cita
+    ATENDIDA,
+    // El paciente salió de la lista
+    RETIRADA,
+    // Pasó su rango de fechas sin que se liberara un horario
+    VENCIDA
+}
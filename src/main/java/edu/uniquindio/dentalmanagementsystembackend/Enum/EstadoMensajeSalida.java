@@ -0,0 +1,7 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+public enum EstadoMensajeSalida {
+    PENDIENTE, ENVIADO,
+    // Agotó los reintentos; queda para revisión y reenvío manual
+    FALLIDO
+}
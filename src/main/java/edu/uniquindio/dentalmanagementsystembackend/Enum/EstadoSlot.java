@@ -0,0 +1,5 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+public enum EstadoSlot {
+    LIBRE, RESERVADO
+}
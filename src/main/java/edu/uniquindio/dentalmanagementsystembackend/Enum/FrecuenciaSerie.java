@@ -0,0 +1,19 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+import java.time.LocalDate;
+
+public enum FrecuenciaSerie {
+    SEMANAL, QUINCENAL, MENSUAL;
+
+    /**
+     * Fecha de la ocurrencia número {@code indice} (0 es la primera) de una serie que empieza en {@code inicio}.
+     * Se calcula siempre desde el inicio para que una serie mensual que empieza el 31 no se corra al 28.
+     */
+    public LocalDate ocurrencia(LocalDate inicio, int indice) {
+        return switch (this) {
+            case SEMANAL -> inicio.plusWeeks(indice);
+            case QUINCENAL -> inicio.plusWeeks(2L * indice);
+            case MENSUAL -> inicio.plusMonths(indice);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+/**
+ * Idiomas en los que se redactan los correos; el código es la carpeta de sus plantillas.
+ */
+public enum Idioma {
+    ES("es"), EN("en");
+
+    private final String codigo;
+
+    Idioma(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+}
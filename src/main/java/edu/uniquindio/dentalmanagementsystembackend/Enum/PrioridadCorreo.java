@@ -0,0 +1,12 @@
+package edu.uniquindio.dentalmanagementsystembackend.Enum;
+
+/**
+ * Prioridad de un correo en la cola de envío; la cola atiende primero las de mayor prioridad.
+ */
+public enum PrioridadCorreo {
+    // Códigos de activación y recuperación, y todo lo que el usuario está esperando en pantalla
+    ALTA,
+    NORMAL,
+    // Recordatorios y resúmenes, que pueden esperar sin perjudicar a nadie
+    BAJA
+}
@@ -1,9 +1,87 @@
 package edu.uniquindio.dentalmanagementsystembackend.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Ejecutores de las tareas asíncronas, uno por tipo de trabajo para que una ráfaga de uno no frene a los demás.
+ * Todos tienen la cola acotada; cuando se llenan:
+ * <ul>
+ *     <li>correo: el hilo que envía el correo lo manda él mismo, lo que frena a quien genera la ráfaga;</li>
+ *     <li>pdf: la solicitud se rechaza y el controlador responde 503 para que el cliente reintente;</li>
+ *     <li>notificaciones: el aviso se descarta y queda en el log, ya que no es crítico;</li>
+ *     <li>web: la respuesta asíncrona (por ejemplo, la exportación de citas) falla en lugar de esperar.</li>
+ * </ul>
+ * Las tareas {@code @Async} sin ejecutor explícito corren en el de notificaciones.
+ */
 @Configuration
 @EnableAsync
-public class AsyncConfig {
+@Slf4j
+public class AsyncConfig implements AsyncConfigurer {
+
+    public static final String EJECUTOR_CORREO = "ejecutorCorreo";
+    public static final String EJECUTOR_PDF = "ejecutorPdf";
+    public static final String EJECUTOR_NOTIFICACIONES = "ejecutorNotificaciones";
+    // Spring MVC usa el ejecutor con este nombre para las respuestas asíncronas; al declarar ejecutores propios
+    // Spring Boot ya no crea el suyo
+    public static final String EJECUTOR_WEB = "applicationTaskExecutor";
+
+    private final EjecutorMedido ejecutorNotificaciones;
+
+    public AsyncConfig(@Value("${async.notificaciones.hilos:1}") int hilos,
+                       @Value("${async.notificaciones.hilos-maximos:2}") int hilosMaximos,
+                       @Value("${async.notificaciones.capacidad-cola:200}") int capacidadCola) {
+        this.ejecutorNotificaciones = new EjecutorMedido("notificaciones", hilos, hilosMaximos, capacidadCola,
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Bean(EJECUTOR_CORREO)
+    public EjecutorMedido ejecutorCorreo(@Value("${async.correo.hilos:2}") int hilos,
+                                         @Value("${async.correo.hilos-maximos:4}") int hilosMaximos,
+                                         @Value("${async.correo.capacidad-cola:500}") int capacidadCola) {
+        return new EjecutorMedido("correo", hilos, hilosMaximos, capacidadCola,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean(EJECUTOR_PDF)
+    public EjecutorMedido ejecutorPdf(@Value("${async.pdf.hilos:2}") int hilos,
+                                      @Value("${async.pdf.hilos-maximos:2}") int hilosMaximos,
+                                      @Value("${async.pdf.capacidad-cola:20}") int capacidadCola) {
+        return new EjecutorMedido("pdf", hilos, hilosMaximos, capacidadCola,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(EJECUTOR_WEB)
+    public EjecutorMedido ejecutorWeb(@Value("${async.web.hilos:4}") int hilos,
+                                      @Value("${async.web.hilos-maximos:8}") int hilosMaximos,
+                                      @Value("${async.web.capacidad-cola:50}") int capacidadCola) {
+        return new EjecutorMedido("web", hilos, hilosMaximos, capacidadCola,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(EJECUTOR_NOTIFICACIONES)
+    public EjecutorMedido ejecutorNotificaciones() {
+        return ejecutorNotificaciones;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return ejecutorNotificaciones;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (error, metodo, parametros) ->
+                log.error("Error en la tarea asíncrona {}.{}", metodo.getDeclaringClass().getSimpleName(),
+                        metodo.getName(), error);
+    }
 }
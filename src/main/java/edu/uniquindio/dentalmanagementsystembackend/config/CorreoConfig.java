@@ -0,0 +1,54 @@
+package edu.uniquindio.dentalmanagementsystembackend.config;
+
+import org.simplejavamail.api.mailer.Mailer;
+import org.simplejavamail.api.mailer.config.TransportStrategy;
+import org.simplejavamail.mailer.MailerBuilder;
+import org.simplejavamail.mailer.internal.MailerRegularBuilderImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Mailer compartido por toda la aplicación. En lugar de abrir una conexión SMTP (con su saludo TLS y
+ * autenticación) por cada correo, el batch-module de Simple Java Mail mantiene un pool de conexiones abiertas
+ * que se reutilizan entre envíos, y un pool de hilos para los envíos asíncronos en lote.
+ */
+@Configuration
+public class CorreoConfig {
+
+    @Bean(destroyMethod = "close")
+    public Mailer mailer(@Value("${correo.smtp.host:smtp.gmail.com}") String host,
+                         @Value("${correo.smtp.puerto:587}") int puerto,
+                         @Value("${correo.smtp.usuario}") String usuario,
+                         @Value("${correo.smtp.clave}") String clave,
+                         @Value("${correo.smtp.transporte:SMTP_TLS}") TransportStrategy transporte,
+                         @Value("${correo.smtp.debug:false}") boolean debug,
+                         @Value("${correo.smtp.pool.tamano:4}") int tamanoPool,
+                         @Value("${correo.smtp.pool.keep-alive-segundos:60}") int keepAliveSegundos) {
+        return construirMailer(MailerBuilder
+                .withSMTPServer(host, puerto, usuario, clave)
+                .withTransportStrategy(transporte)
+                .withDebugLogging(debug), tamanoPool, keepAliveSegundos);
+    }
+
+    /**
+     * Completa el mailer con el pool de conexiones y de hilos.
+     *
+     * @param tamanoPool Conexiones SMTP (y hilos de envío) que se mantienen abiertas a la vez
+     * @param keepAliveSegundos Tiempo que una conexión o un hilo sin uso se conserva antes de cerrarse
+     */
+    public static Mailer construirMailer(MailerRegularBuilderImpl builder, int tamanoPool, int keepAliveSegundos) {
+        int keepAliveMillis = keepAliveSegundos * 1000;
+        return builder
+                // Cada mailer forma su propio clúster: el pool es de él y no se comparte con otros mailers
+                .withClusterKey(UUID.randomUUID())
+                .withConnectionPoolCoreSize(0)
+                .withConnectionPoolMaxSize(tamanoPool)
+                .withConnectionPoolExpireAfterMillis(keepAliveMillis)
+                .withThreadPoolSize(tamanoPool)
+                .withThreadPoolKeepAliveTime(keepAliveMillis)
+                .buildMailer();
+    }
+}
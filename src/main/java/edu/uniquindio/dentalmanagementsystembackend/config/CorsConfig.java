@@ -19,7 +19,8 @@ public class CorsConfig {
                 registry.addMapping("/**") // Permitir todas las rutas
                         .allowedOrigins("*") // Permitir cualquier origen
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS" , "PATCH") // Métodos permitidos
-                        .allowedHeaders("*"); // Permitir todos los encabezados
+                        .allowedHeaders("*") // Permitir todos los encabezados
+                        .exposedHeaders("X-Siguiente-Cursor", "ETag"); // Cursor de paginación y versión de los listados de citas
             }
         };
     }
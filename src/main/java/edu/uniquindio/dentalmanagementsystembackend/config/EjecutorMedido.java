@@ -0,0 +1,111 @@
+package edu.uniquindio.dentalmanagementsystembackend.config;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.sistema.EstadoEjecutorDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecutor acotado (hilos y cola limitados) que mide cuánto esperan las tareas en la cola y cuánto tardan,
+ * y que lleva a cada tarea el MDC del hilo que la envió para que sus logs conserven el contexto.
+ */
+@Slf4j
+public class EjecutorMedido extends ThreadPoolTaskExecutor {
+
+    private final String nombre;
+    private final int capacidadCola;
+
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder tareasMedidas = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder ejecucionTotalNanos = new LongAdder();
+    private final LongAccumulator ejecucionMaximaNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param politicaRechazo Qué hacer cuando los hilos y la cola están llenos
+     */
+    public EjecutorMedido(String nombre, int hilos, int hilosMaximos, int capacidadCola,
+                          RejectedExecutionHandler politicaRechazo) {
+        this.nombre = nombre;
+        this.capacidadCola = capacidadCola;
+        setThreadNamePrefix(nombre + "-");
+        setCorePoolSize(hilos);
+        setMaxPoolSize(hilosMaximos);
+        setQueueCapacity(capacidadCola);
+        setTaskDecorator(this::decorar);
+        setRejectedExecutionHandler((tarea, ejecutor) -> {
+            rechazadas.increment();
+            log.warn("Ejecutor {} lleno ({} tareas en cola), se aplica {}", nombre, ejecutor.getQueue().size(),
+                    politicaRechazo.getClass().getSimpleName());
+            politicaRechazo.rejectedExecution(tarea, ejecutor);
+        });
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(30);
+    }
+
+    private Runnable decorar(Runnable tarea) {
+        Map<String, String> contexto = MDC.getCopyOfContextMap();
+        long encolada = System.nanoTime();
+        return () -> {
+            long inicio = System.nanoTime();
+            // Con CallerRunsPolicy la tarea corre en el hilo que la envió, así que se restaura su MDC al final
+            Map<String, String> anterior = MDC.getCopyOfContextMap();
+            establecerMdc(contexto);
+            try {
+                tarea.run();
+            } finally {
+                long fin = System.nanoTime();
+                registrar(inicio - encolada, fin - inicio);
+                establecerMdc(anterior);
+            }
+        };
+    }
+
+    private void registrar(long esperaNanos, long ejecucionNanos) {
+        tareasMedidas.increment();
+        esperaTotalNanos.add(esperaNanos);
+        esperaMaximaNanos.accumulate(esperaNanos);
+        ejecucionTotalNanos.add(ejecucionNanos);
+        ejecucionMaximaNanos.accumulate(ejecucionNanos);
+    }
+
+    private static void establecerMdc(Map<String, String> contexto) {
+        if (contexto == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(contexto);
+        }
+    }
+
+    /**
+     * Foto del estado actual del ejecutor y de los tiempos acumulados desde que arrancó.
+     */
+    public EstadoEjecutorDTO estado() {
+        ThreadPoolExecutor ejecutor = getThreadPoolExecutor();
+        long medidas = tareasMedidas.sum();
+        return new EstadoEjecutorDTO(
+                nombre,
+                ejecutor.getActiveCount(),
+                ejecutor.getPoolSize(),
+                ejecutor.getMaximumPoolSize(),
+                ejecutor.getQueue().size(),
+                capacidadCola,
+                ejecutor.getCompletedTaskCount(),
+                rechazadas.sum(),
+                promedioMs(esperaTotalNanos.sum(), medidas),
+                esperaMaximaNanos.get() / 1_000_000.0,
+                promedioMs(ejecucionTotalNanos.sum(), medidas),
+                ejecucionMaximaNanos.get() / 1_000_000.0);
+    }
+
+    private static double promedioMs(long totalNanos, long tareas) {
+        return tareas == 0 ? 0 : totalNanos / 1_000_000.0 / tareas;
+    }
+}
@@ -24,6 +24,10 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class FiltroToken extends OncePerRequestFilter {
 
+    // Atributo de la petición con el número de identificación del usuario del token (claim "userId"),
+    // para que los controladores verifiquen que el recurso pedido le pertenece
+    public static final String ATRIBUTO_USUARIO = "usuarioId";
+
     // Inyección de dependencias para la utilidad de JWT
     private final JWTUtils jwtUtils;
 
@@ -52,14 +56,13 @@ public class FiltroToken extends OncePerRequestFilter {
             try {
                 // Si la petición es para la ruta /api/paciente se verifica que el token exista y que el rol sea PACIENTE
                 if (requestURI.startsWith("/api/paciente")) {
-                    error = validarToken(token, Rol.PACIENTE);
-                } else {
-                    error = false;
-                }
-
-                // Agregar la validación para las peticiones que sean de los administradores
-                if (requestURI.startsWith("/api/administrador")) {
-                    error = validarToken(token, Rol.ADMINISTRATOR);
+                    error = validarToken(token, Rol.PACIENTE, request);
+                } else if (requestURI.startsWith("/api/doctor/")) {
+                    // Las rutas de los doctores exigen un token con rol DOCTOR
+                    error = validarToken(token, Rol.DOCTOR, request);
+                } else if (requestURI.startsWith("/api/administrador")) {
+                    // Agregar la validación para las peticiones que sean de los administradores
+                    error = validarToken(token, Rol.ADMINISTRATOR, request);
                 } else {
                     error = false;
                 }
@@ -101,13 +104,22 @@ public class FiltroToken extends OncePerRequestFilter {
         response.getWriter().close();
     }
 
-    // Método para validar el token y verificar que el rol sea el correcto
-    private boolean validarToken(String token, Rol rol) {
+    // Método para validar el token, verificar que el rol sea el correcto y dejar el usuario en la petición
+    private boolean validarToken(String token, Rol rol, HttpServletRequest request) {
         boolean error = true;
         if (token != null) {
             Jws<Claims> jws = jwtUtils.parseJwt(token);
-            if (Rol.valueOf(jws.getPayload().get("rol").toString()) == rol) {
+            // El login emite el rol en el claim "role"; "rol" se acepta por los tokens emitidos antes
+            Object rolToken = jws.getPayload().get("role");
+            if (rolToken == null) {
+                rolToken = jws.getPayload().get("rol");
+            }
+            if (rolToken != null && Rol.valueOf(rolToken.toString()) == rol) {
                 error = false;
+                Object usuario = jws.getPayload().get("userId");
+                if (usuario != null) {
+                    request.setAttribute(ATRIBUTO_USUARIO, usuario.toString());
+                }
             }
         }
         return error;
@@ -0,0 +1,41 @@
+package edu.uniquindio.dentalmanagementsystembackend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Tareas programadas. Corren en un pool propio de {@code programacion.hilos} hilos en lugar del único hilo
+ * que usa Spring por defecto, para que una tarea lenta (el relevo de la bandeja de salida, la extensión
+ * nocturna de horarios) no atrase los barridos que dependen del tiempo, como el de las reservas temporales.
+ */
+@Configuration
+@EnableScheduling
+@Slf4j
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    @Value("${programacion.hilos:4}")
+    private int hilos;
+
+    @Bean
+    public ThreadPoolTaskScheduler programadorTareas() {
+        ThreadPoolTaskScheduler programador = new ThreadPoolTaskScheduler();
+        programador.setPoolSize(hilos);
+        programador.setThreadNamePrefix("programada-");
+        // Un error en una ejecución no debe cancelar las siguientes ejecuciones de la tarea
+        programador.setErrorHandler(error -> log.error("Error en una tarea programada", error));
+        programador.setWaitForTasksToCompleteOnShutdown(true);
+        programador.setAwaitTerminationSeconds(30);
+        return programador;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(programadorTareas());
+    }
+}
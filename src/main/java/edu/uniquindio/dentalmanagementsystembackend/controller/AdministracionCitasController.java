@@ -0,0 +1,113 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FormatoExportacion;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ConsistenciaIndiceDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EstadisticasCicloVidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.CicloVidaCitas;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Operaciones de mantenimiento y reportes sobre las citas y la disponibilidad, solo para administradores.
+ */
+@RestController
+@RequestMapping("/api/administrador/citas")
+@RequiredArgsConstructor
+public class AdministracionCitasController {
+
+    private final ServiciosCitas serviciosCitas;
+    private final ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
+    private final CicloVidaCitas cicloVidaCitas;
+
+    /**
+     * Recarga el directorio de especialidades y doctores desde la base de datos
+     * @return Mensaje de confirmación
+     */
+    @PostMapping("/doctores/directorio/recargar")
+    public ResponseEntity<String> recargarDirectorioEspecialidades() {
+        serviciosCitas.recargarDirectorioEspecialidades();
+        return ResponseEntity.ok("Directorio de especialidades recargado exitosamente");
+    }
+
+    /**
+     * Verifica que el índice de disponibilidad en memoria coincida con la base de datos
+     * @param doctorId ID del doctor
+     * @param fecha Fecha a verificar
+     * @return Resultado de la verificación
+     */
+    @GetMapping("/disponibilidad/indice/verificar/{doctorId}")
+    public ResponseEntity<ConsistenciaIndiceDTO> verificarIndiceDisponibilidad(
+            @PathVariable String doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return ResponseEntity.ok(serviciosDisponibilidadDoctor.verificarConsistenciaIndice(doctorId, fecha));
+    }
+
+    /**
+     * Reconstruye desde la base de datos el índice de disponibilidad de un doctor
+     * @param doctorId ID del doctor
+     * @return Mensaje de confirmación
+     */
+    @PostMapping("/disponibilidad/indice/reconstruir/{doctorId}")
+    public ResponseEntity<String> reconstruirIndiceDisponibilidad(@PathVariable String doctorId) {
+        serviciosDisponibilidadDoctor.reconstruirIndice(doctorId);
+        return ResponseEntity.ok("Índice de disponibilidad reconstruido exitosamente");
+    }
+
+    /**
+     * Obtiene las estadísticas del proceso que vence las citas pendientes y confirmadas cuyo horario ya pasó
+     * @return Resultado de la última ejecución y totales desde que arrancó la aplicación
+     */
+    @GetMapping("/ciclo-vida/estadisticas")
+    public ResponseEntity<EstadisticasCicloVidaDTO> obtenerEstadisticasCicloVida() {
+        return ResponseEntity.ok(cicloVidaCitas.obtenerEstadisticas());
+    }
+
+    /**
+     * Ejecuta de inmediato el proceso que vence las citas pendientes y confirmadas cuyo horario ya pasó
+     * @return Estadísticas de la ejecución
+     */
+    @PostMapping("/ciclo-vida/ejecutar")
+    public ResponseEntity<EstadisticasCicloVidaDTO> ejecutarCicloVida() {
+        return ResponseEntity.ok(cicloVidaCitas.ejecutar());
+    }
+
+    /**
+     * Exporta todas las citas de un rango de fechas para reportes administrativos.
+     * La respuesta se escribe a medida que se leen las citas, sin cargarlas todas en memoria.
+     * @param desde Primera fecha incluida
+     * @param hasta Última fecha incluida
+     * @param formato NDJSON (por defecto) o CSV
+     * @return Archivo con las citas del rango
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarCitas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato) {
+        if (hasta.isBefore(desde)) {
+            return ResponseEntity.badRequest()
+                    .header("X-Error", "La fecha final no puede ser anterior a la inicial")
+                    .build();
+        }
+
+        // Se ejecuta en un hilo de MVC asíncrono, después de devolver los encabezados
+        StreamingResponseBody cuerpo = salida -> serviciosCitas.exportarCitas(desde, hasta, formato, salida);
+
+        boolean csv = formato == FormatoExportacion.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"citas_" + desde + "_" + hasta + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(cuerpo);
+    }
+}
@@ -0,0 +1,53 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.config.FiltroToken;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.AgendaDoctorDiaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosAgendaDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.VersionesAgenda;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+
+/**
+ * Agenda diaria de un doctor. Incluye los datos de contacto de los pacientes, por eso solo la
+ * consulta el propio doctor con su token.
+ */
+@RestController
+@RequestMapping("/api/doctor/agenda")
+@RequiredArgsConstructor
+public class AgendaDoctorController {
+
+    private final ServiciosAgendaDoctor serviciosAgendaDoctor;
+    private final VersionesAgenda versionesAgenda;
+
+    /**
+     * Obtiene la agenda diaria de un doctor desde el modelo de lectura
+     * @param doctorId ID del doctor; debe ser el del token
+     * @param fecha Día de la agenda (por defecto, hoy)
+     * @return Citas del día ordenadas por hora
+     */
+    @GetMapping("/{doctorId}")
+    public ResponseEntity<AgendaDoctorDiaDTO> obtenerAgendaDoctor(
+            @PathVariable String doctorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestAttribute(name = FiltroToken.ATRIBUTO_USUARIO, required = false) String usuarioId,
+            WebRequest request) {
+        if (!doctorId.equals(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagDoctor(doctorId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok().eTag(etag)
+                .body(serviciosAgendaDoctor.obtenerAgenda(doctorId, fecha != null ? fecha : LocalDate.now()));
+    }
+}
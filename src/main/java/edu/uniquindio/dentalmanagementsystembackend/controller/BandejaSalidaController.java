@@ -0,0 +1,59 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.MensajeSalidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.ResumenBandejaSalidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosBandejaSalida;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/administrador/bandeja-salida")
+@RequiredArgsConstructor
+public class BandejaSalidaController {
+
+    private final ServiciosBandejaSalida serviciosBandejaSalida;
+
+    /**
+     * Obtiene los mensajes más recientes de la bandeja de salida
+     * @param estado Estado por el que filtrar (opcional)
+     * @param limite Cantidad máxima de mensajes
+     * @return Mensajes del más reciente al más antiguo
+     */
+    @GetMapping
+    public ResponseEntity<List<MensajeSalidaDTO>> listar(@RequestParam(required = false) EstadoMensajeSalida estado,
+                                                         @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(serviciosBandejaSalida.listar(estado, limite));
+    }
+
+    /**
+     * Cuenta los mensajes de la bandeja de salida por estado
+     * @return Resumen de la bandeja
+     */
+    @GetMapping("/resumen")
+    public ResponseEntity<ResumenBandejaSalidaDTO> obtenerResumen() {
+        return ResponseEntity.ok(serviciosBandejaSalida.obtenerResumen());
+    }
+
+    /**
+     * Vuelve a poner un mensaje en la cola de envío
+     * @param id ID del mensaje
+     * @return Mensaje reencolado
+     */
+    @PostMapping("/{id}/reenviar")
+    public ResponseEntity<MensajeSalidaDTO> reenviar(@PathVariable Long id) {
+        return ResponseEntity.ok(serviciosBandejaSalida.reenviar(id));
+    }
+
+    /**
+     * Vuelve a poner en la cola todos los mensajes fallidos
+     * @return Cantidad de mensajes reencolados
+     */
+    @PostMapping("/reenviar-fallidos")
+    public ResponseEntity<Integer> reenviarFallidos() {
+        return ResponseEntity.ok(serviciosBandejaSalida.reenviarFallidos());
+    }
+}
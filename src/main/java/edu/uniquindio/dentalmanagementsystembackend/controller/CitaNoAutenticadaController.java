@@ -2,10 +2,16 @@ package edu.uniquindio.dentalmanagementsystembackend.controller;
 
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ReservaTemporalDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.exception.LimiteReservasException;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,15 +26,44 @@ public class CitaNoAutenticadaController {
     private final ServiciosCitas serviciosCitas;
 
     @PostMapping
-    public ResponseEntity<Cita> crearCitaNoAutenticada(@Valid @RequestBody CrearCitaNoAutenticadaDTO crearCitaNoAutenticadaDTO) {
+    public ResponseEntity<Cita> crearCitaNoAutenticada(
+            @Valid @RequestBody CrearCitaNoAutenticadaDTO crearCitaNoAutenticadaDTO,
+            @RequestHeader(value = "X-Reserva-Token", required = false) String tokenReserva) {
         try {
-            Cita cita = serviciosCitas.crearCitaNoAutenticada(crearCitaNoAutenticadaDTO);
+            Cita cita = serviciosCitas.crearCitaNoAutenticada(crearCitaNoAutenticadaDTO, tokenReserva);
             return ResponseEntity.ok(cita);
+        } catch (HorarioOcupadoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Aparta un horario mientras el paciente llena el formulario.
+     * El token devuelto se envía en el encabezado X-Reserva-Token al crear la cita.
+     * Cada cliente puede tener unas pocas reservas vigentes a la vez; si las supera se responde 429.
+     */
+    @PostMapping("/reservas-temporales")
+    public ResponseEntity<ReservaTemporalDTO> reservarHorarioTemporal(@Valid @RequestBody CrearReservaTemporalDTO dto,
+                                                                      HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(serviciosCitas.reservarHorarioTemporal(dto, request.getRemoteAddr()));
+        } catch (HorarioOcupadoException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (LimiteReservasException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/reservas-temporales/{token}")
+    public ResponseEntity<Void> liberarReservaTemporal(@PathVariable String token) {
+        serviciosCitas.liberarReservaTemporal(token);
+        return ResponseEntity.noContent().build();
+    }
+
 
 
 }
\ No newline at end of file
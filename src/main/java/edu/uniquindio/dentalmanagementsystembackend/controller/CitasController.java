@@ -1,12 +1,18 @@
 package edu.uniquindio.dentalmanagementsystembackend.controller;
 
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearSerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaAdminDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaPacienteDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FiltroCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDoctorDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.PaginaCitasDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.SerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.TipoCitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
@@ -15,15 +21,18 @@ import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosTipoCita;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.VersionesAgenda;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/citas")
@@ -34,6 +43,10 @@ public class CitasController {
     private final ServiciosTipoCita serviciosTipoCita;
     private final ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
     private final CitasRepository citasRepository;
+    private final VersionesAgenda versionesAgenda;
+
+    // Encabezado con el cursor de la siguiente página en los listados de citas
+    static final String ENCABEZADO_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
     
     /**
      * Crea una nueva cita
@@ -45,6 +58,17 @@ public class CitasController {
         return ResponseEntity.ok(serviciosCitas.crearCita(dto));
     }
 
+    /**
+     * Crea una serie de citas recurrentes (semanal, quincenal o mensual) para un paciente.
+     * Si alguna fecha de la serie no está disponible no se crea ninguna cita.
+     * @param dto DTO con la regla de la serie
+     * @return Serie creada con sus citas
+     */
+    @PostMapping("/series")
+    public ResponseEntity<SerieCitasDTO> crearSerieCitas(@Valid @RequestBody CrearSerieCitasDTO dto) {
+        return ResponseEntity.ok(serviciosCitas.crearSerieCitas(dto));
+    }
+
     /**
      * Obtiene todos los tipos de cita disponibles
      * @return Lista de tipos de cita
@@ -69,27 +93,65 @@ public class CitasController {
      * @param doctorId ID del doctor
      * @param fechaInicio Fecha de inicio del rango
      * @param fechaFin Fecha de fin del rango
+     * @param tipoCitaId ID del tipo de cita, para ofrecer solo horarios donde cabe completa (opcional)
      * @return Lista de fechas disponibles con sus horarios
      */
     @GetMapping("/disponibilidad/fechas/{doctorId}")
     public ResponseEntity<List<FechaDisponibleDTO>> obtenerFechasDisponibles(
             @PathVariable String doctorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
-        return ResponseEntity.ok(serviciosDisponibilidadDoctor.obtenerFechasDisponibles(doctorId, fechaInicio, fechaFin));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(required = false) Long tipoCitaId,
+            WebRequest request) {
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagDoctor(doctorId);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
+        return ResponseEntity.ok().eTag(etag)
+                .body(serviciosDisponibilidadDoctor.obtenerFechasDisponibles(doctorId, fechaInicio, fechaFin, tipoCitaId));
     }
 
     /**
      * Obtiene los horarios disponibles para un doctor en una fecha específica
      * @param doctorId ID del doctor
      * @param fecha Fecha para la que se quieren obtener los horarios
+     * @param tipoCitaId ID del tipo de cita, para ofrecer solo horarios donde cabe completa (opcional)
      * @return Lista de horarios disponibles
      */
     @GetMapping("/disponibilidad/horarios/{doctorId}")
     public ResponseEntity<List<HorarioDisponibleDTO>> obtenerHorariosDisponibles(
             @PathVariable String doctorId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
-        return ResponseEntity.ok(serviciosDisponibilidadDoctor.obtenerHorariosDisponibles(doctorId, fecha));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestParam(required = false) Long tipoCitaId,
+            WebRequest request) {
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagDoctor(doctorId);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
+        return ResponseEntity.ok().eTag(etag)
+                .body(serviciosDisponibilidadDoctor.obtenerHorariosDisponibles(doctorId, fecha, tipoCitaId));
+    }
+
+    /**
+     * Obtiene los primeros horarios libres entre todos los doctores de una especialidad
+     * @param especialidadId ID de la especialidad
+     * @param cantidad Cantidad de horarios a devolver
+     * @param fechaInicio Fecha desde la que se busca (opcional)
+     * @param fechaFin Fecha hasta la que se busca (opcional)
+     * @return Lista de horarios libres ordenados por fecha y hora
+     */
+    @GetMapping("/disponibilidad/especialidad/{especialidadId}/primeros")
+    public ResponseEntity<List<HorarioDoctorDTO>> obtenerPrimerosHorariosPorEspecialidad(
+            @PathVariable Long especialidadId,
+            @RequestParam(defaultValue = "5") int cantidad,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin) {
+        return ResponseEntity.ok(serviciosDisponibilidadDoctor.buscarPrimerosHorariosPorEspecialidad(
+                especialidadId, cantidad, fechaInicio, fechaFin));
     }
 
     /**
@@ -139,42 +201,43 @@ public class CitasController {
     }
 
     /**
-     * Obtiene todas las citas de un paciente
+     * Obtiene las citas de un paciente, paginadas por fecha y hora
      * @param idPaciente ID del paciente
-     * @return Lista de citas del paciente
+     * @param desde Primera fecha incluida (opcional)
+     * @param hasta Última fecha incluida (opcional)
+     * @param estado Estado de las citas (opcional)
+     * @param cursor Cursor devuelto en X-Siguiente-Cursor por la página anterior (opcional)
+     * @param limite Cantidad máxima de citas por página (opcional)
+     * @return Página de citas del paciente; el encabezado X-Siguiente-Cursor indica cómo pedir la siguiente
      */
     @GetMapping("/paciente/{idPaciente}")
-    public ResponseEntity<List<CitaDTO>> obtenerCitasPorPaciente(@PathVariable String idPaciente) {
+    public ResponseEntity<List<CitaDTO>> obtenerCitasPorPaciente(
+            @PathVariable String idPaciente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) EstadoCitas estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
         // Validar parámetros de entrada
         if (idPaciente == null || idPaciente.trim().isEmpty()) {
             System.out.println("ID de paciente inválido: " + idPaciente);
             return ResponseEntity.badRequest().body(List.of());
         }
 
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagPaciente(idPaciente);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
         try {
-            // Obtener citas usando el repositorio
-            List<Cita> citas = citasRepository.findByPaciente_IdNumber(idPaciente);
-            System.out.println("Se encontraron " + citas.size() + " citas para el paciente con ID " + idPaciente);
-
-            // Transformar a DTOs
-            List<CitaDTO> citasDTO = citas.stream()
-                    .map(cita -> new CitaDTO(
-                            cita.getId(),
-                            cita.getPaciente() != null ? cita.getPaciente().getIdNumber() : null,
-                            cita.getPaciente() != null ? cita.getPaciente().getName() : null,
-                            cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                            cita.getDoctor() != null ? cita.getDoctor().getName() : null,
-                            cita.getFechaHora(),
-                            cita.getEstado(),
-                            cita.getPaciente() != null ? cita.getPaciente().getAccount().getEmail() : null,
-                            cita.getPaciente() != null ? cita.getPaciente().getPhoneNumber() : null,
-                            cita.getTipoCita().getId(),
-                            cita.getTipoCita().getNombre(),
-                            cita.getTipoCita().getDuracionMinutos()
-                    ))
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(citasDTO);
+            PaginaCitasDTO pagina = serviciosCitas.obtenerCitasPorPaciente(idPaciente,
+                    new FiltroCitasDTO(desde, hasta, estado, cursor, limite));
+            System.out.println("Se encontraron " + pagina.citas().size() + " citas para el paciente con ID " + idPaciente);
+            return respuestaPaginada(pagina, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).body(List.of());
         } catch (Exception e) {
             System.out.println("Error al obtener citas para el paciente " + idPaciente + ": " + e.getMessage());
             e.printStackTrace(); // Para depuración
@@ -188,39 +251,41 @@ public class CitasController {
 
 
     /**
-     * Obtiene todas las citas de un doctor
+     * Obtiene las citas autenticadas de un doctor, paginadas por fecha y hora
      * @param idDoctor ID del doctor
-     * @return Lista de citas del doctor
+     * @param desde Primera fecha incluida (opcional)
+     * @param hasta Última fecha incluida (opcional)
+     * @param estado Estado de las citas (opcional)
+     * @param cursor Cursor devuelto en X-Siguiente-Cursor por la página anterior (opcional)
+     * @param limite Cantidad máxima de citas por página (opcional)
+     * @return Página de citas del doctor; el encabezado X-Siguiente-Cursor indica cómo pedir la siguiente
      */
     @GetMapping("/doctor/{idDoctor}")
-    public List<CitaDTO> obtenerCitasPorDoctor(@PathVariable String idDoctor) {
+    public ResponseEntity<List<CitaDTO>> obtenerCitasPorDoctor(
+            @PathVariable String idDoctor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) EstadoCitas estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
         // Validar parámetros de entrada
         if (idDoctor == null || idDoctor.trim().isEmpty()) {
             System.out.println("ID de doctor inválido: " + idDoctor);
             throw new IllegalArgumentException("El ID del doctor no puede estar vacío");
         }
 
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagDoctor(idDoctor);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
         // Buscar explícitamente solo citas autenticadas
-        List<Cita> citas = citasRepository.findByDoctor_IdNumberAndEsAutenticadaTrue(idDoctor);
-        System.out.println("Se encontraron " + citas.size() + " citas autenticadas para el doctor " + idDoctor);
-
-        // Transformar a DTOs y retornar
-        return citas.stream()
-                .map(cita -> new CitaDTO(
-                        cita.getId(),
-                        cita.getPaciente() != null ? cita.getPaciente().getIdNumber() : null,
-                        cita.getPaciente() != null ? cita.getPaciente().getName() : cita.getNombrePacienteNoAutenticado(),
-                        cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                        cita.getDoctor() != null ? cita.getDoctor().getName() : null,
-                        cita.getFechaHora(),
-                        cita.getEstado(),
-                        cita.getPaciente() != null ? cita.getPaciente().getAccount().getEmail() : cita.getEmailNoAutenticado(),
-                        cita.getPaciente() != null ? cita.getPaciente().getPhoneNumber() : cita.getTelefonoNoAutenticado(),
-                        cita.getTipoCita().getId(),
-                        cita.getTipoCita().getNombre(),
-                        cita.getTipoCita().getDuracionMinutos()
-                ))
-                .collect(Collectors.toList());
+        PaginaCitasDTO pagina = serviciosCitas.obtenerCitasAutenticadasPorDoctor(idDoctor,
+                new FiltroCitasDTO(desde, hasta, estado, cursor, limite));
+        System.out.println("Se encontraron " + pagina.citas().size() + " citas autenticadas para el doctor " + idDoctor);
+        return respuestaPaginada(pagina, etag);
     }
 
 
@@ -228,43 +293,45 @@ public class CitasController {
 
 
     /**
-     * Obtiene todas las citas no autenticadas de un doctor específico.
+     * Obtiene las citas no autenticadas de un doctor específico, paginadas por fecha y hora.
      *
      * @param idDoctor El identificador único del doctor.
-     * @return Lista de citas no autenticadas del doctor.
+     * @param desde Primera fecha incluida (opcional)
+     * @param hasta Última fecha incluida (opcional)
+     * @param estado Estado de las citas (opcional)
+     * @param cursor Cursor devuelto en X-Siguiente-Cursor por la página anterior (opcional)
+     * @param limite Cantidad máxima de citas por página (opcional)
+     * @return Página de citas no autenticadas del doctor.
      */
     @GetMapping("/doctor-no-autenticadas/{idDoctor}")
-    public ResponseEntity<List<CitaDTO>> obtenerCitasNoAutenticadasPorDoctor(@PathVariable String idDoctor) {
+    public ResponseEntity<List<CitaDTO>> obtenerCitasNoAutenticadasPorDoctor(
+            @PathVariable String idDoctor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) EstadoCitas estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
         // Validar parámetros de entrada
         if (idDoctor == null || idDoctor.trim().isEmpty()) {
             System.out.println("ID de doctor inválido: " + idDoctor);
             return ResponseEntity.badRequest().body(List.of());
         }
 
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagDoctor(idDoctor);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
         try {
-            // Usar el nuevo método de repositorio para obtener solo citas no autenticadas válidas
-            List<Cita> citas = citasRepository.findValidNoAuthCitasByDoctorId(idDoctor);
-            System.out.println("Se encontraron " + citas.size() + " citas no autenticadas válidas para el doctor " + idDoctor);
-
-            // Mapeo mejorado incluyendo el número de identificación
-            List<CitaDTO> citasDTO = citas.stream()
-                    .map(cita -> new CitaDTO(
-                            cita.getId(),
-                            cita.getNumeroIdentificacionNoAutenticado(), // Usamos esto como ID para citas no autenticadas
-                            cita.getNombrePacienteNoAutenticado(),
-                            cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                            cita.getDoctor() != null ? cita.getDoctor().getName() : null,
-                            cita.getFechaHora(),
-                            cita.getEstado(),
-                            cita.getEmailNoAutenticado(),
-                            cita.getTelefonoNoAutenticado(),
-                            cita.getTipoCita().getId(),
-                            cita.getTipoCita().getNombre(),
-                            cita.getTipoCita().getDuracionMinutos()
-                    ))
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(citasDTO);
+            // Solo citas no autenticadas válidas (con nombre e identificación del paciente)
+            PaginaCitasDTO pagina = serviciosCitas.obtenerCitasNoAutenticadasPorDoctor(idDoctor,
+                    new FiltroCitasDTO(desde, hasta, estado, cursor, limite));
+            System.out.println("Se encontraron " + pagina.citas().size() + " citas no autenticadas válidas para el doctor " + idDoctor);
+            return respuestaPaginada(pagina, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).body(List.of());
         } catch (Exception e) {
             System.out.println("Error al obtener citas no autenticadas: " + e.getMessage());
             e.printStackTrace();
@@ -277,43 +344,44 @@ public class CitasController {
 
 
     /**
-     * Obtiene todas las citas no autenticadas de un paciente específico.
+     * Obtiene las citas no autenticadas de un paciente específico, paginadas por fecha y hora.
      *
      * @param idPaciente El identificador único del paciente.
-     * @return Lista de citas no autenticadas del paciente.
+     * @param desde Primera fecha incluida (opcional)
+     * @param hasta Última fecha incluida (opcional)
+     * @param estado Estado de las citas (opcional)
+     * @param cursor Cursor devuelto en X-Siguiente-Cursor por la página anterior (opcional)
+     * @param limite Cantidad máxima de citas por página (opcional)
+     * @return Página de citas no autenticadas del paciente.
      */
     @GetMapping("/paciente-no-autenticadas/{idPaciente}")
-    public ResponseEntity<List<CitaDTO>> obtenerCitasNoAutenticadasPorPaciente(@PathVariable String idPaciente) {
+    public ResponseEntity<List<CitaDTO>> obtenerCitasNoAutenticadasPorPaciente(
+            @PathVariable String idPaciente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) EstadoCitas estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
         // Validar parámetros de entrada
         if (idPaciente == null || idPaciente.trim().isEmpty()) {
             System.out.println("ID de paciente inválido: " + idPaciente);
             return ResponseEntity.badRequest().body(List.of());
         }
 
+        // Si nada cambió desde la versión que tiene el cliente, no se consulta la base de datos
+        String etag = versionesAgenda.etagPaciente(idPaciente);
+        if (request.checkNotModified(etag)) {
+            return noModificado(etag);
+        }
+
         try {
-            // Obtener citas no autenticadas usando el repositorio
-            List<Cita> citas = citasRepository.findByNumeroIdentificacionNoAutenticadoAndEsAutenticadaFalse(idPaciente);
-            System.out.println("Se encontraron " + citas.size() + " citas no autenticadas para el paciente con ID " + idPaciente);
-
-            // Transformar a DTOs
-            List<CitaDTO> citasDTO = citas.stream()
-                    .map(cita -> new CitaDTO(
-                            cita.getId(),
-                            null, // pacienteId es null para citas no autenticadas
-                            cita.getNombrePacienteNoAutenticado(),
-                            cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                            cita.getDoctor() != null ? cita.getDoctor().getName() : null,
-                            cita.getFechaHora(),
-                            cita.getEstado(),
-                            cita.getEmailNoAutenticado(),
-                            cita.getTelefonoNoAutenticado(),
-                            cita.getTipoCita().getId(),
-                            cita.getTipoCita().getNombre(),
-                            cita.getTipoCita().getDuracionMinutos()
-                    ))
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(citasDTO);
+            PaginaCitasDTO pagina = serviciosCitas.obtenerCitasNoAutenticadasPorPaciente(idPaciente,
+                    new FiltroCitasDTO(desde, hasta, estado, cursor, limite));
+            System.out.println("Se encontraron " + pagina.citas().size() + " citas no autenticadas para el paciente con ID " + idPaciente);
+            return respuestaPaginada(pagina, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).body(List.of());
         } catch (Exception e) {
             System.out.println("Error al obtener citas no autenticadas para el paciente " + idPaciente + ": " + e.getMessage());
             e.printStackTrace(); // Para depuración
@@ -326,7 +394,22 @@ public class CitasController {
         }
     }
 
+    /**
+     * Arma la respuesta de un listado paginado: las citas en el cuerpo y, si hay más,
+     * el cursor de la siguiente página en el encabezado X-Siguiente-Cursor.
+     */
+    private ResponseEntity<List<CitaDTO>> respuestaPaginada(PaginaCitasDTO pagina, String etag) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().eTag(etag);
+        if (pagina.siguienteCursor() != null) {
+            respuesta.header(ENCABEZADO_SIGUIENTE_CURSOR, pagina.siguienteCursor());
+        }
+        return respuesta.body(pagina.citas());
+    }
 
-
-
-} 
\ No newline at end of file
+    /**
+     * Respuesta 304 para un cliente que ya tiene la versión vigente.
+     */
+    private static <T> ResponseEntity<T> noModificado(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
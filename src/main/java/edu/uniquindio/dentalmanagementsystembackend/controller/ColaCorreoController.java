@@ -0,0 +1,27 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.sistema.EstadoColaCorreoDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.ColaEnvioCorreo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/administrador/cola-correo")
+@RequiredArgsConstructor
+public class ColaCorreoController {
+
+    private final ColaEnvioCorreo colaEnvioCorreo;
+
+    /**
+     * Obtiene el estado de la cola de envío de correos: correos en espera por prioridad, tiempos de espera,
+     * reintentos, fallos y fichas disponibles del limitador de tasa
+     * @return Estado de la cola de envío
+     */
+    @GetMapping
+    public ResponseEntity<EstadoColaCorreoDTO> obtenerEstado() {
+        return ResponseEntity.ok(colaEnvioCorreo.estado());
+    }
+}
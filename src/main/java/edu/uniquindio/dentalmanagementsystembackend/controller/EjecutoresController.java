@@ -0,0 +1,33 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.config.EjecutorMedido;
+import edu.uniquindio.dentalmanagementsystembackend.dto.sistema.EstadoEjecutorDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/administrador/ejecutores")
+@RequiredArgsConstructor
+public class EjecutoresController {
+
+    private final List<EjecutorMedido> ejecutores;
+
+    /**
+     * Obtiene el estado de los ejecutores de tareas asíncronas: hilos activos, tareas en cola,
+     * tareas rechazadas y tiempos de espera y de ejecución, para dimensionarlos
+     * @return Estado de cada ejecutor
+     */
+    @GetMapping
+    public ResponseEntity<List<EstadoEjecutorDTO>> obtenerEstado() {
+        return ResponseEntity.ok(ejecutores.stream()
+                .map(EjecutorMedido::estado)
+                .sorted(Comparator.comparing(EstadoEjecutorDTO::nombre))
+                .toList());
+    }
+}
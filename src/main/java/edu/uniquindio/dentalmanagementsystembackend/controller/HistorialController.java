@@ -9,12 +9,15 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 @RestController
@@ -95,33 +98,13 @@ public class HistorialController {
      * @throws IllegalStateException Si el PDF generado está vacío o el proceso de generación falla inesperadamente.
      */
     @PostMapping("/paciente/pdf/{id}")
-    public ResponseEntity<byte[]> generarPdfHistorial(@PathVariable("id") String id) {
-        try {
-            // Validación básica del ID
-            if (id == null || id.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("ID de paciente no válido".getBytes());
-            }
-
-            byte[] pdfBytes = pdfGenerator.historialPDF(id);
-
-            // Verificar que el PDF no esté vacío
-            if (pdfBytes == null || pdfBytes.length == 0) {
-                throw new IllegalStateException("El PDF generado está vacío");
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/pdf")
-                    .header("Content-Disposition", "attachment; filename=historial_"+id+".pdf")
-                    .body(pdfBytes);
-
-        } catch (Exception e) {
-            // Log del error completo
-            logger.error("Error al generar PDF para paciente " + id, e);
-
-            // Devuelve un mensaje de error claro
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(("Error al generar PDF: " + e.getMessage()).getBytes());
+    public CompletableFuture<ResponseEntity<byte[]>> generarPdfHistorial(@PathVariable("id") String id) {
+        // Validación básica del ID
+        if (id == null || id.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("ID de paciente no válido".getBytes()));
         }
+        return generarPdf(id, () -> pdfGenerator.generarHistorialPDF(id));
     }
 
 
@@ -138,35 +121,67 @@ public class HistorialController {
      * @throws IllegalStateException Si el PDF generado está vacío.
      */
     @PostMapping("/paciente/pdf/{id}/{anio}")
-    public ResponseEntity<byte[]> generarPdfHistorialPorAnio(
+    public CompletableFuture<ResponseEntity<byte[]>> generarPdfHistorialPorAnio(
             @PathVariable("id") String id,
             @PathVariable("anio") int anio) {
+        // Validación básica del ID
+        if (id == null || id.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("ID de paciente no válido".getBytes()));
+        }
+        return generarPdf(id, () -> pdfGenerator.generarHistorialPDFPorAnio(id, anio));
+    }
+
+    /**
+     * Genera el PDF en el ejecutor de PDF y arma la respuesta con el archivo adjunto.
+     * Si ya hay demasiados PDF en cola responde 503 para que el cliente reintente más tarde.
+     */
+    private CompletableFuture<ResponseEntity<byte[]>> generarPdf(String id, GeneracionPdf generacion) {
+        CompletableFuture<byte[]> pdf;
         try {
-            // Validación básica del ID
-            if (id == null || id.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("ID de paciente no válido".getBytes());
-            }
+            pdf = generacion.iniciar();
+        } catch (TaskRejectedException e) {
+            logger.warn("Generación de PDF rechazada para paciente {}: el ejecutor está lleno", id);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "5")
+                    .body("Hay demasiados PDF en generación, intente de nuevo en unos segundos".getBytes()));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorPdf(id, e));
+        }
 
-            byte[] pdfBytes = pdfGenerator.historialPDFPorAnio(id,anio);
+        return pdf.handle((pdfBytes, error) -> {
+            if (error != null) {
+                return errorPdf(id, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
 
             // Verificar que el PDF no esté vacío
             if (pdfBytes == null || pdfBytes.length == 0) {
-                throw new IllegalStateException("El PDF generado está vacío");
+                return errorPdf(id, new IllegalStateException("El PDF generado está vacío"));
             }
 
             return ResponseEntity.ok()
                     .header("Content-Type", "application/pdf")
                     .header("Content-Disposition", "attachment; filename=historial_"+id+".pdf")
                     .body(pdfBytes);
+        });
+    }
 
-        } catch (Exception e) {
-            // Log del error completo
-            logger.error("Error al generar PDF para paciente " + id, e);
+    private ResponseEntity<byte[]> errorPdf(String id, Throwable e) {
+        // Log del error completo
+        logger.error("Error al generar PDF para paciente " + id, e);
 
-            // Devuelve un mensaje de error claro
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(("Error al generar PDF: " + e.getMessage()).getBytes());
-        }
+        // Devuelve un mensaje de error claro
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(("Error al generar PDF: " + e.getMessage()).getBytes());
+    }
+
+    /**
+     * Inicia la generación de un PDF en segundo plano.
+     */
+    @FunctionalInterface
+    private interface GeneracionPdf {
+        CompletableFuture<byte[]> iniciar() throws Exception;
     }
 
 
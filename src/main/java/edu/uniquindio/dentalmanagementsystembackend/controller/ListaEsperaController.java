@@ -0,0 +1,39 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosListaEspera;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Respuesta a los horarios ofrecidos desde la lista de espera. El token de la oferta solo llega
+ * al paciente en el correo; las solicitudes se manejan en {@link ListaEsperaPacienteController}.
+ */
+@RestController
+@RequestMapping("/api/lista-espera")
+@RequiredArgsConstructor
+public class ListaEsperaController {
+
+    private final ServiciosListaEspera serviciosListaEspera;
+
+    /**
+     * Acepta el horario ofrecido y crea la cita
+     * @param token Token de la oferta
+     * @return Entrada atendida con el ID de la cita
+     */
+    @PostMapping("/ofertas/{token}/aceptar")
+    public ResponseEntity<EntradaListaEsperaDTO> aceptarOferta(@PathVariable String token) {
+        return ResponseEntity.ok(serviciosListaEspera.aceptarOferta(token));
+    }
+
+    /**
+     * Rechaza el horario ofrecido; se ofrece al siguiente paciente de la lista
+     * @param token Token de la oferta
+     */
+    @PostMapping("/ofertas/{token}/rechazar")
+    public ResponseEntity<Void> rechazarOferta(@PathVariable String token) {
+        serviciosListaEspera.rechazarOferta(token);
+        return ResponseEntity.noContent().build();
+    }
+}
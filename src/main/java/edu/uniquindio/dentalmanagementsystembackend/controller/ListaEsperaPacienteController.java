@@ -0,0 +1,68 @@
+package edu.uniquindio.dentalmanagementsystembackend.controller;
+
+import edu.uniquindio.dentalmanagementsystembackend.config.FiltroToken;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearEntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosListaEspera;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Solicitudes de lista de espera del paciente autenticado. El paciente se toma del token,
+ * así que cada uno solo registra, consulta y retira sus propias solicitudes.
+ */
+@RestController
+@RequestMapping("/api/paciente/lista-espera")
+@RequiredArgsConstructor
+public class ListaEsperaPacienteController {
+
+    private final ServiciosListaEspera serviciosListaEspera;
+
+    /**
+     * Registra al paciente en la lista de espera de un doctor o de una especialidad
+     * @param dto DTO con el doctor o la especialidad, el rango de fechas y la franja horaria
+     * @return Entrada creada
+     */
+    @PostMapping
+    public ResponseEntity<EntradaListaEsperaDTO> registrar(
+            @Valid @RequestBody CrearEntradaListaEsperaDTO dto,
+            @RequestAttribute(name = FiltroToken.ATRIBUTO_USUARIO, required = false) String usuarioId) {
+        if (!dto.pacienteId().equals(usuarioId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(serviciosListaEspera.registrar(dto));
+    }
+
+    /**
+     * Obtiene las entradas de lista de espera del paciente, incluido el horario que se le esté ofreciendo
+     * @return Entradas del paciente
+     */
+    @GetMapping
+    public ResponseEntity<List<EntradaListaEsperaDTO>> obtenerPropias(
+            @RequestAttribute(name = FiltroToken.ATRIBUTO_USUARIO, required = false) String usuarioId) {
+        if (usuarioId == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(serviciosListaEspera.obtenerPorPaciente(usuarioId));
+    }
+
+    /**
+     * Saca al paciente de la lista de espera
+     * @param id ID de la entrada
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> retirar(
+            @PathVariable Long id,
+            @RequestAttribute(name = FiltroToken.ATRIBUTO_USUARIO, required = false) String usuarioId) {
+        if (usuarioId == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        serviciosListaEspera.retirar(id, usuarioId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,16 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Agenda de un doctor en un día, con sus citas ordenadas por hora.
+ *
+ * @param version Versión de la agenda; cambia cada vez que se modifica alguna de sus citas
+ */
+public record AgendaDoctorDiaDTO(
+    String doctorId,
+    LocalDate fecha,
+    long version,
+    List<EntradaAgendaDTO> citas
+) {}
@@ -0,0 +1,16 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con el resultado de comparar el índice de disponibilidad en memoria con la base de datos
+ * para un doctor y una fecha.
+ */
+public record ConsistenciaIndiceDTO(
+    String doctorId,
+    LocalDate fecha,
+    boolean consistente,
+    int minutosOcupadosIndice,
+    int minutosOcupadosBaseDatos,
+    int minutosDiferentes
+) {} 
@@ -0,0 +1,21 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Solicitud de lista de espera. Se indica un doctor o una especialidad, no ambos.
+ */
+public record CrearEntradaListaEsperaDTO(
+        @NotNull String pacienteId,
+        String doctorId,
+        Long especialidadId,
+        @NotNull Long tipoCitaId,
+        @NotNull LocalDate fechaDesde,
+        @NotNull LocalDate fechaHasta,
+        @NotNull LocalTime horaDesde,
+        @NotNull LocalTime horaHasta
+) {
+}
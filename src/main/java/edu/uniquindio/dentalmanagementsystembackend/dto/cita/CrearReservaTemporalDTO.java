@@ -0,0 +1,14 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record CrearReservaTemporalDTO(
+        @NotNull String doctorId,
+        @NotNull LocalDate fecha,
+        @NotNull LocalTime hora,
+        @NotNull Long tipoCitaId
+) {
+}
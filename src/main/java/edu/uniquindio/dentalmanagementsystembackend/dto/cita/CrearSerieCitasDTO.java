@@ -0,0 +1,20 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FrecuenciaSerie;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record CrearSerieCitasDTO(
+        @NotNull String pacienteId,
+        @NotNull String doctorId,
+        @NotNull LocalDate fechaInicio,
+        @NotNull LocalTime hora,
+        @NotNull Long tipoCitaId,
+        @NotNull FrecuenciaSerie frecuencia,
+        @NotNull @Min(2) @Max(52) Integer ocurrencias
+) {
+}
@@ -0,0 +1,13 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+/**
+ * Fila de la relación especialidad-doctor usada para construir el directorio de especialidades.
+ * Los datos del doctor son null cuando la especialidad no tiene doctores asignados.
+ */
+public record DoctorEspecialidadFilaDTO(
+    Long especialidadId,
+    String especialidadNombre,
+    String doctorId,
+    String doctorNombre,
+    String doctorApellido
+) {}
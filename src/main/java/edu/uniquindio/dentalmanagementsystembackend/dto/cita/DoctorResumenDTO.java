@@ -0,0 +1,10 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+/**
+ * DTO con los datos básicos de un doctor, obtenido directamente por proyección.
+ */
+public record DoctorResumenDTO(
+    String id,
+    String nombre,
+    String apellido
+) {}
@@ -0,0 +1,22 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+
+import java.time.LocalTime;
+
+/**
+ * Cita tal como se muestra en la agenda diaria del doctor.
+ * Para citas no autenticadas el nombre, el correo y el teléfono son los que dejó el paciente al agendar.
+ */
+public record EntradaAgendaDTO(
+    Long citaId,
+    LocalTime hora,
+    int duracionMinutos,
+    EstadoCitas estado,
+    String pacienteId,
+    String pacienteNombre,
+    String email,
+    String telefono,
+    Long tipoCitaId,
+    String tipoCitaNombre
+) {}
@@ -0,0 +1,26 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoListaEspera;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+public record EntradaListaEsperaDTO(
+        Long id,
+        String pacienteId,
+        String doctorId,
+        Long especialidadId,
+        Long tipoCitaId,
+        LocalDate fechaDesde,
+        LocalDate fechaHasta,
+        LocalTime horaDesde,
+        LocalTime horaHasta,
+        EstadoListaEspera estado,
+        String ofertaDoctorId,
+        LocalDateTime ofertaFechaHora,
+        Instant ofertaExpiraEn,
+        Long citaId
+) {
+}
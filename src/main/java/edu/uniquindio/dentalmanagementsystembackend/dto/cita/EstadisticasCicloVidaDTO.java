@@ -0,0 +1,26 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.Instant;
+
+/**
+ * Estadísticas del proceso que vence las citas pendientes y confirmadas cuyo horario ya pasó.
+ *
+ * @param ultimaEjecucion Inicio de la última ejecución, o null si aún no se ha ejecutado
+ * @param duracionMilisegundos Duración de la última ejecución
+ * @param expiradas Citas pendientes marcadas como EXPIRADA en la última ejecución
+ * @param noAsistio Citas confirmadas marcadas como NO_ASISTIO en la última ejecución
+ * @param lotes Transacciones usadas en la última ejecución
+ * @param ejecuciones Ejecuciones desde que arrancó la aplicación
+ * @param totalExpiradas Citas marcadas como EXPIRADA desde que arrancó la aplicación
+ * @param totalNoAsistio Citas marcadas como NO_ASISTIO desde que arrancó la aplicación
+ */
+public record EstadisticasCicloVidaDTO(
+    Instant ultimaEjecucion,
+    long duracionMilisegundos,
+    int expiradas,
+    int noAsistio,
+    int lotes,
+    long ejecuciones,
+    long totalExpiradas,
+    long totalNoAsistio
+) {}
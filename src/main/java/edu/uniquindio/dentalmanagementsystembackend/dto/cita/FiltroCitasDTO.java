@@ -0,0 +1,23 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros y paginación de los listados de citas. Todos los campos son opcionales.
+ *
+ * @param desde Primera fecha incluida
+ * @param hasta Última fecha incluida
+ * @param estado Estado de las citas
+ * @param cursor Cursor devuelto por la página anterior
+ * @param limite Cantidad máxima de citas por página
+ */
+public record FiltroCitasDTO(
+        LocalDate desde,
+        LocalDate hasta,
+        EstadoCitas estado,
+        String cursor,
+        Integer limite
+) {
+}
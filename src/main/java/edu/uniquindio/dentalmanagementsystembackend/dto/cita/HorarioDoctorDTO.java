@@ -0,0 +1,16 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO para mostrar un horario libre junto con el doctor que lo atiende.
+ * Se usa en la búsqueda del primer horario disponible de una especialidad.
+ */
+public record HorarioDoctorDTO(
+    String doctorId,
+    String doctorNombre,
+    String doctorApellido,
+    LocalDate fecha,
+    LocalTime hora
+) {}
@@ -0,0 +1,16 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Proyección de una franja activa del horario semanal de un doctor.
+ * Solo trae las columnas necesarias para armar la plantilla semanal, sin cargar la entidad.
+ */
+public record HorarioSemanalDTO(
+    String doctorId,
+    DayOfWeek diaSemana,
+    LocalTime horaInicio,
+    LocalTime horaFin,
+    Integer intervaloCitasMinutos
+) {}
@@ -0,0 +1,12 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.Instant;
+
+/**
+ * DTO con los datos mínimos de una cita necesarios para calcular la ocupación de un doctor.
+ */
+public record OcupacionCitaDTO(
+    Long citaId,
+    Instant fechaHora,
+    Integer duracionMinutos
+) {}
@@ -0,0 +1,15 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.util.List;
+
+/**
+ * Página de un listado de citas.
+ *
+ * @param citas Citas de la página, ordenadas por fecha y hora
+ * @param siguienteCursor Cursor para pedir la página siguiente, o null si no hay más citas
+ */
+public record PaginaCitasDTO(
+        List<CitaDTO> citas,
+        String siguienteCursor
+) {
+}
@@ -0,0 +1,17 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Horario apartado temporalmente. El token se envía en el encabezado X-Reserva-Token al crear la cita.
+ */
+public record ReservaTemporalDTO(
+        String token,
+        String doctorId,
+        LocalDate fecha,
+        LocalTime hora,
+        Instant expiraEn
+) {
+}
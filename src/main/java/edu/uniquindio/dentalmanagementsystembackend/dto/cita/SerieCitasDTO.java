@@ -0,0 +1,20 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.cita;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FrecuenciaSerie;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Serie creada con el id y la fecha de cada una de sus citas, en orden.
+ */
+public record SerieCitasDTO(
+        Long id,
+        String pacienteId,
+        String doctorId,
+        Long tipoCitaId,
+        FrecuenciaSerie frecuencia,
+        List<Long> citaIds,
+        List<LocalDateTime> fechas
+) {
+}
@@ -0,0 +1,23 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.email;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+
+import java.time.Instant;
+
+/**
+ * Mensaje de la bandeja de salida sin el cuerpo del correo.
+ */
+public record MensajeSalidaDTO(
+        Long id,
+        String tipo,
+        Long citaId,
+        String destinatario,
+        String asunto,
+        EstadoMensajeSalida estado,
+        int intentos,
+        Instant proximoIntento,
+        String ultimoError,
+        Instant creadoEn,
+        Instant enviadoEn
+) {
+}
@@ -0,0 +1,11 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.email;
+
+/**
+ * Cantidad de mensajes de la bandeja de salida en cada estado.
+ */
+public record ResumenBandejaSalidaDTO(
+        long pendientes,
+        long enviados,
+        long fallidos
+) {
+}
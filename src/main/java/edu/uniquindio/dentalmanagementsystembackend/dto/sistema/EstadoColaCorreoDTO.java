@@ -0,0 +1,20 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.sistema;
+
+import java.util.List;
+
+/**
+ * Estado de la cola de envío de correos y de su limitador de tasa.
+ */
+public record EstadoColaCorreoDTO(
+        double fichasPorSegundo,
+        int rafagaMaxima,
+        double fichasDisponibles,
+        int enVuelo,
+        int diferidos,
+        long reintentos,
+        long fallidos,
+        long rechazados,
+        long pausasPorServidor,
+        List<EstadoPrioridadCorreoDTO> prioridades
+) {
+}
@@ -0,0 +1,20 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.sistema;
+
+/**
+ * Estado de un ejecutor de tareas asíncronas, para dimensionar sus hilos y su cola.
+ */
+public record EstadoEjecutorDTO(
+        String nombre,
+        int hilosActivos,
+        int hilosEnPool,
+        int hilosMaximos,
+        int tareasEnCola,
+        int capacidadCola,
+        long tareasCompletadas,
+        long tareasRechazadas,
+        double esperaPromedioMs,
+        double esperaMaximaMs,
+        double ejecucionPromedioMs,
+        double ejecucionMaximaMs
+) {
+}
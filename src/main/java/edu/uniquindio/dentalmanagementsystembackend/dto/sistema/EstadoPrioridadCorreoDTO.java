@@ -0,0 +1,16 @@
+package edu.uniquindio.dentalmanagementsystembackend.dto.sistema;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.PrioridadCorreo;
+
+/**
+ * Correos de una prioridad: cuántos esperan, cuántos salieron y cuánto esperaron en la cola
+ * (desde que se encolaron hasta que se entregaron al servidor SMTP, incluidos los reintentos).
+ */
+public record EstadoPrioridadCorreoDTO(
+        PrioridadCorreo prioridad,
+        int enCola,
+        long enviados,
+        double esperaPromedioMs,
+        double esperaMaximaMs
+) {
+}
@@ -3,6 +3,7 @@ package edu.uniquindio.dentalmanagementsystembackend.entity.Account;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.Rol;
 import edu.uniquindio.dentalmanagementsystembackend.entity.DisponibilidadDoctor;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Especialidad;
+import edu.uniquindio.dentalmanagementsystembackend.event.DirectorioEspecialidadesListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -16,6 +17,7 @@ import java.util.*;
 @ToString(exclude = {"account", "historialesComoPaciente", "historialesComoOdontologo", "disponibilidades", "especialidades"})
 @EqualsAndHashCode(of = "idNumber", exclude = {"account", "historialesComoPaciente", "historialesComoOdontologo", "disponibilidades", "especialidades"})
 @Entity
+@EntityListeners(DirectorioEspecialidadesListener.class)
 @Table(name = "users")
 public class User {
 
@@ -0,0 +1,58 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Modelo de lectura de la agenda de un doctor en un día. Guarda ya armadas las citas del día
+ * (paciente, tipo de cita, duración, estado y datos de contacto) en formato JSON, de modo que la
+ * vista diaria del doctor se resuelve con una sola búsqueda por clave primaria.
+ * Se mantiene al modificar cada cita; la fuente de verdad sigue siendo la tabla de citas.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@IdClass(AgendaDoctorDia.Clave.class)
+@Table(name = "agenda_doctor_dia")
+public class AgendaDoctorDia {
+
+    @Id
+    @Column(name = "doctor_id", length = 20, nullable = false)
+    private String doctorId;
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    // Lista de EntradaAgendaDTO en JSON, ordenada por hora
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    private String citas;
+
+    @Version
+    private long version;
+
+    @Column(name = "actualizada_en", nullable = false)
+    private Instant actualizadaEn;
+
+    /**
+     * Clave primaria compuesta (doctor, fecha).
+     */
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Clave implements Serializable {
+        private String doctorId;
+        private LocalDate fecha;
+    }
+}
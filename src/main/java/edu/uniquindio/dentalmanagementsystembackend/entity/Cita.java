@@ -17,9 +17,25 @@ import java.time.Instant;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString(exclude = {"paciente", "doctor", "tipoCita"})
 @Entity
-@Table(name = "citas")
+@Table(name = "citas", uniqueConstraints = {
+    @UniqueConstraint(name = Cita.RESTRICCION_HORARIO_UNICO, columnNames = {"doctor_id", "fecha_hora", "slot_activo"})
+}, indexes = {
+    // Respaldan los listados paginados por (fecha_hora, id)
+    @Index(name = "idx_cita_doctor_fecha", columnList = "doctor_id, fecha_hora, id"),
+    @Index(name = "idx_cita_doctor_autenticada_fecha", columnList = "doctor_id, es_autenticada, fecha_hora, id"),
+    @Index(name = "idx_cita_paciente_fecha", columnList = "paciente_id, fecha_hora, id"),
+    @Index(name = "idx_cita_no_autenticado_fecha", columnList = "numero_identificacion_no_autenticado, fecha_hora, id"),
+    @Index(name = "idx_cita_fecha", columnList = "fecha_hora, id"),
+    @Index(name = "idx_cita_estado_fecha", columnList = "estado, fecha_hora, id"),
+    @Index(name = "idx_cita_serie", columnList = "serie_id")
+})
 public class Cita {
 
+    /**
+     * Restricción que impide dos citas activas del mismo doctor a la misma hora.
+     */
+    public static final String RESTRICCION_HORARIO_UNICO = "uk_cita_doctor_horario_activo";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @EqualsAndHashCode.Include
@@ -56,13 +72,23 @@ public class Cita {
     private Instant fechaHora;
 
     @Enumerated(EnumType.STRING)
-    @Column(name = "estado", nullable = false, length = 20)
+    @Column(name = "estado", nullable = false, length = 20, columnDefinition = "varchar(20)")
     private EstadoCitas estado;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "tipo_cita_id", nullable = false)
     private TipoCita tipoCita;
 
+    // true mientras la cita ocupa su horario y null cuando se cancela o vence: como la restricción única
+    // no compara valores null, esas citas no bloquean el horario
+    @Column(name = "slot_activo")
+    @Setter(AccessLevel.NONE)
+    private Boolean slotActivo;
+
+    // Serie recurrente a la que pertenece la cita, o null si se agendó sola
+    @Column(name = "serie_id")
+    private Long serieId;
+
     public Cita(User paciente, User doctor, Instant fechaHora, EstadoCitas estado, TipoCita tipoCita) {
         this.paciente = paciente;
         this.doctor = doctor;
@@ -85,4 +111,10 @@ public class Cita {
         this.tipoCita = tipoCita;
         this.esAutenticada = false;
     }
+
+    @PrePersist
+    @PreUpdate
+    private void actualizarSlotActivo() {
+        this.slotActivo = estado.ocupaHorario() ? Boolean.TRUE : null;
+    }
 }
@@ -2,6 +2,7 @@ package edu.uniquindio.dentalmanagementsystembackend.entity;
 
 import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
+import edu.uniquindio.dentalmanagementsystembackend.event.DisponibilidadDoctorListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -16,6 +17,7 @@ import java.time.LocalTime;
 @Entity
 @Data
 @NoArgsConstructor
+@EntityListeners(DisponibilidadDoctorListener.class)
 @Table(name = "disponibilidad_doctor", indexes = {
     @Index(name = "idx_disponibilidad_doctor", columnList = "doctor_id"),
     @Index(name = "idx_disponibilidad_fecha", columnList = "dia_semana")
@@ -0,0 +1,83 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoListaEspera;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Paciente en lista de espera para un doctor o para cualquier doctor de una especialidad,
+ * con el rango de fechas y la franja horaria que le sirven.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "lista_espera", indexes = {
+    @Index(name = "idx_lista_espera_estado", columnList = "estado, fecha_hasta"),
+    @Index(name = "idx_lista_espera_paciente", columnList = "paciente_id, creada_en")
+})
+public class EntradaListaEspera {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "paciente_id", nullable = false, length = 20)
+    private String pacienteId;
+
+    // Solo uno de los dos: un doctor específico o cualquier doctor de la especialidad
+    @Column(name = "doctor_id", length = 20)
+    private String doctorId;
+
+    @Column(name = "especialidad_id")
+    private Long especialidadId;
+
+    @Column(name = "tipo_cita_id", nullable = false)
+    private Long tipoCitaId;
+
+    // Duración del tipo de cita al registrarse, con la que se buscan horarios
+    @Column(name = "duracion_minutos", nullable = false)
+    private Integer duracionMinutos;
+
+    @Column(name = "fecha_desde", nullable = false)
+    private LocalDate fechaDesde;
+
+    @Column(name = "fecha_hasta", nullable = false)
+    private LocalDate fechaHasta;
+
+    @Column(name = "hora_desde", nullable = false)
+    private LocalTime horaDesde;
+
+    @Column(name = "hora_hasta", nullable = false)
+    private LocalTime horaHasta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20, columnDefinition = "varchar(20)")
+    private EstadoListaEspera estado;
+
+    @Column(name = "creada_en", nullable = false)
+    private Instant creadaEn;
+
+    // Horario ofrecido mientras la entrada está OFERTADA; el token es el de la reserva temporal que lo aparta
+    @Column(name = "oferta_token", length = 36)
+    private String ofertaToken;
+
+    @Column(name = "oferta_doctor_id", length = 20)
+    private String ofertaDoctorId;
+
+    @Column(name = "oferta_fecha_hora")
+    private Instant ofertaFechaHora;
+
+    @Column(name = "oferta_expira_en")
+    private Instant ofertaExpiraEn;
+
+    // Cita creada al aceptar la oferta
+    @Column(name = "cita_id")
+    private Long citaId;
+}
@@ -1,6 +1,7 @@
 package edu.uniquindio.dentalmanagementsystembackend.entity;
 
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
+import edu.uniquindio.dentalmanagementsystembackend.event.DirectorioEspecialidadesListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -23,6 +24,7 @@ import java.util.Set;
 @NoArgsConstructor
 @ToString(exclude = {"doctores", "tiposCita"})
 @EqualsAndHashCode(of = "id", exclude = {"doctores", "tiposCita"})
+@EntityListeners(DirectorioEspecialidadesListener.class)
 @Table(name = "especialidades", indexes = {
     @Index(name = "idx_especialidad_nombre", columnList = "nombre", unique = true)
 })
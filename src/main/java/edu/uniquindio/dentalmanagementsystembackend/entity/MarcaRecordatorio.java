@@ -0,0 +1,33 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Hasta dónde llegó el envío de recordatorios con cierta antelación, en el orden (fechaHora, id)
+ * de las citas. Cada barrido continúa desde aquí en lugar de recorrer de nuevo la tabla de citas.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "marcas_recordatorio")
+public class MarcaRecordatorio {
+
+    @Id
+    @Column(name = "antelacion_minutos")
+    private Integer antelacionMinutos;
+
+    // Fecha y ID de la última cita procesada
+    @Column(name = "fecha_hora", nullable = false)
+    private Instant fechaHora;
+
+    @Column(name = "cita_id", nullable = false)
+    private Long citaId;
+}
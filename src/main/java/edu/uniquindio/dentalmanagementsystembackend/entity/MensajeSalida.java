@@ -0,0 +1,64 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Correo pendiente de la bandeja de salida. Se guarda en la misma transacción que el cambio de la cita
+ * que lo origina, de modo que solo se envía si ese cambio se confirma; un relevo en segundo plano lo envía.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "bandeja_salida", indexes = {
+    // Respalda la búsqueda de mensajes pendientes que ya deben enviarse
+    @Index(name = "idx_bandeja_estado_intento", columnList = "estado, proximo_intento, id")
+})
+public class MensajeSalida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Motivo del correo (confirmación, cancelación, ...), para revisar la bandeja
+    @Column(name = "tipo", nullable = false, length = 40)
+    private String tipo;
+
+    @Column(name = "cita_id")
+    private Long citaId;
+
+    @Column(name = "destinatario", nullable = false)
+    private String destinatario;
+
+    @Column(name = "asunto", nullable = false)
+    private String asunto;
+
+    @Column(name = "cuerpo", nullable = false, columnDefinition = "LONGTEXT")
+    private String cuerpo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20, columnDefinition = "varchar(20)")
+    private EstadoMensajeSalida estado;
+
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+
+    // Mientras un relevo envía el mensaje, se corre hacia adelante para que otro no lo tome
+    @Column(name = "proximo_intento", nullable = false)
+    private Instant proximoIntento;
+
+    @Column(name = "ultimo_error", length = 1000)
+    private String ultimoError;
+
+    @Column(name = "creado_en", nullable = false)
+    private Instant creadoEn;
+
+    @Column(name = "enviado_en")
+    private Instant enviadoEn;
+}
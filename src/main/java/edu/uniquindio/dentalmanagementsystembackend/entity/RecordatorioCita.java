@@ -0,0 +1,39 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Recordatorio ya enviado para una cita con cierta antelación. Si la cita se reprograma,
+ * la nueva fecha cuenta como otra cita y vuelve a recibir sus recordatorios.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "recordatorios_cita", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_recordatorio_cita", columnNames = {"cita_id", "antelacion_minutos", "fecha_hora_cita"})
+})
+public class RecordatorioCita {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cita_id", nullable = false)
+    private Long citaId;
+
+    @Column(name = "antelacion_minutos", nullable = false)
+    private Integer antelacionMinutos;
+
+    // Fecha de la cita al momento de enviar el recordatorio
+    @Column(name = "fecha_hora_cita", nullable = false)
+    private Instant fechaHoraCita;
+
+    @Column(name = "enviado_en", nullable = false)
+    private Instant enviadoEn;
+}
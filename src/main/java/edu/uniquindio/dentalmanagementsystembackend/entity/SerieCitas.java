@@ -0,0 +1,58 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FrecuenciaSerie;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Serie de citas recurrentes (por ejemplo, controles de ortodoncia). Guarda la regla con la que se
+ * generaron las ocurrencias; cada ocurrencia es una {@link Cita} normal que apunta a la serie.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = {"paciente", "doctor", "tipoCita"})
+@Table(name = "series_citas")
+public class SerieCitas {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "paciente_id", nullable = false)
+    private User paciente;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private User doctor;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "tipo_cita_id", nullable = false)
+    private TipoCita tipoCita;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "frecuencia", nullable = false, length = 20, columnDefinition = "varchar(20)")
+    private FrecuenciaSerie frecuencia;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDate fechaInicio;
+
+    @Column(name = "hora", nullable = false)
+    private LocalTime hora;
+
+    @Column(name = "ocurrencias", nullable = false)
+    private Integer ocurrencias;
+
+    @Column(name = "creada_en", nullable = false)
+    private Instant creadaEn;
+}
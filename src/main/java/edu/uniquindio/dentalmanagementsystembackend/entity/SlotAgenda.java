@@ -0,0 +1,57 @@
+package edu.uniquindio.dentalmanagementsystembackend.entity;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Horario reservable de un doctor, generado de antemano a partir de su horario semanal.
+ * Reservar una cita consiste en tomar las filas libres que cubren su duración.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = "doctor")
+@Table(name = "slots_agenda",
+        uniqueConstraints = {
+            @UniqueConstraint(name = "uk_slot_doctor_fecha_hora", columnNames = {"doctor_id", "fecha", "hora"})
+        },
+        indexes = {
+            @Index(name = "idx_slot_doctor_estado_fecha", columnList = "doctor_id, estado, fecha, hora"),
+            @Index(name = "idx_slot_cita", columnList = "cita_id")
+        })
+public class SlotAgenda {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private User doctor;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private LocalTime hora;
+
+    @Column(name = "duracion_minutos", nullable = false)
+    private Integer duracionMinutos;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 15)
+    private EstadoSlot estado = EstadoSlot.LIBRE;
+
+    // Cita que ocupa el horario, null mientras está libre
+    @Column(name = "cita_id")
+    private Long citaId;
+}
@@ -0,0 +1,50 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+
+import java.time.Instant;
+
+/**
+ * Evento publicado cada vez que una cita se crea o cambia de horario, doctor o estado.
+ * Los campos "anterior" solo se llenan cuando la cita tenía otro doctor u otra fecha antes del cambio.
+ *
+ * @param citaId ID de la cita modificada
+ * @param doctorId ID del doctor actual de la cita
+ * @param pacienteId ID del paciente (o número de identificación si la cita no es autenticada)
+ * @param fechaHora Fecha y hora actual de la cita
+ * @param duracionMinutos Duración del tipo de cita, o null si la cita no tiene tipo
+ * @param estado Estado actual de la cita
+ * @param doctorIdAnterior ID del doctor antes del cambio, o null si no cambió
+ * @param fechaHoraAnterior Fecha y hora antes del cambio, o null si no cambió
+ */
+public record CitaModificadaEvent(
+        Long citaId,
+        String doctorId,
+        String pacienteId,
+        Instant fechaHora,
+        Integer duracionMinutos,
+        EstadoCitas estado,
+        String doctorIdAnterior,
+        Instant fechaHoraAnterior
+) {
+    /**
+     * Indica si la cita sigue ocupando su horario después del cambio.
+     */
+    public boolean ocupaHorario() {
+        return estado.ocupaHorario();
+    }
+
+    /**
+     * Doctor al que pertenecía la cita antes del cambio.
+     */
+    public String doctorOriginal() {
+        return doctorIdAnterior != null ? doctorIdAnterior : doctorId;
+    }
+
+    /**
+     * Fecha y hora que tenía la cita antes del cambio.
+     */
+    public Instant fechaHoraOriginal() {
+        return fechaHoraAnterior != null ? fechaHoraAnterior : fechaHora;
+    }
+}
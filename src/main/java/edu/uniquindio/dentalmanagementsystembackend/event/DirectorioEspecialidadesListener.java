@@ -0,0 +1,28 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de las entidades que forman el directorio de especialidades (especialidades y usuarios).
+ * Cada escritura se publica como {@link DirectorioModificadoEvent} para que el directorio se recargue.
+ */
+@Component
+public class DirectorioEspecialidadesListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alModificar(Object entidad) {
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new DirectorioModificadoEvent(entidad.getClass().getSimpleName()));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+/**
+ * Evento publicado cuando cambia una especialidad o un usuario, lo que puede alterar
+ * qué doctores atienden cada especialidad.
+ *
+ * @param origen Entidad que originó el cambio (para los logs)
+ */
+public record DirectorioModificadoEvent(String origen) {}
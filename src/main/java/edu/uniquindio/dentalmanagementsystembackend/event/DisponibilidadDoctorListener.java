@@ -0,0 +1,29 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.DisponibilidadDoctor;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de {@link DisponibilidadDoctor}: cada escritura del horario de un doctor
+ * se publica como {@link DisponibilidadModificadaEvent} para invalidar lo que se tenga en caché.
+ */
+@Component
+public class DisponibilidadDoctorListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alModificar(DisponibilidadDoctor disponibilidad) {
+        if (eventPublisher != null && disponibilidad.getDoctor() != null) {
+            eventPublisher.publishEvent(new DisponibilidadModificadaEvent(disponibilidad.getDoctor().getIdNumber()));
+        }
+    }
+}
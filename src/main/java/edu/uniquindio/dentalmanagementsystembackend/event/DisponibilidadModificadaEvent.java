@@ -0,0 +1,8 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+/**
+ * Evento publicado cuando se crea, modifica o elimina una franja del horario semanal de un doctor.
+ *
+ * @param doctorId ID del doctor cuyo horario cambió
+ */
+public record DisponibilidadModificadaEvent(String doctorId) {}
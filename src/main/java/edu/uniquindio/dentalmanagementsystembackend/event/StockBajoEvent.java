@@ -0,0 +1,25 @@
+package edu.uniquindio.dentalmanagementsystembackend.event;
+
+/**
+ * Evento publicado cuando el uso de un producto deja su cantidad disponible por debajo de la mínima.
+ *
+ * @param productoId ID del producto del inventario
+ * @param nombre Nombre del producto
+ * @param cantidadAnterior Cantidad disponible antes del uso
+ * @param cantidadDisponible Cantidad disponible después del uso
+ * @param cantidadMinima Cantidad mínima configurada para el producto
+ */
+public record StockBajoEvent(
+        Long productoId,
+        String nombre,
+        int cantidadAnterior,
+        int cantidadDisponible,
+        int cantidadMinima
+) {
+    /**
+     * Indica si este uso fue el que dejó el producto sin existencias.
+     */
+    public boolean seAgoto() {
+        return cantidadDisponible == 0 && cantidadAnterior > 0;
+    }
+}
@@ -1,5 +1,7 @@
 package edu.uniquindio.dentalmanagementsystembackend.exception;
 
+import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +15,25 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(e.getMessage());
     }
 
+    @ExceptionHandler(HorarioOcupadoException.class)
+    public ResponseEntity<ErrorDetails> handleHorarioOcupadoException(HorarioOcupadoException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                new ErrorDetails(HttpStatus.CONFLICT.value(), e.getClass().getSimpleName(), e.getMessage()));
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrityViolationException(DataIntegrityViolationException e) {
+        // Una violación de la restricción de horario que llega hasta aquí (por ejemplo al confirmar la
+        // transacción de una reprogramación) también es un conflicto de horario
+        String detalle = e.getMostSpecificCause().getMessage();
+        if (detalle != null && detalle.contains(Cita.RESTRICCION_HORARIO_UNICO)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorDetails(HttpStatus.CONFLICT.value(), HorarioOcupadoException.class.getSimpleName(),
+                            "Ya existe una cita programada para ese horario"));
+        }
+        return handleException(e);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleException(Exception e) {
         e.printStackTrace(); // útil para ver el error en consola
@@ -0,0 +1,15 @@
+package edu.uniquindio.dentalmanagementsystembackend.exception;
+
+/**
+ * Se lanza cuando el horario solicitado para una cita ya fue tomado por otra cita activa del doctor.
+ * Se responde con 409 (Conflict) para que el cliente pueda ofrecer otro horario.
+ */
+public class HorarioOcupadoException extends RuntimeException {
+    public HorarioOcupadoException(String message) {
+        super(message);
+    }
+
+    public HorarioOcupadoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
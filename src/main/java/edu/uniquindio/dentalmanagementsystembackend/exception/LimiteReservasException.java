@@ -0,0 +1,11 @@
+package edu.uniquindio.dentalmanagementsystembackend.exception;
+
+/**
+ * Se lanza cuando un cliente ya tiene el máximo de reservas temporales vigentes.
+ * Se responde con 429 (Too Many Requests) para que espere a que alguna se canjee o expire.
+ */
+public class LimiteReservasException extends RuntimeException {
+    public LimiteReservasException(String message) {
+        super(message);
+    }
+}
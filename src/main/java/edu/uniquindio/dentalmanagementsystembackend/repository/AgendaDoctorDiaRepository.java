@@ -0,0 +1,41 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.AgendaDoctorDia;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface AgendaDoctorDiaRepository extends JpaRepository<AgendaDoctorDia, AgendaDoctorDia.Clave> {
+
+    /**
+     * Obtiene la agenda del día bloqueándola hasta el fin de la transacción, para que dos cambios
+     * de citas del mismo doctor y día no se pisen al reescribir la lista.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AgendaDoctorDia a WHERE a.doctorId = :doctorId AND a.fecha = :fecha")
+    Optional<AgendaDoctorDia> bloquear(@Param("doctorId") String doctorId, @Param("fecha") LocalDate fecha);
+
+    /**
+     * Crea la agenda del día si todavía no existe. Si otra transacción la creó primero, no hace nada.
+     *
+     * @return 1 si se creó, 0 si ya existía
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO agenda_doctor_dia (doctor_id, fecha, citas, version, actualizada_en) " +
+            "VALUES (:doctorId, :fecha, :citas, 0, :actualizadaEn)", nativeQuery = true)
+    int insertarSiNoExiste(
+            @Param("doctorId") String doctorId,
+            @Param("fecha") LocalDate fecha,
+            @Param("citas") String citas,
+            @Param("actualizadaEn") Instant actualizadaEn
+    );
+}
@@ -1,22 +1,114 @@
 package edu.uniquindio.dentalmanagementsystembackend.repository;
 
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.OcupacionCitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CitasRepository extends JpaRepository<Cita, Long> {
 
+    /**
+     * Proyección común de los listados de citas: arma el CitaDTO en la misma consulta con LEFT JOIN
+     * a paciente, cuenta, doctor y tipo de cita, en lugar de cargar cada asociación perezosa por fila.
+     * Para citas no autenticadas los datos del paciente salen de las columnas de la propia cita.
+     */
+    String SELECT_CITA_DTO = "SELECT new edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO(" +
+            "c.id, " +
+            "COALESCE(p.idNumber, c.numeroIdentificacionNoAutenticado), " +
+            "COALESCE(CONCAT(p.name, ' ', p.lastName), c.nombrePacienteNoAutenticado, 'Nombre no disponible'), " +
+            "d.idNumber, " +
+            "COALESCE(CONCAT(d.name, ' ', d.lastName), 'Doctor no disponible'), " +
+            "c.fechaHora, " +
+            "c.estado, " +
+            "COALESCE(a.email, c.emailNoAutenticado), " +
+            "COALESCE(p.phoneNumber, c.telefonoNoAutenticado), " +
+            "t.id, " +
+            "COALESCE(t.nombre, 'Tipo de cita no disponible'), " +
+            "COALESCE(t.duracionMinutos, 0)) " +
+            "FROM Cita c " +
+            "LEFT JOIN c.paciente p " +
+            "LEFT JOIN p.account a " +
+            "LEFT JOIN c.doctor d " +
+            "LEFT JOIN c.tipoCita t ";
+
+    String ORDEN_CITA_DTO = " ORDER BY c.fechaHora, c.id";
+
+    /**
+     * Estados en los que una cita ya no bloquea su horario (ver EstadoCitas.ocupaHorario).
+     */
+    String ESTADOS_SIN_HORARIO = "(edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas.CANCELADA, " +
+            "edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas.EXPIRADA, " +
+            "edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas.NO_ASISTIO)";
+
+    /**
+     * Filtros opcionales de los listados paginados y condición de keyset: con cursor, solo las citas
+     * posteriores a (cursorFecha, cursorId) en el orden (fechaHora, id).
+     */
+    String FILTRO_PAGINA_CITAS = " AND (:desde IS NULL OR c.fechaHora >= :desde)" +
+            " AND (:hasta IS NULL OR c.fechaHora < :hasta)" +
+            " AND (:estado IS NULL OR c.estado = :estado)" +
+            " AND (:cursorFecha IS NULL OR c.fechaHora > :cursorFecha" +
+            " OR (c.fechaHora = :cursorFecha AND c.id > :cursorId))";
+
+    /**
+     * Citas de un paciente autenticado, ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE p.idNumber = :idPaciente" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTOByPaciente(@Param("idPaciente") String idPaciente);
+
+    /**
+     * Todas las citas de un doctor (autenticadas y no autenticadas), ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTOByDoctor(@Param("idDoctor") String idDoctor);
+
+    /**
+     * Citas autenticadas de un doctor, ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.esAutenticada = true" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTOAutenticadasByDoctor(@Param("idDoctor") String idDoctor);
+
+    /**
+     * Citas no autenticadas de un doctor, ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.esAutenticada = false" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTONoAutenticadasByDoctor(@Param("idDoctor") String idDoctor);
+
+    /**
+     * Citas no autenticadas de un doctor que tienen nombre e identificación del paciente, ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.esAutenticada = false " +
+            "AND c.nombrePacienteNoAutenticado IS NOT NULL " +
+            "AND c.numeroIdentificacionNoAutenticado IS NOT NULL" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTOValidasNoAutenticadasByDoctor(@Param("idDoctor") String idDoctor);
+
+    /**
+     * Citas no autenticadas de un paciente por su número de identificación, ya proyectadas a CitaDTO.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.numeroIdentificacionNoAutenticado = :numeroIdentificacion " +
+            "AND c.esAutenticada = false" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTONoAutenticadasByPaciente(@Param("numeroIdentificacion") String numeroIdentificacion);
+
     List<Cita> findByPaciente_IdNumber(String idPaciente);
     List<Cita> findByDoctor_IdNumber(String idDoctor);
     List<Cita> findByFechaHoraBetween(Instant fechaInicio, Instant fechaFin);
@@ -25,6 +117,231 @@ public interface CitasRepository extends JpaRepository<Cita, Long> {
 
     boolean existsByDoctorAndFechaHora(User doctor, Instant fechaHora);
 
+    /**
+     * Verifica si el doctor ya tiene una cita activa (no cancelada) que empieza a la hora indicada.
+     */
+    boolean existsByDoctorAndFechaHoraAndSlotActivoTrue(User doctor, Instant fechaHora);
+
+    /**
+     * De las fechas indicadas, devuelve las que ya tienen una cita activa del doctor a esa misma hora.
+     * Revisa todas las ocurrencias de una serie con una sola consulta.
+     */
+    @Query("SELECT c.fechaHora FROM Cita c WHERE c.doctor.idNumber = :doctorId AND c.fechaHora IN :fechas "
+            + "AND c.slotActivo = true")
+    List<Instant> findFechasOcupadasByDoctor(@Param("doctorId") String doctorId,
+                                             @Param("fechas") Collection<Instant> fechas);
+
+    /**
+     * Citas de una serie recurrente en orden cronológico.
+     */
+    List<Cita> findBySerieIdOrderByFechaHoraAsc(Long serieId);
+
+    /**
+     * Marca como activas las citas que ocupan horario creadas antes de que existiera la columna slot_activo,
+     * para que queden cubiertas por la restricción de horario único.
+     *
+     * @return Cantidad de citas actualizadas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE citas SET slot_activo = TRUE WHERE slot_activo IS NULL " +
+            "AND estado NOT IN ('CANCELADA', 'EXPIRADA', 'NO_ASISTIO')",
+            nativeQuery = true)
+    int marcarHorariosActivosPendientes();
+
+    /**
+     * Busca los horarios (doctor y fecha) con más de una cita que ocupa horario, que impedirían marcarlas
+     * como activas sin violar la restricción de horario único.
+     *
+     * @return Filas [doctor_id, fecha_hora, cantidad de citas]
+     */
+    @Query(value = "SELECT doctor_id, fecha_hora, COUNT(*) FROM citas " +
+            "WHERE estado NOT IN ('CANCELADA', 'EXPIRADA', 'NO_ASISTIO') " +
+            "GROUP BY doctor_id, fecha_hora HAVING COUNT(*) > 1 ORDER BY fecha_hora",
+            nativeQuery = true)
+    List<Object[]> findHorariosActivosDuplicados();
+
+    /**
+     * Obtiene las fechas de inicio de las citas que ocupan horario de un doctor en un rango [inicio, fin).
+     * Permite construir la ocupación de todo el rango con una sola consulta.
+     *
+     * @param doctorId ID del doctor
+     * @param inicio Inicio del rango (inclusivo)
+     * @param fin Fin del rango (exclusivo)
+     * @return Lista con la fecha y hora de inicio de cada cita
+     */
+    @Query("SELECT c.fechaHora FROM Cita c WHERE c.doctor.idNumber = :doctorId " +
+            "AND c.fechaHora >= :inicio AND c.fechaHora < :fin " +
+            "AND c.estado NOT IN " + ESTADOS_SIN_HORARIO)
+    List<Instant> findFechasOcupadasByDoctor(
+            @Param("doctorId") String doctorId,
+            @Param("inicio") Instant inicio,
+            @Param("fin") Instant fin
+    );
+
+    /**
+     * Obtiene el ID, la fecha de inicio y la duración de las citas que ocupan horario de un doctor en un rango [inicio, fin).
+     * Se usa para cargar el índice de disponibilidad en memoria.
+     *
+     * @param doctorId ID del doctor
+     * @param inicio Inicio del rango (inclusivo)
+     * @param fin Fin del rango (exclusivo)
+     * @return Lista con la ocupación de cada cita
+     */
+    @Query("SELECT new edu.uniquindio.dentalmanagementsystembackend.dto.cita.OcupacionCitaDTO(c.id, c.fechaHora, t.duracionMinutos) " +
+            "FROM Cita c LEFT JOIN c.tipoCita t WHERE c.doctor.idNumber = :doctorId " +
+            "AND c.fechaHora >= :inicio AND c.fechaHora < :fin " +
+            "AND c.estado NOT IN " + ESTADOS_SIN_HORARIO)
+    List<OcupacionCitaDTO> findOcupacionByDoctor(
+            @Param("doctorId") String doctorId,
+            @Param("inicio") Instant inicio,
+            @Param("fin") Instant fin
+    );
+
+    /**
+     * Página de las citas de un paciente autenticado, con filtros opcionales de fechas [desde, hasta) y estado.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE p.idNumber = :idPaciente" + FILTRO_PAGINA_CITAS + ORDEN_CITA_DTO)
+    List<CitaDTO> findPaginaCitasDTOByPaciente(
+            @Param("idPaciente") String idPaciente,
+            @Param("desde") Instant desde,
+            @Param("hasta") Instant hasta,
+            @Param("estado") EstadoCitas estado,
+            @Param("cursorFecha") Instant cursorFecha,
+            @Param("cursorId") Long cursorId,
+            Limit limite
+    );
+
+    /**
+     * Página de las citas autenticadas de un doctor, con filtros opcionales de fechas [desde, hasta) y estado.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.esAutenticada = true" +
+            FILTRO_PAGINA_CITAS + ORDEN_CITA_DTO)
+    List<CitaDTO> findPaginaCitasDTOAutenticadasByDoctor(
+            @Param("idDoctor") String idDoctor,
+            @Param("desde") Instant desde,
+            @Param("hasta") Instant hasta,
+            @Param("estado") EstadoCitas estado,
+            @Param("cursorFecha") Instant cursorFecha,
+            @Param("cursorId") Long cursorId,
+            Limit limite
+    );
+
+    /**
+     * Página de las citas no autenticadas válidas de un doctor, con filtros opcionales de fechas [desde, hasta) y estado.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.esAutenticada = false " +
+            "AND c.nombrePacienteNoAutenticado IS NOT NULL " +
+            "AND c.numeroIdentificacionNoAutenticado IS NOT NULL" + FILTRO_PAGINA_CITAS + ORDEN_CITA_DTO)
+    List<CitaDTO> findPaginaCitasDTOValidasNoAutenticadasByDoctor(
+            @Param("idDoctor") String idDoctor,
+            @Param("desde") Instant desde,
+            @Param("hasta") Instant hasta,
+            @Param("estado") EstadoCitas estado,
+            @Param("cursorFecha") Instant cursorFecha,
+            @Param("cursorId") Long cursorId,
+            Limit limite
+    );
+
+    /**
+     * Página de las citas no autenticadas de un paciente, con filtros opcionales de fechas [desde, hasta) y estado.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.numeroIdentificacionNoAutenticado = :numeroIdentificacion " +
+            "AND c.esAutenticada = false" + FILTRO_PAGINA_CITAS + ORDEN_CITA_DTO)
+    List<CitaDTO> findPaginaCitasDTONoAutenticadasByPaciente(
+            @Param("numeroIdentificacion") String numeroIdentificacion,
+            @Param("desde") Instant desde,
+            @Param("hasta") Instant hasta,
+            @Param("estado") EstadoCitas estado,
+            @Param("cursorFecha") Instant cursorFecha,
+            @Param("cursorId") Long cursorId,
+            Limit limite
+    );
+
+    /**
+     * Obtiene una cita ya armada como DTO, con los datos de paciente, doctor y tipo de cita.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.id = :id")
+    Optional<CitaDTO> findCitaDTOById(@Param("id") Long id);
+
+    /**
+     * Obtiene las citas de un doctor con fecha en [inicio, fin), ordenadas por fecha.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE d.idNumber = :idDoctor AND c.fechaHora >= :inicio AND c.fechaHora < :fin" +
+            ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasDTOByDoctorAndRango(
+            @Param("idDoctor") String idDoctor,
+            @Param("inicio") Instant inicio,
+            @Param("fin") Instant fin
+    );
+
+    /**
+     * Siguiente lote de citas confirmadas para recordar: las posteriores a (desde, desdeId) en el orden
+     * (fechaHora, id) y que empiezan hasta el instante indicado. Usa el índice (estado, fecha_hora, id).
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas.CONFIRMADA " +
+            "AND (c.fechaHora > :desde OR (c.fechaHora = :desde AND c.id > :desdeId)) " +
+            "AND c.fechaHora <= :hasta" + ORDEN_CITA_DTO)
+    List<CitaDTO> findCitasConfirmadasParaRecordatorio(
+            @Param("desde") Instant desde,
+            @Param("desdeId") Long desdeId,
+            @Param("hasta") Instant hasta,
+            Limit limite
+    );
+
+    /**
+     * IDs del siguiente lote de citas en un estado cuyo horario empezó antes del límite.
+     * Usa el índice (estado, fecha_hora, id).
+     */
+    @Query("SELECT c.id FROM Cita c WHERE c.estado = :estado AND c.fechaHora < :limite ORDER BY c.fechaHora, c.id")
+    List<Long> findIdsByEstadoAndFechaHoraAntes(
+            @Param("estado") EstadoCitas estado,
+            @Param("limite") Instant limite,
+            Limit lote
+    );
+
+    /**
+     * Cambia en bloque el estado de las citas indicadas que siguen en el estado anterior y, como el
+     * nuevo estado ya no ocupa horario, libera su lugar en la restricción de horario único.
+     *
+     * @return Cantidad de citas actualizadas
+     */
+    @Modifying
+    @Query("UPDATE Cita c SET c.estado = :nuevo, c.slotActivo = NULL WHERE c.id IN :ids AND c.estado = :anterior")
+    int vencerCitas(
+            @Param("ids") List<Long> ids,
+            @Param("anterior") EstadoCitas anterior,
+            @Param("nuevo") EstadoCitas nuevo
+    );
+
+    /**
+     * Obtiene como DTO las citas indicadas que están en el estado dado.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.id IN :ids AND c.estado = :estado")
+    List<CitaDTO> findCitasDTOByIdsAndEstado(@Param("ids") List<Long> ids, @Param("estado") EstadoCitas estado);
+
+    /**
+     * Recorre las citas con fecha en [desde, hasta) para exportarlas sin cargarlas todas en memoria.
+     * Con fetch size Integer.MIN_VALUE el driver de MySQL entrega las filas una a una desde el servidor.
+     * El Stream debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @Query(SELECT_CITA_DTO + "WHERE c.fechaHora >= :desde AND c.fechaHora < :hasta" + ORDEN_CITA_DTO)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<CitaDTO> streamCitasDTOByRango(
+            @Param("desde") Instant desde,
+            @Param("hasta") Instant hasta
+    );
+
+    /**
+     * Obtiene el ID del doctor de una cita sin cargar la entidad.
+     * Se usa para enrutar las modificaciones de la cita a la cola del doctor.
+     */
+    @Query("SELECT c.doctor.idNumber FROM Cita c WHERE c.id = :citaId")
+    Optional<String> findDoctorIdByCitaId(@Param("citaId") Long citaId);
+
    // 1. Buscar citas NO autenticadas por número de identificación (paciente no autenticado)
     @Query("SELECT c FROM Cita c WHERE c.numeroIdentificacionNoAutenticado = :numeroIdentificacion AND c.esAutenticada = false")
     List<Cita> findByNumeroIdentificacionNoAutenticadoAndEsAutenticadaFalse(
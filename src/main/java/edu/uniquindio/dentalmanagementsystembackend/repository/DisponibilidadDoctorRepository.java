@@ -1,5 +1,6 @@
 package edu.uniquindio.dentalmanagementsystembackend.repository;
 
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioSemanalDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.DisponibilidadDoctor;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
 import jakarta.validation.constraints.NotNull;
@@ -37,6 +38,18 @@ public interface DisponibilidadDoctorRepository extends JpaRepository<Disponibil
             EstadoDisponibilidad estado
     );
 
+    /**
+     * Busca todas las disponibilidades de un doctor con un estado dado, sin importar el día de la semana.
+     *
+     * @param idDoctor ID del doctor
+     * @param estado Estado de la disponibilidad
+     * @return Lista de disponibilidades del doctor
+     */
+    List<DisponibilidadDoctor> findByDoctor_IdNumberAndEstado(
+            String idDoctor,
+            EstadoDisponibilidad estado
+    );
+
     /**
      * Busca la disponibilidad para múltiples doctores en un día específico de la semana.
      * Este método optimiza la consulta para obtener las disponibilidades de varios doctores
@@ -53,4 +66,31 @@ public interface DisponibilidadDoctorRepository extends JpaRepository<Disponibil
             DayOfWeek diaSemana,
             EstadoDisponibilidad estado
     );
+
+    /**
+     * Obtiene el horario semanal completo de uno o varios doctores en una sola consulta,
+     * proyectando solo las columnas que necesita la plantilla semanal.
+     *
+     * @param doctorIds Colección de IDs de doctores
+     * @param estado Estado de la disponibilidad
+     * @return Franjas de todos los doctores, ordenadas por doctor, día y hora de inicio
+     */
+    @Query("SELECT new edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioSemanalDTO(" +
+            "d.doctor.idNumber, d.diaSemana, d.horaInicio, d.horaFin, d.intervaloCitasMinutos) " +
+            "FROM DisponibilidadDoctor d " +
+            "WHERE d.doctor.idNumber IN :doctorIds AND d.estado = :estado " +
+            "ORDER BY d.doctor.idNumber, d.diaSemana, d.horaInicio")
+    List<HorarioSemanalDTO> findHorarioSemanalByDoctorIds(
+            @Param("doctorIds") Collection<String> doctorIds,
+            @Param("estado") EstadoDisponibilidad estado
+    );
+
+    /**
+     * Obtiene los IDs de los doctores que tienen al menos una franja con el estado indicado.
+     *
+     * @param estado Estado de la disponibilidad
+     * @return IDs de los doctores
+     */
+    @Query("SELECT DISTINCT d.doctor.idNumber FROM DisponibilidadDoctor d WHERE d.estado = :estado")
+    List<String> findDoctorIdsByEstado(@Param("estado") EstadoDisponibilidad estado);
 }
@@ -0,0 +1,43 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoListaEspera;
+import edu.uniquindio.dentalmanagementsystembackend.entity.EntradaListaEspera;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EntradaListaEsperaRepository extends JpaRepository<EntradaListaEspera, Long> {
+
+    List<EntradaListaEspera> findByEstadoAndFechaHastaGreaterThanEqual(EstadoListaEspera estado, LocalDate fecha);
+
+    List<EntradaListaEspera> findByPacienteIdOrderByCreadaEnDesc(String pacienteId);
+
+    long countByPacienteIdAndEstadoIn(String pacienteId, Collection<EstadoListaEspera> estados);
+
+    /**
+     * Cambia el estado de las entradas cuyo rango de fechas terminó antes de la fecha indicada.
+     *
+     * @return Cantidad de entradas actualizadas
+     */
+    @Modifying
+    @Query("UPDATE EntradaListaEspera e SET e.estado = :nuevo WHERE e.estado = :anterior AND e.fechaHasta < :fecha")
+    int vencerAnterioresA(@Param("fecha") LocalDate fecha,
+                          @Param("anterior") EstadoListaEspera anterior,
+                          @Param("nuevo") EstadoListaEspera nuevo);
+
+    /**
+     * Devuelve a la espera las entradas que tenían una oferta pendiente. Las reservas que respaldan
+     * las ofertas viven en memoria, así que al reiniciar la aplicación se pierden.
+     */
+    @Modifying
+    @Query("UPDATE EntradaListaEspera e SET e.estado = :nuevo, e.ofertaToken = null, e.ofertaDoctorId = null, e.ofertaFechaHora = null, "
+            + "e.ofertaExpiraEn = null WHERE e.estado = :anterior")
+    int reiniciarOfertas(@Param("anterior") EstadoListaEspera anterior, @Param("nuevo") EstadoListaEspera nuevo);
+}
@@ -1,11 +1,15 @@
 package edu.uniquindio.dentalmanagementsystembackend.repository;
 
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadFilaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorResumenDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Especialidad;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface EspecialidadRepository extends JpaRepository<Especialidad, Long> {
     
@@ -18,4 +22,30 @@ public interface EspecialidadRepository extends JpaRepository<Especialidad, Long
      */
     @Query("SELECT COUNT(e) > 0 FROM Especialidad e JOIN e.doctores d WHERE d.idNumber = :idNumber AND e.id = :especialidadId")
     boolean existsByDoctoresIdNumberAndId(@Param("idNumber") String idNumber, @Param("especialidadId") Long especialidadId);
+
+    /**
+     * Obtiene los datos básicos de los doctores (cuentas con rol DOCTOR) asociados a una especialidad.
+     *
+     * @param especialidadId ID de la especialidad
+     * @return Lista de doctores de la especialidad
+     */
+    @Query("SELECT new edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorResumenDTO(d.idNumber, d.name, d.lastName) " +
+            "FROM Especialidad e JOIN e.doctores d JOIN d.account a " +
+            "WHERE e.id = :especialidadId AND a.rol = edu.uniquindio.dentalmanagementsystembackend.Enum.Rol.DOCTOR")
+    List<DoctorResumenDTO> findDoctoresByEspecialidadId(@Param("especialidadId") Long especialidadId);
+
+    /**
+     * Obtiene en una sola consulta todas las especialidades con sus doctores (tabla doctor_especialidad).
+     * Solo se unen los usuarios cuya cuenta tiene rol DOCTOR; las especialidades sin doctores aparecen
+     * una vez con los datos del doctor en null.
+     *
+     * @return Filas especialidad-doctor ordenadas por especialidad y apellido del doctor
+     */
+    @Query("SELECT new edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadFilaDTO(" +
+            "e.id, e.nombre, d.idNumber, d.name, d.lastName) " +
+            "FROM Especialidad e LEFT JOIN e.doctores d ON EXISTS (" +
+            "SELECT a.id FROM Account a WHERE a.user = d " +
+            "AND a.rol = edu.uniquindio.dentalmanagementsystembackend.Enum.Rol.DOCTOR) " +
+            "ORDER BY e.id, d.lastName, d.name")
+    List<DoctorEspecialidadFilaDTO> findDirectorioDoctores();
 } 
\ No newline at end of file
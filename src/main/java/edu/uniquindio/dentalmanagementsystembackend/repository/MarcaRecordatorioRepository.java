@@ -0,0 +1,23 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.MarcaRecordatorio;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MarcaRecordatorioRepository extends JpaRepository<MarcaRecordatorio, Integer> {
+
+    /**
+     * Obtiene la marca bloqueándola hasta el fin de la transacción, para que dos barridos
+     * simultáneos no envíen el mismo lote.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM MarcaRecordatorio m WHERE m.antelacionMinutos = :antelacionMinutos")
+    Optional<MarcaRecordatorio> bloquear(@Param("antelacionMinutos") Integer antelacionMinutos);
+}
@@ -0,0 +1,64 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+import edu.uniquindio.dentalmanagementsystembackend.entity.MensajeSalida;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface MensajeSalidaRepository extends JpaRepository<MensajeSalida, Long> {
+
+    /**
+     * Bloquea los mensajes pendientes cuyo turno ya llegó, saltando los que otro relevo tiene bloqueados
+     * (FOR UPDATE SKIP LOCKED), para que varias instancias puedan drenar la bandeja sin repetir envíos.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MensajeSalida m WHERE m.estado = :estado AND m.proximoIntento <= :ahora "
+            + "ORDER BY m.proximoIntento, m.id")
+    List<MensajeSalida> bloquearListos(@Param("estado") EstadoMensajeSalida estado,
+                                       @Param("ahora") Instant ahora,
+                                       Limit limite);
+
+    List<MensajeSalida> findByEstadoOrderByIdDesc(EstadoMensajeSalida estado, Limit limite);
+
+    List<MensajeSalida> findAllByOrderByIdDesc(Limit limite);
+
+    /**
+     * Cantidad de mensajes por estado, como filas [estado, cantidad].
+     */
+    @Query("SELECT m.estado, COUNT(m) FROM MensajeSalida m GROUP BY m.estado")
+    List<Object[]> contarPorEstado();
+
+    /**
+     * Devuelve a la cola todos los mensajes fallidos con sus intentos en cero.
+     *
+     * @return Cantidad de mensajes reencolados
+     */
+    @Modifying
+    @Query("UPDATE MensajeSalida m SET m.estado = :pendiente, m.intentos = 0, m.proximoIntento = :ahora "
+            + "WHERE m.estado = :fallido")
+    int reencolarFallidos(@Param("fallido") EstadoMensajeSalida fallido,
+                          @Param("pendiente") EstadoMensajeSalida pendiente,
+                          @Param("ahora") Instant ahora);
+
+    /**
+     * Elimina los mensajes enviados antes de la fecha indicada.
+     *
+     * @return Cantidad de mensajes eliminados
+     */
+    @Modifying
+    @Query("DELETE FROM MensajeSalida m WHERE m.estado = :estado AND m.enviadoEn < :limite")
+    int eliminarEnviadosAntesDe(@Param("estado") EstadoMensajeSalida estado, @Param("limite") Instant limite);
+}
@@ -0,0 +1,17 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.RecordatorioCita;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecordatorioCitaRepository extends JpaRepository<RecordatorioCita, Long> {
+
+    /**
+     * Obtiene los recordatorios ya enviados con una antelación para un grupo de citas.
+     */
+    List<RecordatorioCita> findByAntelacionMinutosAndCitaIdIn(Integer antelacionMinutos, Collection<Long> citaIds);
+}
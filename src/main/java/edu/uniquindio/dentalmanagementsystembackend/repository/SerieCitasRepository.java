@@ -0,0 +1,9 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.SerieCitas;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SerieCitasRepository extends JpaRepository<SerieCitas, Long> {
+}
@@ -0,0 +1,90 @@
+package edu.uniquindio.dentalmanagementsystembackend.repository;
+
+import edu.uniquindio.dentalmanagementsystembackend.entity.SlotAgenda;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Repository
+public interface SlotAgendaRepository extends JpaRepository<SlotAgenda, Long> {
+
+    /**
+     * Bloquea los horarios libres de un doctor en el intervalo [horaInicio, horaFin) de una fecha.
+     * Las filas que otra transacción ya tiene bloqueadas se saltan en lugar de esperar, de modo que
+     * dos reservas por el mismo horario no se encolan: la segunda simplemente no encuentra el horario libre.
+     *
+     * @return Horarios bloqueados, ordenados por hora
+     */
+    @Query(value = "SELECT * FROM slots_agenda " +
+            "WHERE doctor_id = :doctorId AND fecha = :fecha " +
+            "AND hora >= :horaInicio AND hora < :horaFin AND estado = 'LIBRE' " +
+            "ORDER BY hora FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SlotAgenda> bloquearLibres(
+            @Param("doctorId") String doctorId,
+            @Param("fecha") LocalDate fecha,
+            @Param("horaInicio") LocalTime horaInicio,
+            @Param("horaFin") LocalTime horaFin
+    );
+
+    /**
+     * Obtiene los horarios de un doctor en un rango de fechas, usando el índice (doctor, estado, fecha, hora).
+     */
+    @Query("SELECT s FROM SlotAgenda s WHERE s.doctor.idNumber = :doctorId " +
+            "AND s.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY s.fecha, s.hora")
+    List<SlotAgenda> findByDoctorAndRango(
+            @Param("doctorId") String doctorId,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin
+    );
+
+    /**
+     * Marca como reservados los horarios indicados para una cita.
+     */
+    @Modifying
+    @Query("UPDATE SlotAgenda s SET s.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot.RESERVADO, " +
+            "s.citaId = :citaId WHERE s.id IN :ids")
+    int reservar(@Param("ids") List<Long> ids, @Param("citaId") Long citaId);
+
+    /**
+     * Libera los horarios que ocupaba una cita.
+     */
+    @Modifying
+    @Query("UPDATE SlotAgenda s SET s.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot.LIBRE, " +
+            "s.citaId = NULL WHERE s.citaId = :citaId")
+    int liberarPorCita(@Param("citaId") Long citaId);
+
+    /**
+     * Última fecha con horarios generados para un doctor, o null si aún no tiene.
+     */
+    @Query("SELECT MAX(s.fecha) FROM SlotAgenda s WHERE s.doctor.idNumber = :doctorId")
+    LocalDate findUltimaFechaGenerada(@Param("doctorId") String doctorId);
+
+    /**
+     * Obtiene los horarios reservados de un doctor desde una fecha.
+     */
+    @Query("SELECT s FROM SlotAgenda s WHERE s.doctor.idNumber = :doctorId AND s.fecha >= :fecha " +
+            "AND s.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot.RESERVADO")
+    List<SlotAgenda> findReservadosDesde(@Param("doctorId") String doctorId, @Param("fecha") LocalDate fecha);
+
+    /**
+     * Elimina los horarios libres de un doctor desde una fecha, para regenerarlos cuando cambia su horario.
+     */
+    @Modifying
+    @Query("DELETE FROM SlotAgenda s WHERE s.doctor.idNumber = :doctorId AND s.fecha >= :fecha " +
+            "AND s.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot.LIBRE")
+    int eliminarLibresDesde(@Param("doctorId") String doctorId, @Param("fecha") LocalDate fecha);
+
+    /**
+     * Elimina los horarios libres anteriores a una fecha, que ya no se pueden reservar.
+     */
+    @Modifying
+    @Query("DELETE FROM SlotAgenda s WHERE s.fecha < :fecha " +
+            "AND s.estado = edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot.LIBRE")
+    int eliminarLibresAnterioresA(@Param("fecha") LocalDate fecha);
+}
@@ -39,6 +39,14 @@ public interface UserRepository extends JpaRepository<User, String> {
      */
     Optional<User> findByIdNumber(String idNumber);
 
+    /**
+     * Checks if a user with the given identification number exists and has the given role.
+     * @param idNumber Identification number of the user.
+     * @param rol Role the user's account must have.
+     * @return true if such a user exists, false otherwise.
+     */
+    boolean existsByIdNumberAndAccount_Rol(String idNumber, Rol rol);
+
 
 
 }
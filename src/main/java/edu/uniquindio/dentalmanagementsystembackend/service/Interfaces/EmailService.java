@@ -1,19 +1,49 @@
 package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
 
+import edu.uniquindio.dentalmanagementsystembackend.Enum.PrioridadCorreo;
 import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.email.CitaEmailDTO;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface EmailService {
 
     /**
-     * Envía un email electrónico.
+     * Envía un email electrónico con prioridad normal.
      *
      * @param emailDTO Data Transfer Object que contiene la información del email electrónico a enviar.
      * @throws Exception Si ocurre un error al enviar el email electrónico.
      */
     void sendMail(EmailDTO emailDTO) throws Exception;
 
+    /**
+     * Encola el email en la cola de envío con la prioridad indicada. Los fallos transitorios se reintentan
+     * más tarde y los definitivos quedan en el log.
+     *
+     * @param emailDTO Data Transfer Object que contiene la información del email a enviar.
+     * @param prioridad Prioridad del email en la cola de envío.
+     */
+    void sendMail(EmailDTO emailDTO, PrioridadCorreo prioridad);
+
+    /**
+     * Envía el email por la cola de envío, espera a que salga y propaga el error si el envío falla.
+     *
+     * @param emailDTO Data Transfer Object que contiene la información del email a enviar.
+     * @throws Exception Si ocurre un error al enviar el email.
+     */
+    void enviarAhora(EmailDTO emailDTO) throws Exception;
+
+    /**
+     * Envía el email de forma asíncrona por la cola de envío, para enviar varios a la vez. La cola no lo
+     * reintenta: lo usa el relevo de la bandeja de salida, que programa sus propios reintentos.
+     *
+     * @param emailDTO Data Transfer Object que contiene la información del email a enviar.
+     * @return Futuro que termina cuando el servidor SMTP acepta el email, o con el error del envío.
+     */
+    CompletableFuture<Void> enviarEnLote(EmailDTO emailDTO);
+
     /**
      * Envía un código QR por email electrónico.
      *
@@ -80,6 +110,25 @@ public interface EmailService {
      */
     void enviarCorreoCitaCompletada(String email, String nombreOdontologo, LocalDateTime fechaHora);
 
+    /**
+     * Envía un solo correo con todas las citas de una serie recurrente
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechas Fecha y hora de cada cita de la serie
+     */
+    void enviarCorreoSerieCitas(String email, String nombreOdontologo, List<LocalDateTime> fechas);
+
+    /**
+     * Envía un correo ofreciendo a un paciente de la lista de espera un horario que se liberó
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechaHora Fecha y hora ofrecida
+     * @param tokenOferta Token con el que se acepta o rechaza la oferta
+     * @param minutosParaAceptar Minutos que el horario queda apartado para el paciente
+     */
+    void enviarCorreoOfertaListaEspera(String email, String nombreOdontologo, LocalDateTime fechaHora,
+                                       String tokenOferta, long minutosParaAceptar);
+
 
     /**
      * Envía un correo relacionado con una cita, de acuerdo al tipo especificado.
@@ -91,4 +140,58 @@ public interface EmailService {
      */
     void enviarCorreoCita(CitaEmailDTO dto) throws Exception;
 
+    // Redacción de los correos de citas sin enviarlos, para guardarlos en la bandeja de salida
+
+    /**
+     * Redacta el correo de confirmación de cita
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechaHora Fecha y hora de la cita
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactarCorreoConfirmacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora);
+
+    /**
+     * Redacta el correo de cancelación de cita
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechaHora Fecha y hora de la cita
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactarCorreoCancelacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora);
+
+    /**
+     * Redacta el correo de cita completada
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechaHora Fecha y hora de la cita
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactarCorreoCitaCompletada(String email, String nombreOdontologo, LocalDateTime fechaHora);
+
+    /**
+     * Redacta el correo con todas las citas de una serie recurrente
+     * @param email Email del paciente
+     * @param nombreOdontologo Nombre del odontólogo
+     * @param fechas Fecha y hora de cada cita de la serie
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactarCorreoSerieCitas(String email, String nombreOdontologo, List<LocalDateTime> fechas);
+
+    /**
+     * Redacta el correo de confirmación con el detalle de la cita
+     * @param dto DTO con la información de la cita
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactarCorreoCita(CitaEmailDTO dto);
+
+    /**
+     * Redacta un correo a partir de su plantilla, en el idioma configurado para los correos
+     * @param destinatario Email del destinatario
+     * @param plantilla Nombre de la plantilla (por ejemplo, "inventario-resumen")
+     * @param valores Valores de las variables de la plantilla
+     * @return Correo listo para enviar
+     */
+    EmailDTO redactar(String destinatario, String plantilla, Map<String, ?> valores);
+
 }
@@ -0,0 +1,29 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.AgendaDoctorDiaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaAgendaDTO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ServiciosAgendaDoctor {
+
+    /**
+     * Obtiene la agenda de un doctor en un día desde el modelo de lectura
+     * @param doctorId ID del doctor
+     * @param fecha Día de la agenda
+     * @return Citas del día ordenadas por hora
+     */
+    AgendaDoctorDiaDTO obtenerAgenda(String doctorId, LocalDate fecha);
+
+    /**
+     * Bloquea hasta el fin de la transacción actual la agenda del doctor en los días indicados
+     * (creándola si no existe) y devuelve sus citas, que reflejan lo último confirmado
+     * @param doctorId ID del doctor
+     * @param fechas Días a bloquear
+     * @return Citas de cada día ordenadas por hora
+     */
+    Map<LocalDate, List<EntradaAgendaDTO>> bloquearDias(String doctorId, Collection<LocalDate> fechas);
+}
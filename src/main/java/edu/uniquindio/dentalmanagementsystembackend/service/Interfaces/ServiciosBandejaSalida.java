@@ -0,0 +1,53 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.MensajeSalidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.ResumenBandejaSalidaDTO;
+
+import java.util.List;
+
+public interface ServiciosBandejaSalida {
+
+    /**
+     * Guarda el correo en la bandeja de salida dentro de la transacción actual; se envía
+     * solo si esa transacción se confirma
+     * @param tipo Motivo del correo (confirmación, cancelación, ...)
+     * @param citaId ID de la cita que origina el correo (puede ser null)
+     * @param correo Correo ya redactado
+     */
+    void encolar(String tipo, Long citaId, EmailDTO correo);
+
+    /**
+     * Envía un lote de mensajes pendientes cuyo turno ya llegó
+     * @return Cantidad de mensajes procesados (enviados o reprogramados)
+     */
+    int relevarPendientes();
+
+    /**
+     * Obtiene los mensajes más recientes de la bandeja
+     * @param estado Estado por el que filtrar (null para todos)
+     * @param limite Cantidad máxima de mensajes
+     * @return Mensajes del más reciente al más antiguo
+     */
+    List<MensajeSalidaDTO> listar(EstadoMensajeSalida estado, int limite);
+
+    /**
+     * Cuenta los mensajes de la bandeja por estado
+     * @return Resumen de la bandeja
+     */
+    ResumenBandejaSalidaDTO obtenerResumen();
+
+    /**
+     * Vuelve a poner un mensaje en la cola, con sus intentos en cero
+     * @param id ID del mensaje
+     * @return Mensaje reencolado
+     */
+    MensajeSalidaDTO reenviar(Long id);
+
+    /**
+     * Vuelve a poner en la cola todos los mensajes fallidos
+     * @return Cantidad de mensajes reencolados
+     */
+    int reenviarFallidos();
+}
@@ -2,17 +2,26 @@ package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
 
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearSerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaAdminDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaPacienteDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FiltroCitasDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.PaginaCitasDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.SerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FormatoExportacion;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaNoAutenticadaAdminDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Especialidad;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -30,6 +39,22 @@ public interface ServiciosCitas {
      */
     Cita crearCita(CrearCitaDTO dto);
 
+    /**
+     * Crea una nueva cita canjeando una reserva temporal del horario
+     * @param dto DTO con la información de la cita
+     * @param tokenReserva Token de la reserva temporal, o null si no se apartó el horario
+     * @return Cita creada
+     */
+    Cita crearCita(CrearCitaDTO dto, String tokenReserva);
+
+    /**
+     * Crea una serie de citas recurrentes para un paciente autenticado. Las ocurrencias se validan
+     * todas juntas y, si alguna no está libre, no se crea ninguna.
+     * @param dto DTO con la regla de la serie
+     * @return Serie creada con sus citas
+     */
+    SerieCitasDTO crearSerieCitas(CrearSerieCitasDTO dto);
+
     /**
      * Crea una nueva cita no autenticada
      * @param dto DTO con la información de la cita
@@ -37,6 +62,28 @@ public interface ServiciosCitas {
      */
     Cita crearCitaNoAutenticada(CrearCitaNoAutenticadaDTO dto);
 
+    /**
+     * Crea una nueva cita no autenticada canjeando una reserva temporal del horario
+     * @param dto DTO con la información de la cita
+     * @param tokenReserva Token de la reserva temporal, o null si no se apartó el horario
+     * @return Cita creada
+     */
+    Cita crearCitaNoAutenticada(CrearCitaNoAutenticadaDTO dto, String tokenReserva);
+
+    /**
+     * Aparta un horario por unos minutos mientras el paciente no autenticado llena sus datos
+     * @param dto DTO con el doctor, la fecha, la hora y el tipo de cita
+     * @param cliente Identificación del cliente que reserva (su dirección IP), para limitar sus reservas vigentes
+     * @return Reserva temporal con el token a canjear al crear la cita
+     */
+    ReservaTemporalDTO reservarHorarioTemporal(CrearReservaTemporalDTO dto, String cliente);
+
+    /**
+     * Libera una reserva temporal antes de que expire
+     * @param tokenReserva Token de la reserva
+     */
+    void liberarReservaTemporal(String tokenReserva);
+
     /**
      * Obtiene los doctores disponibles para una especialidad específica
      * @param especialidadId ID de la especialidad
@@ -44,6 +91,12 @@ public interface ServiciosCitas {
      */
     List<DoctorEspecialidadDTO> obtenerDoctoresPorEspecialidad(Long especialidadId);
 
+    /**
+     * Descarta el directorio en memoria de especialidades y doctores para que se recargue
+     * desde la base de datos (por ejemplo, después de asignar especialidades por SQL)
+     */
+    void recargarDirectorioEspecialidades();
+
     /**
      * Edita una cita (solo paciente)
      * @param idCita ID de la cita a editar
@@ -132,4 +185,48 @@ public interface ServiciosCitas {
      * @return Una lista de objetos CitaDTO que representan las citas no autenticadas del paciente especificado.
      */
     List<CitaDTO> obtenerCitasNoAutenticadasPorPaciente(String idPaciente);
+
+    /**
+     * Obtiene una página de las citas de un paciente autenticado
+     * @param idPaciente ID del paciente
+     * @param filtro Fechas, estado, cursor y límite de la página
+     * @return Página de citas con el cursor de la siguiente
+     */
+    PaginaCitasDTO obtenerCitasPorPaciente(String idPaciente, FiltroCitasDTO filtro);
+
+    /**
+     * Obtiene una página de las citas autenticadas de un doctor
+     * @param idDoctor ID del doctor
+     * @param filtro Fechas, estado, cursor y límite de la página
+     * @return Página de citas con el cursor de la siguiente
+     */
+    PaginaCitasDTO obtenerCitasAutenticadasPorDoctor(String idDoctor, FiltroCitasDTO filtro);
+
+    /**
+     * Obtiene una página de las citas no autenticadas de un doctor que tienen los datos del paciente
+     * @param idDoctor ID del doctor
+     * @param filtro Fechas, estado, cursor y límite de la página
+     * @return Página de citas con el cursor de la siguiente
+     */
+    PaginaCitasDTO obtenerCitasNoAutenticadasPorDoctor(String idDoctor, FiltroCitasDTO filtro);
+
+    /**
+     * Obtiene una página de las citas no autenticadas de un paciente
+     * @param idPaciente Número de identificación del paciente
+     * @param filtro Fechas, estado, cursor y límite de la página
+     * @return Página de citas con el cursor de la siguiente
+     */
+    PaginaCitasDTO obtenerCitasNoAutenticadasPorPaciente(String idPaciente, FiltroCitasDTO filtro);
+
+    /**
+     * Escribe en la salida todas las citas con fecha entre desde y hasta (ambas incluidas),
+     * a medida que se leen de la base de datos y sin armar la lista completa en memoria.
+     * @param desde Primera fecha incluida
+     * @param hasta Última fecha incluida
+     * @param formato NDJSON (un objeto JSON por línea) o CSV
+     * @param salida Flujo donde se escriben las citas; no se cierra
+     * @return Cantidad de citas exportadas
+     * @throws IOException si falla la escritura, por ejemplo porque el cliente cerró la conexión
+     */
+    long exportarCitas(LocalDate desde, LocalDate hasta, FormatoExportacion formato, OutputStream salida) throws IOException;
 }
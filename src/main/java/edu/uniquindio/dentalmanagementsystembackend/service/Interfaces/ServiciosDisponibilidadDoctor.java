@@ -1,9 +1,12 @@
 package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
 
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ConsistenciaIndiceDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDoctorDTO;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 
@@ -17,6 +20,17 @@ public interface ServiciosDisponibilidadDoctor {
      * @return Lista de fechas disponibles con sus horarios
      */
     List<FechaDisponibleDTO> obtenerFechasDisponibles(String doctorId, LocalDate fechaInicio, LocalDate fechaFin);
+
+    /**
+     * Obtiene las fechas disponibles para un doctor ofreciendo solo las horas de inicio
+     * en las que cabe completa una cita del tipo indicado
+     * @param doctorId ID del doctor
+     * @param fechaInicio Fecha de inicio del rango
+     * @param fechaFin Fecha de fin del rango
+     * @param tipoCitaId ID del tipo de cita (opcional)
+     * @return Lista de fechas disponibles con sus horarios
+     */
+    List<FechaDisponibleDTO> obtenerFechasDisponibles(String doctorId, LocalDate fechaInicio, LocalDate fechaFin, Long tipoCitaId);
     
     /**
      * Obtiene los horarios disponibles para un doctor en una fecha específica
@@ -26,6 +40,15 @@ public interface ServiciosDisponibilidadDoctor {
      */
     List<HorarioDisponibleDTO> obtenerHorariosDisponibles(String doctorId, LocalDate fecha);
 
+    /**
+     * Obtiene los horarios en los que cabe completa una cita del tipo indicado
+     * @param doctorId ID del doctor
+     * @param fecha Fecha para la que se quieren obtener los horarios
+     * @param tipoCitaId ID del tipo de cita (opcional)
+     * @return Lista de horarios disponibles
+     */
+    List<HorarioDisponibleDTO> obtenerHorariosDisponibles(String doctorId, LocalDate fecha, Long tipoCitaId);
+
     /**
      * Valida si un doctor está disponible en una fecha y hora específicos.
      *
@@ -35,4 +58,59 @@ public interface ServiciosDisponibilidadDoctor {
      * @return true si el doctor está disponible en la fecha y hora especificadas, false en caso contrario.
      */
     boolean validarDisponibilidadDoctor(String doctorId, LocalDate fecha, LocalTime hora);
+
+    /**
+     * Verifica que una cita de la duración indicada quepa completa en el horario de atención
+     * del doctor y no se cruce, ni siquiera parcialmente, con otra cita.
+     *
+     * @param doctorId ID del doctor
+     * @param fecha Fecha de la cita
+     * @param hora Hora de inicio de la cita
+     * @param duracionMinutos Duración de la cita en minutos
+     * @param citaIgnorada Cita que se está reprogramando y no cuenta como cruce, o null
+     * @return true si el horario está libre
+     */
+    boolean validarHorarioLibre(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos, Long citaIgnorada);
+
+    /**
+     * Revisa de una vez varios horarios del mismo doctor (por ejemplo, las ocurrencias de una serie):
+     * carga la disponibilidad de todo el rango con una sola consulta y verifica cada horario contra
+     * el horario de atención, las citas existentes y las reservas temporales vigentes.
+     *
+     * @param doctorId ID del doctor
+     * @param horarios Fecha y hora de inicio de cada cita
+     * @param duracionMinutos Duración de cada cita en minutos
+     * @return Los horarios que no están libres, en el orden recibido; vacía si todos lo están
+     */
+    List<LocalDateTime> buscarHorariosNoDisponibles(String doctorId, List<LocalDateTime> horarios, int duracionMinutos);
+
+    /**
+     * Busca los primeros horarios libres entre todos los doctores de una especialidad,
+     * ordenados por fecha y hora.
+     *
+     * @param especialidadId ID de la especialidad
+     * @param cantidad Cantidad máxima de horarios a devolver
+     * @param fechaInicio Fecha desde la que se busca (opcional, por defecto hoy)
+     * @param fechaFin Fecha hasta la que se busca (opcional)
+     * @return Lista con los primeros horarios libres
+     */
+    List<HorarioDoctorDTO> buscarPrimerosHorariosPorEspecialidad(Long especialidadId, int cantidad,
+                                                                LocalDate fechaInicio, LocalDate fechaFin);
+
+    /**
+     * Compara el índice de disponibilidad en memoria con la base de datos para un doctor y una fecha.
+     * Si hay diferencias, el índice se corrige con los datos de la base de datos.
+     *
+     * @param doctorId ID del doctor
+     * @param fecha Fecha a verificar
+     * @return Resultado de la verificación
+     */
+    ConsistenciaIndiceDTO verificarConsistenciaIndice(String doctorId, LocalDate fecha);
+
+    /**
+     * Descarta la disponibilidad en memoria de un doctor para que se reconstruya desde la base de datos.
+     *
+     * @param doctorId ID del doctor
+     */
+    void reconstruirIndice(String doctorId);
 } 
\ No newline at end of file
@@ -0,0 +1,44 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.Interfaces;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearEntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaListaEsperaDTO;
+
+import java.util.List;
+
+public interface ServiciosListaEspera {
+
+    /**
+     * Registra a un paciente en la lista de espera de un doctor o de una especialidad.
+     * Un paciente solo puede tener unas pocas solicitudes activas a la vez
+     * @param dto DTO con el doctor o la especialidad, el rango de fechas y la franja horaria
+     * @return Entrada creada
+     */
+    EntradaListaEsperaDTO registrar(CrearEntradaListaEsperaDTO dto);
+
+    /**
+     * Obtiene las entradas de lista de espera de un paciente, de la más reciente a la más antigua
+     * @param pacienteId ID del paciente
+     * @return Entradas del paciente
+     */
+    List<EntradaListaEsperaDTO> obtenerPorPaciente(String pacienteId);
+
+    /**
+     * Saca al paciente de la lista de espera. Si tenía un horario ofrecido, se ofrece al siguiente
+     * @param entradaId ID de la entrada
+     * @param pacienteId ID del paciente que la retira; debe ser el dueño de la entrada
+     */
+    void retirar(Long entradaId, String pacienteId);
+
+    /**
+     * Acepta el horario ofrecido y crea la cita
+     * @param tokenOferta Token de la oferta enviado al paciente
+     * @return Entrada atendida con el ID de la cita creada
+     */
+    EntradaListaEsperaDTO aceptarOferta(String tokenOferta);
+
+    /**
+     * Rechaza el horario ofrecido; el paciente vuelve a la espera y el horario se ofrece al siguiente
+     * @param tokenOferta Token de la oferta enviado al paciente
+     */
+    void rechazarOferta(String tokenOferta);
+}
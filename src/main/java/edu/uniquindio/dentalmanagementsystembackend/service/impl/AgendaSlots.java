@@ -0,0 +1,165 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.SlotAgenda;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.repository.SlotAgendaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Modo de reserva sobre la tabla de horarios pre-generados (slots_agenda).
+ * Se activa con {@code citas.reserva.modo=slots}: reservar una cita consiste en bloquear con
+ * {@code FOR UPDATE SKIP LOCKED} las filas libres que cubren su duración y marcarlas como reservadas,
+ * y la disponibilidad se lee directamente de la tabla.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AgendaSlots {
+
+    static final String MODO_SLOTS = "slots";
+
+    private final SlotAgendaRepository slotAgendaRepository;
+    private final ReservasTemporales reservasTemporales;
+
+    @Value("${citas.reserva.modo:transaccional}")
+    private String modoReserva;
+
+    /**
+     * Indica si las reservas se hacen sobre la tabla de horarios pre-generados.
+     */
+    public boolean usaSlots() {
+        return MODO_SLOTS.equalsIgnoreCase(modoReserva);
+    }
+
+    /**
+     * Bloquea los horarios libres que cubren la cita. Debe llamarse dentro de la transacción que
+     * guarda la cita, para que los bloqueos se mantengan hasta que la cita quede registrada.
+     *
+     * @return IDs de los horarios bloqueados
+     * @throws HorarioOcupadoException si algún tramo de la cita no está libre
+     */
+    @Transactional
+    public List<Long> reclamar(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        LocalTime fin = hora.plusMinutes(duracionMinutos);
+        if (!fin.isAfter(hora)) {
+            throw new HorarioOcupadoException("La cita no puede terminar después de la medianoche");
+        }
+
+        List<SlotAgenda> slots = slotAgendaRepository.bloquearLibres(doctorId, fecha, hora, fin);
+
+        // Los horarios bloqueados deben cubrir toda la cita sin huecos
+        LocalTime cubiertoHasta = hora;
+        for (SlotAgenda slot : slots) {
+            if (!slot.getHora().equals(cubiertoHasta)) {
+                break;
+            }
+            cubiertoHasta = slot.getHora().plusMinutes(slot.getDuracionMinutos());
+        }
+        if (slots.isEmpty() || cubiertoHasta.isBefore(fin) && !cubiertoHasta.equals(LocalTime.MIDNIGHT)) {
+            throw new HorarioOcupadoException("Ya existe una cita programada para ese horario");
+        }
+        return slots.stream().map(SlotAgenda::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Marca los horarios bloqueados como reservados por la cita.
+     */
+    @Transactional
+    public void asignar(List<Long> slotIds, Long citaId) {
+        if (!slotIds.isEmpty()) {
+            slotAgendaRepository.reservar(slotIds, citaId);
+        }
+    }
+
+    /**
+     * Libera los horarios de la cita y reserva los del nuevo horario.
+     */
+    @Transactional
+    public void reprogramar(Long citaId, String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        slotAgendaRepository.liberarPorCita(citaId);
+        asignar(reclamar(doctorId, fecha, hora, duracionMinutos), citaId);
+    }
+
+    /**
+     * Libera los horarios de una cita cancelada dentro de la misma transacción que la cancela.
+     */
+    @EventListener
+    @Transactional
+    public void alModificarCita(CitaModificadaEvent evento) {
+        if (usaSlots() && !evento.ocupaHorario()) {
+            int liberados = slotAgendaRepository.liberarPorCita(evento.citaId());
+            log.debug("Se liberaron {} horarios de la cita {}", liberados, evento.citaId());
+        }
+    }
+
+    /**
+     * Construye la disponibilidad de un doctor leyendo los horarios pre-generados del rango.
+     * Con duración, una hora solo es disponible si los horarios libres contiguos cubren toda la cita.
+     * Los horarios apartados con una reserva temporal vigente se muestran como no disponibles.
+     */
+    @Transactional(readOnly = true)
+    public List<FechaDisponibleDTO> fechasDisponibles(String doctorId, LocalDate fechaInicio, LocalDate fechaFin,
+                                                      Integer duracionMinutos) {
+        Map<LocalDate, List<SlotAgenda>> slotsPorFecha = new LinkedHashMap<>();
+        for (SlotAgenda slot : slotAgendaRepository.findByDoctorAndRango(doctorId, fechaInicio, fechaFin)) {
+            slotsPorFecha.computeIfAbsent(slot.getFecha(), f -> new ArrayList<>()).add(slot);
+        }
+
+        List<FechaDisponibleDTO> fechas = new ArrayList<>();
+        slotsPorFecha.forEach((fecha, slots) -> {
+            List<HorarioDisponibleDTO> horarios = new ArrayList<>();
+            for (int i = 0; i < slots.size(); i++) {
+                SlotAgenda slot = slots.get(i);
+                int duracion = duracionMinutos != null ? duracionMinutos : slot.getDuracionMinutos();
+                Boolean disponible = cubreLibre(slots, i, duracion);
+                if (disponible != null) {
+                    boolean libre = disponible
+                            && !reservasTemporales.estaReservado(doctorId, fecha, slot.getHora(), duracion, null);
+                    horarios.add(new HorarioDisponibleDTO(slot.getHora(), libre));
+                }
+            }
+            fechas.add(new FechaDisponibleDTO(fecha, horarios));
+        });
+        return fechas;
+    }
+
+    /**
+     * Revisa si los horarios desde la posición indicada cubren la duración de forma contigua.
+     *
+     * @return true si todos están libres, false si alguno está reservado, o null si la cita
+     *         no cabe en la ventana (la hora no se ofrece)
+     */
+    private static Boolean cubreLibre(List<SlotAgenda> slots, int desde, int duracionMinutos) {
+        LocalTime inicio = slots.get(desde).getHora();
+        int cubiertos = 0;
+        boolean libre = true;
+        LocalTime esperada = inicio;
+        for (int i = desde; i < slots.size() && cubiertos < duracionMinutos; i++) {
+            SlotAgenda slot = slots.get(i);
+            if (!slot.getHora().equals(esperada)) {
+                return null;
+            }
+            libre &= slot.getEstado() == EstadoSlot.LIBRE;
+            cubiertos += slot.getDuracionMinutos();
+            esperada = slot.getHora().plusMinutes(slot.getDuracionMinutos());
+        }
+        return cubiertos >= duracionMinutos ? libre : null;
+    }
+}
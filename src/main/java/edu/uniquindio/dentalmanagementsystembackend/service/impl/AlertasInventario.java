@@ -0,0 +1,139 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.PrioridadCorreo;
+import edu.uniquindio.dentalmanagementsystembackend.config.AsyncConfig;
+import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
+import edu.uniquindio.dentalmanagementsystembackend.event.StockBajoEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CuentaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Alertas de productos con stock por debajo del mínimo.
+ * En lugar de un correo por cada uso, los eventos se acumulan en memoria por producto (el último estado
+ * reemplaza al anterior) y cada {@code inventario.alertas.ventana-ms} se envía a cada administrador un solo
+ * resumen con todos los productos afectados. Solo el producto que se queda sin existencias se avisa de inmediato.
+ * Las alertas pendientes se pierden si la aplicación se reinicia; el listado de productos por debajo del
+ * mínimo sigue disponible en el inventario.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AlertasInventario {
+
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final CuentaRepository cuentaRepository;
+    private final EmailService emailService;
+
+    // Alertas pendientes de resumen por ID de producto
+    private final Map<Long, AlertaStock> pendientes = new ConcurrentHashMap<>();
+
+    /**
+     * Registra el evento cuando se confirma el uso del producto, en el ejecutor de notificaciones
+     * para no demorar la respuesta de quien registró el uso.
+     */
+    @Async(AsyncConfig.EJECUTOR_NOTIFICACIONES)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alBajarStock(StockBajoEvent evento) {
+        LocalDateTime ahora = LocalDateTime.now();
+        pendientes.merge(evento.productoId(), new AlertaStock(evento, ahora, 1),
+                (anterior, nueva) -> new AlertaStock(evento, anterior.primerEvento(), anterior.eventos() + 1));
+
+        if (evento.seAgoto()) {
+            notificarAgotado(evento);
+        }
+    }
+
+    /**
+     * Envía el resumen de la ventana a cada administrador y la reinicia.
+     */
+    @Scheduled(fixedDelayString = "${inventario.alertas.ventana-ms:3600000}",
+            initialDelayString = "${inventario.alertas.ventana-ms:3600000}")
+    public void enviarResumen() {
+        List<AlertaStock> alertas = new ArrayList<>();
+        // Se retira cada alerta individualmente para no perder eventos que lleguen mientras se arma el resumen
+        for (Long productoId : pendientes.keySet()) {
+            AlertaStock alerta = pendientes.remove(productoId);
+            if (alerta != null) {
+                alertas.add(alerta);
+            }
+        }
+        if (alertas.isEmpty()) {
+            return;
+        }
+        alertas.sort(Comparator.comparingInt((AlertaStock a) -> a.evento().cantidadDisponible())
+                .thenComparing(a -> a.evento().nombre()));
+
+        Map<String, Object> valores = datosResumen(alertas);
+        List<String> administradores = cuentaRepository.obtenerCorreosAdministradores();
+        for (String correo : administradores) {
+            enviar(emailService.redactar(correo, "inventario-resumen", valores), PrioridadCorreo.BAJA);
+        }
+        log.info("Resumen de stock bajo enviado a {} administradores con {} productos",
+                administradores.size(), alertas.size());
+    }
+
+    /**
+     * Cantidad de productos con alertas pendientes de resumen.
+     */
+    public int pendientes() {
+        return pendientes.size();
+    }
+
+    private void notificarAgotado(StockBajoEvent evento) {
+        Map<String, Object> valores = Map.of(
+                "nombre", evento.nombre(),
+                "id", evento.productoId(),
+                "minimo", evento.cantidadMinima());
+        for (String correo : cuentaRepository.obtenerCorreosAdministradores()) {
+            enviar(emailService.redactar(correo, "inventario-agotado", valores), PrioridadCorreo.NORMAL);
+        }
+    }
+
+    private Map<String, Object> datosResumen(List<AlertaStock> alertas) {
+        List<Map<String, Object>> productos = new ArrayList<>(alertas.size());
+        for (AlertaStock alerta : alertas) {
+            StockBajoEvent evento = alerta.evento();
+            productos.add(Map.of(
+                    "color", evento.cantidadDisponible() == 0 ? "#c0392b" : "#333",
+                    "nombre", evento.nombre(),
+                    "disponible", evento.cantidadDisponible(),
+                    "minimo", evento.cantidadMinima(),
+                    "usos", alerta.eventos(),
+                    "desde", alerta.primerEvento().format(FORMATO)));
+        }
+        return Map.of("cantidad", alertas.size(), "productos", productos);
+    }
+
+    private void enviar(EmailDTO correo, PrioridadCorreo prioridad) {
+        try {
+            emailService.sendMail(correo, prioridad);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo encolar la alerta de inventario a {}: {}", correo.recipient(), e.getMessage());
+        }
+    }
+
+    /**
+     * Último evento de un producto en la ventana actual.
+     *
+     * @param primerEvento Momento del primer evento de la ventana
+     * @param eventos Cantidad de usos que dejaron el producto bajo el mínimo en la ventana
+     */
+    private record AlertaStock(StockBajoEvent evento, LocalDateTime primerEvento, int eventos) {
+    }
+}
@@ -0,0 +1,117 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EstadisticasCicloVidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vence las citas que quedaron en un estado abierto después de su horario: las PENDIENTE que nunca
+ * se confirmaron pasan a EXPIRADA y las CONFIRMADA que no se completaron a NO_ASISTIO, después de
+ * {@code citas.ciclo-vida.gracia-pendiente-minutos} y {@code citas.ciclo-vida.gracia-confirmada-minutos}.
+ *
+ * <p>Trabaja por lotes de {@code citas.ciclo-vida.tamano-lote} citas, cada uno en su propia transacción,
+ * para que la tabla de citas nunca quede bloqueada por mucho tiempo. Por cada cita vencida se publica
+ * el evento de cambio, de modo que la agenda diaria, el índice de disponibilidad y las versiones
+ * de los listados se mantienen al día.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CicloVidaCitas {
+
+    private final CitasRepository citasRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${citas.ciclo-vida.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${citas.ciclo-vida.gracia-pendiente-minutos:0}")
+    private long graciaPendienteMinutos;
+
+    @Value("${citas.ciclo-vida.gracia-confirmada-minutos:1440}")
+    private long graciaConfirmadaMinutos;
+
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong totalExpiradas = new AtomicLong();
+    private final AtomicLong totalNoAsistio = new AtomicLong();
+    private volatile EstadisticasCicloVidaDTO ultimas = new EstadisticasCicloVidaDTO(null, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * Vence las citas pendientes y confirmadas cuyo horario ya pasó.
+     *
+     * @return Estadísticas de esta ejecución
+     */
+    @Scheduled(cron = "${citas.ciclo-vida.cron:0 */15 * * * *}")
+    public synchronized EstadisticasCicloVidaDTO ejecutar() {
+        Instant inicio = Instant.now();
+        int[] lotes = new int[1];
+
+        int expiradas = vencer(EstadoCitas.PENDIENTE, EstadoCitas.EXPIRADA,
+                inicio.minus(Duration.ofMinutes(graciaPendienteMinutos)), lotes);
+        int noAsistio = vencer(EstadoCitas.CONFIRMADA, EstadoCitas.NO_ASISTIO,
+                inicio.minus(Duration.ofMinutes(graciaConfirmadaMinutos)), lotes);
+
+        long duracion = Duration.between(inicio, Instant.now()).toMillis();
+        ultimas = new EstadisticasCicloVidaDTO(inicio, duracion, expiradas, noAsistio, lotes[0],
+                ejecuciones.incrementAndGet(),
+                totalExpiradas.addAndGet(expiradas),
+                totalNoAsistio.addAndGet(noAsistio));
+        if (expiradas > 0 || noAsistio > 0) {
+            log.info("Ciclo de vida de citas: {} expiradas, {} sin asistencia en {} lotes ({} ms)",
+                    expiradas, noAsistio, lotes[0], duracion);
+        }
+        return ultimas;
+    }
+
+    public EstadisticasCicloVidaDTO obtenerEstadisticas() {
+        return ultimas;
+    }
+
+    /**
+     * Cambia de estado, lote por lote, las citas en el estado anterior cuyo horario empezó antes del límite.
+     *
+     * @return Cantidad de citas actualizadas
+     */
+    private int vencer(EstadoCitas anterior, EstadoCitas nuevo, Instant limite, int[] lotes) {
+        int total = 0;
+        int leidas;
+        do {
+            int[] resultado = transactionTemplate.execute(status -> {
+                List<Long> ids = citasRepository.findIdsByEstadoAndFechaHoraAntes(anterior, limite, Limit.of(tamanoLote));
+                if (ids.isEmpty()) {
+                    return new int[]{0, 0};
+                }
+                int actualizadas = citasRepository.vencerCitas(ids, anterior, nuevo);
+                // Se releen para publicar solo las que de verdad cambiaron (otra transacción pudo modificarlas)
+                for (CitaDTO cita : citasRepository.findCitasDTOByIdsAndEstado(ids, nuevo)) {
+                    eventPublisher.publishEvent(new CitaModificadaEvent(cita.id(), cita.doctorId(), cita.pacienteId(),
+                            cita.fechaHora(), cita.duracionMinutos() > 0 ? cita.duracionMinutos() : null,
+                            nuevo, null, null));
+                }
+                return new int[]{ids.size(), actualizadas};
+            });
+            leidas = resultado[0];
+            total += resultado[1];
+            if (leidas > 0) {
+                lotes[0]++;
+            }
+        } while (leidas == tamanoLote);
+        return total;
+    }
+}
@@ -0,0 +1,336 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.PrioridadCorreo;
+import edu.uniquindio.dentalmanagementsystembackend.dto.sistema.EstadoColaCorreoDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.sistema.EstadoPrioridadCorreoDTO;
+import edu.uniquindio.dentalmanagementsystembackend.util.LimitadorTasa;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.simplejavamail.api.email.Email;
+import org.simplejavamail.api.mailer.Mailer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cola de envío de correos delante del Mailer. Un único hilo despachador toma los correos por prioridad
+ * (y en orden de llegada dentro de cada prioridad), espera una ficha del {@link LimitadorTasa} para no superar
+ * la tasa que acepta el servidor SMTP y los entrega al pool de conexiones del Mailer, con a lo sumo tantos
+ * envíos en curso como conexiones tiene el pool, para que el orden lo decida esta cola y no la del Mailer.
+ *
+ * <p>Si un envío falla con un error transitorio se vuelve a encolar tras una espera que se duplica con cada
+ * intento; los errores permanentes (respuestas 5xx) no se reintentan. Cuando el servidor responde con un
+ * código 4xx (por ejemplo 421 o 454, "intente más tarde") además se pausa el limitador, porque el rechazo
+ * afecta a todos los envíos y no solo a ese correo. Los correos en cola se pierden si la aplicación se
+ * detiene; los de la bandeja de salida se vuelven a tomar al vencer su arrendamiento.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ColaEnvioCorreo {
+
+    // Código de respuesta SMTP al inicio de una línea del mensaje de error, por ejemplo "421 4.7.0 Try again later"
+    private static final Pattern CODIGO_SMTP = Pattern.compile("^\\s*([45]\\d\\d)[ -]", Pattern.MULTILINE);
+    // Tope de espera del despachador cuando no hay trabajo, para revisar si se debe detener
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Mailer mailer;
+
+    @Value("${correo.envio.tasa-por-segundo:5}")
+    private double tasaPorSegundo;
+
+    @Value("${correo.envio.rafaga:10}")
+    private int rafaga;
+
+    @Value("${correo.envio.capacidad-cola:5000}")
+    private int capacidadCola;
+
+    @Value("${correo.smtp.pool.tamano:4}")
+    private int enVueloMaximo;
+
+    @Value("${correo.envio.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${correo.envio.reintento-base-segundos:5}")
+    private long reintentoBaseSegundos;
+
+    @Value("${correo.envio.reintento-max-segundos:300}")
+    private long reintentoMaxSegundos;
+
+    @Value("${correo.envio.pausa-servidor-segundos:30}")
+    private long pausaServidorSegundos;
+
+    private final PriorityBlockingQueue<Envio> listos = new PriorityBlockingQueue<>(64,
+            Comparator.comparing(Envio::prioridad).thenComparingLong(Envio::secuencia));
+    private final DelayQueue<Reintento> diferidos = new DelayQueue<>();
+    private final AtomicLong secuencias = new AtomicLong();
+
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final LongAdder rechazados = new LongAdder();
+    private final LongAdder pausasPorServidor = new LongAdder();
+    private final MetricasPrioridad[] metricas = new MetricasPrioridad[PrioridadCorreo.values().length];
+
+    private LimitadorTasa limitador;
+    private Semaphore enVuelo;
+    private Thread despachador;
+    private volatile boolean activo;
+
+    @PostConstruct
+    void iniciar() {
+        for (PrioridadCorreo prioridad : PrioridadCorreo.values()) {
+            metricas[prioridad.ordinal()] = new MetricasPrioridad();
+        }
+        limitador = new LimitadorTasa(tasaPorSegundo, rafaga);
+        enVuelo = new Semaphore(enVueloMaximo);
+        activo = true;
+        despachador = new Thread(this::despachar, "correo-despachador");
+        despachador.setDaemon(true);
+        despachador.start();
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activo = false;
+        despachador.interrupt();
+        despachador.join(TimeUnit.SECONDS.toMillis(5));
+        int pendientes = listos.size() + diferidos.size();
+        if (pendientes > 0) {
+            log.warn("La cola de correos se detuvo con {} correos sin enviar", pendientes);
+        }
+    }
+
+    /**
+     * Encola el correo para enviarlo en cuanto lo permitan su prioridad y el limitador de tasa.
+     *
+     * @param reintentar false si quien encola lleva sus propios reintentos (como la bandeja de salida),
+     *                   para que un fallo no se reintente dos veces
+     * @return Futuro que termina cuando el servidor SMTP acepta el correo, o con el error del último intento.
+     * Si la cola está llena, termina de inmediato con {@link IllegalStateException}, salvo para prioridad alta
+     */
+    public CompletableFuture<Void> encolar(Email email, PrioridadCorreo prioridad, boolean reintentar) {
+        Envio envio = new Envio(email, prioridad, reintentar, secuencias.incrementAndGet(), System.nanoTime(),
+                new CompletableFuture<>());
+        // Los códigos de activación y recuperación se aceptan siempre: el usuario los está esperando
+        if (prioridad != PrioridadCorreo.ALTA && listos.size() >= capacidadCola) {
+            rechazados.increment();
+            log.warn("Cola de correos llena ({} en espera), se descarta el correo a {}", listos.size(), destinatario(email));
+            envio.resultado().completeExceptionally(new IllegalStateException("La cola de correos está llena"));
+            return envio.resultado();
+        }
+        listos.add(envio);
+        return envio.resultado();
+    }
+
+    /**
+     * Foto del estado de la cola y de los tiempos de espera acumulados desde que arrancó.
+     */
+    public EstadoColaCorreoDTO estado() {
+        int[] enCola = new int[metricas.length];
+        for (Envio envio : listos) {
+            enCola[envio.prioridad().ordinal()]++;
+        }
+        List<EstadoPrioridadCorreoDTO> prioridades = new ArrayList<>(metricas.length);
+        for (PrioridadCorreo prioridad : PrioridadCorreo.values()) {
+            MetricasPrioridad metrica = metricas[prioridad.ordinal()];
+            long enviados = metrica.enviados.sum();
+            prioridades.add(new EstadoPrioridadCorreoDTO(
+                    prioridad,
+                    enCola[prioridad.ordinal()],
+                    enviados,
+                    enviados == 0 ? 0 : metrica.esperaTotalNanos.sum() / 1_000_000.0 / enviados,
+                    metrica.esperaMaximaNanos.get() / 1_000_000.0));
+        }
+        return new EstadoColaCorreoDTO(
+                tasaPorSegundo,
+                rafaga,
+                limitador.disponibles(),
+                enVueloMaximo - enVuelo.availablePermits(),
+                diferidos.size(),
+                reintentos.sum(),
+                fallidos.sum(),
+                rechazados.sum(),
+                pausasPorServidor.sum(),
+                prioridades);
+    }
+
+    private void despachar() {
+        while (activo) {
+            try {
+                moverReintentosVencidos();
+                Envio envio = listos.poll(esperaSinTrabajo(), TimeUnit.NANOSECONDS);
+                if (envio == null) {
+                    continue;
+                }
+                enVuelo.acquire();
+                long espera;
+                while ((espera = limitador.intentarConsumir()) > 0) {
+                    TimeUnit.NANOSECONDS.sleep(espera);
+                }
+                // Mientras se esperaba la ficha pudo llegar un correo más prioritario o vencer un reintento
+                moverReintentosVencidos();
+                Envio cabeza = listos.peek();
+                if (cabeza != null && listos.comparator().compare(cabeza, envio) < 0) {
+                    listos.add(envio);
+                    envio = listos.poll();
+                }
+                enviar(envio);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el despachador de correos", e);
+            }
+        }
+    }
+
+    private void enviar(Envio envio) {
+        long esperaNanos = System.nanoTime() - envio.encolado();
+        CompletableFuture<Void> resultado;
+        try {
+            resultado = mailer.sendMail(envio.email(), true);
+        } catch (RuntimeException e) {
+            resultado = CompletableFuture.failedFuture(e);
+        }
+        resultado.whenComplete((ignorado, error) -> {
+            enVuelo.release();
+            if (error == null) {
+                metricas[envio.prioridad().ordinal()].registrar(esperaNanos);
+                envio.resultado().complete(null);
+            } else {
+                manejarFallo(envio, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+    }
+
+    private void manejarFallo(Envio envio, Throwable causa) {
+        int codigo = codigoSmtp(causa);
+        if (codigo >= 400 && codigo < 500) {
+            pausasPorServidor.increment();
+            limitador.pausar(TimeUnit.SECONDS.toNanos(pausaServidorSegundos));
+            log.warn("El servidor SMTP pidió bajar el ritmo ({}), se pausan los envíos {} s", codigo, pausaServidorSegundos);
+        }
+
+        int intentos = envio.intentos() + 1;
+        if (envio.reintentar() && codigo < 500 && intentos < maxIntentos) {
+            reintentos.increment();
+            long esperaSegundos = Math.min(reintentoBaseSegundos << Math.min(intentos - 1, 20), reintentoMaxSegundos);
+            diferidos.add(new Reintento(envio.conIntentos(intentos),
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(esperaSegundos)));
+            log.warn("No se pudo enviar el correo a {} (intento {}), se reintenta en {} s: {}",
+                    destinatario(envio.email()), intentos, esperaSegundos, causa.getMessage());
+            return;
+        }
+
+        fallidos.increment();
+        log.error("No se pudo enviar el correo a {} tras {} intentos", destinatario(envio.email()), intentos, causa);
+        envio.resultado().completeExceptionally(causa);
+    }
+
+    private void moverReintentosVencidos() {
+        Reintento reintento;
+        while ((reintento = diferidos.poll()) != null) {
+            listos.add(reintento.envio());
+        }
+    }
+
+    /**
+     * Cuánto puede esperar el despachador un correo nuevo sin demorar el próximo reintento.
+     */
+    private long esperaSinTrabajo() {
+        Reintento proximo = diferidos.peek();
+        if (proximo == null) {
+            return ESPERA_MAXIMA_NANOS;
+        }
+        return Math.max(0, Math.min(ESPERA_MAXIMA_NANOS, proximo.getDelay(TimeUnit.NANOSECONDS)));
+    }
+
+    /**
+     * Busca el código de respuesta SMTP en los mensajes de la cadena de causas; 0 si no hay ninguno
+     * (por ejemplo, si no se pudo conectar), lo que se trata como un error transitorio.
+     */
+    static int codigoSmtp(Throwable error) {
+        for (Throwable actual = error; actual != null; actual = actual.getCause()) {
+            if (actual.getMessage() != null) {
+                Matcher codigo = CODIGO_SMTP.matcher(actual.getMessage());
+                if (codigo.find()) {
+                    return Integer.parseInt(codigo.group(1));
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static String destinatario(Email email) {
+        return email.getToRecipients().isEmpty() ? "?" : email.getToRecipients().get(0).getAddress();
+    }
+
+    /**
+     * Correo en la cola.
+     *
+     * @param secuencia Orden de llegada, que se conserva en los reintentos
+     * @param encolado Momento (System.nanoTime) en que se encoló por primera vez
+     * @param intentos Intentos fallidos hasta ahora
+     */
+    private record Envio(Email email, PrioridadCorreo prioridad, boolean reintentar, long secuencia, long encolado,
+                         CompletableFuture<Void> resultado, int intentos) {
+
+        Envio(Email email, PrioridadCorreo prioridad, boolean reintentar, long secuencia, long encolado,
+              CompletableFuture<Void> resultado) {
+            this(email, prioridad, reintentar, secuencia, encolado, resultado, 0);
+        }
+
+        Envio conIntentos(int intentos) {
+            return new Envio(email, prioridad, reintentar, secuencia, encolado, resultado, intentos);
+        }
+    }
+
+    /**
+     * Correo que espera su próximo intento.
+     *
+     * @param listoEn Momento (System.nanoTime) a partir del cual vuelve a la cola
+     */
+    private record Reintento(Envio envio, long listoEn) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unidad) {
+            return unidad.convert(listoEn - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), otro.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static final class MetricasPrioridad {
+
+        private final LongAdder enviados = new LongAdder();
+        private final LongAdder esperaTotalNanos = new LongAdder();
+        private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+
+        private void registrar(long esperaNanos) {
+            enviados.increment();
+            esperaTotalNanos.add(esperaNanos);
+            esperaMaximaNanos.accumulate(esperaNanos);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.util.MapaOcupacion;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Modo de reserva con un solo escritor por doctor. Se activa con {@code citas.reserva.modo=cola}:
+ * las creaciones, ediciones y cancelaciones de citas de un doctor se encolan y las procesa un único
+ * trabajador a la vez, de modo que los conflictos de horario se resuelven contra el estado en memoria
+ * (índice de disponibilidad más lo ya reservado en el lote) en lugar de esperar bloqueos en la tabla de citas.
+ *
+ * <p>Las creaciones consecutivas se agrupan en lotes de hasta {@code citas.cola.tamano-lote} y se confirman
+ * en una sola transacción. Las ediciones y cancelaciones van solas en su lote porque liberan horarios que
+ * el índice solo refleja al confirmar. Si una operación falla de forma que la transacción ya no puede
+ * confirmarse, el lote se deshace y cada operación se vuelve a ejecutar en su propia transacción.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ColaReservasDoctor {
+
+    static final String MODO_COLA = "cola";
+
+    // Lote en curso del hilo trabajador; null fuera de la cola
+    private static final ThreadLocal<Lote> LOTE_ACTUAL = new ThreadLocal<>();
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${citas.reserva.modo:transaccional}")
+    private String modoReserva;
+
+    @Value("${citas.cola.tamano-lote:20}")
+    private int tamanoLote;
+
+    @Value("${citas.cola.espera-maxima-segundos:30}")
+    private long esperaMaximaSegundos;
+
+    @Value("${citas.cola.hilos:4}")
+    private int hilos;
+
+    private final Map<String, Carril> carriles = new ConcurrentHashMap<>();
+    private volatile ExecutorService trabajadores;
+
+    /**
+     * Indica si las modificaciones de citas pasan por la cola de cada doctor.
+     */
+    public boolean usaCola() {
+        return MODO_COLA.equalsIgnoreCase(modoReserva);
+    }
+
+    /**
+     * Indica si el hilo actual está procesando un lote de la cola.
+     */
+    public boolean enLote() {
+        return LOTE_ACTUAL.get() != null;
+    }
+
+    /**
+     * Indica si el horario ya fue tomado por otra creación del lote en curso (aún sin confirmar).
+     */
+    public boolean ocupadoEnLote(LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        Lote lote = LOTE_ACTUAL.get();
+        return lote != null && lote.ocupacion.estaOcupado(fecha, hora, duracionMinutos);
+    }
+
+    /**
+     * Registra en el lote en curso el horario de una cita recién guardada.
+     */
+    public void registrarEnLote(LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        Lote lote = LOTE_ACTUAL.get();
+        if (lote != null) {
+            lote.ocupacion.marcar(fecha.atTime(hora).atZone(lote.zona).toInstant(), duracionMinutos);
+        }
+    }
+
+    /**
+     * Marca la transacción del lote en curso para deshacerse. Lo usa una operación que ya escribió en la
+     * base de datos y luego encontró un conflicto, para que el rechazo no confirme sus escrituras parciales.
+     */
+    public void deshacerLote() {
+        Lote lote = LOTE_ACTUAL.get();
+        if (lote != null && lote.estado != null) {
+            lote.estado.setRollbackOnly();
+        }
+    }
+
+    /**
+     * Encola la operación en la cola del doctor y espera su resultado.
+     *
+     * @param doctorId Doctor dueño de la agenda que se modifica
+     * @param esCreacion true si la operación solo crea citas y puede agruparse con otras creaciones
+     * @param operacion Operación a ejecutar dentro de la transacción del lote
+     * @return Resultado de la operación
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String doctorId, boolean esCreacion, Supplier<T> operacion) {
+        // Una operación que se ejecuta desde el trabajador no puede esperar a su propia cola
+        if (enLote()) {
+            return operacion.get();
+        }
+
+        Comando comando = new Comando(esCreacion, (Supplier<Object>) operacion, new CompletableFuture<>(),
+                new AtomicBoolean());
+        Carril carril = carriles.computeIfAbsent(doctorId, k -> new Carril(doctorId));
+        carril.pendientes.add(comando);
+        programar(carril);
+
+        try {
+            return (T) comando.resultado.get(esperaMaximaSegundos, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw desenvolver(e.getCause());
+        } catch (TimeoutException e) {
+            // Si el trabajador aún no la tomó, se marca como tomada para que nunca se ejecute
+            if (comando.tomado.compareAndSet(false, true)) {
+                throw new IllegalStateException("La agenda del doctor está congestionada, intente de nuevo");
+            }
+            return (T) esperarTomado(comando);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (comando.tomado.compareAndSet(false, true)) {
+                throw new IllegalStateException("Se interrumpió la espera de la operación sobre la agenda");
+            }
+            return (T) esperarTomado(comando);
+        }
+    }
+
+    /**
+     * Espera el resultado de una operación que el trabajador ya está ejecutando: aunque se haya vencido
+     * la espera, la cita puede confirmarse y no se debe informar al cliente que falló.
+     */
+    private static Object esperarTomado(Comando comando) {
+        try {
+            return comando.resultado.join();
+        } catch (CompletionException e) {
+            throw desenvolver(e.getCause());
+        }
+    }
+
+    private static RuntimeException desenvolver(Throwable causa) {
+        if (causa instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (causa instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(causa);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (trabajadores != null) {
+            trabajadores.shutdown();
+        }
+    }
+
+    private void programar(Carril carril) {
+        if (carril.activo.compareAndSet(false, true)) {
+            obtenerTrabajadores().execute(() -> procesar(carril));
+        }
+    }
+
+    /**
+     * Procesa un lote del carril y, si quedan operaciones, vuelve a programarlo para que
+     * los doctores con mucha demanda no acaparen a los trabajadores.
+     */
+    private void procesar(Carril carril) {
+        try {
+            List<Comando> lote = tomarLote(carril.pendientes);
+            if (!lote.isEmpty()) {
+                ejecutarLote(lote);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error inesperado procesando la cola del doctor {}", carril.doctorId, e);
+        } finally {
+            carril.activo.set(false);
+            if (!carril.pendientes.isEmpty()) {
+                programar(carril);
+            }
+        }
+    }
+
+    /**
+     * Toma las creaciones consecutivas de la cabeza de la cola, o una sola edición o cancelación.
+     */
+    private List<Comando> tomarLote(Queue<Comando> pendientes) {
+        List<Comando> lote = new ArrayList<>();
+        Comando siguiente;
+        while (lote.size() < tamanoLote && (siguiente = pendientes.peek()) != null) {
+            if (!siguiente.esCreacion && !lote.isEmpty()) {
+                break;
+            }
+            pendientes.poll();
+            // Los que ya vencieron su espera no se ejecutan; los demás quedan tomados y su llamador
+            // esperará el resultado aunque se le venza la espera
+            if (!siguiente.tomado.compareAndSet(false, true)) {
+                continue;
+            }
+            lote.add(siguiente);
+            if (!siguiente.esCreacion) {
+                break;
+            }
+        }
+        return lote;
+    }
+
+    private void ejecutarLote(List<Comando> lote) {
+        List<Object> resultados = new ArrayList<>(lote.size());
+        List<RuntimeException> rechazos = new ArrayList<>(lote.size());
+        LOTE_ACTUAL.set(new Lote());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LOTE_ACTUAL.get().estado = status;
+                for (Comando comando : lote) {
+                    try {
+                        resultados.add(comando.operacion.get());
+                        rechazos.add(null);
+                    } catch (HorarioOcupadoException e) {
+                        // El conflicto se detecta en memoria antes de escribir, el resto del lote sigue
+                        if (status.isRollbackOnly()) {
+                            throw e;
+                        }
+                        resultados.add(null);
+                        rechazos.add(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                lote.get(0).resultado.completeExceptionally(e);
+                return;
+            }
+            log.debug("Lote de {} operaciones deshecho, se ejecutan una por una: {}", lote.size(), e.getMessage());
+            LOTE_ACTUAL.remove();
+            for (Comando comando : lote) {
+                ejecutarLote(List.of(comando));
+            }
+            return;
+        } finally {
+            LOTE_ACTUAL.remove();
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            if (rechazos.get(i) != null) {
+                lote.get(i).resultado.completeExceptionally(rechazos.get(i));
+            } else {
+                lote.get(i).resultado.complete(resultados.get(i));
+            }
+        }
+    }
+
+    private ExecutorService obtenerTrabajadores() {
+        if (trabajadores == null) {
+            synchronized (this) {
+                if (trabajadores == null) {
+                    AtomicInteger contador = new AtomicInteger();
+                    trabajadores = Executors.newFixedThreadPool(hilos, tarea -> {
+                        Thread hilo = new Thread(tarea, "cola-reservas-" + contador.incrementAndGet());
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+                }
+            }
+        }
+        return trabajadores;
+    }
+
+    /**
+     * Operación encolada. {@code tomado} lo marca el trabajador al incluirla en un lote o el llamador al
+     * vencerse su espera, el que llegue primero.
+     */
+    private record Comando(boolean esCreacion, Supplier<Object> operacion, CompletableFuture<Object> resultado,
+                           AtomicBoolean tomado) {
+    }
+
+    /**
+     * Cola de operaciones de un doctor; {@code activo} garantiza que solo un trabajador la procese a la vez.
+     */
+    private static final class Carril {
+
+        private final String doctorId;
+        private final Queue<Comando> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean activo = new AtomicBoolean();
+
+        Carril(String doctorId) {
+            this.doctorId = doctorId;
+        }
+    }
+
+    /**
+     * Horarios tomados por las creaciones del lote en curso, que el índice aún no refleja.
+     */
+    private static final class Lote {
+
+        private final ZoneId zona = ZoneId.systemDefault();
+        private final MapaOcupacion ocupacion = new MapaOcupacion(zona);
+        private TransactionStatus estado;
+    }
+}
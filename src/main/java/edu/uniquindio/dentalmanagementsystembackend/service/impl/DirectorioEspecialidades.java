@@ -0,0 +1,153 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DisponibilidadDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadFilaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorResumenDTO;
+import edu.uniquindio.dentalmanagementsystembackend.event.DirectorioModificadoEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.EspecialidadRepository;
+import edu.uniquindio.dentalmanagementsystembackend.util.DiaDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaSemanal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Directorio en memoria especialidad → doctores.
+ * Se construye con una sola consulta sobre doctor_especialidad y se recarga completo cuando cambia
+ * una especialidad o un usuario, o cuando vence su tiempo de vida (para cambios hechos directamente
+ * en la base de datos). La disponibilidad de cada doctor se toma de la caché de plantillas semanales.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectorioEspecialidades {
+
+    /**
+     * Especialidad con sus doctores, tal como se guarda en el directorio.
+     */
+    private record EntradaDirectorio(String nombre, List<DoctorResumenDTO> doctores) {}
+
+    private record Instantanea(Map<Long, EntradaDirectorio> especialidades, Instant cargadaEn) {}
+
+    private final EspecialidadRepository especialidadRepository;
+    private final PlantillasSemanales plantillasSemanales;
+
+    @Value("${directorio.especialidades.ttl-minutos:10}")
+    private long ttlMinutos;
+
+    private volatile Instantanea instantanea;
+
+    // Versión del directorio: cambia con cada invalidación para descartar cargas que quedaron desactualizadas
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Obtiene los doctores de una especialidad con su disponibilidad semanal.
+     *
+     * @throws IllegalArgumentException si la especialidad no existe
+     */
+    public List<DoctorEspecialidadDTO> obtenerDoctores(Long especialidadId) {
+        EntradaDirectorio entrada = obtenerInstantanea().especialidades().get(especialidadId);
+        if (entrada == null) {
+            throw new IllegalArgumentException("Especialidad no encontrada con ID: " + especialidadId);
+        }
+        if (entrada.doctores().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, PlantillaSemanal> plantillas = plantillasSemanales.obtener(
+                entrada.doctores().stream().map(DoctorResumenDTO::id).collect(Collectors.toList()));
+
+        List<DoctorEspecialidadDTO> doctores = new ArrayList<>(entrada.doctores().size());
+        for (DoctorResumenDTO doctor : entrada.doctores()) {
+            doctores.add(new DoctorEspecialidadDTO(
+                    doctor.id(),
+                    doctor.nombre(),
+                    doctor.apellido(),
+                    entrada.nombre(),
+                    disponibilidad(plantillas.getOrDefault(doctor.id(), PlantillaSemanal.VACIA))));
+        }
+        return doctores;
+    }
+
+    /**
+     * Obtiene los IDs de las especialidades que atiende un doctor.
+     */
+    public Set<Long> obtenerEspecialidadesDeDoctor(String doctorId) {
+        Set<Long> especialidades = new HashSet<>();
+        obtenerInstantanea().especialidades().forEach((id, entrada) -> {
+            if (entrada.doctores().stream().anyMatch(doctor -> doctor.id().equals(doctorId))) {
+                especialidades.add(id);
+            }
+        });
+        return especialidades;
+    }
+
+    /**
+     * Descarta el directorio; se vuelve a cargar en la siguiente consulta.
+     */
+    public void invalidar() {
+        version.incrementAndGet();
+        instantanea = null;
+    }
+
+    /**
+     * Invalida el directorio cuando se confirma la transacción que modificó una especialidad o un usuario.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarDirectorio(DirectorioModificadoEvent evento) {
+        invalidar();
+        log.debug("Directorio de especialidades invalidado por cambio en {}", evento.origen());
+    }
+
+    private Instantanea obtenerInstantanea() {
+        Instantanea actual = instantanea;
+        if (actual != null && actual.cargadaEn().plus(Duration.ofMinutes(ttlMinutos)).isAfter(Instant.now())) {
+            return actual;
+        }
+
+        long versionAntes = version.get();
+        Map<Long, EntradaDirectorio> especialidades = new HashMap<>();
+        for (DoctorEspecialidadFilaDTO fila : especialidadRepository.findDirectorioDoctores()) {
+            EntradaDirectorio entrada = especialidades.computeIfAbsent(fila.especialidadId(),
+                    id -> new EntradaDirectorio(fila.especialidadNombre(), new ArrayList<>()));
+            if (fila.doctorId() != null) {
+                entrada.doctores().add(new DoctorResumenDTO(fila.doctorId(), fila.doctorNombre(), fila.doctorApellido()));
+            }
+        }
+        especialidades.replaceAll((id, entrada) -> new EntradaDirectorio(entrada.nombre(), List.copyOf(entrada.doctores())));
+
+        Instantanea nueva = new Instantanea(Map.copyOf(especialidades), Instant.now());
+        // Solo se publica si nada cambió mientras se cargaba
+        if (version.get() == versionAntes) {
+            instantanea = nueva;
+        }
+        log.debug("Directorio de especialidades cargado: {} especialidades", especialidades.size());
+        return nueva;
+    }
+
+    private static List<DisponibilidadDTO> disponibilidad(PlantillaSemanal plantilla) {
+        List<DisponibilidadDTO> disponibilidad = new ArrayList<>();
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            for (DiaDisponibilidad.Ventana ventana : plantilla.ventanas(dia)) {
+                disponibilidad.add(new DisponibilidadDTO(dia, ventana.inicio(), ventana.fin()));
+            }
+        }
+        return disponibilidad;
+    }
+}
@@ -1,29 +1,47 @@
 package edu.uniquindio.dentalmanagementsystembackend.service.impl;
 
+import edu.uniquindio.dentalmanagementsystembackend.Enum.Idioma;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.PrioridadCorreo;
+import edu.uniquindio.dentalmanagementsystembackend.config.AsyncConfig;
 import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.email.CitaEmailDTO;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
 import org.simplejavamail.api.email.Email;
-import org.simplejavamail.api.mailer.Mailer;
-import org.simplejavamail.api.mailer.config.TransportStrategy;
 import org.simplejavamail.email.EmailBuilder;
-import org.simplejavamail.mailer.MailerBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 // Anotación que indica que esta clase es un servicio de Spring
 @Service
 public class EmailImpl implements EmailService {
 
-    // Nombre de usuario del servidor SMTP
-    private final String SMTP_USERNAME = "unieventosproyect@gmail.com";
-    // Contraseña del servidor SMTP
-    private final String SMTP_PASSWORD = "fyncswwbtqwubuja";
+    // Cola con prioridad y limitador de tasa delante del Mailer compartido
+    private final ColaEnvioCorreo colaEnvio;
+    // Dirección desde la que se envían los correos (el usuario del servidor SMTP)
+    private final String remitente;
+    // Plantillas de los correos, compiladas al arrancar
+    private final PlantillasCorreo plantillas;
+    // Idioma en el que se redactan los correos
+    private final Idioma idioma;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
+    public EmailImpl(ColaEnvioCorreo colaEnvio, @Value("${correo.smtp.usuario}") String remitente,
+                     PlantillasCorreo plantillas, @Value("${correo.idioma:ES}") Idioma idioma) {
+        this.colaEnvio = colaEnvio;
+        this.remitente = remitente;
+        this.plantillas = plantillas;
+        this.idioma = idioma;
+    }
+
     /**
      * Envía un email electrónico.
      *
@@ -31,24 +49,39 @@ public class EmailImpl implements EmailService {
      * @throws Exception
      */
     @Override
-    @Async
     public void sendMail(EmailDTO emailDTO) throws Exception {
+        sendMail(emailDTO, PrioridadCorreo.NORMAL);
+    }
+
+    @Override
+    public void sendMail(EmailDTO emailDTO, PrioridadCorreo prioridad) {
+        // La cola reintenta los fallos transitorios y registra los definitivos
+        colaEnvio.encolar(construirEmail(emailDTO), prioridad, true);
+    }
+
+    @Override
+    public void enviarAhora(EmailDTO emailDTO) throws Exception {
+        try {
+            colaEnvio.encolar(construirEmail(emailDTO), PrioridadCorreo.NORMAL, false).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception causa ? causa : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> enviarEnLote(EmailDTO emailDTO) {
+        // Sin reintentos en la cola: la bandeja de salida programa los suyos
+        return colaEnvio.encolar(construirEmail(emailDTO), PrioridadCorreo.NORMAL, false);
+    }
+
+    private Email construirEmail(EmailDTO emailDTO) {
         // Construcción del email utilizando el EmailBuilder
-        Email email = EmailBuilder.startingBlank()
-                .from(SMTP_USERNAME)
+        return EmailBuilder.startingBlank()
+                .from(remitente)
                 .to(emailDTO.recipient())
                 .withSubject(emailDTO.issue())
                 .withHTMLText(emailDTO.body())
                 .buildEmail();
-
-        // Envío del email utilizando el Mailer
-        try (Mailer mailer = MailerBuilder
-                .withSMTPServer("smtp.gmail.com", 587, SMTP_USERNAME, SMTP_PASSWORD)
-                .withTransportStrategy(TransportStrategy.SMTP_TLS)
-                .withDebugLogging(true)
-                .buildMailer()) {
-            mailer.sendMail(email);
-        }
     }
 
     /**
@@ -58,30 +91,11 @@ public class EmailImpl implements EmailService {
      * @param qrUrl La URL de la imagen del código QR.
      */
     @Override
-    @Async
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void sendQrByEmail(String email, String qrUrl) {
-        // Construcción del mensaje HTML con el código QR
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Código QR de su Orden</h2>
-                    <p>Estimado usuario,</p>
-                    <p>Gracias por su compra. A continuación encontrará el código QR de su orden:</p>
-                    <div style="text-align: center; margin: 20px 0;">
-                        <img src="%s" alt="Código QR" style="display:block; max-width:100%; height:auto; margin: 0 auto;" />
-                    </div>
-                    <p>Atentamente,<br/>El equipo de UniEventos</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(qrUrl);
-
         // Envío del email con el código QR
         try {
-            sendMail(new EmailDTO(email, "Código QR de su Orden", htmlMessage));
+            sendMail(redactar(email, "qr-orden", Map.of("qrUrl", qrUrl)));
         } catch (Exception e) {
             e.printStackTrace(); // Manejo de excepciones, podrías usar un logger aquí
         }
@@ -94,32 +108,13 @@ public class EmailImpl implements EmailService {
      * @param validationCode El código de validación a enviar.
      * @throws Exception
      */
-    @Async
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     @Override
     public void sendCodevalidation(String email, String validationCode) throws Exception {
-        // Construcción del mensaje HTML con el código de validación
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Activación de cuenta</h2>
-                    <p>Estimado usuario,</p>
-                    <p>Gracias por registrarse en nuestra plataforma. Para activar su cuenta, por favor utilice el siguiente código de activación:</p>
-                    <div style="background-color: #f8f9fa; padding: 15px; border-radius: 5px; text-align: center; margin: 20px 0;">
-                        <h3 style="margin: 0; color: #2c3e50;">Código de activación: %s</h3>
-                    </div>
-                    <p>Este código es válido por 15 minutos.</p>
-                    <p>Si usted no solicitó este registro, por favor ignore este email.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(validationCode);
-
         // Envío del email con el código de activación
-        sendMail(new EmailDTO(email, "Activación de cuenta", htmlMessage));
+        sendMail(redactar(email, "activacion-cuenta",
+                Map.of("etiquetaCodigo", etiquetaCodigo("activación", "Activation"), "codigo", validationCode)),
+                PrioridadCorreo.ALTA);
     }
 
     /**
@@ -130,214 +125,142 @@ public class EmailImpl implements EmailService {
      * @throws Exception
      */
     @Override
-    @Async
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void sendRecoveryCode(String email, String recoveryCode) throws Exception {
-        // Construcción del mensaje HTML con el código de recuperación
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Recuperación de contraseña</h2>
-                    <p>Estimado usuario,</p>
-                    <p>Ha solicitado recuperar su contraseña. Utilice el siguiente código de recuperación para restablecer su contraseña:</p>
-                    <div style="background-color: #f8f9fa; padding: 15px; border-radius: 5px; text-align: center; margin: 20px 0;">
-                        <h3 style="margin: 0; color: #2c3e50;">Código de recuperación: %s</h3>
-                    </div>
-                    <p>Este código es válido por 15 minutos.</p>
-                    <p>Si usted no solicitó esta recuperación, por favor ignore este email.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(recoveryCode);
-
         // Envío del email con el código de recuperación
-        sendMail(new EmailDTO(email, "Recuperación de contraseña", htmlMessage));
+        sendMail(redactar(email, "recuperacion-clave",
+                Map.of("etiquetaCodigo", etiquetaCodigo("recuperación", "Recovery"), "codigo", recoveryCode)),
+                PrioridadCorreo.ALTA);
     }
 
     @Override
-    @Async
-    public void enviarCorreoConfirmacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Confirmación de Cita Odontológica</h2>
-                    <p>Estimado paciente,</p>
-                    <p>Su cita con el Dr. %s ha sido confirmada exitosamente.</p>
-                    <ul>
-                        <li><strong>Fecha y hora:</strong> %s</li>
-                    </ul>
-                    <p>Por favor, asegúrese de llegar 15 minutos antes de su cita.</p>
-                    <p>Si necesita cancelar o reprogramar su cita, puede hacerlo 24 horas antes.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(nombreOdontologo, fechaHora.format(formatter));
+    public EmailDTO redactarCorreoConfirmacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
+        return redactar(email, "cita-confirmacion", datosCita(nombreOdontologo, fechaHora));
+    }
 
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
+    public void enviarCorreoConfirmacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
         try {
-            sendMail(new EmailDTO(email, "Confirmación de Cita Odontológica", htmlMessage));
+            sendMail(redactarCorreoConfirmacionCita(email, nombreOdontologo, fechaHora));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    @Async
-    public void enviarCorreoCancelacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Cancelación de Cita Odontológica</h2>
-                    <p>Estimado paciente,</p>
-                    <p>Su cita con el Dr. %s ha sido cancelada.</p>
-                    <ul>
-                        <li><strong>Fecha y hora original:</strong> %s</li>
-                    </ul>
-                    <p>Si desea programar una nueva cita, por favor contáctenos.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(nombreOdontologo, fechaHora.format(formatter));
+    public EmailDTO redactarCorreoCancelacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
+        return redactar(email, "cita-cancelacion", datosCita(nombreOdontologo, fechaHora));
+    }
 
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
+    public void enviarCorreoCancelacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
         try {
-            sendMail(new EmailDTO(email, "Cancelación de Cita Odontológica", htmlMessage));
+            sendMail(redactarCorreoCancelacionCita(email, nombreOdontologo, fechaHora));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void enviarCorreoReprogramacionCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Reprogramación de Cita Odontológica</h2>
-                    <p>Estimado paciente,</p>
-                    <p>Su cita con el Dr. %s ha sido reprogramada.</p>
-                    <ul>
-                        <li><strong>Nueva fecha y hora:</strong> %s</li>
-                    </ul>
-                    <p>Por favor, asegúrese de llegar 15 minutos antes de su cita.</p>
-                    <p>Si necesita cancelar o reprogramar su cita, puede hacerlo 24 horas antes.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(nombreOdontologo, fechaHora.format(formatter));
-
         try {
-            sendMail(new EmailDTO(email, "Reprogramación de Cita Odontológica", htmlMessage));
+            sendMail(redactar(email, "cita-reprogramacion", datosCita(nombreOdontologo, fechaHora)));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void enviarCorreoRecordatorioCita(String email, String nombreOdontologo, LocalDateTime fechaHora) {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Recordatorio de Cita Odontológica</h2>
-                    <p>Estimado paciente,</p>
-                    <p>Este es un recordatorio de su próxima cita con el Dr. %s.</p>
-                    <ul>
-                        <li><strong>Fecha y hora:</strong> %s</li>
-                    </ul>
-                    <p>Por favor, asegúrese de llegar 15 minutos antes de su cita.</p>
-                    <p>Si necesita cancelar o reprogramar su cita, puede hacerlo 24 horas antes.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(nombreOdontologo, fechaHora.format(formatter));
-
         try {
-            sendMail(new EmailDTO(email, "Recordatorio de Cita Odontológica", htmlMessage));
+            sendMail(redactar(email, "cita-recordatorio", datosCita(nombreOdontologo, fechaHora)), PrioridadCorreo.BAJA);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    @Async
+    public EmailDTO redactarCorreoCitaCompletada(String email, String nombreOdontologo, LocalDateTime fechaHora) {
+        return redactar(email, "cita-completada", datosCita(nombreOdontologo, fechaHora));
+    }
+
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void enviarCorreoCitaCompletada(String email, String nombreOdontologo, LocalDateTime fechaHora) {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Cita Completada</h2>
-                    <p>Estimado paciente,</p>
-                    <p>Su cita con el Dr. %s ha sido marcada como completada.</p>
-                    <ul>
-                        <li><strong>Fecha y hora:</strong> %s</li>
-                    </ul>
-                    <p>Gracias por confiar en nuestros servicios.</p>
-                    <p>Si tiene alguna pregunta o necesita programar una nueva cita, no dude en contactarnos.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(nombreOdontologo, fechaHora.format(formatter));
+        try {
+            sendMail(redactarCorreoCitaCompletada(email, nombreOdontologo, fechaHora));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public EmailDTO redactarCorreoSerieCitas(String email, String nombreOdontologo, List<LocalDateTime> fechas) {
+        List<String> fechasFormateadas = new ArrayList<>(fechas.size());
+        for (LocalDateTime fecha : fechas) {
+            fechasFormateadas.add(fecha.format(formatter));
+        }
+        return redactar(email, "serie-citas",
+                Map.of("cantidad", fechas.size(), "odontologo", nombreOdontologo, "fechas", fechasFormateadas));
+    }
+
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
+    public void enviarCorreoSerieCitas(String email, String nombreOdontologo, List<LocalDateTime> fechas) {
+        try {
+            sendMail(redactarCorreoSerieCitas(email, nombreOdontologo, fechas));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
+    public void enviarCorreoOfertaListaEspera(String email, String nombreOdontologo, LocalDateTime fechaHora,
+                                              String tokenOferta, long minutosParaAceptar) {
         try {
-            sendMail(new EmailDTO(email, "Cita Completada", htmlMessage));
+            sendMail(redactar(email, "oferta-lista-espera", Map.of(
+                    "odontologo", nombreOdontologo,
+                    "fechaHora", fechaHora.format(formatter),
+                    "token", tokenOferta,
+                    "minutos", minutosParaAceptar)),
+                    // La oferta vence en minutos, así que no puede esperar detrás de los demás correos
+                    PrioridadCorreo.ALTA);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    @Async
+    public EmailDTO redactarCorreoCita(CitaEmailDTO dto) {
+        return redactar(dto.emailPaciente(), "cita-detalle", Map.of(
+                "paciente", dto.nombrePaciente(),
+                "odontologo", dto.nombreOdontologo(),
+                "fechaHora", dto.fechaHora(),
+                "tipoCita", dto.tipoCita()));
+    }
+
+    @Override
+    @Async(AsyncConfig.EJECUTOR_CORREO)
     public void enviarCorreoCita(CitaEmailDTO dto) throws Exception {
-        String htmlMessage = """
-            <html>
-            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                    <h2 style="color: #2c3e50;">Confirmación de Cita Odontológica</h2>
-                    <p>Estimado(a) %s,</p>
-                    <p>Su cita ha sido programada exitosamente con los siguientes detalles:</p>
-                    <ul>
-                        <li><strong>Doctor:</strong> Dr. %s</li>
-                        <li><strong>Fecha y hora:</strong> %s</li>
-                        <li><strong>Tipo de cita:</strong> %s</li>
-                    </ul>
-                    <p>Si necesita cancelar o modificar su cita, puede hacerlo hasta 24 horas antes.</p>
-                    <p>Para realizar cambios, por favor comuníquese con nuestra clínica.</p>
-                    <hr style="border: 1px solid #eee; margin: 20px 0;">
-                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
-                </div>
-            </body>
-            </html>
-            """.formatted(
-                dto.nombrePaciente(),
-                dto.nombreOdontologo(),
-                dto.fechaHora(),
-                dto.tipoCita()
-            );
+        sendMail(redactarCorreoCita(dto));
+    }
 
-        sendMail(new EmailDTO(dto.emailPaciente(), "Confirmación de Cita Odontológica", htmlMessage));
+    @Override
+    public EmailDTO redactar(String destinatario, String plantilla, Map<String, ?> valores) {
+        PlantillasCorreo.CorreoRenderizado correo = plantillas.renderizar(plantilla, idioma, valores);
+        return new EmailDTO(destinatario, correo.asunto(), correo.html());
     }
 
+    private Map<String, Object> datosCita(String nombreOdontologo, LocalDateTime fechaHora) {
+        return Map.of("odontologo", nombreOdontologo, "fechaHora", fechaHora.format(formatter));
+    }
 
-}
\ No newline at end of file
+    private String etiquetaCodigo(String tipoEs, String tipoEn) {
+        return idioma == Idioma.EN ? tipoEn + " code" : "Código de " + tipoEs;
+    }
+}
@@ -0,0 +1,165 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoSlot;
+import edu.uniquindio.dentalmanagementsystembackend.entity.SlotAgenda;
+import edu.uniquindio.dentalmanagementsystembackend.event.DisponibilidadModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.DisponibilidadDoctorRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.SlotAgendaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.util.DiaDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaSemanal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mantiene la tabla de horarios pre-generados (slots_agenda) cuando el modo de reserva es "slots".
+ * Cada noche extiende el horizonte de cada doctor hasta {@code citas.slots.horizonte-dias} días,
+ * insertando por lotes con JDBC, y elimina los horarios libres que ya pasaron.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeneradorSlotsAgenda {
+
+    private static final String INSERTAR_SLOT =
+            "INSERT IGNORE INTO slots_agenda (doctor_id, fecha, hora, duracion_minutos, estado) VALUES (?, ?, ?, ?, ?)";
+
+    private final AgendaSlots agendaSlots;
+    private final PlantillasSemanales plantillasSemanales;
+    private final DisponibilidadDoctorRepository disponibilidadDoctorRepository;
+    private final SlotAgendaRepository slotAgendaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${citas.slots.horizonte-dias:60}")
+    private int horizonteDias;
+
+    @Value("${citas.slots.tamano-lote:500}")
+    private int tamanoLote;
+
+    /**
+     * Genera el horizonte inicial al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        extenderHorizonte();
+    }
+
+    /**
+     * Extiende el horizonte de todos los doctores con horario activo.
+     */
+    @Scheduled(cron = "${citas.slots.cron-extension:0 30 2 * * *}")
+    public void extenderHorizonte() {
+        if (!agendaSlots.usaSlots()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        LocalDate limite = hoy.plusDays(horizonteDias);
+
+        Integer eliminados = transactionTemplate.execute(status -> slotAgendaRepository.eliminarLibresAnterioresA(hoy));
+        int insertados = 0;
+        for (String doctorId : disponibilidadDoctorRepository.findDoctorIdsByEstado(EstadoDisponibilidad.ACTIVO)) {
+            LocalDate ultima = slotAgendaRepository.findUltimaFechaGenerada(doctorId);
+            LocalDate desde = ultima != null && !ultima.isBefore(hoy) ? ultima.plusDays(1) : hoy;
+            insertados += generar(doctorId, desde, limite, Map.of());
+        }
+        log.info("Horizonte de horarios extendido hasta {}: {} horarios nuevos, {} horarios vencidos eliminados",
+                limite, insertados, eliminados);
+    }
+
+    /**
+     * Cuando cambia el horario semanal de un doctor se regeneran sus horarios libres futuros.
+     * Los horarios ya reservados se conservan, y los nuevos que se solapan con ellos no se crean (si cambió
+     * el intervalo, la grilla nueva puede no coincidir con la anterior). Se eliminan y se insertan en una sola
+     * transacción para que las reservas nunca vean al doctor sin horarios.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarDisponibilidad(DisponibilidadModificadaEvent evento) {
+        if (!agendaSlots.usaSlots()) {
+            return;
+        }
+        String doctorId = evento.doctorId();
+        LocalDate hoy = LocalDate.now();
+        Integer insertados = transactionTemplate.execute(status -> {
+            slotAgendaRepository.eliminarLibresDesde(doctorId, hoy);
+            Map<LocalDate, List<SlotAgenda>> reservados = new HashMap<>();
+            for (SlotAgenda slot : slotAgendaRepository.findReservadosDesde(doctorId, hoy)) {
+                reservados.computeIfAbsent(slot.getFecha(), f -> new ArrayList<>()).add(slot);
+            }
+            return generar(doctorId, hoy, hoy.plusDays(horizonteDias), reservados);
+        });
+        log.info("Horarios del doctor {} regenerados: {} horarios", doctorId, insertados);
+    }
+
+    /**
+     * Inserta por lotes los horarios del doctor en el rango [desde, hasta], salvo los que se solapan con un
+     * horario reservado. Los horarios que ya existen se ignoran gracias a la restricción única (doctor, fecha, hora).
+     */
+    private int generar(String doctorId, LocalDate desde, LocalDate hasta, Map<LocalDate, List<SlotAgenda>> reservados) {
+        PlantillaSemanal plantilla = plantillasSemanales.obtener(doctorId);
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        int insertados = 0;
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            for (DiaDisponibilidad.Ventana ventana : plantilla.ventanas(fecha.getDayOfWeek())) {
+                for (LocalTime hora : ventana.horasDeInicio(ventana.intervaloMinutos())) {
+                    if (solapaReservado(reservados.get(fecha), hora, ventana.intervaloMinutos())) {
+                        continue;
+                    }
+                    lote.add(new Object[]{doctorId, Date.valueOf(fecha), Time.valueOf(hora),
+                            ventana.intervaloMinutos(), EstadoSlot.LIBRE.name()});
+                    if (lote.size() >= tamanoLote) {
+                        insertados += insertarLote(lote);
+                    }
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            insertados += insertarLote(lote);
+        }
+        return insertados;
+    }
+
+    private static boolean solapaReservado(List<SlotAgenda> reservados, LocalTime hora, int duracionMinutos) {
+        if (reservados == null) {
+            return false;
+        }
+        // En minutos del día, para que un horario que termina a medianoche no se compare como 00:00
+        int inicio = hora.toSecondOfDay() / 60;
+        int fin = inicio + duracionMinutos;
+        for (SlotAgenda reservado : reservados) {
+            int inicioReservado = reservado.getHora().toSecondOfDay() / 60;
+            if (inicio < inicioReservado + reservado.getDuracionMinutos() && inicioReservado < fin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int insertarLote(List<Object[]> lote) {
+        int[] resultados = jdbcTemplate.batchUpdate(INSERTAR_SLOT, lote);
+        lote.clear();
+        int insertados = 0;
+        for (int filas : resultados) {
+            insertados += Math.max(filas, 0);
+        }
+        return insertados;
+    }
+}
@@ -0,0 +1,273 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ConsistenciaIndiceDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.OcupacionCitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.event.DisponibilidadModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.UserRepository;
+import edu.uniquindio.dentalmanagementsystembackend.util.DiaDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaSemanal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice residente en memoria con la disponibilidad de cada doctor por día.
+ * Los días se cargan desde la base de datos la primera vez que se consultan y a partir de ahí
+ * se actualizan en sitio con los eventos de cambio de citas, de modo que las lecturas de
+ * disponibilidad no vuelven a consultar la base de datos.
+ *
+ * <p>Solo se guardan los días entre hoy y {@code disponibilidad.indice.horizonte-dias} días después; los que
+ * quedan fuera se cargan para la consulta y se descartan. Cada noche se eliminan los días que ya pasaron.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceDisponibilidad {
+
+    // Duración en minutos que se asume para las citas sin tipo y para las ventanas sin intervalo configurado
+    static final int DURACION_CITA_MINUTOS = 30;
+
+    private final PlantillasSemanales plantillasSemanales;
+    private final CitasRepository citasRepository;
+    private final UserRepository userRepository;
+
+    // Días hacia adelante que se guardan en el índice
+    @Value("${disponibilidad.indice.horizonte-dias:120}")
+    private int horizonteDias;
+
+    private final ZoneId zona = ZoneId.systemDefault();
+    private final Map<String, Map<LocalDate, DiaDisponibilidad>> diasPorDoctor = new ConcurrentHashMap<>();
+
+    // Generación por doctor: cambia con cada modificación para descartar cargas que quedaron desactualizadas
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene la disponibilidad de un doctor para una fecha.
+     */
+    public DiaDisponibilidad obtenerDia(String doctorId, LocalDate fecha) {
+        return obtenerRango(doctorId, fecha, fecha).get(fecha);
+    }
+
+    /**
+     * Obtiene la disponibilidad de un doctor para cada día del rango [fechaInicio, fechaFin], en orden.
+     * Los días que no están en el índice se cargan juntos con una consulta de horarios y una de citas.
+     */
+    public Map<LocalDate, DiaDisponibilidad> obtenerRango(String doctorId, LocalDate fechaInicio, LocalDate fechaFin) {
+        Map<LocalDate, DiaDisponibilidad> diasDoctor = diasPorDoctor.getOrDefault(doctorId, Map.of());
+
+        List<LocalDate> faltantes = new ArrayList<>();
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+            if (!diasDoctor.containsKey(fecha)) {
+                faltantes.add(fecha);
+            }
+        }
+
+        Map<LocalDate, DiaDisponibilidad> cargados = Map.of();
+        if (!faltantes.isEmpty()) {
+            long generacion = generacionActual(doctorId);
+            cargados = cargarDesdeBaseDeDatos(doctorId, faltantes.get(0), faltantes.get(faltantes.size() - 1));
+            // Solo se guardan en el índice si ningún cambio ocurrió mientras se cargaban
+            if (generacionActual(doctorId) == generacion) {
+                guardar(doctorId, cargados);
+                diasDoctor = diasPorDoctor.getOrDefault(doctorId, Map.of());
+            }
+        }
+
+        Map<LocalDate, DiaDisponibilidad> resultado = new LinkedHashMap<>();
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+            DiaDisponibilidad dia = diasDoctor.get(fecha);
+            resultado.put(fecha, dia != null ? dia : cargados.get(fecha));
+        }
+        return resultado;
+    }
+
+    /**
+     * Actualiza el índice cuando se confirma la transacción que modificó una cita.
+     * Va antes que los demás oyentes posteriores a la confirmación, que pueden consultar el índice
+     * (por ejemplo, la lista de espera al ofrecer un horario liberado).
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        generacion(evento.doctorOriginal()).incrementAndGet();
+        generacion(evento.doctorId()).incrementAndGet();
+
+        DiaDisponibilidad diaAnterior = diaCargado(evento.doctorOriginal(), evento.fechaHoraOriginal());
+        if (diaAnterior != null) {
+            diaAnterior.liberar(evento.citaId());
+        }
+
+        DiaDisponibilidad diaActual = diaCargado(evento.doctorId(), evento.fechaHora());
+        if (diaActual != null) {
+            diaActual.liberar(evento.citaId());
+            if (evento.ocupaHorario()) {
+                diaActual.ocupar(evento.citaId(), LocalDateTime.ofInstant(evento.fechaHora(), zona).toLocalTime(),
+                        duracion(evento.duracionMinutos()));
+            }
+        }
+    }
+
+    /**
+     * Cuando cambia el horario semanal de un doctor se descartan su plantilla y sus días en el índice.
+     * La plantilla se invalida primero para que la recarga del índice no use el horario anterior.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarDisponibilidad(DisponibilidadModificadaEvent evento) {
+        plantillasSemanales.invalidar(evento.doctorId());
+        reconstruir(evento.doctorId());
+    }
+
+    /**
+     * Descarta todo lo que el índice tiene de un doctor; los días se recargan desde la base de datos
+     * en la siguiente consulta.
+     */
+    public void reconstruir(String doctorId) {
+        generacion(doctorId).incrementAndGet();
+        plantillasSemanales.invalidar(doctorId);
+        diasPorDoctor.remove(doctorId);
+        log.info("Índice de disponibilidad descartado para el doctor {}", doctorId);
+    }
+
+    /**
+     * Compara el día en el índice con lo que hay en la base de datos. Si hay diferencias,
+     * el día se reemplaza con la versión de la base de datos.
+     */
+    public ConsistenciaIndiceDTO verificarConsistencia(String doctorId, LocalDate fecha) {
+        DiaDisponibilidad enIndice = obtenerDia(doctorId, fecha);
+        // El horario también se relee de la base de datos para detectar una plantilla desactualizada
+        plantillasSemanales.invalidar(doctorId);
+        DiaDisponibilidad enBaseDatos = cargarDesdeBaseDeDatos(doctorId, fecha, fecha).get(fecha);
+
+        BitSet diferencias = enIndice.copiaOcupacion();
+        diferencias.xor(enBaseDatos.copiaOcupacion());
+        BitSet diferenciasHorario = enIndice.copiaLaborable();
+        diferenciasHorario.xor(enBaseDatos.copiaLaborable());
+        diferencias.or(diferenciasHorario);
+
+        boolean consistente = diferencias.isEmpty();
+        if (!consistente) {
+            log.warn("Índice inconsistente para el doctor {} en {}: {} minutos diferentes",
+                    doctorId, fecha, diferencias.cardinality());
+            generacion(doctorId).incrementAndGet();
+            Map<LocalDate, DiaDisponibilidad> diasDoctor = diasPorDoctor.get(doctorId);
+            if (diasDoctor != null) {
+                diasDoctor.replace(fecha, enBaseDatos);
+            }
+        }
+
+        return new ConsistenciaIndiceDTO(
+                doctorId,
+                fecha,
+                consistente,
+                enIndice.copiaOcupacion().cardinality(),
+                enBaseDatos.copiaOcupacion().cardinality(),
+                diferencias.cardinality());
+    }
+
+    /**
+     * Elimina del índice los días que ya pasaron.
+     */
+    @Scheduled(cron = "${disponibilidad.indice.cron-depuracion:0 5 0 * * *}")
+    public void descartarDiasPasados() {
+        LocalDate hoy = LocalDate.now(zona);
+        int descartados = 0;
+        for (Map.Entry<String, Map<LocalDate, DiaDisponibilidad>> doctor : diasPorDoctor.entrySet()) {
+            Map<LocalDate, DiaDisponibilidad> dias = doctor.getValue();
+            int antes = dias.size();
+            dias.keySet().removeIf(fecha -> fecha.isBefore(hoy));
+            descartados += antes - dias.size();
+            diasPorDoctor.remove(doctor.getKey(), Map.of());
+        }
+        log.info("Índice de disponibilidad: {} días pasados descartados", descartados);
+    }
+
+    /**
+     * Guarda en el índice los días cargados que están dentro del horizonte, sin reemplazar los que ya estaban.
+     */
+    private void guardar(String doctorId, Map<LocalDate, DiaDisponibilidad> cargados) {
+        LocalDate hoy = LocalDate.now(zona);
+        LocalDate limite = hoy.plusDays(horizonteDias);
+        Map<LocalDate, DiaDisponibilidad> diasDoctor = null;
+        for (Map.Entry<LocalDate, DiaDisponibilidad> dia : cargados.entrySet()) {
+            if (dia.getKey().isBefore(hoy) || dia.getKey().isAfter(limite)) {
+                continue;
+            }
+            if (diasDoctor == null) {
+                diasDoctor = diasPorDoctor.computeIfAbsent(doctorId, k -> new ConcurrentHashMap<>());
+            }
+            diasDoctor.putIfAbsent(dia.getKey(), dia.getValue());
+        }
+    }
+
+    private Map<LocalDate, DiaDisponibilidad> cargarDesdeBaseDeDatos(String doctorId, LocalDate fechaInicio, LocalDate fechaFin) {
+        if (!userRepository.existsByIdNumber(doctorId)) {
+            throw new IllegalArgumentException("Doctor no encontrado con ID: " + doctorId);
+        }
+
+        // Horario semanal del doctor (desde la caché de plantillas)
+        PlantillaSemanal plantilla = plantillasSemanales.obtener(doctorId);
+
+        Map<LocalDate, DiaDisponibilidad> dias = new LinkedHashMap<>();
+        for (LocalDate fecha = fechaInicio; !fecha.isAfter(fechaFin); fecha = fecha.plusDays(1)) {
+            dias.put(fecha, new DiaDisponibilidad(plantilla.ventanas(fecha.getDayOfWeek())));
+        }
+
+        // Citas de todo el rango en una sola consulta
+        List<OcupacionCitaDTO> citas = citasRepository.findOcupacionByDoctor(
+                doctorId,
+                fechaInicio.atStartOfDay(zona).toInstant(),
+                fechaFin.plusDays(1).atStartOfDay(zona).toInstant());
+        for (OcupacionCitaDTO cita : citas) {
+            LocalDateTime local = LocalDateTime.ofInstant(cita.fechaHora(), zona);
+            DiaDisponibilidad dia = dias.get(local.toLocalDate());
+            if (dia != null) {
+                dia.ocupar(cita.citaId(), local.toLocalTime(), duracion(cita.duracionMinutos()));
+            }
+        }
+        return dias;
+    }
+
+    private DiaDisponibilidad diaCargado(String doctorId, Instant fechaHora) {
+        if (doctorId == null || fechaHora == null) {
+            return null;
+        }
+        Map<LocalDate, DiaDisponibilidad> diasDoctor = diasPorDoctor.get(doctorId);
+        return diasDoctor != null ? diasDoctor.get(LocalDate.ofInstant(fechaHora, zona)) : null;
+    }
+
+    private static int duracion(Integer duracionMinutos) {
+        return duracionMinutos != null && duracionMinutos > 0 ? duracionMinutos : DURACION_CITA_MINUTOS;
+    }
+
+    /**
+     * Generación actual del doctor, sin registrarlo si aún no tiene (por ejemplo, un ID que no existe).
+     */
+    private long generacionActual(String doctorId) {
+        AtomicLong generacion = generaciones.get(doctorId);
+        return generacion != null ? generacion.get() : 0;
+    }
+
+    private AtomicLong generacion(String doctorId) {
+        return generaciones.computeIfAbsent(doctorId, k -> new AtomicLong());
+    }
+}
@@ -0,0 +1,71 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Al arrancar, marca como activas las citas existentes que aún no tienen slot_activo,
+ * de modo que la restricción de horario único también proteja las citas anteriores a la columna.
+ * Si hay citas activas duplicadas en un mismo horario, la aplicación no arranca hasta que se resuelvan.
+ * Antes convierte la columna de estado a texto si quedó como ENUM de MySQL sin los estados nuevos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InicializadorHorariosCitas {
+
+    private final CitasRepository citasRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void marcarHorariosActivos() {
+        ampliarColumnaEstado();
+        verificarHorariosDuplicados();
+        int actualizadas = citasRepository.marcarHorariosActivosPendientes();
+        if (actualizadas > 0) {
+            log.info("Se marcaron {} citas existentes como horarios activos", actualizadas);
+        }
+    }
+
+    /**
+     * Si hay citas activas duplicadas en el mismo horario no se pueden marcar como activas, y esas citas
+     * quedarían fuera de la restricción de horario único. En ese caso la aplicación no arranca y se listan
+     * los horarios en conflicto para resolverlos (cancelando o reprogramando las citas sobrantes).
+     */
+    private void verificarHorariosDuplicados() {
+        List<Object[]> duplicados = citasRepository.findHorariosActivosDuplicados();
+        if (duplicados.isEmpty()) {
+            return;
+        }
+        for (Object[] fila : duplicados) {
+            log.error("Horario con {} citas activas: doctor {} el {}", fila[2], fila[0], fila[1]);
+        }
+        throw new IllegalStateException("Hay " + duplicados.size() + " horarios con más de una cita activa; "
+                + "deben resolverse antes de arrancar para que la restricción de horario único los proteja");
+    }
+
+    /**
+     * Hibernate crea la columna estado como ENUM con los valores que existían en ese momento y
+     * ddl-auto=update no la modifica después, así que los estados EXPIRADA y NO_ASISTIO no cabrían.
+     * Solo se altera la tabla si la columna sigue siendo ENUM.
+     */
+    private void ampliarColumnaEstado() {
+        try {
+            String tipo = jdbcTemplate.queryForObject("SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'citas' AND COLUMN_NAME = 'estado'", String.class);
+            if ("enum".equalsIgnoreCase(tipo)) {
+                jdbcTemplate.execute("ALTER TABLE citas MODIFY estado VARCHAR(20) NOT NULL");
+                log.info("La columna citas.estado se convirtió de ENUM a VARCHAR(20)");
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo revisar el tipo de la columna citas.estado: {}", e.getMessage());
+        }
+    }
+}
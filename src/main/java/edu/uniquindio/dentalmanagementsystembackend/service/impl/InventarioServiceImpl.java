@@ -4,13 +4,12 @@ import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoInventario;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.TipoProducto;
 import edu.uniquindio.dentalmanagementsystembackend.dto.Inventario.InventarioDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.Inventario.InventarioDetalleDTO;
-import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Inventario;
-import edu.uniquindio.dentalmanagementsystembackend.repository.CuentaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.event.StockBajoEvent;
 import edu.uniquindio.dentalmanagementsystembackend.repository.InventarioRepository;
-import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.InventarioService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -25,8 +24,7 @@ import java.util.List;
 public class InventarioServiceImpl implements InventarioService {
 
     private final InventarioRepository inventarioRepository;
-    private final EmailService email;
-    private final CuentaRepository cuentaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     @Override
@@ -286,17 +284,16 @@ public class InventarioServiceImpl implements InventarioService {
       }
 
       // 4. Descontar la cantidad usada del stock
-      inventario.setCantidadDisponible(inventario.getCantidadDisponible() - cantidadUsada);
+      int cantidadAnterior = inventario.getCantidadDisponible();
+      inventario.setCantidadDisponible(cantidadAnterior - cantidadUsada);
 
       // 5. Verificar si la cantidad disponible está por debajo del mínimo
       if (inventario.getCantidadDisponible() < inventario.getCantidadMinima()) {
           System.out.println("El producto " + inventario.getNombre() + " está por debajo de la cantidad mínima.");
 
-          // Obtener correos de los administradores
-          List<String> correosAdministradores = cuentaRepository.obtenerCorreosAdministradores();
-
-          // Notificar a los administradores
-          notificarAdministradoresCantidadMinima(inventario, correosAdministradores);
+          // Registrar la alerta; los administradores la reciben en el resumen periódico (AlertasInventario)
+          eventPublisher.publishEvent(new StockBajoEvent(inventario.getId(), inventario.getNombre(),
+                  cantidadAnterior, inventario.getCantidadDisponible(), inventario.getCantidadMinima()));
       }
 
       // 6. Actualizar el estado del inventario
@@ -305,45 +302,6 @@ public class InventarioServiceImpl implements InventarioService {
       // 7. Guardar los cambios
       inventarioRepository.save(inventario);
   }
-    private void notificarAdministradoresCantidadMinima(Inventario inventario, List<String> correosAdministradores) {
-        // Construcción del mensaje HTML
-        String htmlMessage = """
-        <html>
-        <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
-            <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
-                <h2 style="color: #2c3e50;">Alerta: Producto con cantidad mínima</h2>
-                <p>Estimado administrador,</p>
-                <p>El producto <strong>%s</strong> ha alcanzado o está por debajo de su cantidad mínima.</p>
-                <ul>
-                    <li><strong>ID del producto:</strong> %d</li>
-                    <li><strong>Cantidad disponible:</strong> %d</li>
-                    <li><strong>Cantidad mínima:</strong> %d</li>
-                </ul>
-                <p>Por favor, tome las medidas necesarias para reabastecer este producto.</p>
-                <p>Atentamente,<br/>El sistema de gestión de inventario</p>
-                <hr style="border: 1px solid #eee; margin: 20px 0;">
-                <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
-            </div>
-        </body>
-        </html>
-        """.formatted(
-                inventario.getNombre(),
-                inventario.getId(),
-                inventario.getCantidadDisponible(),
-                inventario.getCantidadMinima()
-        );
-
-        // Envío del correo a cada administrador
-        for (String correo : correosAdministradores) {
-            try {
-                email.sendMail(new EmailDTO(correo, "Alerta: Producto con cantidad mínima", htmlMessage));
-            } catch (Exception e) {
-                e.printStackTrace(); // Manejo de excepciones, podrías usar un logger aquí
-            }
-        }
-    }
-
-
     @Override
     @Transactional(readOnly = true)
     public List<Inventario> buscarPorNombre(String nombre) {
@@ -2,15 +2,18 @@ package edu.uniquindio.dentalmanagementsystembackend.service.impl;
 
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
+import edu.uniquindio.dentalmanagementsystembackend.config.AsyncConfig;
 import edu.uniquindio.dentalmanagementsystembackend.dto.historial.HistorialDTO;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.HistorialService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase encargada de generar documentos PDF relacionados con los historiales médicos de los pacientes.
@@ -31,6 +34,29 @@ public class PdfGenerator {
     private static final BaseColor COLOR_TEXTO = new BaseColor(33, 33, 33); // Gris oscuro
     private static final BaseColor COLOR_ID_PACIENTE = new BaseColor(120, 120, 120); // Gris para ID
 
+    /**
+     * Genera el PDF del historial en el ejecutor de PDF, que limita cuántos se generan a la vez
+     * @param id Identificador del paciente
+     * @return Futuro con el contenido del PDF generado
+     * @throws org.springframework.core.task.TaskRejectedException Si el ejecutor de PDF está lleno
+     */
+    @Async(AsyncConfig.EJECUTOR_PDF)
+    public CompletableFuture<byte[]> generarHistorialPDF(String id) throws DocumentException {
+        return CompletableFuture.completedFuture(historialPDF(id));
+    }
+
+    /**
+     * Genera el PDF del historial de un año en el ejecutor de PDF, que limita cuántos se generan a la vez
+     * @param id Identificador del paciente
+     * @param anio Año del historial
+     * @return Futuro con el contenido del PDF generado
+     * @throws org.springframework.core.task.TaskRejectedException Si el ejecutor de PDF está lleno
+     */
+    @Async(AsyncConfig.EJECUTOR_PDF)
+    public CompletableFuture<byte[]> generarHistorialPDFPorAnio(String id, int anio) throws DocumentException {
+        return CompletableFuture.completedFuture(historialPDFPorAnio(id, anio));
+    }
+
     /**
      * Genera un PDF con el historial médico del paciente
      * @param id Identificador del paciente
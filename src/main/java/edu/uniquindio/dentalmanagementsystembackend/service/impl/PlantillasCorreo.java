@@ -0,0 +1,107 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.Idioma;
+import edu.uniquindio.dentalmanagementsystembackend.util.CompiladorPlantillas;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaCompilada;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plantillas de los correos, compiladas una sola vez al arrancar.
+ * Se leen de {@code plantillas/correo/<idioma>/}: los archivos que empiezan con "_" son parciales o layouts
+ * y el resto son correos. Un parcial se busca primero en la carpeta del idioma y luego en {@code comun/}.
+ * El asunto de cada correo se declara en la plantilla con {@code {{!asunto ...}}}.
+ * Si un correo no existe en un idioma, se usa la versión en español.
+ */
+@Component
+@Slf4j
+public class PlantillasCorreo {
+
+    private static final String RUTA = "plantillas/correo/";
+    private static final String COMUN = "comun";
+    private static final Pattern ASUNTO = Pattern.compile("\\{\\{!\\s*asunto\\s+(.*?)\\s*}}");
+
+    /**
+     * Correo ya renderizado.
+     */
+    public record CorreoRenderizado(String asunto, String html) {
+    }
+
+    private record PlantillaCorreo(String asunto, PlantillaCompilada cuerpo) {
+    }
+
+    private final Map<Idioma, Map<String, PlantillaCorreo>> plantillas = new EnumMap<>(Idioma.class);
+
+    @PostConstruct
+    public void cargar() throws IOException {
+        // Fuentes por carpeta (idioma o común) y nombre de archivo sin extensión
+        Map<String, Map<String, String>> fuentes = new HashMap<>();
+        for (Resource recurso : new PathMatchingResourcePatternResolver().getResources("classpath*:" + RUTA + "*/*.html")) {
+            String ruta = recurso.getURL().getPath();
+            String archivo = ruta.substring(ruta.lastIndexOf('/') + 1);
+            String carpeta = ruta.substring(ruta.lastIndexOf('/', ruta.lastIndexOf('/') - 1) + 1, ruta.lastIndexOf('/'));
+            try (InputStream entrada = recurso.getInputStream()) {
+                fuentes.computeIfAbsent(carpeta, c -> new HashMap<>())
+                        .put(archivo.substring(0, archivo.length() - ".html".length()),
+                                new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        Map<String, String> comunes = fuentes.getOrDefault(COMUN, Map.of());
+        for (Idioma idioma : Idioma.values()) {
+            Map<String, String> delIdioma = fuentes.getOrDefault(idioma.getCodigo(), Map.of());
+            CompiladorPlantillas compilador = new CompiladorPlantillas(nombre -> {
+                String parcial = delIdioma.get("_" + nombre);
+                return parcial != null ? parcial : comunes.get("_" + nombre);
+            });
+
+            Map<String, PlantillaCorreo> compiladas = new HashMap<>();
+            delIdioma.forEach((nombre, fuente) -> {
+                if (nombre.startsWith("_")) {
+                    return;
+                }
+                Matcher asunto = ASUNTO.matcher(fuente);
+                if (!asunto.find()) {
+                    throw new IllegalStateException("La plantilla " + idioma.getCodigo() + "/" + nombre
+                            + " no declara su asunto");
+                }
+                try {
+                    compiladas.put(nombre, new PlantillaCorreo(asunto.group(1), compilador.compilar(fuente)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Error en la plantilla " + idioma.getCodigo() + "/" + nombre
+                            + ": " + e.getMessage(), e);
+                }
+            });
+            plantillas.put(idioma, compiladas);
+            log.info("Plantillas de correo en '{}' compiladas: {}", idioma.getCodigo(), compiladas.size());
+        }
+    }
+
+    /**
+     * Renderiza el correo en el idioma indicado, o en español si no existe en ese idioma.
+     *
+     * @throws IllegalArgumentException si el correo no existe
+     */
+    public CorreoRenderizado renderizar(String nombre, Idioma idioma, Map<String, ?> valores) {
+        PlantillaCorreo plantilla = plantillas.get(idioma).get(nombre);
+        if (plantilla == null) {
+            plantilla = plantillas.get(Idioma.ES).get(nombre);
+        }
+        if (plantilla == null) {
+            throw new IllegalArgumentException("No existe la plantilla de correo '" + nombre + "'");
+        }
+        return new CorreoRenderizado(plantilla.asunto(), plantilla.cuerpo().renderizar(valores));
+    }
+}
@@ -0,0 +1,104 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioSemanalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.repository.DisponibilidadDoctorRepository;
+import edu.uniquindio.dentalmanagementsystembackend.util.DiaDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaSemanal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de las plantillas semanales de los doctores.
+ * Las plantillas que faltan se cargan juntas con una sola consulta de proyección y se conservan
+ * hasta que el horario del doctor cambia. Cada doctor tiene un contador de versión que se incrementa
+ * al invalidar, de modo que una carga que empezó antes del cambio no deja en caché datos viejos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PlantillasSemanales {
+
+    private final DisponibilidadDoctorRepository disponibilidadDoctorRepository;
+
+    private final Map<String, PlantillaSemanal> plantillas = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versiones = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene la plantilla semanal de un doctor.
+     */
+    public PlantillaSemanal obtener(String doctorId) {
+        return obtener(List.of(doctorId)).get(doctorId);
+    }
+
+    /**
+     * Obtiene las plantillas de varios doctores. Las que no están en caché se cargan con una sola consulta.
+     *
+     * @return Mapa con una plantilla por cada doctor pedido (vacía si no tiene horario activo)
+     */
+    public Map<String, PlantillaSemanal> obtener(Collection<String> doctorIds) {
+        Map<String, PlantillaSemanal> resultado = new HashMap<>();
+        Set<String> faltantes = new LinkedHashSet<>();
+        for (String doctorId : doctorIds) {
+            PlantillaSemanal plantilla = plantillas.get(doctorId);
+            if (plantilla != null) {
+                resultado.put(doctorId, plantilla);
+            } else {
+                faltantes.add(doctorId);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            Map<String, Long> versionesAntes = new HashMap<>();
+            faltantes.forEach(id -> versionesAntes.put(id, version(id).get()));
+
+            Map<String, Map<DayOfWeek, List<DiaDisponibilidad.Ventana>>> ventanasPorDoctor = new HashMap<>();
+            for (HorarioSemanalDTO franja : disponibilidadDoctorRepository.findHorarioSemanalByDoctorIds(
+                    faltantes, EstadoDisponibilidad.ACTIVO)) {
+                ventanasPorDoctor
+                        .computeIfAbsent(franja.doctorId(), k -> new EnumMap<>(DayOfWeek.class))
+                        .computeIfAbsent(franja.diaSemana(), k -> new ArrayList<>())
+                        .add(new DiaDisponibilidad.Ventana(franja.horaInicio(), franja.horaFin(),
+                                franja.intervaloCitasMinutos() != null
+                                        ? franja.intervaloCitasMinutos()
+                                        : IndiceDisponibilidad.DURACION_CITA_MINUTOS));
+            }
+
+            for (String doctorId : faltantes) {
+                PlantillaSemanal plantilla = PlantillaSemanal.de(ventanasPorDoctor.getOrDefault(doctorId, Map.of()));
+                // Solo se guarda si el horario no cambió mientras se cargaba
+                if (version(doctorId).get() == versionesAntes.get(doctorId)) {
+                    plantillas.putIfAbsent(doctorId, plantilla);
+                }
+                resultado.put(doctorId, plantilla);
+            }
+            log.debug("Plantillas semanales cargadas para {} doctores", faltantes.size());
+        }
+        return resultado;
+    }
+
+    /**
+     * Descarta la plantilla de un doctor; se vuelve a cargar en la siguiente consulta.
+     */
+    public void invalidar(String doctorId) {
+        version(doctorId).incrementAndGet();
+        plantillas.remove(doctorId);
+    }
+
+    private AtomicLong version(String doctorId) {
+        return versiones.computeIfAbsent(doctorId, k -> new AtomicLong());
+    }
+}
@@ -0,0 +1,151 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.MarcaRecordatorio;
+import edu.uniquindio.dentalmanagementsystembackend.entity.RecordatorioCita;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.MarcaRecordatorioRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.RecordatorioCitaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
+import edu.uniquindio.dentalmanagementsystembackend.util.DateUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Envía los recordatorios de las citas confirmadas que empiezan dentro de cada antelación configurada
+ * en {@code citas.recordatorios.antelaciones-minutos} (por defecto 24 horas y 2 horas).
+ *
+ * <p>Por cada antelación se guarda una marca con la última cita procesada; cada barrido lee solo las citas
+ * posteriores a la marca con una consulta por rango sobre el índice (estado, fecha_hora, id), por lotes.
+ * Los recordatorios se registran y la marca avanza en la misma transacción, y los correos se envían
+ * después de confirmarla: si la aplicación se reinicia, una cita ya registrada nunca se vuelve a recordar.</p>
+ *
+ * <p>Las citas que se confirman o agendan cuando la marca ya pasó su horario no reciben ese recordatorio.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecordatoriosCitas {
+
+    private static final String INSERTAR_RECORDATORIO = "INSERT IGNORE INTO recordatorios_cita " +
+            "(cita_id, antelacion_minutos, fecha_hora_cita, enviado_en) VALUES (?, ?, ?, ?)";
+
+    private final CitasRepository citasRepository;
+    private final MarcaRecordatorioRepository marcaRecordatorioRepository;
+    private final RecordatorioCitaRepository recordatorioCitaRepository;
+    private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${citas.recordatorios.antelaciones-minutos:1440,120}")
+    private List<Integer> antelacionesMinutos;
+
+    @Value("${citas.recordatorios.tamano-lote:200}")
+    private int tamanoLote;
+
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    /**
+     * Procesa por lotes, para cada antelación, las citas que entraron en su ventana desde el último barrido.
+     */
+    @Scheduled(fixedDelayString = "${citas.recordatorios.barrido-ms:60000}")
+    public void enviarRecordatorios() {
+        for (Integer antelacion : antelacionesMinutos) {
+            try {
+                int enviados = 0;
+                Lote lote;
+                do {
+                    lote = transactionTemplate.execute(status -> tomarLote(antelacion));
+                    enviar(lote.pendientes());
+                    enviados += lote.pendientes().size();
+                } while (lote.leidas() == tamanoLote);
+                if (enviados > 0) {
+                    log.info("Se enviaron {} recordatorios de citas con {} minutos de antelación", enviados, antelacion);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error enviando los recordatorios con {} minutos de antelación", antelacion, e);
+            }
+        }
+    }
+
+    /**
+     * Lee el siguiente lote de citas a partir de la marca, registra sus recordatorios y avanza la marca.
+     */
+    private Lote tomarLote(Integer antelacion) {
+        Instant ahora = Instant.now();
+        MarcaRecordatorio marca = marcaRecordatorioRepository.bloquear(antelacion)
+                .orElseGet(() -> marcaRecordatorioRepository.save(new MarcaRecordatorio(antelacion, ahora, 0L)));
+
+        // Después de un tiempo detenida, la aplicación no recuerda citas que ya empezaron
+        Instant desde = marca.getFechaHora();
+        Long desdeId = marca.getCitaId();
+        if (desde.isBefore(ahora)) {
+            desde = ahora;
+            desdeId = 0L;
+        }
+
+        List<CitaDTO> citas = citasRepository.findCitasConfirmadasParaRecordatorio(desde, desdeId,
+                ahora.plus(Duration.ofMinutes(antelacion)), Limit.of(tamanoLote));
+        if (citas.isEmpty()) {
+            return new Lote(0, List.of());
+        }
+
+        // Solo por seguridad: si la marca se reinició, lo ya enviado no se repite
+        Set<String> yaEnviados = recordatorioCitaRepository.findByAntelacionMinutosAndCitaIdIn(antelacion,
+                        citas.stream().map(CitaDTO::id).toList())
+                .stream()
+                .map(recordatorio -> recordatorio.getCitaId() + "@" + recordatorio.getFechaHoraCita())
+                .collect(Collectors.toSet());
+
+        List<CitaDTO> pendientes = new ArrayList<>(citas.size());
+        List<Object[]> filas = new ArrayList<>(citas.size());
+        LocalDateTime enviadoEn = DateUtil.aFechaHoraUtc(ahora);
+        for (CitaDTO cita : citas) {
+            if (!yaEnviados.contains(cita.id() + "@" + cita.fechaHora())) {
+                pendientes.add(cita);
+                filas.add(new Object[]{cita.id(), antelacion, DateUtil.aFechaHoraUtc(cita.fechaHora()), enviadoEn});
+            }
+        }
+        if (!filas.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERTAR_RECORDATORIO, filas);
+        }
+
+        CitaDTO ultima = citas.get(citas.size() - 1);
+        marca.setFechaHora(ultima.fechaHora());
+        marca.setCitaId(ultima.id());
+        return new Lote(citas.size(), pendientes);
+    }
+
+    private void enviar(List<CitaDTO> citas) {
+        for (CitaDTO cita : citas) {
+            if (cita.email() == null || cita.email().isBlank()) {
+                log.warn("La cita {} no tiene correo, no se envía su recordatorio", cita.id());
+                continue;
+            }
+            emailService.enviarCorreoRecordatorioCita(cita.email(), cita.doctorNombre(),
+                    LocalDateTime.ofInstant(cita.fechaHora(), zona));
+        }
+    }
+
+    /**
+     * @param leidas Citas leídas después de la marca; si llenan el lote puede haber más
+     * @param pendientes Citas cuyo recordatorio se registró y falta enviar
+     */
+    private record Lote(int leidas, List<CitaDTO> pendientes) {
+    }
+}
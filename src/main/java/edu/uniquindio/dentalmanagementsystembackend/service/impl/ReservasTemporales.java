@@ -0,0 +1,263 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.exception.LimiteReservasException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservas temporales de horarios para el flujo de citas no autenticadas.
+ * Mientras el usuario llena el formulario, el horario queda apartado por
+ * {@code citas.reserva-temporal.ttl-segundos} segundos a nombre de un token; al crear la cita
+ * con ese token la reserva se canjea. Las reservas viven solo en memoria y se vencen con una
+ * {@link DelayQueue}, de modo que apartar un horario no toca la base de datos.
+ *
+ * <p>Cada cliente puede tener a lo sumo {@code citas.reserva-temporal.maximo-por-cliente} reservas
+ * vigentes, para que nadie aparte toda la agenda de un doctor sin llegar a crear las citas.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReservasTemporales {
+
+    // Apartar o liberar un horario cambia la disponibilidad que ven los demás
+    private final VersionesAgenda versionesAgenda;
+
+    @Value("${citas.reserva-temporal.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    @Value("${citas.reserva-temporal.maximo-por-cliente:3}")
+    private int maximoPorCliente;
+
+    private final Map<String, ReservaTemporal> porToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<ReservaTemporal>> porDoctor = new ConcurrentHashMap<>();
+    private final Map<String, Set<ReservaTemporal>> porCliente = new ConcurrentHashMap<>();
+    private final DelayQueue<ReservaTemporal> vencimientos = new DelayQueue<>();
+
+    /**
+     * Aparta el horario a nombre de un token nuevo, a pedido de un cliente (su dirección IP).
+     *
+     * @throws HorarioOcupadoException si el horario se cruza con otra reserva temporal vigente
+     * @throws LimiteReservasException si el cliente ya tiene el máximo de reservas vigentes
+     */
+    public ReservaTemporalDTO reservar(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                       String cliente) {
+        while (true) {
+            Set<ReservaTemporal> delCliente = porCliente.computeIfAbsent(cliente, k -> ConcurrentHashMap.newKeySet());
+            // Se cuenta y se aparta bajo el mismo candado para que peticiones simultáneas no superen el límite
+            synchronized (delCliente) {
+                if (porCliente.get(cliente) != delCliente) {
+                    // Se descartó por quedar vacío mientras se esperaba el candado
+                    continue;
+                }
+                long vigentes = delCliente.stream().filter(ReservaTemporal::vigente).count();
+                if (vigentes >= maximoPorCliente) {
+                    throw new LimiteReservasException("Ya tiene " + vigentes + " horarios reservados temporalmente");
+                }
+                return apartar(doctorId, fecha, hora, duracionMinutos, ttlSegundos, cliente, delCliente).aDTO();
+            }
+        }
+    }
+
+    /**
+     * Aparta el horario a nombre de un token nuevo durante el tiempo indicado, por ejemplo mientras
+     * un paciente de la lista de espera decide si acepta el horario que se le ofreció.
+     *
+     * @throws HorarioOcupadoException si el horario se cruza con otra reserva temporal vigente
+     */
+    public ReservaTemporalDTO reservar(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                       long duracionSegundos) {
+        return apartar(doctorId, fecha, hora, duracionMinutos, duracionSegundos, null, null).aDTO();
+    }
+
+    private ReservaTemporal apartar(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                    long duracionSegundos, String cliente, Set<ReservaTemporal> delCliente) {
+        Set<ReservaTemporal> delDoctor = porDoctor.computeIfAbsent(doctorId, k -> ConcurrentHashMap.newKeySet());
+        ReservaTemporal reserva;
+        // La revisión y el registro se hacen juntos para que dos usuarios no aparten el mismo horario
+        synchronized (delDoctor) {
+            if (seCruza(delDoctor, fecha, hora, duracionMinutos, null)) {
+                throw new HorarioOcupadoException("El horario está reservado temporalmente por otro usuario");
+            }
+            reserva = new ReservaTemporal(UUID.randomUUID().toString(), doctorId, cliente, fecha, hora,
+                    duracionMinutos, TimeUnit.SECONDS.toNanos(duracionSegundos));
+            delDoctor.add(reserva);
+        }
+        // Antes de encolar el vencimiento, para que el barrido siempre la encuentre al descartarla
+        if (delCliente != null) {
+            delCliente.add(reserva);
+        }
+        porToken.put(reserva.token, reserva);
+        vencimientos.add(reserva);
+        versionesAgenda.incrementarDoctor(doctorId);
+        log.debug("Horario {} {} del doctor {} reservado temporalmente hasta {}", fecha, hora, doctorId, reserva.expiraEn);
+        return reserva;
+    }
+
+    /**
+     * Verifica que el token corresponda a una reserva vigente para ese doctor y horario.
+     *
+     * @throws IllegalArgumentException si la reserva no existe, ya expiró o es de otro horario
+     */
+    public void validar(String token, String doctorId, LocalDate fecha, LocalTime hora) {
+        ReservaTemporal reserva = porToken.get(token);
+        if (reserva == null || !reserva.vigente()) {
+            throw new IllegalArgumentException("La reserva temporal no existe o ya expiró");
+        }
+        if (!reserva.doctorId.equals(doctorId) || !reserva.fecha.equals(fecha) || !reserva.hora.equals(hora)) {
+            throw new IllegalArgumentException("La reserva temporal corresponde a otro horario");
+        }
+    }
+
+    /**
+     * Indica si el horario se cruza con una reserva temporal vigente de otro token.
+     *
+     * @param tokenPropio Token de quien consulta, cuya reserva no cuenta como bloqueo (puede ser null)
+     */
+    public boolean estaReservado(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                 String tokenPropio) {
+        Set<ReservaTemporal> delDoctor = porDoctor.get(doctorId);
+        return delDoctor != null && !delDoctor.isEmpty()
+                && seCruza(delDoctor, fecha, hora, duracionMinutos, tokenPropio);
+    }
+
+    /**
+     * Libera la reserva, ya sea porque se canjeó al crear la cita o porque el usuario desistió.
+     */
+    public void liberar(String token) {
+        if (token == null) {
+            return;
+        }
+        ReservaTemporal reserva = porToken.remove(token);
+        if (reserva != null) {
+            quitarDeDoctor(reserva);
+        }
+    }
+
+    /**
+     * Descarta las reservas vencidas. Las consultas ya ignoran las reservas expiradas; descartarlas
+     * libera la memoria que ocupan e incrementa la versión de la agenda del doctor. {@link VersionesAgenda}
+     * también lo llama antes de calcular un ETag, para que una reserva que acaba de expirar cambie la
+     * versión aunque el barrido todavía no haya pasado.
+     */
+    @Scheduled(fixedDelayString = "${citas.reserva-temporal.barrido-ms:1000}")
+    public void descartarVencidas() {
+        int descartadas = 0;
+        ReservaTemporal reserva;
+        while ((reserva = vencimientos.poll()) != null) {
+            // Si ya se canjeó o liberó, el token ya no está y no hay nada que hacer
+            if (porToken.remove(reserva.token, reserva)) {
+                quitarDeDoctor(reserva);
+                descartadas++;
+            }
+        }
+        if (descartadas > 0) {
+            log.debug("Se descartaron {} reservas temporales vencidas", descartadas);
+        }
+    }
+
+    private void quitarDeDoctor(ReservaTemporal reserva) {
+        Set<ReservaTemporal> delDoctor = porDoctor.get(reserva.doctorId);
+        if (delDoctor != null) {
+            delDoctor.remove(reserva);
+        }
+        if (reserva.cliente != null) {
+            Set<ReservaTemporal> delCliente = porCliente.get(reserva.cliente);
+            if (delCliente != null) {
+                synchronized (delCliente) {
+                    delCliente.remove(reserva);
+                    if (delCliente.isEmpty() && porCliente.get(reserva.cliente) == delCliente) {
+                        porCliente.remove(reserva.cliente);
+                    }
+                }
+            }
+        }
+        versionesAgenda.incrementarDoctor(reserva.doctorId);
+    }
+
+    private static boolean seCruza(Set<ReservaTemporal> reservas, LocalDate fecha, LocalTime hora,
+                                   int duracionMinutos, String tokenIgnorado) {
+        LocalTime fin = hora.plusMinutes(duracionMinutos);
+        for (ReservaTemporal reserva : reservas) {
+            if (reserva.fecha.equals(fecha) && reserva.vigente() && !reserva.token.equals(tokenIgnorado)
+                    && reserva.seCruzaCon(hora, fin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserva temporal de un horario; se ordena en la cola por su momento de expiración.
+     */
+    private static final class ReservaTemporal implements Delayed {
+
+        private final String token;
+        private final String doctorId;
+        private final String cliente;
+        private final LocalDate fecha;
+        private final LocalTime hora;
+        private final LocalTime fin;
+        private final Instant expiraEn;
+        private final long expiraNanos;
+
+        ReservaTemporal(String token, String doctorId, String cliente, LocalDate fecha, LocalTime hora,
+                        int duracionMinutos, long ttlNanos) {
+            this.token = token;
+            this.doctorId = doctorId;
+            this.cliente = cliente;
+            this.fecha = fecha;
+            this.hora = hora;
+            this.fin = hora.plusMinutes(duracionMinutos);
+            this.expiraEn = Instant.now().plusNanos(ttlNanos);
+            this.expiraNanos = System.nanoTime() + ttlNanos;
+        }
+
+        ReservaTemporalDTO aDTO() {
+            return new ReservaTemporalDTO(token, doctorId, fecha, hora, expiraEn);
+        }
+
+        boolean vigente() {
+            return System.nanoTime() - expiraNanos < 0;
+        }
+
+        /**
+         * Cruce de intervalos [hora, fin) teniendo en cuenta que un fin en 00:00 es la medianoche.
+         */
+        boolean seCruzaCon(LocalTime inicioOtro, LocalTime finOtro) {
+            return antesDe(inicioOtro, fin) && antesDe(hora, finOtro);
+        }
+
+        private static boolean antesDe(LocalTime inicio, LocalTime fin) {
+            return fin.equals(LocalTime.MIDNIGHT) || inicio.isBefore(fin);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiraNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            if (otro instanceof ReservaTemporal reserva) {
+                return Long.compare(expiraNanos - reserva.expiraNanos, 0);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), otro.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
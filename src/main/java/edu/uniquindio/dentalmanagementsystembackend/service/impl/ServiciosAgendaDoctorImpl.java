@@ -0,0 +1,192 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.Rol;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.AgendaDoctorDiaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaAgendaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.AgendaDoctorDia;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.repository.AgendaDoctorDiaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.UserRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosAgendaDoctor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Mantiene y sirve el modelo de lectura de la agenda diaria de cada doctor.
+ * Cada cambio de una cita reescribe la agenda del día afectado dentro de la misma transacción,
+ * así la vista diaria nunca muestra algo distinto de lo confirmado en la tabla de citas.
+ * Los días que aún no tienen agenda (por ejemplo, citas anteriores a este modelo) se arman
+ * desde la tabla de citas al consultarlos, sin guardarlos: la agenda de un día solo se crea
+ * cuando cambia una de sus citas. Las consultas se limitan a doctores existentes y a
+ * {@code citas.agenda.horizonte-dias} días antes o después de hoy.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServiciosAgendaDoctorImpl implements ServiciosAgendaDoctor {
+
+    private static final TypeReference<List<EntradaAgendaDTO>> TIPO_ENTRADAS = new TypeReference<>() {
+    };
+
+    private static final Comparator<EntradaAgendaDTO> ORDEN_ENTRADAS =
+            Comparator.comparing(EntradaAgendaDTO::hora).thenComparing(EntradaAgendaDTO::citaId);
+
+    private final AgendaDoctorDiaRepository agendaDoctorDiaRepository;
+    private final CitasRepository citasRepository;
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${citas.agenda.horizonte-dias:120}")
+    private int horizonteDias;
+
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    @Override
+    @Transactional(readOnly = true)
+    public AgendaDoctorDiaDTO obtenerAgenda(String doctorId, LocalDate fecha) {
+        LocalDate hoy = LocalDate.now();
+        if (fecha.isBefore(hoy.minusDays(horizonteDias)) || fecha.isAfter(hoy.plusDays(horizonteDias))) {
+            throw new IllegalArgumentException("Solo se puede consultar la agenda de los " + horizonteDias
+                    + " días anteriores o siguientes a hoy");
+        }
+        if (!userRepository.existsByIdNumberAndAccount_Rol(doctorId, Rol.DOCTOR)) {
+            throw new IllegalArgumentException("Doctor no encontrado");
+        }
+        return agendaDoctorDiaRepository.findById(new AgendaDoctorDia.Clave(doctorId, fecha))
+                .map(agenda -> new AgendaDoctorDiaDTO(agenda.getDoctorId(), agenda.getFecha(), agenda.getVersion(),
+                        leer(agenda)))
+                .orElseGet(() -> new AgendaDoctorDiaDTO(doctorId, fecha, 0, desdeCitas(doctorId, fecha)));
+    }
+
+    /**
+     * Los días se bloquean en orden de fecha, para que dos transacciones que toman los mismos días
+     * no queden esperándose mutuamente.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<LocalDate, List<EntradaAgendaDTO>> bloquearDias(String doctorId, Collection<LocalDate> fechas) {
+        Map<LocalDate, List<EntradaAgendaDTO>> agendas = new TreeMap<>();
+        for (LocalDate fecha : new TreeSet<>(fechas)) {
+            agendas.put(fecha, leer(bloquearOCrear(doctorId, fecha)));
+        }
+        return agendas;
+    }
+
+    /**
+     * Actualiza la agenda de los días afectados por el cambio de una cita. Corre en la transacción
+     * que modifica la cita, de modo que si la agenda no se puede actualizar el cambio tampoco se confirma.
+     */
+    @EventListener
+    @Transactional
+    public void alModificarCita(CitaModificadaEvent evento) {
+        LocalDate fechaActual = fecha(evento.fechaHora());
+        LocalDate fechaOriginal = fecha(evento.fechaHoraOriginal());
+
+        // Si la cita cambió de doctor o de día, sale de la agenda anterior
+        if (evento.doctorOriginal() != null
+                && (!Objects.equals(evento.doctorOriginal(), evento.doctorId()) || !fechaOriginal.equals(fechaActual))) {
+            agendaDoctorDiaRepository.bloquear(evento.doctorOriginal(), fechaOriginal).ifPresent(agenda -> {
+                List<EntradaAgendaDTO> entradas = leer(agenda);
+                entradas.removeIf(entrada -> entrada.citaId().equals(evento.citaId()));
+                escribir(agenda, entradas);
+            });
+        }
+
+        if (evento.doctorId() == null) {
+            return;
+        }
+        AgendaDoctorDia agenda = bloquearOCrear(evento.doctorId(), fechaActual);
+        List<EntradaAgendaDTO> entradas = leer(agenda);
+        entradas.removeIf(entrada -> entrada.citaId().equals(evento.citaId()));
+        citasRepository.findCitaDTOById(evento.citaId()).ifPresent(cita -> entradas.add(entrada(cita)));
+        escribir(agenda, entradas);
+        log.debug("Agenda del doctor {} del {} actualizada por la cita {}", evento.doctorId(), fechaActual, evento.citaId());
+    }
+
+    private AgendaDoctorDia bloquearOCrear(String doctorId, LocalDate fecha) {
+        return agendaDoctorDiaRepository.bloquear(doctorId, fecha).orElseGet(() -> crear(doctorId, fecha));
+    }
+
+    /**
+     * Arma la agenda del día desde la tabla de citas y la guarda. Si otra transacción la creó
+     * al mismo tiempo se conserva la suya; la lectura con bloqueo devuelve la versión confirmada.
+     */
+    private AgendaDoctorDia crear(String doctorId, LocalDate fecha) {
+        agendaDoctorDiaRepository.insertarSiNoExiste(doctorId, fecha, json(desdeCitas(doctorId, fecha)), Instant.now());
+        return agendaDoctorDiaRepository.bloquear(doctorId, fecha)
+                .orElseThrow(() -> new IllegalStateException("No se pudo crear la agenda del doctor " + doctorId));
+    }
+
+    private List<EntradaAgendaDTO> desdeCitas(String doctorId, LocalDate fecha) {
+        return citasRepository.findCitasDTOByDoctorAndRango(doctorId,
+                        fecha.atStartOfDay(zona).toInstant(), fecha.plusDays(1).atStartOfDay(zona).toInstant())
+                .stream()
+                .map(this::entrada)
+                .sorted(ORDEN_ENTRADAS)
+                .toList();
+    }
+
+    private EntradaAgendaDTO entrada(CitaDTO cita) {
+        return new EntradaAgendaDTO(
+                cita.id(),
+                cita.fechaHora().atZone(zona).toLocalTime(),
+                cita.duracionMinutos(),
+                cita.estado(),
+                cita.pacienteId(),
+                cita.pacienteNombre(),
+                cita.email(),
+                cita.telefono(),
+                cita.tipoCitaId(),
+                cita.tipoCitaNombre());
+    }
+
+    private List<EntradaAgendaDTO> leer(AgendaDoctorDia agenda) {
+        try {
+            return new ArrayList<>(objectMapper.readValue(agenda.getCitas(), TIPO_ENTRADAS));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("La agenda del doctor " + agenda.getDoctorId() + " del "
+                    + agenda.getFecha() + " está dañada", e);
+        }
+    }
+
+    private void escribir(AgendaDoctorDia agenda, List<EntradaAgendaDTO> entradas) {
+        entradas.sort(ORDEN_ENTRADAS);
+        agenda.setCitas(json(entradas));
+        agenda.setActualizadaEn(Instant.now());
+    }
+
+    private String json(List<EntradaAgendaDTO> entradas) {
+        try {
+            return objectMapper.writeValueAsString(entradas);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la agenda", e);
+        }
+    }
+
+    private LocalDate fecha(Instant instante) {
+        return instante.atZone(zona).toLocalDate();
+    }
+}
@@ -0,0 +1,299 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoMensajeSalida;
+import edu.uniquindio.dentalmanagementsystembackend.dto.account.EmailDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.MensajeSalidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.email.ResumenBandejaSalidaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.MensajeSalida;
+import edu.uniquindio.dentalmanagementsystembackend.repository.MensajeSalidaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosBandejaSalida;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bandeja de salida transaccional de los correos de citas.
+ * Los servicios guardan el correo ya redactado en la misma transacción que el cambio de la cita, y un relevo
+ * en segundo plano lo envía después: un rollback descarta también el correo y el envío SMTP no alarga
+ * la transacción. Cada lote se reclama con FOR UPDATE SKIP LOCKED y se aparta durante
+ * {@code notificaciones.bandeja.arrendamiento-minutos}, así que el correo se envía por fuera de la transacción
+ * sin que otra instancia lo tome; los correos del lote se envían en paralelo por el pool del mailer.
+ * La espera de cada envío se corta a los {@code notificaciones.bandeja.espera-envio-segundos}, siempre menos
+ * que el arrendamiento, para que un servidor SMTP colgado no retenga el hilo del relevo ni deje que otra
+ * instancia vuelva a tomar el lote mientras se sigue esperando.
+ * Si el envío falla se reintenta con espera exponencial y, agotados los intentos, el mensaje queda FALLIDO
+ * hasta que un administrador lo reenvíe.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServiciosBandejaSalidaImpl implements ServiciosBandejaSalida {
+
+    private static final int LARGO_MAXIMO_ERROR = 1000;
+
+    private final MensajeSalidaRepository mensajeSalidaRepository;
+    private final EmailService emailService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${notificaciones.bandeja.tamano-lote:50}")
+    private int tamanoLote;
+
+    @Value("${notificaciones.bandeja.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${notificaciones.bandeja.backoff-base-segundos:30}")
+    private long backoffBaseSegundos;
+
+    @Value("${notificaciones.bandeja.backoff-max-minutos:60}")
+    private long backoffMaxMinutos;
+
+    @Value("${notificaciones.bandeja.arrendamiento-minutos:5}")
+    private long arrendamientoMinutos;
+
+    @Value("${notificaciones.bandeja.retencion-dias:30}")
+    private long retencionDias;
+
+    @Value("${notificaciones.bandeja.espera-envio-segundos:120}")
+    private long esperaEnvioSegundos;
+
+    // El relevo reclama y registra cada lote en transacciones cortas, sin tener abierta ninguna durante el envío
+    private TransactionTemplate nuevaTransaccion;
+
+    @PostConstruct
+    void inicializar() {
+        nuevaTransaccion = new TransactionTemplate(transactionManager);
+        nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long arrendamientoSegundos = TimeUnit.MINUTES.toSeconds(arrendamientoMinutos);
+        if (esperaEnvioSegundos >= arrendamientoSegundos) {
+            log.warn("La espera de envío ({} s) no es menor que el arrendamiento ({} s); se usa la mitad del arrendamiento",
+                    esperaEnvioSegundos, arrendamientoSegundos);
+            esperaEnvioSegundos = arrendamientoSegundos / 2;
+        }
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void encolar(String tipo, Long citaId, EmailDTO correo) {
+        if (correo.recipient() == null || correo.recipient().isBlank()) {
+            log.warn("Se omite el correo {} de la cita {}: no tiene destinatario", tipo, citaId);
+            return;
+        }
+        Instant ahora = Instant.now();
+        MensajeSalida mensaje = new MensajeSalida();
+        mensaje.setTipo(tipo);
+        mensaje.setCitaId(citaId);
+        mensaje.setDestinatario(correo.recipient());
+        mensaje.setAsunto(correo.issue());
+        mensaje.setCuerpo(correo.body());
+        mensaje.setEstado(EstadoMensajeSalida.PENDIENTE);
+        mensaje.setIntentos(0);
+        mensaje.setProximoIntento(ahora);
+        mensaje.setCreadoEn(ahora);
+        mensajeSalidaRepository.save(mensaje);
+    }
+
+    /**
+     * Drena la bandeja lote a lote mientras haya mensajes listos para enviar.
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.bandeja.barrido-ms:2000}")
+    public void relevar() {
+        int procesados;
+        do {
+            procesados = relevarPendientes();
+        } while (procesados == tamanoLote);
+    }
+
+    @Override
+    public int relevarPendientes() {
+        List<MensajeSalida> lote = nuevaTransaccion.execute(status -> reclamarLote());
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+
+        // Todo el lote se envía a la vez por el pool de conexiones del mailer y luego se esperan los resultados
+        List<CompletableFuture<Void>> envios = new ArrayList<>(lote.size());
+        for (MensajeSalida mensaje : lote) {
+            // Un envío que no termina a tiempo cuenta como intento fallido; si el correo llega a salir
+            // igual, el reintento lo duplica, que es preferible a perderlo
+            envios.add(enviar(mensaje).orTimeout(esperaEnvioSegundos, TimeUnit.SECONDS));
+        }
+
+        List<Resultado> resultados = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            Long mensajeId = lote.get(i).getId();
+            try {
+                envios.get(i).join();
+                resultados.add(new Resultado(mensajeId, null));
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause() != null ? e.getCause() : e;
+                if (causa instanceof TimeoutException) {
+                    causa = new TimeoutException("El envío no terminó en " + esperaEnvioSegundos + " segundos");
+                }
+                log.warn("No se pudo enviar el mensaje {} de la bandeja de salida: {}", mensajeId, causa.getMessage());
+                resultados.add(new Resultado(mensajeId, causa.getMessage() != null ? causa.getMessage() : causa.toString()));
+            }
+        }
+
+        nuevaTransaccion.executeWithoutResult(status -> registrarResultados(resultados));
+        return lote.size();
+    }
+
+    private CompletableFuture<Void> enviar(MensajeSalida mensaje) {
+        try {
+            return emailService.enviarEnLote(
+                    new EmailDTO(mensaje.getDestinatario(), mensaje.getAsunto(), mensaje.getCuerpo()));
+        } catch (RuntimeException e) {
+            // Errores al armar el correo (por ejemplo, una dirección inválida) cuentan como un intento fallido
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private List<MensajeSalida> reclamarLote() {
+        Instant ahora = Instant.now();
+        List<MensajeSalida> lote = mensajeSalidaRepository.bloquearListos(
+                EstadoMensajeSalida.PENDIENTE, ahora, Limit.of(tamanoLote));
+        // Si esta instancia se cae durante el envío, el mensaje se vuelve a tomar al vencer el arrendamiento
+        Instant arrendadoHasta = ahora.plus(arrendamientoMinutos, ChronoUnit.MINUTES);
+        lote.forEach(mensaje -> mensaje.setProximoIntento(arrendadoHasta));
+        return lote;
+    }
+
+    private void registrarResultados(List<Resultado> resultados) {
+        Map<Long, MensajeSalida> mensajes = mensajeSalidaRepository.findAllById(
+                        resultados.stream().map(Resultado::mensajeId).toList()).stream()
+                .collect(Collectors.toMap(MensajeSalida::getId, Function.identity()));
+        Instant ahora = Instant.now();
+
+        for (Resultado resultado : resultados) {
+            MensajeSalida mensaje = mensajes.get(resultado.mensajeId());
+            if (mensaje == null) {
+                continue;
+            }
+            if (resultado.error() == null) {
+                mensaje.setEstado(EstadoMensajeSalida.ENVIADO);
+                mensaje.setEnviadoEn(ahora);
+                mensaje.setUltimoError(null);
+                continue;
+            }
+
+            int intentos = mensaje.getIntentos() + 1;
+            mensaje.setIntentos(intentos);
+            mensaje.setUltimoError(recortar(resultado.error()));
+            if (intentos >= maxIntentos) {
+                mensaje.setEstado(EstadoMensajeSalida.FALLIDO);
+                log.error("El mensaje {} de la bandeja de salida quedó FALLIDO tras {} intentos", mensaje.getId(), intentos);
+            } else {
+                mensaje.setProximoIntento(ahora.plus(esperaReintento(intentos)));
+            }
+        }
+    }
+
+    /**
+     * Espera antes del siguiente intento: la base se duplica con cada fallo, hasta el máximo configurado.
+     */
+    private Duration esperaReintento(int intentos) {
+        long segundos = backoffBaseSegundos << Math.min(intentos - 1, 20);
+        return Duration.ofSeconds(Math.min(segundos, backoffMaxMinutos * 60));
+    }
+
+    /**
+     * Elimina los mensajes enviados que superan el tiempo de retención.
+     */
+    @Scheduled(cron = "${notificaciones.bandeja.cron-depuracion:0 30 3 * * *}")
+    public void depurarEnviados() {
+        Integer eliminados = nuevaTransaccion.execute(status -> mensajeSalidaRepository.eliminarEnviadosAntesDe(
+                EstadoMensajeSalida.ENVIADO, Instant.now().minus(retencionDias, ChronoUnit.DAYS)));
+        log.info("Depuración de la bandeja de salida: {} mensajes enviados eliminados", eliminados);
+    }
+
+    @Override
+    public List<MensajeSalidaDTO> listar(EstadoMensajeSalida estado, int limite) {
+        Limit maximo = Limit.of(Math.max(1, Math.min(limite, 500)));
+        List<MensajeSalida> mensajes = estado == null
+                ? mensajeSalidaRepository.findAllByOrderByIdDesc(maximo)
+                : mensajeSalidaRepository.findByEstadoOrderByIdDesc(estado, maximo);
+        return mensajes.stream().map(this::aDTO).toList();
+    }
+
+    @Override
+    public ResumenBandejaSalidaDTO obtenerResumen() {
+        Map<EstadoMensajeSalida, Long> porEstado = new EnumMap<>(EstadoMensajeSalida.class);
+        for (Object[] fila : mensajeSalidaRepository.contarPorEstado()) {
+            porEstado.put((EstadoMensajeSalida) fila[0], (Long) fila[1]);
+        }
+        return new ResumenBandejaSalidaDTO(
+                porEstado.getOrDefault(EstadoMensajeSalida.PENDIENTE, 0L),
+                porEstado.getOrDefault(EstadoMensajeSalida.ENVIADO, 0L),
+                porEstado.getOrDefault(EstadoMensajeSalida.FALLIDO, 0L));
+    }
+
+    @Override
+    @Transactional
+    public MensajeSalidaDTO reenviar(Long id) {
+        MensajeSalida mensaje = mensajeSalidaRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Mensaje de la bandeja de salida no encontrado"));
+        mensaje.setEstado(EstadoMensajeSalida.PENDIENTE);
+        mensaje.setIntentos(0);
+        mensaje.setProximoIntento(Instant.now());
+        mensaje.setEnviadoEn(null);
+        return aDTO(mensaje);
+    }
+
+    @Override
+    @Transactional
+    public int reenviarFallidos() {
+        int reencolados = mensajeSalidaRepository.reencolarFallidos(
+                EstadoMensajeSalida.FALLIDO, EstadoMensajeSalida.PENDIENTE, Instant.now());
+        log.info("Se reencolaron {} mensajes fallidos de la bandeja de salida", reencolados);
+        return reencolados;
+    }
+
+    private MensajeSalidaDTO aDTO(MensajeSalida mensaje) {
+        return new MensajeSalidaDTO(
+                mensaje.getId(),
+                mensaje.getTipo(),
+                mensaje.getCitaId(),
+                mensaje.getDestinatario(),
+                mensaje.getAsunto(),
+                mensaje.getEstado(),
+                mensaje.getIntentos(),
+                mensaje.getProximoIntento(),
+                mensaje.getUltimoError(),
+                mensaje.getCreadoEn(),
+                mensaje.getEnviadoEn());
+    }
+
+    private static String recortar(String error) {
+        return error.length() <= LARGO_MAXIMO_ERROR ? error : error.substring(0, LARGO_MAXIMO_ERROR);
+    }
+
+    /**
+     * Resultado del envío de un mensaje; {@code error} es null si se envió.
+     */
+    private record Resultado(Long mensajeId, String error) {
+    }
+}
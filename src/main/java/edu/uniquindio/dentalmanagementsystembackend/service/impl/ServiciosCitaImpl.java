@@ -1,33 +1,43 @@
 package edu.uniquindio.dentalmanagementsystembackend.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
-import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.FormatoExportacion;
 import edu.uniquindio.dentalmanagementsystembackend.Enum.Rol;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
-import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DisponibilidadDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearSerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorEspecialidadDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaAdminDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaNoAutenticadaAdminDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EditarCitaPacienteDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaAgendaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
-import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDisponibleDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FiltroCitasDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.PaginaCitasDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.SerieCitasDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.email.CitaEmailDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
 import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
-import edu.uniquindio.dentalmanagementsystembackend.entity.DisponibilidadDoctor;
-import edu.uniquindio.dentalmanagementsystembackend.entity.Especialidad;
+import edu.uniquindio.dentalmanagementsystembackend.entity.SerieCitas;
 import edu.uniquindio.dentalmanagementsystembackend.entity.TipoCita;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
 import edu.uniquindio.dentalmanagementsystembackend.exception.HistorialException;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
 import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
 import edu.uniquindio.dentalmanagementsystembackend.repository.CuentaRepository;
-import edu.uniquindio.dentalmanagementsystembackend.repository.DisponibilidadDoctorRepository;
 import edu.uniquindio.dentalmanagementsystembackend.repository.EspecialidadRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.SerieCitasRepository;
 import edu.uniquindio.dentalmanagementsystembackend.repository.TipoCitaRepository;
 import edu.uniquindio.dentalmanagementsystembackend.repository.UserRepository;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosAgendaDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosBandejaSalida;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.util.CursorCita;
 import edu.uniquindio.dentalmanagementsystembackend.util.DateUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -37,9 +47,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-
-import java.time.DayOfWeek;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -47,7 +69,9 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
 
@@ -64,6 +88,25 @@ public class ServiciosCitaImpl implements ServiciosCitas {
 
     private static final Logger logger = LoggerFactory.getLogger(ServiciosCitaImpl.class);
 
+    // Duración en minutos que se asume para las citas sin tipo de cita
+    private static final int INTERVALO_MINUTOS = 30;
+
+    // Tamaño de página de los listados de citas
+    private static final int LIMITE_PAGINA_POR_DEFECTO = 50;
+    private static final int LIMITE_PAGINA_MAXIMO = 200;
+
+    // Cada cuántas filas exportadas se limpia el contexto de persistencia y se vacía el buffer de salida
+    private static final int BLOQUE_EXPORTACION = 1000;
+
+    // Máximo de citas en una serie recurrente (un año de citas semanales)
+    private static final int MAXIMO_OCURRENCIAS_SERIE = 52;
+
+    private static final String INSERTAR_OCURRENCIA_SERIE = "INSERT INTO citas (paciente_id, es_autenticada, "
+            + "doctor_id, fecha_hora, estado, tipo_cita_id, slot_activo, serie_id) VALUES (?, TRUE, ?, ?, ?, ?, TRUE, ?)";
+
+    private static final String ENCABEZADO_CSV = "id,pacienteId,pacienteNombre,doctorId,doctorNombre,fechaHora,"
+            + "estado,email,telefono,tipoCitaId,tipoCitaNombre,duracionMinutos\n";
+
     // Repositorio para operaciones CRUD de citas
     @Autowired
     private CitasRepository citasRepository;
@@ -76,14 +119,39 @@ public class ServiciosCitaImpl implements ServiciosCitas {
     @Autowired
     private UserRepository userRepository;
 
-    // Repositorio para operaciones CRUD de disponibilidad de doctores
+    // Directorio en memoria especialidad → doctores
+    @Autowired
+    private DirectorioEspecialidades directorioEspecialidades;
+
+    // Reserva sobre horarios pre-generados (solo si citas.reserva.modo=slots)
+    @Autowired
+    private AgendaSlots agendaSlots;
+
+    // Horarios apartados temporalmente en el flujo de citas no autenticadas
+    @Autowired
+    private ReservasTemporales reservasTemporales;
+
+    // Cola de un solo escritor por doctor (solo si citas.reserva.modo=cola)
+    @Autowired
+    private ColaReservasDoctor colaReservasDoctor;
+
+    // Agenda diaria de cada doctor; su fila se bloquea para revisar cruces en modo transaccional
     @Autowired
-    private DisponibilidadDoctorRepository disponibilidadDoctorRepository;
+    private ServiciosAgendaDoctor serviciosAgendaDoctor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     // Repositorio para operaciones CRUD de tipos de cita
     @Autowired
     private TipoCitaRepository tipoCitaRepository;
 
+    @Autowired
+    private SerieCitasRepository serieCitasRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     // Repositorio para operaciones CRUD de especialidades
     @Autowired
     private EspecialidadRepository especialidadRepository;
@@ -92,12 +160,24 @@ public class ServiciosCitaImpl implements ServiciosCitas {
     @Autowired
     private EmailService emailService;
 
+    // Bandeja de salida: los correos se guardan en la misma transacción que la cita y se envían después
+    @Autowired
+    private ServiciosBandejaSalida serviciosBandejaSalida;
+
     @Autowired
     private ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
 
+    // Publicador de eventos de cambio de citas (índice de disponibilidad, etc.)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    // Serializa las citas exportadas en NDJSON con la misma configuración que las respuestas de la API
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // ==============================================
     // MÉTODOS PARA CITAS AUTENTICADAS (PACIENTES REGISTRADOS)
     // ==============================================
@@ -108,8 +188,22 @@ public class ServiciosCitaImpl implements ServiciosCitas {
      * horarios.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Cita crearCita(CrearCitaDTO crearCitaDTO) {
+        return crearCita(crearCitaDTO, null);
+    }
+
+    /**
+     * Crea una nueva cita para un paciente autenticado canjeando la reserva temporal del horario,
+     * como la que se aparta al ofrecer un horario a la lista de espera.
+     */
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public Cita crearCita(CrearCitaDTO crearCitaDTO, String tokenReserva) {
+        return modificarAgenda(crearCitaDTO::doctorId, true, () -> crearCitaEnAgenda(crearCitaDTO, tokenReserva));
+    }
+
+    private Cita crearCitaEnAgenda(CrearCitaDTO crearCitaDTO, String tokenReserva) {
         System.out.println("\n=== Creando nueva cita ===");
         System.out.println("Paciente ID: " + crearCitaDTO.pacienteId());
         System.out.println("Doctor ID: " + crearCitaDTO.doctorId());
@@ -145,16 +239,22 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new RuntimeException("El doctor no está disponible en ese horario");
             }
 
-            // Validar que no exista otra cita en el mismo horario
-            if (citasRepository.existsByDoctorAndFechaHora(doctor,
-                    fechaHoraCita.atZone(ZoneId.systemDefault()).toInstant())) {
-                throw new RuntimeException("Ya existe una cita programada para ese horario");
-            }
-
             // Obtener el tipo de cita
             TipoCita tipoCita = tipoCitaRepository.findById(crearCitaDTO.tipoCitaId())
                     .orElseThrow(() -> new RuntimeException("Tipo de cita no encontrado"));
 
+            // Validar que la cita quepa completa y no se cruce con otra cita del doctor
+            if (horarioOcupado(doctor, crearCitaDTO.fecha(), crearCitaDTO.hora(), duracionCita(tipoCita))) {
+                throw new HorarioOcupadoException("Ya existe una cita programada para ese horario");
+            }
+            bloquearHorario(crearCitaDTO.doctorId(), List.of(fechaHoraCita), duracionCita(tipoCita), null, null, null);
+            if (tokenReserva != null) {
+                reservasTemporales.validar(tokenReserva, crearCitaDTO.doctorId(), crearCitaDTO.fecha(),
+                        crearCitaDTO.hora());
+            }
+            validarSinReservaTemporal(crearCitaDTO.doctorId(), crearCitaDTO.fecha(), crearCitaDTO.hora(),
+                    duracionCita(tipoCita), tokenReserva);
+
             // Crear la cita
             Cita cita = new Cita();
             cita.setPaciente(paciente);
@@ -164,28 +264,160 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             cita.setTipoCita(tipoCita);
             cita.setEsAutenticada(true);
 
-            // Guardar la cita
-            Cita citaGuardada = citasRepository.save(cita);
+            // En modo slots, bloquear primero los horarios pre-generados que cubren la cita
+            List<Long> slots = agendaSlots.usaSlots()
+                    ? agendaSlots.reclamar(crearCitaDTO.doctorId(), crearCitaDTO.fecha(), crearCitaDTO.hora(), duracionCita(tipoCita))
+                    : List.of();
+
+            // Guardar la cita (la restricción única de la base de datos reserva el horario)
+            Cita citaGuardada = guardarReservandoHorario(cita);
+            agendaSlots.asignar(slots, citaGuardada.getId());
+            colaReservasDoctor.registrarEnLote(crearCitaDTO.fecha(), crearCitaDTO.hora(), duracionCita(tipoCita));
             System.out.println("Cita creada exitosamente con ID: " + citaGuardada.getId());
+            publicarCambioCita(citaGuardada, null, null);
 
-            // Enviar correo de confirmación
+            // El correo sale de la bandeja solo si la cita queda registrada; la reserva se canjea al confirmar
             enviarCorreoConfirmacionCita(citaGuardada);
+            alConfirmar(() -> reservasTemporales.liberar(tokenReserva));
 
             return citaGuardada;
+        } catch (HorarioOcupadoException e) {
+            logger.warn("Horario ocupado al crear la cita: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Error al crear la cita", e);
             throw new RuntimeException("Error al crear la cita: " + e.getMessage());
         }
     }
 
+    /**
+     * Crea una serie de citas recurrentes. En lugar de agendar cada ocurrencia por separado, todas se
+     * validan juntas (una carga del índice para el rango completo y una consulta de citas existentes),
+     * se insertan con un solo lote JDBC en la misma transacción y el paciente recibe un único correo.
+     */
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public SerieCitasDTO crearSerieCitas(CrearSerieCitasDTO dto) {
+        // No se agrupa con otras creaciones: si la serie choca al insertar, su lote debe deshacerse completo
+        return modificarAgenda(dto::doctorId, false, () -> crearSerieCitasEnAgenda(dto));
+    }
+
+    private SerieCitasDTO crearSerieCitasEnAgenda(CrearSerieCitasDTO dto) {
+        if (dto.ocurrencias() < 2 || dto.ocurrencias() > MAXIMO_OCURRENCIAS_SERIE) {
+            throw new IllegalArgumentException("La serie debe tener entre 2 y " + MAXIMO_OCURRENCIAS_SERIE + " citas");
+        }
+
+        User paciente = userRepository.findByIdNumber(dto.pacienteId())
+                .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
+        User doctor = userRepository.findByIdNumber(dto.doctorId())
+                .orElseThrow(() -> new RuntimeException("Doctor no encontrado"));
+        if (!doctor.getAccount().getRol().equals(Rol.DOCTOR)) {
+            throw new RuntimeException("El usuario especificado no es un doctor");
+        }
+        TipoCita tipoCita = tipoCitaRepository.findById(dto.tipoCitaId())
+                .orElseThrow(() -> new RuntimeException("Tipo de cita no encontrado"));
+        int duracion = duracionCita(tipoCita);
+
+        List<LocalDateTime> fechas = new ArrayList<>(dto.ocurrencias());
+        for (int i = 0; i < dto.ocurrencias(); i++) {
+            fechas.add(LocalDateTime.of(dto.frecuencia().ocurrencia(dto.fechaInicio(), i), dto.hora()));
+        }
+        if (fechas.get(0).isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("No se pueden crear citas en fechas pasadas");
+        }
+
+        // Validación conjunta: horario de atención, cruces con otras citas y reservas temporales
+        Set<LocalDateTime> conflictos = new TreeSet<>(
+                serviciosDisponibilidadDoctor.buscarHorariosNoDisponibles(dto.doctorId(), fechas, duracion));
+        List<Instant> instantes = fechas.stream()
+                .map(fecha -> fecha.atZone(ZoneId.systemDefault()).toInstant())
+                .toList();
+        for (Instant ocupada : citasRepository.findFechasOcupadasByDoctor(dto.doctorId(), instantes)) {
+            conflictos.add(ocupada.atZone(ZoneId.systemDefault()).toLocalDateTime());
+        }
+        for (LocalDateTime fecha : fechas) {
+            if (colaReservasDoctor.ocupadoEnLote(fecha.toLocalDate(), fecha.toLocalTime(), duracion)) {
+                conflictos.add(fecha);
+            }
+        }
+        if (!conflictos.isEmpty()) {
+            throw new HorarioOcupadoException("Las siguientes fechas de la serie no están disponibles: "
+                    + conflictos.stream().map(DateUtil.FORMATO_FECHA_HORA::format).collect(Collectors.joining(", ")));
+        }
+        bloquearHorario(dto.doctorId(), fechas, duracion, null, null, null);
+
+        // En modo slots, bloquear primero los horarios pre-generados de todas las ocurrencias
+        List<List<Long>> slots = new ArrayList<>(fechas.size());
+        if (agendaSlots.usaSlots()) {
+            for (LocalDateTime fecha : fechas) {
+                slots.add(agendaSlots.reclamar(dto.doctorId(), fecha.toLocalDate(), fecha.toLocalTime(), duracion));
+            }
+        }
+
+        SerieCitas serie = new SerieCitas();
+        serie.setPaciente(paciente);
+        serie.setDoctor(doctor);
+        serie.setTipoCita(tipoCita);
+        serie.setFrecuencia(dto.frecuencia());
+        serie.setFechaInicio(dto.fechaInicio());
+        serie.setHora(dto.hora());
+        serie.setOcurrencias(dto.ocurrencias());
+        serie.setCreadaEn(Instant.now());
+        serieCitasRepository.saveAndFlush(serie);
+
+        insertarOcurrenciasSerie(serie, instantes);
+
+        List<Cita> citas = citasRepository.findBySerieIdOrderByFechaHoraAsc(serie.getId());
+        for (int i = 0; i < citas.size(); i++) {
+            Cita cita = citas.get(i);
+            if (!slots.isEmpty()) {
+                agendaSlots.asignar(slots.get(i), cita.getId());
+            }
+            colaReservasDoctor.registrarEnLote(fechas.get(i).toLocalDate(), fechas.get(i).toLocalTime(), duracion);
+            publicarCambioCita(cita, null, null);
+        }
+        logger.info("Serie {} creada con {} citas para el paciente {}", serie.getId(), citas.size(), dto.pacienteId());
+
+        String email = paciente.getAccount().getEmail();
+        String nombreDoctor = doctor.getName() + " " + doctor.getLastName();
+        serviciosBandejaSalida.encolar("SERIE_CITAS", citas.isEmpty() ? null : citas.get(0).getId(),
+                emailService.redactarCorreoSerieCitas(email, nombreDoctor, fechas));
+
+        return new SerieCitasDTO(serie.getId(), dto.pacienteId(), dto.doctorId(), tipoCita.getId(), dto.frecuencia(),
+                citas.stream().map(Cita::getId).toList(), fechas);
+    }
+
+    /**
+     * Inserta todas las citas de la serie con un solo lote JDBC. Si otra transacción tomó alguno de los
+     * horarios después de la validación, la restricción única lo rechaza y la serie completa se deshace.
+     */
+    private void insertarOcurrenciasSerie(SerieCitas serie, List<Instant> instantes) {
+        List<Object[]> filas = new ArrayList<>(instantes.size());
+        for (Instant instante : instantes) {
+            filas.add(new Object[]{serie.getPaciente().getIdNumber(), serie.getDoctor().getIdNumber(),
+                    DateUtil.aFechaHoraUtc(instante), EstadoCitas.CONFIRMADA.name(), serie.getTipoCita().getId(),
+                    serie.getId()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERTAR_OCURRENCIA_SERIE, filas);
+        } catch (DataIntegrityViolationException e) {
+            colaReservasDoctor.deshacerLote();
+            throw new HorarioOcupadoException("Otra cita tomó uno de los horarios de la serie", e);
+        }
+    }
+
     /**
      * Permite a un paciente autenticado editar su cita existente.
      * Solo permite modificar fecha y hora, manteniendo el mismo doctor y tipo de
      * cita.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Cita editarCitaPaciente(Long idCita, EditarCitaPacienteDTO dto) {
+        return modificarAgenda(() -> doctorDeCita(idCita), false, () -> editarCitaPacienteEnAgenda(idCita, dto));
+    }
+
+    private Cita editarCitaPacienteEnAgenda(Long idCita, EditarCitaPacienteDTO dto) {
         System.out.println("\n=== Editando cita ID: " + idCita + " (Paciente) ===");
 
         try {
@@ -206,12 +438,33 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             if (cita.getEstado() == EstadoCitas.CANCELADA || cita.getEstado() == EstadoCitas.COMPLETADA) {
                 throw new IllegalArgumentException("No se puede editar una cita cancelada o completada");
             }
+            if (cita.getEstado() == EstadoCitas.EXPIRADA || cita.getEstado() == EstadoCitas.NO_ASISTIO) {
+                throw new IllegalArgumentException("No se puede editar una cita vencida");
+            }
 
+            // Validar que la cita quepa completa en el nuevo horario sin cruzarse con otra cita del doctor
+            if (cita.getDoctor() != null && !serviciosDisponibilidadDoctor.validarHorarioLibre(
+                    cita.getDoctor().getIdNumber(), dto.fecha(), dto.hora(), duracionCita(cita.getTipoCita()), cita.getId())) {
+                throw new IllegalArgumentException("El nuevo horario se cruza con otra cita o está fuera del horario del doctor");
+            }
+            if (cita.getDoctor() != null) {
+                validarSinReservaTemporal(cita.getDoctor().getIdNumber(), dto.fecha(), dto.hora(),
+                        duracionCita(cita.getTipoCita()), null);
+                bloquearHorario(cita.getDoctor().getIdNumber(), List.of(nuevaFechaHora), duracionCita(cita.getTipoCita()),
+                        cita.getId(), cita.getDoctor().getIdNumber(), cita.getFechaHora());
+            }
+
+            Instant fechaHoraAnterior = cita.getFechaHora();
+            if (agendaSlots.usaSlots() && cita.getDoctor() != null) {
+                agendaSlots.reprogramar(cita.getId(), cita.getDoctor().getIdNumber(), dto.fecha(), dto.hora(),
+                        duracionCita(cita.getTipoCita()));
+            }
             cita.setFechaHora(instant);
             cita.setEstado(EstadoCitas.PENDIENTE);
 
-            cita = citasRepository.save(cita);
+            cita = guardarReservandoHorario(cita);
             System.out.println("Cita actualizada exitosamente");
+            publicarCambioCita(cita, null, fechaHoraAnterior);
 
             return cita;
         } catch (IllegalArgumentException e) {
@@ -229,8 +482,15 @@ public class ServiciosCitaImpl implements ServiciosCitas {
      * Envía notificación por correo electrónico.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public void cancelarCita(Long idCita) {
+        modificarAgenda(() -> doctorDeCita(idCita), false, () -> {
+            cancelarCitaEnAgenda(idCita);
+            return null;
+        });
+    }
+
+    private void cancelarCitaEnAgenda(Long idCita) {
         System.out.println("\n=== Cancelando cita ID: " + idCita + " ===");
         try {
             Cita cita = citasRepository.findById(idCita)
@@ -243,19 +503,23 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             if (cita.getEstado() == EstadoCitas.COMPLETADA) {
                 throw new IllegalArgumentException("No se puede cancelar una cita completada");
             }
+            if (cita.getEstado() == EstadoCitas.EXPIRADA || cita.getEstado() == EstadoCitas.NO_ASISTIO) {
+                throw new IllegalArgumentException("No se puede cancelar una cita vencida");
+            }
 
             // Cancelar la cita
             cita.setEstado(EstadoCitas.CANCELADA);
             citasRepository.save(cita);
             System.out.println("Cita cancelada exitosamente");
+            publicarCambioCita(cita, null, null);
 
             // Enviar correo de cancelación
             try {
                 LocalDateTime fechaHoraLocal = cita.getFechaHora().atZone(ZoneId.systemDefault()).toLocalDateTime();
-                emailService.enviarCorreoCancelacionCita(
+                serviciosBandejaSalida.encolar("CANCELACION_CITA", cita.getId(), emailService.redactarCorreoCancelacionCita(
                         cita.getPaciente().getAccount().getEmail(),
                         cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                        fechaHoraLocal);
+                        fechaHoraLocal));
             } catch (Exception e) {
                 logger.warn("No se pudo enviar el correo de cancelación: {}", e.getMessage());
             }
@@ -289,14 +553,15 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             cita.setEstado(EstadoCitas.CONFIRMADA);
             citasRepository.save(cita);
             System.out.println("Cita confirmada exitosamente");
+            publicarCambioCita(cita, null, null);
 
             // Enviar correo de confirmación
             try {
                 LocalDateTime fechaHoraLocal = cita.getFechaHora().atZone(ZoneId.systemDefault()).toLocalDateTime();
-                emailService.enviarCorreoConfirmacionCita(
+                serviciosBandejaSalida.encolar("CONFIRMACION_CITA", cita.getId(), emailService.redactarCorreoConfirmacionCita(
                         cita.getPaciente().getAccount().getEmail(),
                         cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                        fechaHoraLocal);
+                        fechaHoraLocal));
             } catch (Exception e) {
                 logger.warn("No se pudo enviar el correo de confirmación: {}", e.getMessage());
             }
@@ -330,14 +595,15 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             cita.setEstado(EstadoCitas.COMPLETADA);
             citasRepository.save(cita);
             System.out.println("Cita marcada como completada exitosamente");
+            publicarCambioCita(cita, null, null);
 
             // Enviar correo de cita completada
             try {
                 LocalDateTime fechaHoraLocal = cita.getFechaHora().atZone(ZoneId.systemDefault()).toLocalDateTime();
-                emailService.enviarCorreoCitaCompletada(
+                serviciosBandejaSalida.encolar("CITA_COMPLETADA", cita.getId(), emailService.redactarCorreoCitaCompletada(
                         cita.getPaciente().getAccount().getEmail(),
                         cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                        fechaHoraLocal);
+                        fechaHoraLocal));
             } catch (Exception e) {
                 logger.warn("No se pudo enviar el correo de cita completada: {}", e.getMessage());
             }
@@ -359,8 +625,23 @@ public class ServiciosCitaImpl implements ServiciosCitas {
      * Almacena los datos del paciente directamente en la cita.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Cita crearCitaNoAutenticada(CrearCitaNoAutenticadaDTO crearCitaNoAutenticadaDTO) {
+        return crearCitaNoAutenticada(crearCitaNoAutenticadaDTO, null);
+    }
+
+    /**
+     * Crea una nueva cita para un paciente no autenticado canjeando la reserva temporal del horario.
+     * Sin token, la cita solo se crea si nadie más tiene apartado el horario.
+     */
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public Cita crearCitaNoAutenticada(CrearCitaNoAutenticadaDTO crearCitaNoAutenticadaDTO, String tokenReserva) {
+        return modificarAgenda(crearCitaNoAutenticadaDTO::doctorId, true,
+                () -> crearCitaNoAutenticadaEnAgenda(crearCitaNoAutenticadaDTO, tokenReserva));
+    }
+
+    private Cita crearCitaNoAutenticadaEnAgenda(CrearCitaNoAutenticadaDTO crearCitaNoAutenticadaDTO, String tokenReserva) {
         System.out.println("\n=== Creando nueva cita no autenticada ===");
         System.out.println("Nombre Paciente: " + crearCitaNoAutenticadaDTO.nombrePaciente());
         System.out.println("Número Identificación: " + crearCitaNoAutenticadaDTO.pacienteId());
@@ -394,16 +675,26 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new RuntimeException("El doctor no está disponible en ese horario");
             }
 
-            // Validar que no exista otra cita en el mismo horario
-            if (citasRepository.existsByDoctorAndFechaHora(doctor,
-                    fechaHoraCita.atZone(ZoneId.systemDefault()).toInstant())) {
-                throw new RuntimeException("Ya existe una cita programada para ese horario");
-            }
-
             // Obtener el tipo de cita
             TipoCita tipoCita = tipoCitaRepository.findById(crearCitaNoAutenticadaDTO.tipoCitaId())
                     .orElseThrow(() -> new RuntimeException("Tipo de cita no encontrado"));
 
+            // Validar que la cita quepa completa y no se cruce con otra cita del doctor
+            if (horarioOcupado(doctor, crearCitaNoAutenticadaDTO.fecha(), crearCitaNoAutenticadaDTO.hora(),
+                    duracionCita(tipoCita))) {
+                throw new HorarioOcupadoException("Ya existe una cita programada para ese horario");
+            }
+            bloquearHorario(crearCitaNoAutenticadaDTO.doctorId(), List.of(fechaHoraCita), duracionCita(tipoCita),
+                    null, null, null);
+
+            // Validar la reserva temporal propia y que nadie más tenga apartado el horario
+            if (tokenReserva != null) {
+                reservasTemporales.validar(tokenReserva, crearCitaNoAutenticadaDTO.doctorId(),
+                        crearCitaNoAutenticadaDTO.fecha(), crearCitaNoAutenticadaDTO.hora());
+            }
+            validarSinReservaTemporal(crearCitaNoAutenticadaDTO.doctorId(), crearCitaNoAutenticadaDTO.fecha(),
+                    crearCitaNoAutenticadaDTO.hora(), duracionCita(tipoCita), tokenReserva);
+
             // Crear la cita no autenticada
             Cita cita = new Cita(
                     crearCitaNoAutenticadaDTO.nombrePaciente(),
@@ -415,14 +706,28 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                     EstadoCitas.PENDIENTE,
                     tipoCita);
 
-            // Guardar la cita
-            Cita citaGuardada = citasRepository.save(cita);
+            // En modo slots, bloquear primero los horarios pre-generados que cubren la cita
+            List<Long> slots = agendaSlots.usaSlots()
+                    ? agendaSlots.reclamar(crearCitaNoAutenticadaDTO.doctorId(), crearCitaNoAutenticadaDTO.fecha(),
+                            crearCitaNoAutenticadaDTO.hora(), duracionCita(tipoCita))
+                    : List.of();
+
+            // Guardar la cita (la restricción única de la base de datos reserva el horario)
+            Cita citaGuardada = guardarReservandoHorario(cita);
+            agendaSlots.asignar(slots, citaGuardada.getId());
+            colaReservasDoctor.registrarEnLote(crearCitaNoAutenticadaDTO.fecha(), crearCitaNoAutenticadaDTO.hora(),
+                    duracionCita(tipoCita));
             System.out.println("Cita no autenticada creada exitosamente con ID: " + citaGuardada.getId());
+            publicarCambioCita(citaGuardada, null, null);
 
-            // Enviar correo de confirmación
+            // El correo sale de la bandeja solo si la cita queda registrada; la reserva se canjea al confirmar
             enviarCorreoConfirmacionCita(citaGuardada);
+            alConfirmar(() -> reservasTemporales.liberar(tokenReserva));
 
             return citaGuardada;
+        } catch (HorarioOcupadoException e) {
+            logger.warn("Horario ocupado al crear la cita no autenticada: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Error al crear la cita no autenticada", e);
             throw new RuntimeException("Error al crear la cita no autenticada: " + e.getMessage());
@@ -434,8 +739,12 @@ public class ServiciosCitaImpl implements ServiciosCitas {
      * Puede modificar todos los datos del paciente y la cita.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Cita editarCitaNoAutenticadaAdmin(Long idCita, EditarCitaNoAutenticadaAdminDTO dto) {
+        return modificarAgenda(dto::doctorId, false, () -> editarCitaNoAutenticadaAdminEnAgenda(idCita, dto));
+    }
+
+    private Cita editarCitaNoAutenticadaAdminEnAgenda(Long idCita, EditarCitaNoAutenticadaAdminDTO dto) {
         System.out.println("\n=== Editando cita no autenticada ID: " + idCita + " (Admin) ===");
         try {
             Cita cita = citasRepository.findById(idCita)
@@ -466,7 +775,20 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             TipoCita tipoCita = tipoCitaRepository.findById(dto.tipoCitaId())
                     .orElseThrow(() -> new IllegalArgumentException("Tipo de cita no encontrado"));
 
+            // Validar que la cita quepa completa en el nuevo horario sin cruzarse con otra cita del doctor
+            if (!serviciosDisponibilidadDoctor.validarHorarioLibre(dto.doctorId(), dto.fecha(), dto.hora(),
+                    duracionCita(tipoCita), cita.getId())) {
+                throw new IllegalArgumentException("El nuevo horario se cruza con otra cita o está fuera del horario del doctor");
+            }
+            bloquearHorario(dto.doctorId(), List.of(fechaHoraCita), duracionCita(tipoCita), cita.getId(),
+                    cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null, cita.getFechaHora());
+
             // Actualizar la cita
+            if (agendaSlots.usaSlots()) {
+                agendaSlots.reprogramar(cita.getId(), dto.doctorId(), dto.fecha(), dto.hora(), duracionCita(tipoCita));
+            }
+            String doctorIdAnterior = cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null;
+            Instant fechaHoraAnterior = cita.getFechaHora();
             cita.setNombrePacienteNoAutenticado(dto.nombrePaciente());
             cita.setNumeroIdentificacionNoAutenticado(dto.numeroIdentificacion());
             cita.setTelefonoNoAutenticado(dto.telefono());
@@ -475,8 +797,9 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             cita.setFechaHora(fechaHoraCita.atZone(ZoneId.systemDefault()).toInstant());
             cita.setTipoCita(tipoCita);
 
-            cita = citasRepository.save(cita);
+            cita = guardarReservandoHorario(cita);
             System.out.println("Cita no autenticada actualizada exitosamente");
+            publicarCambioCita(cita, doctorIdAnterior, fechaHoraAnterior);
 
             // Enviar correo de actualización
             try {
@@ -486,7 +809,7 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             }
 
             return cita;
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | HorarioOcupadoException e) {
             logger.warn("Error de validación al editar cita no autenticada: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
@@ -500,8 +823,15 @@ public class ServiciosCitaImpl implements ServiciosCitas {
      * Envía notificación por correo electrónico.
      */
     @Override
-    @Transactional
+    @Transactional(Transactional.TxType.SUPPORTS)
     public void cancelarCitaNoAutenticadaAdmin(Long idCita) {
+        modificarAgenda(() -> doctorDeCita(idCita), false, () -> {
+            cancelarCitaNoAutenticadaAdminEnAgenda(idCita);
+            return null;
+        });
+    }
+
+    private void cancelarCitaNoAutenticadaAdminEnAgenda(Long idCita) {
         System.out.println("\n=== Cancelando cita no autenticada ID: " + idCita + " (Admin) ===");
         try {
             Cita cita = citasRepository.findById(idCita)
@@ -520,19 +850,23 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             if (cita.getEstado() == EstadoCitas.COMPLETADA) {
                 throw new IllegalArgumentException("No se puede cancelar una cita completada");
             }
+            if (cita.getEstado() == EstadoCitas.EXPIRADA || cita.getEstado() == EstadoCitas.NO_ASISTIO) {
+                throw new IllegalArgumentException("No se puede cancelar una cita vencida");
+            }
 
             // Cancelar la cita
             cita.setEstado(EstadoCitas.CANCELADA);
             citasRepository.save(cita);
             System.out.println("Cita no autenticada cancelada exitosamente");
+            publicarCambioCita(cita, null, null);
 
             // Enviar correo de cancelación
             try {
                 LocalDateTime fechaHoraLocal = cita.getFechaHora().atZone(ZoneId.systemDefault()).toLocalDateTime();
-                emailService.enviarCorreoCancelacionCita(
+                serviciosBandejaSalida.encolar("CANCELACION_CITA", cita.getId(), emailService.redactarCorreoCancelacionCita(
                         cita.getEmailNoAutenticado(),
                         cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                        fechaHoraLocal);
+                        fechaHoraLocal));
             } catch (Exception e) {
                 logger.warn("No se pudo enviar el correo de cancelación: {}", e.getMessage());
             }
@@ -581,28 +915,29 @@ public class ServiciosCitaImpl implements ServiciosCitas {
             cita.setEstado(nuevoEstado);
             citasRepository.save(cita);
             System.out.println("Estado de cita no autenticada cambiado exitosamente a " + nuevoEstado);
+            publicarCambioCita(cita, null, null);
 
             // Enviar notificación según el nuevo estado
             try {
                 LocalDateTime fechaHoraLocal = cita.getFechaHora().atZone(ZoneId.systemDefault()).toLocalDateTime();
                 switch (nuevoEstado) {
                     case CONFIRMADA:
-                        emailService.enviarCorreoConfirmacionCita(
+                        serviciosBandejaSalida.encolar("CONFIRMACION_CITA", cita.getId(), emailService.redactarCorreoConfirmacionCita(
                                 cita.getEmailNoAutenticado(),
                                 cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                                fechaHoraLocal);
+                                fechaHoraLocal));
                         break;
                     case CANCELADA:
-                        emailService.enviarCorreoCancelacionCita(
+                        serviciosBandejaSalida.encolar("CANCELACION_CITA", cita.getId(), emailService.redactarCorreoCancelacionCita(
                                 cita.getEmailNoAutenticado(),
                                 cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                                fechaHoraLocal);
+                                fechaHoraLocal));
                         break;
                     case COMPLETADA:
-                        emailService.enviarCorreoCitaCompletada(
+                        serviciosBandejaSalida.encolar("CITA_COMPLETADA", cita.getId(), emailService.redactarCorreoCitaCompletada(
                                 cita.getEmailNoAutenticado(),
                                 cita.getDoctor().getName() + " " + cita.getDoctor().getLastName(),
-                                fechaHoraLocal);
+                                fechaHoraLocal));
                         break;
                 }
             } catch (Exception e) {
@@ -627,36 +962,9 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new IllegalArgumentException("El ID del doctor no puede estar vacío");
             }
 
-            List<Cita> citas = citasRepository.findByDoctor_IdNumberAndEsAutenticadaFalse(idDoctor);
-            logger.info("Se encontraron {} citas no autenticadas para el doctor", citas.size());
-
-            List<CitaDTO> citasDTO = citas.stream()
-                    .map(cita -> {
-                        try {
-                            return new CitaDTO(
-                                    cita.getId(),
-                                    cita.getNumeroIdentificacionNoAutenticado(),
-                                    cita.getNombrePacienteNoAutenticado() != null ?
-                                            cita.getNombrePacienteNoAutenticado() : "Nombre no disponible",
-                                    cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                                    cita.getDoctor() != null ?
-                                            (cita.getDoctor().getName() + " " + cita.getDoctor().getLastName()) :
-                                            "Doctor no disponible",
-                                    cita.getFechaHora(),
-                                    cita.getEstado(),
-                                    cita.getEmailNoAutenticado(),
-                                    cita.getTelefonoNoAutenticado(),
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getId() : null,
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getNombre() : "Tipo de cita no disponible",
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getDuracionMinutos() : 0
-                            );
-                        } catch (Exception e) {
-                            logger.error("Error al convertir cita no autenticada a DTO: {}", cita.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(dto -> dto != null)
-                    .collect(Collectors.toList());
+            // Una sola consulta que arma los DTO con los datos del doctor y del tipo de cita
+            List<CitaDTO> citasDTO = citasRepository.findCitasDTONoAutenticadasByDoctor(idDoctor);
+            logger.info("Se encontraron {} citas no autenticadas para el doctor", citasDTO.size());
 
             // Mostrar información detallada a nivel de debug
             if (logger.isDebugEnabled()) {
@@ -695,36 +1003,9 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new IllegalArgumentException("El número de identificación del paciente no puede estar vacío");
             }
 
-            List<Cita> citas = citasRepository.findByNumeroIdentificacionNoAutenticadoAndEsAutenticadaFalse(numeroIdentificacion);
-            System.out.println("Se encontraron " + citas.size() + " citas no autenticadas para el paciente");
-
-            List<CitaDTO> citasDTO = citas.stream()
-                    .map(cita -> {
-                        try {
-                            return new CitaDTO(
-                                    cita.getId(),
-                                    cita.getNumeroIdentificacionNoAutenticado(),
-                                    cita.getNombrePacienteNoAutenticado() != null ?
-                                            cita.getNombrePacienteNoAutenticado() : "Nombre no disponible",
-                                    cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                                    cita.getDoctor() != null ?
-                                            (cita.getDoctor().getName() + " " + cita.getDoctor().getLastName()) :
-                                            "Doctor no disponible",
-                                    cita.getFechaHora(),
-                                    cita.getEstado(),
-                                    cita.getEmailNoAutenticado(),
-                                    cita.getTelefonoNoAutenticado(),
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getId() : null,
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getNombre() : "Tipo de cita no disponible",
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getDuracionMinutos() : 0
-                            );
-                        } catch (Exception e) {
-                            logger.error("Error al convertir cita no autenticada a DTO: " + cita.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(dto -> dto != null)
-                    .collect(Collectors.toList());
+            // Una sola consulta que arma los DTO con los datos del doctor y del tipo de cita
+            List<CitaDTO> citasDTO = citasRepository.findCitasDTONoAutenticadasByPaciente(numeroIdentificacion);
+            System.out.println("Se encontraron " + citasDTO.size() + " citas no autenticadas para el paciente");
 
             // Mostrar información detallada de las citas encontradas (solo en desarrollo)
             if (logger.isDebugEnabled()) {
@@ -770,33 +1051,10 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new IllegalArgumentException("El ID del paciente no puede estar vacío");
             }
 
-            List<Cita> citas = citasRepository.findByPaciente_IdNumber(idPaciente);
-            System.out.println("Se encontraron " + citas.size() + " citas para el paciente");
-
-            return citas.stream()
-                    .map(cita -> {
-                        try {
-                            return new CitaDTO(
-                                    cita.getId(),
-                                    cita.getPaciente() != null ? cita.getPaciente().getIdNumber() : null,
-                                    cita.getPaciente() != null ? (cita.getPaciente().getName() + " " + cita.getPaciente().getLastName()) : "Paciente no disponible",
-                                    cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                                    cita.getDoctor() != null ? (cita.getDoctor().getName() + " " + cita.getDoctor().getLastName()) : "Doctor no disponible",
-                                    cita.getFechaHora(),
-                                    cita.getEstado(),
-                                    cita.getEmailNoAutenticado(),
-                                    cita.getTelefonoNoAutenticado(),
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getId() : null,
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getNombre() : "Tipo de cita no disponible",
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getDuracionMinutos() : 0
-                            );
-                        } catch (Exception e) {
-                            logger.error("Error al convertir cita a DTO: " + cita.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(dto -> dto != null)
-                    .collect(Collectors.toList());
+            // Una sola consulta que arma los DTO con los datos del paciente, del doctor y del tipo de cita
+            List<CitaDTO> citasDTO = citasRepository.findCitasDTOByPaciente(idPaciente);
+            System.out.println("Se encontraron " + citasDTO.size() + " citas para el paciente");
+            return citasDTO;
         } catch (Exception e) {
             logger.error("Error al obtener las citas del paciente " + idPaciente, e);
             throw new RuntimeException("Error al obtener las citas. Por favor, intente nuevamente.");
@@ -813,33 +1071,10 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                 throw new IllegalArgumentException("El ID del doctor no puede estar vacío");
             }
 
-            List<Cita> citas = citasRepository.findByDoctor_IdNumber(idDoctor);
-            System.out.println("Se encontraron " + citas.size() + " citas para el doctor");
-
-            return citas.stream()
-                    .map(cita -> {
-                        try {
-                            return new CitaDTO(
-                                    cita.getId(),
-                                    cita.getPaciente() != null ? cita.getPaciente().getIdNumber() : null,
-                                    cita.getPaciente() != null ? (cita.getPaciente().getName() + " " + cita.getPaciente().getLastName()) : "Paciente no disponible",
-                                    cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null,
-                                    cita.getDoctor() != null ? (cita.getDoctor().getName() + " " + cita.getDoctor().getLastName()) : "Doctor no disponible",
-                                    cita.getFechaHora(),
-                                    cita.getEstado(),
-                                    cita.getEmailNoAutenticado(),
-                                    cita.getTelefonoNoAutenticado(),
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getId() : null,
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getNombre() : "Tipo de cita no disponible",
-                                    cita.getTipoCita() != null ? cita.getTipoCita().getDuracionMinutos() : 0
-                            );
-                        } catch (Exception e) {
-                            logger.error("Error al convertir cita a DTO: " + cita.getId(), e);
-                            return null;
-                        }
-                    })
-                    .filter(dto -> dto != null)
-                    .collect(Collectors.toList());
+            // Una sola consulta que arma los DTO con los datos del paciente, del doctor y del tipo de cita
+            List<CitaDTO> citasDTO = citasRepository.findCitasDTOByDoctor(idDoctor);
+            System.out.println("Se encontraron " + citasDTO.size() + " citas para el doctor");
+            return citasDTO;
         } catch (Exception e) {
             logger.error("Error al obtener las citas del doctor " + idDoctor, e);
             throw new RuntimeException("Error al obtener las citas. Por favor, intente nuevamente.");
@@ -847,80 +1082,84 @@ public class ServiciosCitaImpl implements ServiciosCitas {
     }
 
 
+    @Override
+    public PaginaCitasDTO obtenerCitasPorPaciente(String idPaciente, FiltroCitasDTO filtro) {
+        return paginarCitas(filtro, (desde, hasta, estado, cursorFecha, cursorId, limite) ->
+                citasRepository.findPaginaCitasDTOByPaciente(idPaciente, desde, hasta, estado, cursorFecha, cursorId, limite));
+    }
+
+    @Override
+    public PaginaCitasDTO obtenerCitasAutenticadasPorDoctor(String idDoctor, FiltroCitasDTO filtro) {
+        return paginarCitas(filtro, (desde, hasta, estado, cursorFecha, cursorId, limite) ->
+                citasRepository.findPaginaCitasDTOAutenticadasByDoctor(idDoctor, desde, hasta, estado, cursorFecha, cursorId, limite));
+    }
+
+    @Override
+    public PaginaCitasDTO obtenerCitasNoAutenticadasPorDoctor(String idDoctor, FiltroCitasDTO filtro) {
+        return paginarCitas(filtro, (desde, hasta, estado, cursorFecha, cursorId, limite) ->
+                citasRepository.findPaginaCitasDTOValidasNoAutenticadasByDoctor(idDoctor, desde, hasta, estado, cursorFecha, cursorId, limite));
+    }
+
+    @Override
+    public PaginaCitasDTO obtenerCitasNoAutenticadasPorPaciente(String idPaciente, FiltroCitasDTO filtro) {
+        return paginarCitas(filtro, (desde, hasta, estado, cursorFecha, cursorId, limite) ->
+                citasRepository.findPaginaCitasDTONoAutenticadasByPaciente(idPaciente, desde, hasta, estado, cursorFecha, cursorId, limite));
+    }
+
+    /**
+     * Exporta las citas de un rango de fechas recorriendo un Stream del repositorio.
+     * Cada fila se escribe apenas se lee; el contexto de persistencia se limpia cada
+     * BLOQUE_EXPORTACION filas para que la memoria usada no crezca con el tamaño del rango.
+     */
+    @Override
+    public long exportarCitas(LocalDate desde, LocalDate hasta, FormatoExportacion formato, OutputStream salida)
+            throws IOException {
+        ZoneId zona = ZoneId.systemDefault();
+        Instant inicio = desde.atStartOfDay(zona).toInstant();
+        Instant fin = hasta.plusDays(1).atStartOfDay(zona).toInstant();
+
+        // No se cierra el escritor para no cerrar la salida, que pertenece al llamador
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        if (formato == FormatoExportacion.CSV) {
+            escritor.write(ENCABEZADO_CSV);
+        }
+
+        long exportadas = 0;
+        try (Stream<CitaDTO> citas = citasRepository.streamCitasDTOByRango(inicio, fin)) {
+            Iterator<CitaDTO> iterador = citas.iterator();
+            while (iterador.hasNext()) {
+                CitaDTO cita = iterador.next();
+                if (formato == FormatoExportacion.CSV) {
+                    escribirFilaCsv(escritor, cita);
+                } else {
+                    escritor.write(objectMapper.writeValueAsString(cita));
+                    escritor.write('\n');
+                }
+                if (++exportadas % BLOQUE_EXPORTACION == 0) {
+                    entityManager.clear();
+                    escritor.flush();
+                }
+            }
+        }
+        escritor.flush();
+        logger.info("Se exportaron {} citas entre {} y {} en formato {}", exportadas, desde, hasta, formato);
+        return exportadas;
+    }
+
     // ==============================================
     // MÉTODOS DE CONSULTA Y DISPONIBILIDAD
     // ==============================================
 
     /**
      * Obtiene los doctores disponibles para una especialidad específica.
-     * Incluye información de disponibilidad horaria.
+     * Incluye información de disponibilidad horaria. Se sirve desde el directorio
+     * de especialidades en memoria, sin recorrer todos los doctores del sistema.
      */
     @Override
     public List<DoctorEspecialidadDTO> obtenerDoctoresPorEspecialidad(Long especialidadId) {
         logger.info("=== Obteniendo doctores para la especialidad ID: {} ===", especialidadId);
         try {
-            // 1. Verificar que la especialidad existe
-            Especialidad especialidad = especialidadRepository.findById(especialidadId)
-                    .orElseThrow(() -> new IllegalArgumentException("Especialidad no encontrada con ID: " + especialidadId));
-
-            logger.info("Especialidad encontrada: {}", especialidad.getNombre());
-
-            // 2. Consulta más eficiente - Obtener directamente los doctores con esta especialidad
-            // Opción alternativa si el repositorio lo permite:
-            // List<User> doctoresFiltrados = userRepository.findByAccount_RolAndEspecialidades(Rol.DOCTOR, especialidad);
-
-            // Si no se puede implementar la consulta directa, mantener el enfoque actual pero mejorado:
-            List<User> doctores = userRepository.findByAccount_Rol(Rol.DOCTOR);
-            logger.info("Total de doctores en el sistema: {}", doctores.size());
-
-            List<User> doctoresFiltrados = doctores.stream()
-                    .filter(doctor -> doctor.getEspecialidades() != null &&
-                            doctor.getEspecialidades().contains(especialidad))
-                    .collect(Collectors.toList());
-
-            logger.info("Doctores encontrados para la especialidad {}: {}",
-                    especialidad.getNombre(), doctoresFiltrados.size());
-
-            // Obtenemos los IDs de los doctores para una consulta de disponibilidad más eficiente
-            Set<String> doctorIds = doctoresFiltrados.stream()
-                    .map(User::getIdNumber)
-                    .collect(Collectors.toSet());
-
-            // Mapa para almacenar la disponibilidad de cada doctor
-            Map<String, List<DisponibilidadDTO>> disponibilidadPorDoctor = new HashMap<>();
-
-            // 3. Obtener disponibilidad para todos los doctores filtrados de una vez
-            // (Esta consulta dependería de si el repositorio lo permite)
-            if (!doctorIds.isEmpty()) {
-                for (DayOfWeek dia : DayOfWeek.values()) {
-                    List<DisponibilidadDoctor> disponibilidades = disponibilidadDoctorRepository
-                            .findByDoctor_IdNumberInAndDiaSemanaAndEstado(
-                                    doctorIds, dia, EstadoDisponibilidad.ACTIVO);
-
-                    // Organizar por doctor
-                    for (DisponibilidadDoctor d : disponibilidades) {
-                        String doctorId = d.getDoctor().getIdNumber();
-                        disponibilidadPorDoctor.computeIfAbsent(doctorId, k -> new ArrayList<>())
-                                .add(new DisponibilidadDTO(d.getDiaSemana(), d.getHoraInicio(), d.getHoraFin()));
-                    }
-                }
-            }
-
-            // 4. Convertir a DTOs
-            List<DoctorEspecialidadDTO> doctoresDTO = doctoresFiltrados.stream()
-                    .map(doctor -> {
-                        // Obtener disponibilidad del doctor del mapa
-                        List<DisponibilidadDTO> disponibilidadDTO =
-                                disponibilidadPorDoctor.getOrDefault(doctor.getIdNumber(), Collections.emptyList());
-
-                        return new DoctorEspecialidadDTO(
-                                doctor.getIdNumber(),
-                                doctor.getName(),
-                                doctor.getLastName(),
-                                especialidad.getNombre(),
-                                disponibilidadDTO);
-                    })
-                    .collect(Collectors.toList());
+            List<DoctorEspecialidadDTO> doctoresDTO = directorioEspecialidades.obtenerDoctores(especialidadId);
 
             // Log de resultados
             doctoresDTO.forEach(doctor -> logger.info("- {} {} (ID: {})",
@@ -936,112 +1175,293 @@ public class ServiciosCitaImpl implements ServiciosCitas {
         }
     }
 
+    @Override
+    public void recargarDirectorioEspecialidades() {
+        directorioEspecialidades.invalidar();
+        logger.info("Directorio de especialidades descartado, se recargará en la siguiente consulta");
+    }
+
+    /**
+     * Aparta un horario libre por unos minutos para el flujo de citas no autenticadas.
+     * El horario deja de aparecer como disponible hasta que la reserva se canjee, se libere o expire.
+     */
+    @Override
+    public ReservaTemporalDTO reservarHorarioTemporal(CrearReservaTemporalDTO dto, String cliente) {
+        if (LocalDateTime.of(dto.fecha(), dto.hora()).isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("No se pueden reservar horarios en fechas pasadas");
+        }
+        if (!serviciosDisponibilidadDoctor.validarDisponibilidadDoctor(dto.doctorId(), dto.fecha(), dto.hora())) {
+            throw new IllegalArgumentException("El doctor no está disponible en ese horario");
+        }
+
+        TipoCita tipoCita = tipoCitaRepository.findById(dto.tipoCitaId())
+                .orElseThrow(() -> new IllegalArgumentException("Tipo de cita no encontrado"));
+        int duracion = duracionCita(tipoCita);
+
+        if (!serviciosDisponibilidadDoctor.validarHorarioLibre(dto.doctorId(), dto.fecha(), dto.hora(), duracion, null)) {
+            throw new HorarioOcupadoException("Ya existe una cita programada para ese horario");
+        }
+        return reservasTemporales.reservar(dto.doctorId(), dto.fecha(), dto.hora(), duracion, cliente);
+    }
+
+    @Override
+    public void liberarReservaTemporal(String tokenReserva) {
+        reservasTemporales.liberar(tokenReserva);
+    }
 
     /**
      * Obtiene las fechas disponibles para un doctor en un rango específico.
-     * Considera las citas existentes y la disponibilidad del doctor.
+     * Usa el mismo motor de disponibilidad que el resto de la agenda, de modo que las citas
+     * bloquean todos los horarios con los que se cruzan según su duración.
      */
     @Override
     public List<FechaDisponibleDTO> obtenerFechasDisponibles(String doctorId, LocalDate fechaInicio,
             LocalDate fechaFin) {
-        System.out.println("\n=== Obteniendo fechas disponibles para el doctor ID: " + doctorId + " ===");
-        System.out.println("Rango de fechas: " + fechaInicio + " a " + fechaFin);
+        return serviciosDisponibilidadDoctor.obtenerFechasDisponibles(doctorId, fechaInicio, fechaFin);
+    }
 
-        try {
-            // 1. Verificar que el doctor existe
-            User doctor = userRepository.findByIdNumber(doctorId)
-                    .orElseThrow(() -> new IllegalArgumentException("Doctor no encontrado con ID: " + doctorId));
+    // ==============================================
+    // MÉTODOS PRIVADOS DE APOYO
+    // ==============================================
 
-            System.out.println("Doctor encontrado: " + doctor.getName() + " " + doctor.getLastName());
+    /**
+     * Resuelve los filtros y el cursor de un listado paginado y ejecuta la consulta pidiendo una cita
+     * de más, que solo sirve para saber si existe una página siguiente.
+     */
+    private PaginaCitasDTO paginarCitas(FiltroCitasDTO filtro, ConsultaPaginaCitas consulta) {
+        int limite = filtro.limite() != null
+                ? Math.max(1, Math.min(filtro.limite(), LIMITE_PAGINA_MAXIMO))
+                : LIMITE_PAGINA_POR_DEFECTO;
+        ZoneId zona = ZoneId.systemDefault();
+        Instant desde = filtro.desde() != null ? filtro.desde().atStartOfDay(zona).toInstant() : null;
+        Instant hasta = filtro.hasta() != null ? filtro.hasta().plusDays(1).atStartOfDay(zona).toInstant() : null;
+        CursorCita cursor = filtro.cursor() != null && !filtro.cursor().isBlank()
+                ? CursorCita.decodificar(filtro.cursor())
+                : null;
+
+        List<CitaDTO> citas = consulta.consultar(desde, hasta, filtro.estado(),
+                cursor != null ? cursor.fechaHora() : null,
+                cursor != null ? cursor.id() : null,
+                Limit.of(limite + 1));
+
+        if (citas.size() <= limite) {
+            return new PaginaCitasDTO(citas, null);
+        }
+        List<CitaDTO> pagina = citas.subList(0, limite);
+        CitaDTO ultima = pagina.get(limite - 1);
+        return new PaginaCitasDTO(new ArrayList<>(pagina), new CursorCita(ultima.fechaHora(), ultima.id()).codificar());
+    }
 
-            // 2. Obtener las disponibilidades del doctor
-            List<DisponibilidadDoctor> disponibilidades = new ArrayList<>();
+    private static void escribirFilaCsv(Writer escritor, CitaDTO cita) throws IOException {
+        escritor.write(String.join(",",
+                valorCsv(cita.id()),
+                valorCsv(cita.pacienteId()),
+                valorCsv(cita.pacienteNombre()),
+                valorCsv(cita.doctorId()),
+                valorCsv(cita.doctorNombre()),
+                valorCsv(cita.fechaHora()),
+                valorCsv(cita.estado()),
+                valorCsv(cita.email()),
+                valorCsv(cita.telefono()),
+                valorCsv(cita.tipoCitaId()),
+                valorCsv(cita.tipoCitaNombre()),
+                valorCsv(cita.duracionMinutos())));
+        escritor.write('\n');
+    }
 
-            try {
-                // Obtener disponibilidades para cada día de la semana
-                for (DayOfWeek dia : DayOfWeek.values()) {
-                    System.out.println("Buscando disponibilidades para el día: " + dia);
-                    List<DisponibilidadDoctor> disponibilidadesDia = disponibilidadDoctorRepository
-                            .findByDoctor_IdNumberAndDiaSemanaAndEstado(doctorId, dia, EstadoDisponibilidad.ACTIVO);
-                    System.out.println("Disponibilidades encontradas para " + dia + ": " + disponibilidadesDia.size());
-                    disponibilidades.addAll(disponibilidadesDia);
-                }
-            } catch (Exception e) {
-                System.out.println("Error al buscar disponibilidades: " + e.getMessage());
-                e.printStackTrace();
-                throw new RuntimeException("Error al buscar disponibilidades: " + e.getMessage());
-            }
+    /**
+     * Valor de una celda CSV; se encierra entre comillas si contiene separadores, comillas o saltos de línea.
+     */
+    private static String valorCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Consulta de una página de citas con los filtros ya resueltos.
+     */
+    @FunctionalInterface
+    private interface ConsultaPaginaCitas {
+        List<CitaDTO> consultar(Instant desde, Instant hasta, EstadoCitas estado,
+                                Instant cursorFecha, Long cursorId, Limit limite);
+    }
 
-            if (disponibilidades.isEmpty()) {
-                System.out.println("El doctor no tiene disponibilidades registradas");
-                return new ArrayList<>();
+    /**
+     * Ejecuta una modificación de la agenda de un doctor. En modo cola se encola para que la procese
+     * el trabajador del doctor; en los demás modos se ejecuta en su propia transacción, o en la del
+     * llamador si ya existe una.
+     *
+     * @param doctorId Obtiene el doctor cuya agenda se modifica; solo se evalúa en modo cola
+     * @param esCreacion true si la operación solo crea una cita y puede agruparse con otras creaciones
+     */
+    private <T> T modificarAgenda(Supplier<String> doctorId, boolean esCreacion, Supplier<T> operacion) {
+        if (colaReservasDoctor.usaCola()) {
+            String id = doctorId.get();
+            if (id != null) {
+                return colaReservasDoctor.ejecutar(id, esCreacion, operacion);
             }
+        }
+        return transactionTemplate.execute(status -> operacion.get());
+    }
 
-            // 3. Generar lista de fechas disponibles con horarios
-            List<FechaDisponibleDTO> fechasDisponibles = new ArrayList<>();
-            LocalDate fechaActual = fechaInicio;
-
-            while (!fechaActual.isAfter(fechaFin)) {
-                DayOfWeek diaSemana = fechaActual.getDayOfWeek();
-
-                // Verificar si el doctor tiene disponibilidad para este día de la semana
-                List<DisponibilidadDoctor> disponibilidadesDia = disponibilidades.stream()
-                        .filter(d -> d.getDiaSemana() == diaSemana)
-                        .collect(Collectors.toList());
-
-                if (!disponibilidadesDia.isEmpty()) {
-                    // Generar horarios disponibles para este día
-                    List<HorarioDisponibleDTO> horariosDisponibles = new ArrayList<>();
-
-                    for (DisponibilidadDoctor disponibilidad : disponibilidadesDia) {
-                        LocalTime horaActual = disponibilidad.getHoraInicio();
-                        LocalTime horaFin = disponibilidad.getHoraFin();
-
-                        while (horaActual.isBefore(horaFin)) {
-                            // Verificar si ya existe una cita en este horario
-                            boolean existeCita = citasRepository.existsByDoctorAndFechaHoraBetween(
-                                    doctor,
-                                    fechaActual.atTime(horaActual).atZone(ZoneId.systemDefault()).toInstant(),
-                                    fechaActual.atTime(horaActual.plusMinutes(30)).atZone(ZoneId.systemDefault())
-                                            .toInstant());
-
-                            horariosDisponibles.add(new HorarioDisponibleDTO(horaActual, !existeCita));
-                            horaActual = horaActual.plusMinutes(30); // Intervalos de 30 minutos
-                        }
-                    }
-
-                    // Agregar fecha con horarios disponibles
-                    fechasDisponibles.add(new FechaDisponibleDTO(fechaActual, horariosDisponibles));
-                }
+    private String doctorDeCita(Long idCita) {
+        return citasRepository.findDoctorIdByCitaId(idCita).orElse(null);
+    }
 
-                fechaActual = fechaActual.plusDays(1);
+    /**
+     * Revisa si el horario se cruza con otra cita del doctor. Dentro de la cola del doctor basta con el
+     * estado en memoria (índice de disponibilidad más las citas del lote en curso); fuera de ella también
+     * se consulta la base de datos.
+     */
+    private boolean horarioOcupado(User doctor, LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        if (colaReservasDoctor.enLote()) {
+            return colaReservasDoctor.ocupadoEnLote(fecha, hora, duracionMinutos)
+                    || !serviciosDisponibilidadDoctor.validarHorarioLibre(doctor.getIdNumber(), fecha, hora,
+                    duracionMinutos, null);
+        }
+        return citasRepository.existsByDoctorAndFechaHoraAndSlotActivoTrue(doctor,
+                LocalDateTime.of(fecha, hora).atZone(ZoneId.systemDefault()).toInstant())
+                || !serviciosDisponibilidadDoctor.validarHorarioLibre(doctor.getIdNumber(), fecha, hora,
+                duracionMinutos, null);
+    }
+
+    /**
+     * En modo transaccional el índice de disponibilidad solo refleja las citas ya confirmadas y la restricción
+     * única cubre solo la hora de inicio, así que dos citas que se cruzan pero empiezan a horas distintas podrían
+     * guardarse a la vez. Para evitarlo se bloquea la agenda del doctor en los días afectados (la misma fila que
+     * el oyente de la agenda reescribe en esta transacción) y se revisa contra ella que el horario siga libre.
+     * En modo slots y dentro de la cola del doctor el cruce ya se resuelve al reclamar los slots o en el único
+     * escritor, así que no se bloquea nada.
+     *
+     * <p>Una reprogramación también bloquea el día que deja libre, para tomar todos los bloqueos de una vez y
+     * siempre en el mismo orden (por doctor y luego por fecha).</p>
+     *
+     * @param citaExcluida Cita que se reprograma, que no cuenta como cruce (puede ser null)
+     * @param doctorAnterior Doctor que tenía la cita antes del cambio (puede ser null)
+     * @param fechaHoraAnterior Horario que tenía la cita antes del cambio (puede ser null)
+     * @throws HorarioOcupadoException si alguno de los horarios se cruza con otra cita activa del doctor
+     */
+    private void bloquearHorario(String doctorId, List<LocalDateTime> inicios, int duracionMinutos, Long citaExcluida,
+                                 String doctorAnterior, Instant fechaHoraAnterior) {
+        if (agendaSlots.usaSlots() || colaReservasDoctor.enLote()) {
+            return;
+        }
+
+        Set<LocalDate> dias = new TreeSet<>();
+        inicios.forEach(inicio -> dias.add(inicio.toLocalDate()));
+        LocalDate diaAnterior = fechaHoraAnterior != null
+                ? fechaHoraAnterior.atZone(ZoneId.systemDefault()).toLocalDate()
+                : null;
+        boolean otroDoctor = diaAnterior != null && doctorAnterior != null && !doctorAnterior.equals(doctorId);
+        if (diaAnterior != null && !otroDoctor) {
+            dias.add(diaAnterior);
+        }
+
+        if (otroDoctor && doctorAnterior.compareTo(doctorId) < 0) {
+            serviciosAgendaDoctor.bloquearDias(doctorAnterior, List.of(diaAnterior));
+        }
+        Map<LocalDate, List<EntradaAgendaDTO>> agendas = serviciosAgendaDoctor.bloquearDias(doctorId, dias);
+        if (otroDoctor && doctorAnterior.compareTo(doctorId) > 0) {
+            serviciosAgendaDoctor.bloquearDias(doctorAnterior, List.of(diaAnterior));
+        }
+
+        for (LocalDateTime inicio : inicios) {
+            // En minutos del día, para que una cita que termina a medianoche no se compare como 00:00
+            int desde = inicio.toLocalTime().toSecondOfDay() / 60;
+            int hasta = desde + duracionMinutos;
+            for (EntradaAgendaDTO entrada : agendas.get(inicio.toLocalDate())) {
+                if (!entrada.estado().ocupaHorario() || entrada.citaId().equals(citaExcluida)) {
+                    continue;
+                }
+                int inicioOtra = entrada.hora().toSecondOfDay() / 60;
+                if (desde < inicioOtra + entrada.duracionMinutos() && inicioOtra < hasta) {
+                    throw new HorarioOcupadoException("Ya existe una cita programada para ese horario");
+                }
             }
+        }
+    }
 
-            System.out.println("Se encontraron " + fechasDisponibles.size() + " fechas disponibles");
-            fechasDisponibles.forEach(fecha -> {
-                System.out.println("- " + fecha.fecha() + " con " + fecha.horarios().size() + " horarios");
-                fecha.horarios().stream()
-                        .filter(h -> h.disponible())
-                        .forEach(hora -> System.out.println("  * " + hora.hora()));
+    /**
+     * Ejecuta la acción cuando se confirme la transacción actual, o de inmediato si no hay transacción.
+     * Evita efectos externos (correos, canje de reservas) de citas que terminan deshaciéndose.
+     */
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
             });
+        } else {
+            accion.run();
+        }
+    }
 
-            return fechasDisponibles;
-        } catch (IllegalArgumentException e) {
-            System.out.println("Error: " + e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            System.out.println("Error inesperado: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Error al obtener las fechas disponibles: " + e.getMessage());
+    /**
+     * Guarda la cita forzando el envío inmediato a la base de datos, de modo que si otra transacción
+     * tomó el mismo horario la violación de la restricción única se detecta aquí y se traduce
+     * a {@link HorarioOcupadoException} en lugar de aparecer al confirmar la transacción.
+     */
+    private Cita guardarReservandoHorario(Cita cita) {
+        try {
+            return citasRepository.saveAndFlush(cita);
+        } catch (DataIntegrityViolationException e) {
+            throw new HorarioOcupadoException("Ya existe una cita programada para ese horario", e);
         }
     }
 
-    // ==============================================
-    // MÉTODOS PRIVADOS DE APOYO
-    // ==============================================
+    private static int duracionCita(TipoCita tipoCita) {
+        return tipoCita != null && tipoCita.getDuracionMinutos() != null
+                ? tipoCita.getDuracionMinutos()
+                : INTERVALO_MINUTOS;
+    }
+
+    /**
+     * Rechaza el horario si se cruza con una reserva temporal vigente de otro usuario.
+     *
+     * @param tokenPropio Token de la reserva de quien agenda, que no cuenta como conflicto (puede ser null)
+     */
+    private void validarSinReservaTemporal(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                           String tokenPropio) {
+        if (reservasTemporales.estaReservado(doctorId, fecha, hora, duracionMinutos, tokenPropio)) {
+            throw new HorarioOcupadoException("El horario está reservado temporalmente por otro usuario");
+        }
+    }
 
     /**
-     * Envía correo de confirmación de cita.
+     * Publica el evento de cambio de una cita. Los oyentes que mantienen estado en memoria
+     * (como el índice de disponibilidad) lo procesan cuando la transacción se confirma.
+     *
+     * @param cita Cita ya guardada
+     * @param doctorIdAnterior Doctor que tenía la cita antes del cambio, o null si no cambió
+     * @param fechaHoraAnterior Fecha que tenía la cita antes del cambio, o null si no cambió
+     */
+    private void publicarCambioCita(Cita cita, String doctorIdAnterior, Instant fechaHoraAnterior) {
+        String doctorId = cita.getDoctor() != null ? cita.getDoctor().getIdNumber() : null;
+        String pacienteId = cita.isEsAutenticada()
+                ? (cita.getPaciente() != null ? cita.getPaciente().getIdNumber() : null)
+                : cita.getNumeroIdentificacionNoAutenticado();
+
+        eventPublisher.publishEvent(new CitaModificadaEvent(
+                cita.getId(),
+                doctorId,
+                pacienteId,
+                cita.getFechaHora(),
+                cita.getTipoCita() != null ? cita.getTipoCita().getDuracionMinutos() : null,
+                cita.getEstado(),
+                Objects.equals(doctorIdAnterior, doctorId) ? null : doctorIdAnterior,
+                Objects.equals(fechaHoraAnterior, cita.getFechaHora()) ? null : fechaHoraAnterior));
+    }
+
+    /**
+     * Deja en la bandeja de salida el correo de confirmación de cita.
      * Maneja tanto citas autenticadas como no autenticadas.
      */
     private void enviarCorreoConfirmacionCita(Cita cita) {
@@ -1067,9 +1487,9 @@ public class ServiciosCitaImpl implements ServiciosCitas {
                         cita.getTipoCita().getNombre());
             }
 
-            emailService.enviarCorreoCita(emailDTO);
-        } catch (Exception e) {
-            logger.warn("No se pudo enviar el correo de confirmación: {}", e.getMessage());
+            serviciosBandejaSalida.encolar("CONFIRMACION_CITA", cita.getId(), emailService.redactarCorreoCita(emailDTO));
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo redactar el correo de confirmación: {}", e.getMessage());
         }
     }
 }
\ No newline at end of file
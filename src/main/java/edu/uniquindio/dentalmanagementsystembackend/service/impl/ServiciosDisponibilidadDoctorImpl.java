@@ -1,24 +1,33 @@
 package edu.uniquindio.dentalmanagementsystembackend.service.impl;
 
-import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoDisponibilidad;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ConsistenciaIndiceDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.DoctorResumenDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.FechaDisponibleDTO;
 import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDisponibleDTO;
-import edu.uniquindio.dentalmanagementsystembackend.entity.DisponibilidadDoctor;
-import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
-import edu.uniquindio.dentalmanagementsystembackend.repository.DisponibilidadDoctorRepository;
-import edu.uniquindio.dentalmanagementsystembackend.repository.UserRepository;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.HorarioDoctorDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.TipoCita;
+import edu.uniquindio.dentalmanagementsystembackend.repository.EspecialidadRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.TipoCitaRepository;
 import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.util.DiaDisponibilidad;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,146 +35,111 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ServiciosDisponibilidadDoctorImpl implements ServiciosDisponibilidadDoctor {
 
+    // Días que se cargan del índice cada vez que un flujo de horarios necesita avanzar
+    private static final int DIAS_POR_BLOQUE = 7;
+
+    // Horizonte por defecto y máximo de la búsqueda de primeros horarios
+    private static final int HORIZONTE_BUSQUEDA_DIAS = 90;
+    private static final int MAXIMO_HORARIOS_BUSQUEDA = 50;
+
+    // Orden de los horarios en la búsqueda: primero por fecha y hora, luego por doctor
+    private static final Comparator<HorarioDoctorDTO> ORDEN_HORARIOS = Comparator
+            .comparing(HorarioDoctorDTO::fecha)
+            .thenComparing(HorarioDoctorDTO::hora)
+            .thenComparing(HorarioDoctorDTO::doctorId);
+
     @Autowired
-    private DisponibilidadDoctorRepository disponibilidadDoctorRepository;
-    
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    @Autowired
+    private EspecialidadRepository especialidadRepository;
+
+    @Autowired
+    private TipoCitaRepository tipoCitaRepository;
+
     @Autowired
-    private UserRepository userRepository;
+    private AgendaSlots agendaSlots;
+
+    @Autowired
+    private ReservasTemporales reservasTemporales;
 
 
 
     @Override
     public List<FechaDisponibleDTO> obtenerFechasDisponibles(String doctorId, LocalDate fechaInicio, LocalDate fechaFin) {
-        System.out.println("\n=== Obteniendo fechas disponibles para el doctor ID: " + doctorId + " ===");
-        System.out.println("Rango de fechas: " + fechaInicio + " a " + fechaFin);
+        return obtenerFechasDisponibles(doctorId, fechaInicio, fechaFin, null);
+    }
+
+    @Override
+    public List<FechaDisponibleDTO> obtenerFechasDisponibles(String doctorId, LocalDate fechaInicio, LocalDate fechaFin,
+                                                             Long tipoCitaId) {
+        log.debug("Obteniendo fechas disponibles del doctor {} entre {} y {}", doctorId, fechaInicio, fechaFin);
         
         try {
-            // 1. Verificar que el doctor existe
-            User doctor = userRepository.findByIdNumber(doctorId)
-                    .orElseThrow(() -> new IllegalArgumentException("Doctor no encontrado con ID: " + doctorId));
-            
-            System.out.println("Doctor encontrado: " + doctor.getName() + " " + doctor.getLastName());
-            
-            // 2. Obtener las disponibilidades del doctor
-            List<DisponibilidadDoctor> disponibilidades = new ArrayList<>();
-            
-            try {
-                // Obtener disponibilidades para cada día de la semana
-                for (DayOfWeek dia : DayOfWeek.values()) {
-                    System.out.println("Buscando disponibilidades para el día: " + dia);
-                    List<DisponibilidadDoctor> disponibilidadesDia = disponibilidadDoctorRepository
-                            .findByDoctor_IdNumberAndDiaSemanaAndEstado(doctorId, dia, EstadoDisponibilidad.ACTIVO);
-                    System.out.println("Disponibilidades encontradas para " + dia + ": " + disponibilidadesDia.size());
-                    disponibilidades.addAll(disponibilidadesDia);
-                }
-            } catch (Exception e) {
-                System.out.println("Error al buscar disponibilidades: " + e.getMessage());
-                e.printStackTrace();
-                throw new RuntimeException("Error al buscar disponibilidades: " + e.getMessage());
-            }
-            
-            if (disponibilidades.isEmpty()) {
-                System.out.println("El doctor no tiene disponibilidades registradas");
-                return new ArrayList<>();
+            Integer duracionMinutos = duracionTipoCita(tipoCitaId);
+
+            // En modo slots la disponibilidad se lee de los horarios pre-generados
+            if (agendaSlots.usaSlots()) {
+                return agendaSlots.fechasDisponibles(doctorId, fechaInicio, fechaFin, duracionMinutos);
             }
+
+            // 1. Obtener la disponibilidad de todo el rango desde el índice en memoria
+            Map<LocalDate, DiaDisponibilidad> dias = indiceDisponibilidad.obtenerRango(doctorId, fechaInicio, fechaFin);
             
-            // 3. Generar lista de fechas disponibles con horarios
+            // 2. Generar lista de fechas disponibles con horarios
             List<FechaDisponibleDTO> fechasDisponibles = new ArrayList<>();
-            LocalDate fechaActual = fechaInicio;
-            
-            while (!fechaActual.isAfter(fechaFin)) {
-                DayOfWeek diaSemana = fechaActual.getDayOfWeek();
-                
-                // Verificar si el doctor tiene disponibilidad para este día de la semana
-                List<DisponibilidadDoctor> disponibilidadesDia = disponibilidades.stream()
-                        .filter(d -> d.getDiaSemana() == diaSemana)
-                        .collect(Collectors.toList());
-                
-                if (!disponibilidadesDia.isEmpty()) {
-                    // Generar horarios disponibles para este día
-                    List<HorarioDisponibleDTO> horariosDisponibles = new ArrayList<>();
-                    
-                    for (DisponibilidadDoctor disponibilidad : disponibilidadesDia) {
-                        LocalTime horaActual = disponibilidad.getHoraInicio();
-                        LocalTime horaFin = disponibilidad.getHoraFin();
-                        
-                        while (horaActual.isBefore(horaFin)) {
-                            horariosDisponibles.add(new HorarioDisponibleDTO(horaActual, true));
-                            horaActual = horaActual.plusMinutes(30); // Intervalos de 30 minutos
-                        }
-                    }
-                    
-                    // Agregar fecha con horarios disponibles
-                    fechasDisponibles.add(new FechaDisponibleDTO(fechaActual, horariosDisponibles));
+            dias.forEach((fecha, dia) -> {
+                if (!dia.getVentanas().isEmpty()) {
+                    fechasDisponibles.add(new FechaDisponibleDTO(fecha, generarHorarios(doctorId, fecha, dia, duracionMinutos)));
                 }
-                
-                fechaActual = fechaActual.plusDays(1);
-            }
-            
-            System.out.println("Se encontraron " + fechasDisponibles.size() + " fechas disponibles");
-            fechasDisponibles.forEach(fecha -> {
-                System.out.println("- " + fecha.fecha() + " con " + fecha.horarios().size() + " horarios");
-                fecha.horarios().stream()
-                        .filter(h -> h.disponible())
-                        .forEach(hora -> System.out.println("  * " + hora.hora()));
             });
             
+            log.debug("Se encontraron {} fechas disponibles", fechasDisponibles.size());
             return fechasDisponibles;
         } catch (IllegalArgumentException e) {
-            System.out.println("Error: " + e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.out.println("Error inesperado: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error inesperado consultando la disponibilidad del doctor {}", doctorId, e);
             throw new RuntimeException("Error al obtener las fechas disponibles: " + e.getMessage());
         }
     }
     
     @Override
     public List<HorarioDisponibleDTO> obtenerHorariosDisponibles(String doctorId, LocalDate fecha) {
-        System.out.println("\n=== Obteniendo horarios disponibles para el doctor ID: " + doctorId + " ===");
-        System.out.println("Fecha: " + fecha);
+        return obtenerHorariosDisponibles(doctorId, fecha, null);
+    }
+
+    @Override
+    public List<HorarioDisponibleDTO> obtenerHorariosDisponibles(String doctorId, LocalDate fecha, Long tipoCitaId) {
+        log.debug("Obteniendo horarios disponibles del doctor {} para el {}", doctorId, fecha);
         
         try {
-            // 1. Verificar que el doctor existe
-            User doctor = userRepository.findByIdNumber(doctorId)
-                    .orElseThrow(() -> new IllegalArgumentException("Doctor no encontrado con ID: " + doctorId));
-            
-            System.out.println("Doctor encontrado: " + doctor.getName() + " " + doctor.getLastName());
-            
-            // 2. Obtener la disponibilidad para el día de la semana
-            DayOfWeek diaSemana = fecha.getDayOfWeek();
-            List<DisponibilidadDoctor> disponibilidades = disponibilidadDoctorRepository
-                    .findByDoctor_IdNumberAndDiaSemanaAndEstado(doctorId, diaSemana, EstadoDisponibilidad.ACTIVO);
-            
-            if (disponibilidades.isEmpty()) {
-                System.out.println("El doctor no tiene disponibilidad para el día " + diaSemana);
-                return new ArrayList<>();
+            Integer duracionMinutos = duracionTipoCita(tipoCitaId);
+
+            // En modo slots la disponibilidad se lee de los horarios pre-generados
+            if (agendaSlots.usaSlots()) {
+                return agendaSlots.fechasDisponibles(doctorId, fecha, fecha, duracionMinutos).stream()
+                        .flatMap(f -> f.horarios().stream())
+                        .collect(Collectors.toList());
             }
+
+            // 1. Obtener la disponibilidad del día desde el índice en memoria
+            DiaDisponibilidad dia = indiceDisponibilidad.obtenerDia(doctorId, fecha);
             
-            // 3. Generar lista de horarios disponibles
-            List<HorarioDisponibleDTO> horariosDisponibles = new ArrayList<>();
-            
-            for (DisponibilidadDoctor disponibilidad : disponibilidades) {
-                LocalTime horaActual = disponibilidad.getHoraInicio();
-                LocalTime horaFin = disponibilidad.getHoraFin();
-                
-                while (horaActual.isBefore(horaFin)) {
-                    horariosDisponibles.add(new HorarioDisponibleDTO(horaActual, true));
-                    horaActual = horaActual.plusMinutes(30); // Intervalos de 30 minutos
-                }
+            if (dia.getVentanas().isEmpty()) {
+                log.debug("El doctor no tiene disponibilidad para el día {}", fecha.getDayOfWeek());
+                return new ArrayList<>();
             }
             
-            System.out.println("Se encontraron " + horariosDisponibles.size() + " horarios disponibles");
-            horariosDisponibles.forEach(hora -> System.out.println("- " + hora.hora()));
+            // 2. Generar lista de horarios disponibles
+            List<HorarioDisponibleDTO> horariosDisponibles = generarHorarios(doctorId, fecha, dia, duracionMinutos);
             
+            log.debug("Se encontraron {} horarios", horariosDisponibles.size());
             return horariosDisponibles;
         } catch (IllegalArgumentException e) {
-            System.out.println("Error: " + e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.out.println("Error inesperado: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error inesperado consultando la disponibilidad del doctor {}", doctorId, e);
             throw new RuntimeException("Error al obtener los horarios disponibles: " + e.getMessage());
         }
     }
@@ -173,20 +147,185 @@ public class ServiciosDisponibilidadDoctorImpl implements ServiciosDisponibilida
     @Override
     public boolean validarDisponibilidadDoctor(String doctorId, LocalDate fecha, LocalTime hora) {
         try {
-            // Obtener el día de la semana de la fecha
-            DayOfWeek diaSemana = fecha.getDayOfWeek();
-            
-            // Buscar disponibilidades del doctor para ese día
-            List<DisponibilidadDoctor> disponibilidades = disponibilidadDoctorRepository
-                    .findByDoctor_IdNumberAndDiaSemanaAndEstado(doctorId, diaSemana, EstadoDisponibilidad.ACTIVO);
-            
-            // Verificar si hay disponibilidad para la hora especificada
-            return disponibilidades.stream()
-                    .anyMatch(d -> !hora.isBefore(d.getHoraInicio()) && hora.isBefore(d.getHoraFin()));
-                    
+            // Verificar en el índice si la hora está dentro del horario de atención del doctor
+            return indiceDisponibilidad.obtenerDia(doctorId, fecha).esLaborable(hora);
         } catch (Exception e) {
             log.error("Error al validar disponibilidad del doctor", e);
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    @Override
+    public boolean validarHorarioLibre(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos,
+                                       Long citaIgnorada) {
+        return indiceDisponibilidad.obtenerDia(doctorId, fecha).cabe(hora, duracionMinutos, citaIgnorada);
+    }
+
+    @Override
+    public List<LocalDateTime> buscarHorariosNoDisponibles(String doctorId, List<LocalDateTime> horarios,
+                                                          int duracionMinutos) {
+        if (horarios.isEmpty()) {
+            return new ArrayList<>();
+        }
+        LocalDate primera = horarios.stream().map(LocalDateTime::toLocalDate).min(Comparator.naturalOrder()).get();
+        LocalDate ultima = horarios.stream().map(LocalDateTime::toLocalDate).max(Comparator.naturalOrder()).get();
+        Map<LocalDate, DiaDisponibilidad> dias = indiceDisponibilidad.obtenerRango(doctorId, primera, ultima);
+
+        List<LocalDateTime> noDisponibles = new ArrayList<>();
+        for (LocalDateTime horario : horarios) {
+            DiaDisponibilidad dia = dias.get(horario.toLocalDate());
+            LocalTime hora = horario.toLocalTime();
+            if (dia == null || !dia.esLaborable(hora) || !dia.cabe(hora, duracionMinutos, null)
+                    || reservasTemporales.estaReservado(doctorId, horario.toLocalDate(), hora, duracionMinutos, null)) {
+                noDisponibles.add(horario);
+            }
+        }
+        return noDisponibles;
+    }
+
+    @Override
+    public List<HorarioDoctorDTO> buscarPrimerosHorariosPorEspecialidad(Long especialidadId, int cantidad,
+                                                                       LocalDate fechaInicio, LocalDate fechaFin) {
+        if (!especialidadRepository.existsById(especialidadId)) {
+            throw new IllegalArgumentException("Especialidad no encontrada con ID: " + especialidadId);
+        }
+        if (cantidad <= 0 || cantidad > MAXIMO_HORARIOS_BUSQUEDA) {
+            throw new IllegalArgumentException("La cantidad debe estar entre 1 y " + MAXIMO_HORARIOS_BUSQUEDA);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDate desde = fechaInicio != null && fechaInicio.isAfter(ahora.toLocalDate()) ? fechaInicio : ahora.toLocalDate();
+        // El horizonte también acota un fechaFin lejano, para no recorrer meses sin horarios libres
+        LocalDate horizonte = desde.plusDays(HORIZONTE_BUSQUEDA_DIAS);
+        LocalDate hasta = fechaFin != null && fechaFin.isBefore(horizonte) ? fechaFin : horizonte;
+        if (hasta.isBefore(desde)) {
+            return new ArrayList<>();
+        }
+
+        // Se toma el primer horario libre de cada doctor y se avanza solo el flujo del que se consume
+        PriorityQueue<FlujoHorariosLibres> cola = new PriorityQueue<>(
+                Comparator.comparing(FlujoHorariosLibres::actual, ORDEN_HORARIOS));
+        for (DoctorResumenDTO doctor : especialidadRepository.findDoctoresByEspecialidadId(especialidadId)) {
+            FlujoHorariosLibres flujo = new FlujoHorariosLibres(doctor, desde, hasta, ahora);
+            if (flujo.avanzar()) {
+                cola.add(flujo);
+            }
+        }
+
+        List<HorarioDoctorDTO> horarios = new ArrayList<>(cantidad);
+        while (horarios.size() < cantidad && !cola.isEmpty()) {
+            FlujoHorariosLibres flujo = cola.poll();
+            horarios.add(flujo.actual());
+            if (flujo.avanzar()) {
+                cola.add(flujo);
+            }
+        }
+
+        log.debug("Primeros {} horarios para la especialidad {}: {}", cantidad, especialidadId, horarios);
+        return horarios;
+    }
+
+    @Override
+    public ConsistenciaIndiceDTO verificarConsistenciaIndice(String doctorId, LocalDate fecha) {
+        return indiceDisponibilidad.verificarConsistencia(doctorId, fecha);
+    }
+
+    @Override
+    public void reconstruirIndice(String doctorId) {
+        indiceDisponibilidad.reconstruir(doctorId);
+    }
+
+    /**
+     * Genera las horas de inicio de cada ventana de atención del día en las que cabe completa
+     * una cita de la duración indicada, marcando como no disponibles las que se cruzan con
+     * una cita existente o con una reserva temporal vigente. Sin duración, cada horario dura
+     * el intervalo de su ventana.
+     */
+    private List<HorarioDisponibleDTO> generarHorarios(String doctorId, LocalDate fecha, DiaDisponibilidad dia,
+                                                       Integer duracionMinutos) {
+        List<HorarioDisponibleDTO> horarios = new ArrayList<>();
+        for (DiaDisponibilidad.Ventana ventana : dia.getVentanas()) {
+            int duracion = duracionMinutos != null ? duracionMinutos : ventana.intervaloMinutos();
+            for (LocalTime hora : ventana.horasDeInicio(duracion)) {
+                boolean libre = dia.estaLibre(hora, duracion)
+                        && !reservasTemporales.estaReservado(doctorId, fecha, hora, duracion, null);
+                horarios.add(new HorarioDisponibleDTO(hora, libre));
+            }
+        }
+        return horarios;
+    }
+
+    /**
+     * Obtiene la duración del tipo de cita, o null si no se indicó ninguno.
+     */
+    private Integer duracionTipoCita(Long tipoCitaId) {
+        if (tipoCitaId == null) {
+            return null;
+        }
+        return tipoCitaRepository.findById(tipoCitaId)
+                .map(TipoCita::getDuracionMinutos)
+                .orElseThrow(() -> new IllegalArgumentException("Tipo de cita no encontrado con ID: " + tipoCitaId));
+    }
+
+    /**
+     * Flujo perezoso de los horarios libres de un doctor en orden cronológico.
+     * Carga los días del índice por bloques a medida que se consume, por lo que
+     * nunca recorre más calendario del necesario.
+     */
+    private class FlujoHorariosLibres {
+
+        private final DoctorResumenDTO doctor;
+        private final LocalDate fechaFin;
+        private final LocalDateTime ahora;
+        private final Deque<HorarioDoctorDTO> pendientes = new ArrayDeque<>();
+        private Iterator<Map.Entry<LocalDate, DiaDisponibilidad>> dias = Collections.emptyIterator();
+        private LocalDate siguienteBloque;
+        private HorarioDoctorDTO actual;
+
+        FlujoHorariosLibres(DoctorResumenDTO doctor, LocalDate fechaInicio, LocalDate fechaFin, LocalDateTime ahora) {
+            this.doctor = doctor;
+            this.fechaFin = fechaFin;
+            this.ahora = ahora;
+            this.siguienteBloque = fechaInicio;
+        }
+
+        HorarioDoctorDTO actual() {
+            if (actual == null) {
+                throw new NoSuchElementException();
+            }
+            return actual;
+        }
+
+        /**
+         * Avanza al siguiente horario libre.
+         *
+         * @return false si el doctor no tiene más horarios libres en el rango
+         */
+        boolean avanzar() {
+            while (pendientes.isEmpty()) {
+                if (!dias.hasNext()) {
+                    if (siguienteBloque.isAfter(fechaFin)) {
+                        actual = null;
+                        return false;
+                    }
+                    LocalDate finBloque = siguienteBloque.plusDays(DIAS_POR_BLOQUE - 1);
+                    if (finBloque.isAfter(fechaFin)) {
+                        finBloque = fechaFin;
+                    }
+                    dias = indiceDisponibilidad.obtenerRango(doctor.id(), siguienteBloque, finBloque).entrySet().iterator();
+                    siguienteBloque = finBloque.plusDays(1);
+                    continue;
+                }
+                Map.Entry<LocalDate, DiaDisponibilidad> dia = dias.next();
+                for (HorarioDisponibleDTO horario : generarHorarios(doctor.id(), dia.getKey(), dia.getValue(), null)) {
+                    if (horario.disponible() && dia.getKey().atTime(horario.hora()).isAfter(ahora)) {
+                        pendientes.add(new HorarioDoctorDTO(
+                                doctor.id(), doctor.nombre(), doctor.apellido(), dia.getKey(), horario.hora()));
+                    }
+                }
+            }
+            actual = pendientes.poll();
+            return true;
+        }
+    }
+} 
@@ -0,0 +1,464 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoCitas;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.EstadoListaEspera;
+import edu.uniquindio.dentalmanagementsystembackend.Enum.Rol;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearEntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.EntradaListaEsperaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.ReservaTemporalDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Account.User;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
+import edu.uniquindio.dentalmanagementsystembackend.entity.EntradaListaEspera;
+import edu.uniquindio.dentalmanagementsystembackend.entity.TipoCita;
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.repository.EntradaListaEsperaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.EspecialidadRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.TipoCitaRepository;
+import edu.uniquindio.dentalmanagementsystembackend.repository.UserRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.EmailService;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosListaEspera;
+import edu.uniquindio.dentalmanagementsystembackend.util.IndiceListaEspera;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista de espera con reasignación automática de horarios liberados.
+ * Cuando se cancela o reprograma una cita, el horario que deja libre se ofrece a la solicitud más
+ * antigua que lo acepte, buscada en el índice en memoria por la cola del doctor y las de sus especialidades.
+ * El horario queda apartado con una reserva temporal durante {@code citas.lista-espera.oferta-minutos}
+ * minutos; si el paciente lo rechaza o no responde a tiempo, se ofrece al siguiente.
+ *
+ * <p>Cada solicitud se registra en el índice en cada horario de inicio de su rango, así que un paciente
+ * puede tener a lo sumo {@code citas.lista-espera.maximo-activas-por-paciente} solicitudes activas.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServiciosListaEsperaImpl implements ServiciosListaEspera {
+
+    // Grilla de horarios de inicio sobre la que se registran las solicitudes
+    private static final int INTERVALO_MINUTOS = 30;
+
+    private static final Set<EstadoListaEspera> ESTADOS_ACTIVOS =
+            EnumSet.of(EstadoListaEspera.ESPERANDO, EstadoListaEspera.OFERTADA);
+
+    private final EntradaListaEsperaRepository entradaListaEsperaRepository;
+    private final UserRepository userRepository;
+    private final TipoCitaRepository tipoCitaRepository;
+    private final EspecialidadRepository especialidadRepository;
+    private final DirectorioEspecialidades directorioEspecialidades;
+    private final ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
+    private final ReservasTemporales reservasTemporales;
+    private final ServiciosCitas serviciosCitas;
+    private final EmailService emailService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${citas.lista-espera.oferta-minutos:15}")
+    private long ofertaMinutos;
+
+    @Value("${citas.lista-espera.dias-maximos:90}")
+    private int diasMaximos;
+
+    @Value("${citas.lista-espera.maximo-activas-por-paciente:3}")
+    private int maximoActivasPorPaciente;
+
+    private final IndiceListaEspera indice = new IndiceListaEspera(INTERVALO_MINUTOS);
+
+    // Ofertas vigentes por token de la reserva temporal que las respalda
+    private final Map<String, Oferta> ofertas = new ConcurrentHashMap<>();
+
+    // Las ofertas se hacen después de confirmar la cancelación, así que necesitan su propia transacción
+    private TransactionTemplate nuevaTransaccion;
+
+    @PostConstruct
+    void inicializar() {
+        nuevaTransaccion = new TransactionTemplate(transactionManager);
+        nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Carga en el índice las solicitudes en espera. Las ofertas pendientes se pierden al reiniciar
+     * (sus reservas temporales viven en memoria), así que esas solicitudes vuelven a la espera.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarIndice() {
+        Integer reiniciadas = nuevaTransaccion.execute(status -> entradaListaEsperaRepository.reiniciarOfertas(
+                EstadoListaEspera.OFERTADA, EstadoListaEspera.ESPERANDO));
+        List<EntradaListaEspera> enEspera = entradaListaEsperaRepository.findByEstadoAndFechaHastaGreaterThanEqual(
+                EstadoListaEspera.ESPERANDO, LocalDate.now());
+        enEspera.forEach(this::indexar);
+        log.info("Lista de espera cargada: {} solicitudes ({} ofertas pendientes reiniciadas)",
+                enEspera.size(), reiniciadas);
+    }
+
+    @Override
+    public EntradaListaEsperaDTO registrar(CrearEntradaListaEsperaDTO dto) {
+        if ((dto.doctorId() == null) == (dto.especialidadId() == null)) {
+            throw new IllegalArgumentException("Debe indicar un doctor o una especialidad, no ambos");
+        }
+        if (dto.fechaHasta().isBefore(dto.fechaDesde()) || dto.fechaHasta().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("El rango de fechas no es válido");
+        }
+        if (ChronoUnit.DAYS.between(dto.fechaDesde(), dto.fechaHasta()) >= diasMaximos) {
+            throw new IllegalArgumentException("El rango de fechas no puede superar " + diasMaximos + " días");
+        }
+        if (!dto.horaHasta().isAfter(dto.horaDesde())) {
+            throw new IllegalArgumentException("La hora final debe ser posterior a la hora inicial");
+        }
+        if (userRepository.findByIdNumber(dto.pacienteId()).isEmpty()) {
+            throw new IllegalArgumentException("Paciente no encontrado");
+        }
+        if (dto.doctorId() != null) {
+            User doctor = userRepository.findByIdNumber(dto.doctorId())
+                    .orElseThrow(() -> new IllegalArgumentException("Doctor no encontrado"));
+            if (!doctor.getAccount().getRol().equals(Rol.DOCTOR)) {
+                throw new IllegalArgumentException("El usuario especificado no es un doctor");
+            }
+        } else if (!especialidadRepository.existsById(dto.especialidadId())) {
+            throw new IllegalArgumentException("Especialidad no encontrada con ID: " + dto.especialidadId());
+        }
+        TipoCita tipoCita = tipoCitaRepository.findById(dto.tipoCitaId())
+                .orElseThrow(() -> new IllegalArgumentException("Tipo de cita no encontrado"));
+        int duracion = tipoCita.getDuracionMinutos() != null ? tipoCita.getDuracionMinutos() : INTERVALO_MINUTOS;
+        if (dto.horaDesde().plusMinutes(duracion).isAfter(dto.horaHasta())) {
+            throw new IllegalArgumentException("La franja horaria es más corta que la cita");
+        }
+
+        EntradaListaEspera entrada = new EntradaListaEspera();
+        entrada.setPacienteId(dto.pacienteId());
+        entrada.setDoctorId(dto.doctorId());
+        entrada.setEspecialidadId(dto.especialidadId());
+        entrada.setTipoCitaId(dto.tipoCitaId());
+        entrada.setDuracionMinutos(duracion);
+        entrada.setFechaDesde(dto.fechaDesde());
+        entrada.setFechaHasta(dto.fechaHasta());
+        entrada.setHoraDesde(dto.horaDesde());
+        entrada.setHoraHasta(dto.horaHasta());
+        entrada.setEstado(EstadoListaEspera.ESPERANDO);
+        entrada.setCreadaEn(Instant.now());
+        EntradaListaEspera guardada;
+        // Se cuenta y se guarda bajo el mismo candado para que registros simultáneos no superen el máximo
+        synchronized (this) {
+            if (entradaListaEsperaRepository.countByPacienteIdAndEstadoIn(dto.pacienteId(), ESTADOS_ACTIVOS)
+                    >= maximoActivasPorPaciente) {
+                throw new IllegalArgumentException("Ya tiene " + maximoActivasPorPaciente
+                        + " solicitudes activas en la lista de espera");
+            }
+            guardada = nuevaTransaccion.execute(status -> entradaListaEsperaRepository.save(entrada));
+        }
+
+        indexar(guardada);
+        log.info("Paciente {} registrado en lista de espera (entrada {})", dto.pacienteId(), guardada.getId());
+        return aDTO(guardada);
+    }
+
+    @Override
+    public List<EntradaListaEsperaDTO> obtenerPorPaciente(String pacienteId) {
+        return entradaListaEsperaRepository.findByPacienteIdOrderByCreadaEnDesc(pacienteId).stream()
+                .map(ServiciosListaEsperaImpl::aDTO)
+                .toList();
+    }
+
+    @Override
+    public void retirar(Long entradaId, String pacienteId) {
+        // La entrada de otro paciente se trata como inexistente para no revelar que existe
+        EntradaListaEspera entrada = entradaListaEsperaRepository.findById(entradaId)
+                .filter(e -> e.getPacienteId().equals(pacienteId))
+                .orElseThrow(() -> new IllegalArgumentException("Entrada de lista de espera no encontrada"));
+        if (entrada.getEstado() != EstadoListaEspera.ESPERANDO && entrada.getEstado() != EstadoListaEspera.OFERTADA) {
+            throw new IllegalArgumentException("La entrada ya no está en la lista de espera");
+        }
+
+        indice.quitar(entradaId);
+        Oferta oferta = entrada.getOfertaToken() != null ? ofertas.remove(entrada.getOfertaToken()) : null;
+        entrada.setEstado(EstadoListaEspera.RETIRADA);
+        limpiarOferta(entrada);
+        nuevaTransaccion.executeWithoutResult(status -> entradaListaEsperaRepository.save(entrada));
+
+        if (oferta != null) {
+            reservasTemporales.liberar(oferta.token());
+            ofrecerHueco(oferta.doctorId(), oferta.fechaHora(), oferta.duracionMinutos(), oferta.excluidas());
+        }
+    }
+
+    @Override
+    public EntradaListaEsperaDTO aceptarOferta(String tokenOferta) {
+        Oferta oferta = ofertas.remove(tokenOferta);
+        if (oferta == null) {
+            throw new IllegalArgumentException("La oferta no existe o ya expiró");
+        }
+        EntradaListaEspera entrada = entradaListaEsperaRepository.findById(oferta.entradaId())
+                .orElseThrow(() -> new IllegalArgumentException("Entrada de lista de espera no encontrada"));
+
+        Cita cita;
+        try {
+            cita = serviciosCitas.crearCita(new CrearCitaDTO(entrada.getPacienteId(), oferta.doctorId(),
+                    oferta.fechaHora().toLocalDate(), oferta.fechaHora().toLocalTime(), entrada.getTipoCitaId()),
+                    tokenOferta);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo crear la cita de la oferta {}: {}", tokenOferta, e.getMessage());
+            terminarOferta(oferta);
+            throw e;
+        }
+
+        entrada.setEstado(EstadoListaEspera.ATENDIDA);
+        entrada.setCitaId(cita.getId());
+        limpiarOferta(entrada);
+        EntradaListaEspera guardada = nuevaTransaccion.execute(status -> entradaListaEsperaRepository.save(entrada));
+        log.info("Oferta de lista de espera aceptada: entrada {}, cita {}", entrada.getId(), cita.getId());
+        return aDTO(guardada);
+    }
+
+    @Override
+    public void rechazarOferta(String tokenOferta) {
+        Oferta oferta = ofertas.remove(tokenOferta);
+        if (oferta == null) {
+            throw new IllegalArgumentException("La oferta no existe o ya expiró");
+        }
+        terminarOferta(oferta);
+    }
+
+    /**
+     * Ofrece el horario que deja libre una cita cancelada o reprogramada.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        if (indice.tamano() == 0) {
+            return;
+        }
+        String doctorId;
+        Instant liberada;
+        if (evento.doctorIdAnterior() != null || evento.fechaHoraAnterior() != null) {
+            doctorId = evento.doctorOriginal();
+            liberada = evento.fechaHoraOriginal();
+        } else if (evento.estado() == EstadoCitas.CANCELADA) {
+            doctorId = evento.doctorId();
+            liberada = evento.fechaHora();
+        } else {
+            return;
+        }
+        if (doctorId == null) {
+            return;
+        }
+
+        // La cancelación ya se confirmó: un error aquí no debe llegar a quien canceló
+        try {
+            ofrecerHueco(doctorId, LocalDateTime.ofInstant(liberada, ZoneId.systemDefault()),
+                    evento.duracionMinutos() != null ? evento.duracionMinutos() : INTERVALO_MINUTOS, Set.of());
+        } catch (RuntimeException e) {
+            log.error("Error ofreciendo a la lista de espera el horario liberado por la cita {}", evento.citaId(), e);
+        }
+    }
+
+    /**
+     * Las ofertas que no se respondieron a tiempo pasan al siguiente de la lista.
+     */
+    @Scheduled(fixedDelayString = "${citas.lista-espera.barrido-ms:30000}")
+    public void vencerOfertas() {
+        Instant ahora = Instant.now();
+        for (Oferta oferta : List.copyOf(ofertas.values())) {
+            if (oferta.expiraEn().isBefore(ahora) && ofertas.remove(oferta.token(), oferta)) {
+                log.debug("Oferta {} de la entrada {} vencida", oferta.token(), oferta.entradaId());
+                terminarOferta(oferta);
+            }
+        }
+    }
+
+    /**
+     * Cierra las solicitudes cuyo rango de fechas ya pasó y descarta esos días del índice.
+     */
+    @Scheduled(cron = "${citas.lista-espera.cron-vencimiento:0 5 0 * * *}")
+    public void vencerSolicitudes() {
+        LocalDate hoy = LocalDate.now();
+        Integer vencidas = nuevaTransaccion.execute(status -> entradaListaEsperaRepository.vencerAnterioresA(hoy,
+                EstadoListaEspera.ESPERANDO, EstadoListaEspera.VENCIDA));
+        indice.descartarAntesDe(hoy);
+        log.info("Lista de espera: {} solicitudes vencidas", vencidas);
+    }
+
+    /**
+     * Busca la solicitud más antigua que acepte el horario y se lo ofrece. Si la elegida ya no está
+     * en espera (por ejemplo, se retiró mientras tanto) se intenta con la siguiente.
+     *
+     * @param excluidas Entradas a las que ya se les ofreció este horario
+     */
+    private synchronized void ofrecerHueco(String doctorId, LocalDateTime inicio, int duracionMinutos,
+                                           Set<Long> excluidas) {
+        if (!inicio.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        List<String> colas = new ArrayList<>();
+        colas.add(IndiceListaEspera.colaDoctor(doctorId));
+        directorioEspecialidades.obtenerEspecialidadesDeDoctor(doctorId)
+                .forEach(especialidadId -> colas.add(IndiceListaEspera.colaEspecialidad(especialidadId)));
+        LocalDate fecha = inicio.toLocalDate();
+
+        while (true) {
+            Optional<IndiceListaEspera.Coincidencia> coincidencia = indice.buscar(colas, fecha, inicio.toLocalTime(),
+                    duracionMinutos, c -> !excluidas.contains(c.candidato().entradaId())
+                            && horarioLibre(doctorId, fecha, c.hora(), c.candidato().duracionMinutos()));
+            if (coincidencia.isEmpty()) {
+                log.debug("Ninguna solicitud de la lista de espera acepta el horario {} del doctor {}", inicio, doctorId);
+                return;
+            }
+            IndiceListaEspera.Candidato candidato = coincidencia.get().candidato();
+            indice.quitar(candidato.entradaId());
+            if (ofrecer(candidato.entradaId(), doctorId, fecha.atTime(coincidencia.get().hora()),
+                    candidato.duracionMinutos(), excluidas)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Aparta el horario para la entrada y le avisa al paciente.
+     *
+     * @return false si la entrada ya no estaba en espera y hay que buscar otra
+     */
+    private boolean ofrecer(Long entradaId, String doctorId, LocalDateTime fechaHora, int duracionMinutos,
+                            Set<Long> excluidas) {
+        EntradaListaEspera entrada = entradaListaEsperaRepository.findById(entradaId).orElse(null);
+        if (entrada == null || entrada.getEstado() != EstadoListaEspera.ESPERANDO) {
+            return false;
+        }
+
+        ReservaTemporalDTO reserva;
+        try {
+            reserva = reservasTemporales.reservar(doctorId, fechaHora.toLocalDate(), fechaHora.toLocalTime(),
+                    duracionMinutos, ofertaMinutos * 60);
+        } catch (HorarioOcupadoException e) {
+            // Otro usuario apartó el horario mientras tanto: la entrada sigue esperando
+            indexar(entrada);
+            return true;
+        }
+
+        entrada.setEstado(EstadoListaEspera.OFERTADA);
+        entrada.setOfertaToken(reserva.token());
+        entrada.setOfertaDoctorId(doctorId);
+        entrada.setOfertaFechaHora(fechaHora.atZone(ZoneId.systemDefault()).toInstant());
+        entrada.setOfertaExpiraEn(reserva.expiraEn());
+        nuevaTransaccion.executeWithoutResult(status -> entradaListaEsperaRepository.save(entrada));
+
+        Set<Long> yaOfrecidas = new HashSet<>(excluidas);
+        yaOfrecidas.add(entradaId);
+        ofertas.put(reserva.token(), new Oferta(reserva.token(), entradaId, doctorId, fechaHora, duracionMinutos,
+                reserva.expiraEn(), Set.copyOf(yaOfrecidas)));
+
+        notificarOferta(entrada, doctorId, fechaHora, reserva.token());
+        log.info("Horario {} del doctor {} ofrecido a la entrada {} de la lista de espera", fechaHora, doctorId, entradaId);
+        return true;
+    }
+
+    /**
+     * Libera el horario de una oferta que no se aceptó, devuelve la entrada a la espera
+     * y ofrece el horario a la siguiente solicitud.
+     */
+    private synchronized void terminarOferta(Oferta oferta) {
+        reservasTemporales.liberar(oferta.token());
+        entradaListaEsperaRepository.findById(oferta.entradaId())
+                .filter(entrada -> entrada.getEstado() == EstadoListaEspera.OFERTADA)
+                .ifPresent(entrada -> {
+                    entrada.setEstado(EstadoListaEspera.ESPERANDO);
+                    limpiarOferta(entrada);
+                    nuevaTransaccion.executeWithoutResult(status -> entradaListaEsperaRepository.save(entrada));
+                    indexar(entrada);
+                });
+        ofrecerHueco(oferta.doctorId(), oferta.fechaHora(), oferta.duracionMinutos(), oferta.excluidas());
+    }
+
+    private void notificarOferta(EntradaListaEspera entrada, String doctorId, LocalDateTime fechaHora, String token) {
+        try {
+            User paciente = userRepository.findByIdNumber(entrada.getPacienteId()).orElseThrow();
+            User doctor = userRepository.findByIdNumber(doctorId).orElseThrow();
+            emailService.enviarCorreoOfertaListaEspera(paciente.getAccount().getEmail(),
+                    doctor.getName() + " " + doctor.getLastName(), fechaHora, token, ofertaMinutos);
+        } catch (Exception e) {
+            log.warn("No se pudo enviar el correo de la oferta {}: {}", token, e.getMessage());
+        }
+    }
+
+    private void indexar(EntradaListaEspera entrada) {
+        LocalDate hoy = LocalDate.now();
+        LocalDate desde = entrada.getFechaDesde().isBefore(hoy) ? hoy : entrada.getFechaDesde();
+        if (desde.isAfter(entrada.getFechaHasta())) {
+            return;
+        }
+        String cola = entrada.getDoctorId() != null
+                ? IndiceListaEspera.colaDoctor(entrada.getDoctorId())
+                : IndiceListaEspera.colaEspecialidad(entrada.getEspecialidadId());
+        indice.agregar(new IndiceListaEspera.Candidato(entrada.getId(), entrada.getCreadaEn(), entrada.getDuracionMinutos()),
+                cola, desde, entrada.getFechaHasta(), entrada.getHoraDesde(), entrada.getHoraHasta());
+    }
+
+    private boolean horarioLibre(String doctorId, LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        return fecha.atTime(hora).isAfter(LocalDateTime.now())
+                && serviciosDisponibilidadDoctor.validarHorarioLibre(doctorId, fecha, hora, duracionMinutos, null)
+                && !reservasTemporales.estaReservado(doctorId, fecha, hora, duracionMinutos, null);
+    }
+
+    private static void limpiarOferta(EntradaListaEspera entrada) {
+        entrada.setOfertaToken(null);
+        entrada.setOfertaDoctorId(null);
+        entrada.setOfertaFechaHora(null);
+        entrada.setOfertaExpiraEn(null);
+    }
+
+    private static EntradaListaEsperaDTO aDTO(EntradaListaEspera entrada) {
+        return new EntradaListaEsperaDTO(
+                entrada.getId(),
+                entrada.getPacienteId(),
+                entrada.getDoctorId(),
+                entrada.getEspecialidadId(),
+                entrada.getTipoCitaId(),
+                entrada.getFechaDesde(),
+                entrada.getFechaHasta(),
+                entrada.getHoraDesde(),
+                entrada.getHoraHasta(),
+                entrada.getEstado(),
+                entrada.getOfertaDoctorId(),
+                entrada.getOfertaFechaHora() != null
+                        ? LocalDateTime.ofInstant(entrada.getOfertaFechaHora(), ZoneId.systemDefault())
+                        : null,
+                entrada.getOfertaExpiraEn(),
+                entrada.getCitaId());
+    }
+
+    /**
+     * Horario apartado para una entrada mientras decide.
+     *
+     * @param excluidas Entradas a las que ya se les ofreció este horario, incluida la actual
+     */
+    private record Oferta(String token, Long entradaId, String doctorId, LocalDateTime fechaHora, int duracionMinutos,
+                          Instant expiraEn, Set<Long> excluidas) {
+    }
+}
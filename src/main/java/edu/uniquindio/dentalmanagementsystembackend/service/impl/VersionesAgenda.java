@@ -0,0 +1,90 @@
+package edu.uniquindio.dentalmanagementsystembackend.service.impl;
+
+import edu.uniquindio.dentalmanagementsystembackend.event.CitaModificadaEvent;
+import edu.uniquindio.dentalmanagementsystembackend.event.DisponibilidadModificadaEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de versión por doctor y por paciente, usados como ETag de los listados de citas,
+ * de la agenda y de la disponibilidad. Cada cambio confirmado de una cita, de un horario semanal
+ * o de una reserva temporal incrementa el contador, de modo que un cliente con la versión vigente
+ * recibe 304 sin que se consulte la base de datos.
+ *
+ * <p>Los contadores viven en memoria y vuelven a cero al reiniciar la aplicación; el ETag incluye
+ * el momento de arranque para que una versión de una ejecución anterior nunca coincida.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class VersionesAgenda {
+
+    // Se obtiene al usarse porque las reservas temporales dependen a su vez de estas versiones
+    private final ObjectProvider<ReservasTemporales> reservasTemporales;
+
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, AtomicLong> porDoctor = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> porPaciente = new ConcurrentHashMap<>();
+
+    /**
+     * ETag de las citas, la agenda y la disponibilidad de un doctor. Antes de leer la versión se
+     * descartan las reservas temporales ya vencidas, de modo que un horario que se liberó por
+     * expiración cambie el ETag en ese mismo momento y no cuando pase el barrido.
+     */
+    public String etagDoctor(String doctorId) {
+        reservasTemporales.getObject().descartarVencidas();
+        return "d-" + arranque + "-" + version(porDoctor, doctorId);
+    }
+
+    /**
+     * ETag de las citas de un paciente (autenticado o no, según su número de identificación).
+     */
+    public String etagPaciente(String pacienteId) {
+        return "p-" + arranque + "-" + version(porPaciente, pacienteId);
+    }
+
+    public void incrementarDoctor(String doctorId) {
+        incrementar(porDoctor, doctorId);
+    }
+
+    public void incrementarPaciente(String pacienteId) {
+        incrementar(porPaciente, pacienteId);
+    }
+
+    /**
+     * Se incrementa al confirmar la transacción: si se hiciera antes, un cliente podría leer
+     * los datos viejos con la versión nueva y no volver a pedirlos.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarCita(CitaModificadaEvent evento) {
+        incrementarDoctor(evento.doctorId());
+        if (!Objects.equals(evento.doctorOriginal(), evento.doctorId())) {
+            incrementarDoctor(evento.doctorOriginal());
+        }
+        incrementarPaciente(evento.pacienteId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alModificarDisponibilidad(DisponibilidadModificadaEvent evento) {
+        incrementarDoctor(evento.doctorId());
+    }
+
+    private static long version(Map<String, AtomicLong> versiones, String id) {
+        AtomicLong version = id != null ? versiones.get(id) : null;
+        return version != null ? version.get() : 0;
+    }
+
+    private static void incrementar(Map<String, AtomicLong> versiones, String id) {
+        if (id != null) {
+            versiones.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaCompilada.Literal;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaCompilada.Seccion;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaCompilada.Segmento;
+import edu.uniquindio.dentalmanagementsystembackend.util.PlantillaCompilada.Variable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compila plantillas con una sintaxis mínima al estilo Mustache:
+ * <ul>
+ *     <li>{@code {{nombre}}}: valor escapado para HTML; {@code {{{nombre}}}}: valor tal cual;</li>
+ *     <li>{@code {{#lista}}...{{/lista}}}: sección que se repite por elemento ({@code {{.}}} es el elemento);</li>
+ *     <li>{@code {{> parcial}}}: incluye otra plantilla;</li>
+ *     <li>{@code {{< layout}}}: la plantilla se inserta en el {@code {{$contenido}}} del layout;</li>
+ *     <li>{@code {{! comentario}}}: se descarta.</li>
+ * </ul>
+ * Los parciales y el layout se incorporan al compilar, y los textos fijos contiguos se unen en uno solo.
+ */
+public class CompiladorPlantillas {
+
+    private static final String RANURA_CONTENIDO = "contenido";
+    private static final int PROFUNDIDAD_MAXIMA = 10;
+
+    // Fuente de un parcial o layout por nombre, o null si no existe
+    private final Function<String, String> fuentes;
+
+    public CompiladorPlantillas(Function<String, String> fuentes) {
+        this.fuentes = fuentes;
+    }
+
+    /**
+     * @throws IllegalArgumentException si la plantilla está mal formada o usa un parcial que no existe
+     */
+    public PlantillaCompilada compilar(String fuente) {
+        return new PlantillaCompilada(compilar(fuente, null, 0));
+    }
+
+    private List<Segmento> compilar(String fuente, List<Segmento> contenido, int profundidad) {
+        if (profundidad > PROFUNDIDAD_MAXIMA) {
+            throw new IllegalArgumentException("Demasiados parciales anidados (¿un parcial se incluye a sí mismo?)");
+        }
+
+        Deque<Marco> marcos = new ArrayDeque<>();
+        marcos.push(new Marco(null));
+        String layout = null;
+        StringBuilder texto = new StringBuilder();
+
+        int posicion = 0;
+        while (posicion < fuente.length()) {
+            int apertura = fuente.indexOf("{{", posicion);
+            if (apertura < 0) {
+                texto.append(fuente, posicion, fuente.length());
+                break;
+            }
+            texto.append(fuente, posicion, apertura);
+
+            boolean triple = fuente.startsWith("{{{", apertura);
+            String cierre = triple ? "}}}" : "}}";
+            int inicioEtiqueta = apertura + (triple ? 3 : 2);
+            int fin = fuente.indexOf(cierre, inicioEtiqueta);
+            if (fin < 0) {
+                throw new IllegalArgumentException("Etiqueta sin cerrar en la posición " + apertura);
+            }
+            String etiqueta = fuente.substring(inicioEtiqueta, fin).trim();
+            posicion = fin + cierre.length();
+
+            if (etiqueta.isEmpty()) {
+                throw new IllegalArgumentException("Etiqueta vacía en la posición " + apertura);
+            }
+            if (triple) {
+                agregar(marcos.peek().segmentos, texto, new Variable(etiqueta, false));
+                continue;
+            }
+
+            char tipo = etiqueta.charAt(0);
+            String nombre = etiqueta.substring(1).trim();
+            switch (tipo) {
+                case '!' -> {
+                    // Comentario
+                }
+                case '<' -> {
+                    if (layout != null) {
+                        throw new IllegalArgumentException("La plantilla declara más de un layout");
+                    }
+                    layout = nombre;
+                }
+                case '>' -> {
+                    for (Segmento segmento : compilar(fuente(nombre), contenido, profundidad + 1)) {
+                        agregar(marcos.peek().segmentos, texto, segmento);
+                    }
+                }
+                case '$' -> {
+                    if (!nombre.equals(RANURA_CONTENIDO) || contenido == null) {
+                        throw new IllegalArgumentException("Ranura {{$" + nombre + "}} fuera de un layout");
+                    }
+                    for (Segmento segmento : contenido) {
+                        agregar(marcos.peek().segmentos, texto, segmento);
+                    }
+                }
+                case '#' -> {
+                    cerrarTexto(marcos.peek().segmentos, texto);
+                    marcos.push(new Marco(nombre));
+                }
+                case '/' -> {
+                    Marco marco = marcos.pop();
+                    if (!nombre.equals(marco.seccion)) {
+                        throw new IllegalArgumentException("Se cerró {{/" + nombre + "}} pero estaba abierta "
+                                + (marco.seccion == null ? "ninguna sección" : "{{#" + marco.seccion + "}}"));
+                    }
+                    cerrarTexto(marco.segmentos, texto);
+                    marcos.peek().segmentos.add(new Seccion(marco.seccion, marco.segmentos));
+                }
+                default -> agregar(marcos.peek().segmentos, texto, new Variable(etiqueta, true));
+            }
+        }
+
+        if (marcos.size() > 1) {
+            throw new IllegalArgumentException("Falta cerrar la sección {{#" + marcos.peek().seccion + "}}");
+        }
+        List<Segmento> segmentos = marcos.pop().segmentos;
+        cerrarTexto(segmentos, texto);
+
+        if (layout == null) {
+            return segmentos;
+        }
+        return compilar(fuente(layout), segmentos, profundidad + 1);
+    }
+
+    private String fuente(String nombre) {
+        String fuente = fuentes.apply(nombre);
+        if (fuente == null) {
+            throw new IllegalArgumentException("No existe el parcial o layout '" + nombre + "'");
+        }
+        return fuente;
+    }
+
+    /**
+     * Agrega el segmento después del texto pendiente; los textos fijos se acumulan para unirlos en uno solo.
+     */
+    private static void agregar(List<Segmento> segmentos, StringBuilder texto, Segmento segmento) {
+        if (segmento instanceof Literal literal) {
+            texto.append(literal.texto);
+            return;
+        }
+        cerrarTexto(segmentos, texto);
+        segmentos.add(segmento);
+    }
+
+    private static void cerrarTexto(List<Segmento> segmentos, StringBuilder texto) {
+        if (!texto.isEmpty()) {
+            segmentos.add(new Literal(texto.toString()));
+            texto.setLength(0);
+        }
+    }
+
+    /**
+     * Sección abierta mientras se compila; la raíz no tiene nombre.
+     */
+    private static final class Marco {
+
+        private final String seccion;
+        private final List<Segmento> segmentos = new ArrayList<>();
+
+        private Marco(String seccion) {
+            this.seccion = seccion;
+        }
+    }
+}
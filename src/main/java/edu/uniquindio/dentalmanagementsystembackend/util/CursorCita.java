@@ -0,0 +1,40 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de la última cita entregada en un listado paginado por (fechaHora, id).
+ * Viaja al cliente como texto opaco; la siguiente página empieza justo después de esta cita.
+ */
+public record CursorCita(Instant fechaHora, Long id) {
+
+    private static final char SEPARADOR = '_';
+
+    /**
+     * Convierte el cursor en el texto que se envía al cliente.
+     */
+    public String codificar() {
+        String valor = fechaHora.toString() + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reconstruye un cursor recibido del cliente.
+     *
+     * @throws IllegalArgumentException si el texto no es un cursor válido
+     */
+    public static CursorCita decodificar(String texto) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(texto), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf(SEPARADOR);
+            return new CursorCita(
+                    Instant.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+}
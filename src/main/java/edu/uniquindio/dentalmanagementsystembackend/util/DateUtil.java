@@ -3,6 +3,7 @@ package edu.uniquindio.dentalmanagementsystembackend.util;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -52,4 +53,16 @@ public class DateUtil {
         LocalDateTime fechaHoraLocal = LocalDateTime.parse(fechaHoraStr, FORMATO_FECHA_HORA);
         return fechaHoraLocal.atZone(ZONA_BOGOTA).toInstant();
     }
+
+    /**
+     * Convierte un Instant al valor que se escribe con JDBC en una columna DATETIME. Hibernate guarda
+     * los Instant como fecha y hora UTC, así que las inserciones directas deben hacer lo mismo para que
+     * las filas coincidan con las que escribe JPA sin importar la zona horaria de la JVM.
+     *
+     * @param instant El Instant a guardar
+     * @return Fecha y hora UTC sin zona
+     */
+    public static LocalDateTime aFechaHoraUtc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,131 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disponibilidad de un doctor para un día concreto, representada con dos bitmaps por minuto:
+ * uno con los minutos laborables (según su horario) y otro con los minutos ocupados por citas.
+ * Se conserva además el intervalo de cada cita para poder liberarla sin recalcular el día completo.
+ * Cada cita ocupa su duración real, de modo que una consulta de 90 minutos bloquea todos los
+ * horarios con los que se cruza y no solo el de su hora de inicio.
+ */
+public class DiaDisponibilidad {
+
+    /**
+     * Ventana de atención del doctor dentro del día.
+     */
+    public record Ventana(LocalTime inicio, LocalTime fin, int intervaloMinutos) {
+
+        /**
+         * Horas de inicio en las que cabe completa, dentro de la ventana, una cita de la duración
+         * indicada, avanzando según el intervalo de la ventana.
+         */
+        public List<LocalTime> horasDeInicio(int duracionMinutos) {
+            List<LocalTime> horas = new ArrayList<>();
+            int finVentana = MapaOcupacion.minutoDelDia(fin);
+            int paso = Math.max(intervaloMinutos, 1);
+            for (int minuto = MapaOcupacion.minutoDelDia(inicio); minuto + duracionMinutos <= finVentana; minuto += paso) {
+                horas.add(LocalTime.of(minuto / 60, minuto % 60));
+            }
+            return horas;
+        }
+    }
+
+    private final List<Ventana> ventanas;
+    private final BitSet laborable = new BitSet(MapaOcupacion.MINUTOS_DIA);
+    private final BitSet ocupado = new BitSet(MapaOcupacion.MINUTOS_DIA);
+    private final Map<Long, int[]> intervalosPorCita = new HashMap<>();
+
+    public DiaDisponibilidad(List<Ventana> ventanas) {
+        this.ventanas = List.copyOf(ventanas);
+        for (Ventana ventana : this.ventanas) {
+            laborable.set(MapaOcupacion.minutoDelDia(ventana.inicio()), MapaOcupacion.minutoDelDia(ventana.fin()));
+        }
+    }
+
+    public List<Ventana> getVentanas() {
+        return ventanas;
+    }
+
+    /**
+     * Marca como ocupado el intervalo de una cita. Si la cita ya estaba registrada se reemplaza.
+     */
+    public synchronized void ocupar(Long citaId, LocalTime hora, int duracionMinutos) {
+        liberar(citaId);
+        int desde = MapaOcupacion.minutoDelDia(hora);
+        int hasta = Math.min(desde + duracionMinutos, MapaOcupacion.MINUTOS_DIA);
+        intervalosPorCita.put(citaId, new int[]{desde, hasta});
+        ocupado.set(desde, hasta);
+    }
+
+    /**
+     * Libera el intervalo de una cita. Los minutos compartidos con otras citas siguen ocupados.
+     */
+    public synchronized void liberar(Long citaId) {
+        int[] intervalo = intervalosPorCita.remove(citaId);
+        if (intervalo == null) {
+            return;
+        }
+        ocupado.clear(intervalo[0], intervalo[1]);
+        for (int[] otro : intervalosPorCita.values()) {
+            if (otro[0] < intervalo[1] && intervalo[0] < otro[1]) {
+                ocupado.set(Math.max(otro[0], intervalo[0]), Math.min(otro[1], intervalo[1]));
+            }
+        }
+    }
+
+    /**
+     * Indica si la hora está dentro del horario de atención del doctor.
+     */
+    public synchronized boolean esLaborable(LocalTime hora) {
+        return laborable.get(MapaOcupacion.minutoDelDia(hora));
+    }
+
+    /**
+     * Indica si una cita de la duración indicada puede empezar a la hora dada: todo el intervalo
+     * debe estar dentro del horario de atención y sin cruzarse con otra cita.
+     *
+     * @param citaIgnorada Cita que no se tiene en cuenta (la que se está reprogramando), o null
+     */
+    public synchronized boolean cabe(LocalTime hora, int duracionMinutos, Long citaIgnorada) {
+        int desde = MapaOcupacion.minutoDelDia(hora);
+        int hasta = desde + duracionMinutos;
+        if (hasta > MapaOcupacion.MINUTOS_DIA || laborable.nextClearBit(desde) < hasta) {
+            return false;
+        }
+        int[] propio = citaIgnorada != null ? intervalosPorCita.get(citaIgnorada) : null;
+        if (propio == null || propio[1] <= desde || hasta <= propio[0]) {
+            return estaLibre(hora, duracionMinutos);
+        }
+        // El intervalo se cruza con la propia cita: se revisan solo las demás citas del día
+        for (Map.Entry<Long, int[]> otra : intervalosPorCita.entrySet()) {
+            int[] intervalo = otra.getValue();
+            if (!otra.getKey().equals(citaIgnorada) && intervalo[0] < hasta && desde < intervalo[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si el intervalo [hora, hora + duracionMinutos) no tiene ningún minuto ocupado.
+     */
+    public synchronized boolean estaLibre(LocalTime hora, int duracionMinutos) {
+        int desde = MapaOcupacion.minutoDelDia(hora);
+        int siguienteOcupado = ocupado.nextSetBit(desde);
+        return siguienteOcupado < 0 || siguienteOcupado >= desde + duracionMinutos;
+    }
+
+    public synchronized BitSet copiaOcupacion() {
+        return (BitSet) ocupado.clone();
+    }
+
+    public synchronized BitSet copiaLaborable() {
+        return (BitSet) laborable.clone();
+    }
+}
@@ -0,0 +1,183 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Índice en memoria de la lista de espera. Cada solicitud se registra en cada horario de inicio
+ * (fecha y hora sobre una grilla fija) en el que le serviría una cita, dentro de la cola de su doctor
+ * o de su especialidad. Así, cuando se libera un horario basta con mirar el primero de unas pocas colas
+ * ordenadas por antigüedad, sin recorrer toda la lista de espera.
+ */
+public class IndiceListaEspera {
+
+    /**
+     * Solicitud en espera tal como se guarda en el índice.
+     */
+    public record Candidato(Long entradaId, Instant creadaEn, int duracionMinutos) {
+    }
+
+    // El que lleva más tiempo esperando va primero
+    private static final Comparator<Candidato> POR_ANTIGUEDAD =
+            Comparator.comparing(Candidato::creadaEn).thenComparing(Candidato::entradaId);
+
+    private record Hueco(String cola, LocalTime hora) {
+    }
+
+    private record Ubicacion(LocalDate fecha, Hueco hueco) {
+    }
+
+    private record Registro(Candidato candidato, List<Ubicacion> ubicaciones) {
+    }
+
+    private final int intervaloMinutos;
+    private final TreeMap<LocalDate, Map<Hueco, TreeSet<Candidato>>> porFecha = new TreeMap<>();
+    private final Map<Long, Registro> porEntrada = new HashMap<>();
+
+    /**
+     * @param intervaloMinutos Separación de la grilla de horarios de inicio
+     */
+    public IndiceListaEspera(int intervaloMinutos) {
+        this.intervaloMinutos = intervaloMinutos;
+    }
+
+    /**
+     * Cola de las solicitudes para un doctor específico.
+     */
+    public static String colaDoctor(String doctorId) {
+        return "d:" + doctorId;
+    }
+
+    /**
+     * Cola de las solicitudes para cualquier doctor de una especialidad.
+     */
+    public static String colaEspecialidad(Long especialidadId) {
+        return "e:" + especialidadId;
+    }
+
+    /**
+     * Registra la solicitud en cada horario de inicio de la grilla en el que una cita de su duración
+     * cabe dentro de la franja [horaDesde, horaHasta], para cada día de [fechaDesde, fechaHasta].
+     * Si la solicitud ya estaba registrada, se reemplaza.
+     */
+    public synchronized void agregar(Candidato candidato, String cola, LocalDate fechaDesde, LocalDate fechaHasta,
+                                     LocalTime horaDesde, LocalTime horaHasta) {
+        quitar(candidato.entradaId());
+
+        int minutoFin = minutoDelDia(horaHasta);
+        int primerInicio = (minutoDelDia(horaDesde) + intervaloMinutos - 1) / intervaloMinutos * intervaloMinutos;
+        List<Ubicacion> ubicaciones = new ArrayList<>();
+        for (LocalDate fecha = fechaDesde; !fecha.isAfter(fechaHasta); fecha = fecha.plusDays(1)) {
+            Map<Hueco, TreeSet<Candidato>> huecos = porFecha.computeIfAbsent(fecha, f -> new HashMap<>());
+            for (int inicio = primerInicio; inicio + candidato.duracionMinutos() <= minutoFin; inicio += intervaloMinutos) {
+                Hueco hueco = new Hueco(cola, LocalTime.ofSecondOfDay(inicio * 60L));
+                huecos.computeIfAbsent(hueco, h -> new TreeSet<>(POR_ANTIGUEDAD)).add(candidato);
+                ubicaciones.add(new Ubicacion(fecha, hueco));
+            }
+        }
+        porEntrada.put(candidato.entradaId(), new Registro(candidato, ubicaciones));
+    }
+
+    /**
+     * Quita la solicitud de todas las colas en las que estaba registrada.
+     */
+    public synchronized void quitar(Long entradaId) {
+        Registro registro = porEntrada.remove(entradaId);
+        if (registro == null) {
+            return;
+        }
+        for (Ubicacion ubicacion : registro.ubicaciones()) {
+            Map<Hueco, TreeSet<Candidato>> huecos = porFecha.get(ubicacion.fecha());
+            if (huecos == null) {
+                continue;
+            }
+            TreeSet<Candidato> candidatos = huecos.get(ubicacion.hueco());
+            if (candidatos != null) {
+                candidatos.remove(registro.candidato());
+                if (candidatos.isEmpty()) {
+                    huecos.remove(ubicacion.hueco());
+                }
+            }
+            if (huecos.isEmpty()) {
+                porFecha.remove(ubicacion.fecha());
+            }
+        }
+    }
+
+    /**
+     * Busca la solicitud más antigua que acepte un horario liberado en [inicio, inicio + duracionMinutos).
+     * Se revisan los horarios de inicio de la grilla dentro del intervalo y, en cada uno, solo las colas
+     * indicadas; en cada cola se toman las solicitudes en orden hasta la primera que {@code acepta}.
+     *
+     * @param colas Colas que pueden ocupar el horario (la del doctor y las de sus especialidades)
+     * @param acepta Verifica que el horario realmente le sirva a la solicitud (por ejemplo, que su cita quepa)
+     * @return La solicitud elegida y la hora a la que se le ofrece el horario
+     */
+    public synchronized Optional<Coincidencia> buscar(Collection<String> colas, LocalDate fecha, LocalTime inicio,
+                                                      int duracionMinutos, Predicate<Coincidencia> acepta) {
+        Map<Hueco, TreeSet<Candidato>> huecos = porFecha.get(fecha);
+        if (huecos == null) {
+            return Optional.empty();
+        }
+
+        Coincidencia mejor = null;
+        int desde = (minutoDelDia(inicio) + intervaloMinutos - 1) / intervaloMinutos * intervaloMinutos;
+        for (int minuto = desde; minuto < minutoDelDia(inicio) + duracionMinutos && minuto < MapaOcupacion.MINUTOS_DIA;
+             minuto += intervaloMinutos) {
+            LocalTime hora = LocalTime.ofSecondOfDay(minuto * 60L);
+            for (String cola : colas) {
+                TreeSet<Candidato> candidatos = huecos.get(new Hueco(cola, hora));
+                if (candidatos == null) {
+                    continue;
+                }
+                for (Candidato candidato : candidatos) {
+                    // Los siguientes de la cola son más recientes que el mejor que ya se tiene
+                    if (mejor != null && POR_ANTIGUEDAD.compare(candidato, mejor.candidato()) >= 0) {
+                        break;
+                    }
+                    Coincidencia coincidencia = new Coincidencia(candidato, hora);
+                    if (acepta.test(coincidencia)) {
+                        mejor = coincidencia;
+                        break;
+                    }
+                }
+            }
+        }
+        return Optional.ofNullable(mejor);
+    }
+
+    /**
+     * Descarta los días anteriores a la fecha indicada, que ya no se pueden ofrecer.
+     */
+    public synchronized void descartarAntesDe(LocalDate fecha) {
+        porFecha.headMap(fecha).clear();
+    }
+
+    /**
+     * Cantidad de solicitudes registradas.
+     */
+    public synchronized int tamano() {
+        return porEntrada.size();
+    }
+
+    /**
+     * Solicitud elegida para un horario liberado.
+     */
+    public record Coincidencia(Candidato candidato, LocalTime hora) {
+    }
+
+    private static int minutoDelDia(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+}
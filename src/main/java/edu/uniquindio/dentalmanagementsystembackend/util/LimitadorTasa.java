@@ -0,0 +1,79 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+/**
+ * Cubeta de fichas: se llena a {@code fichasPorSegundo} hasta {@code capacidad}, y cada envío consume una.
+ * La capacidad permite ráfagas cortas y la tasa de llenado fija el ritmo sostenido.
+ * Se puede pausar por un tiempo, por ejemplo cuando el servidor pide bajar el ritmo.
+ */
+public class LimitadorTasa {
+
+    private final double capacidad;
+    private final double fichasPorNano;
+
+    private double fichas;
+    private long ultimoLlenado;
+    private long pausadoHasta;
+
+    public LimitadorTasa(double fichasPorSegundo, int capacidad) {
+        if (fichasPorSegundo <= 0 || capacidad < 1) {
+            throw new IllegalArgumentException("La tasa debe ser positiva y la capacidad de al menos una ficha");
+        }
+        this.capacidad = capacidad;
+        this.fichasPorNano = fichasPorSegundo / 1_000_000_000.0;
+        this.fichas = capacidad;
+        this.ultimoLlenado = System.nanoTime();
+        this.pausadoHasta = ultimoLlenado;
+    }
+
+    /**
+     * Consume una ficha si hay disponible.
+     *
+     * @return 0 si se consumió la ficha, o los nanosegundos que faltan para que haya una
+     */
+    public synchronized long intentarConsumir() {
+        long ahora = System.nanoTime();
+        if (ahora - pausadoHasta < 0) {
+            return pausadoHasta - ahora;
+        }
+        llenar(ahora);
+        if (fichas >= 1) {
+            fichas -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - fichas) / fichasPorNano));
+    }
+
+    /**
+     * Detiene el consumo durante el tiempo indicado y vacía la cubeta, para que al reanudar no salga
+     * de golpe una ráfaga completa.
+     */
+    public synchronized void pausar(long nanos) {
+        long ahora = System.nanoTime();
+        long hasta = ahora + nanos;
+        if (hasta - pausadoHasta > 0) {
+            pausadoHasta = hasta;
+        }
+        fichas = 0;
+        ultimoLlenado = pausadoHasta;
+    }
+
+    /**
+     * Fichas disponibles en este momento (0 mientras está en pausa).
+     */
+    public synchronized double disponibles() {
+        long ahora = System.nanoTime();
+        if (ahora - pausadoHasta < 0) {
+            return 0;
+        }
+        llenar(ahora);
+        return fichas;
+    }
+
+    private void llenar(long ahora) {
+        long transcurrido = ahora - ultimoLlenado;
+        if (transcurrido > 0) {
+            fichas = Math.min(capacidad, fichas + transcurrido * fichasPorNano);
+            ultimoLlenado = ahora;
+        }
+    }
+}
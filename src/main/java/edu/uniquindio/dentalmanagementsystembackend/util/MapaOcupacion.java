@@ -0,0 +1,82 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mapa de ocupación de un doctor construido en memoria a partir de sus citas.
+ * Cada día se representa con un bitmap de 1440 posiciones (una por minuto),
+ * de modo que verificar si un horario está ocupado no requiere consultar la base de datos.
+ */
+public class MapaOcupacion {
+
+    // Cantidad de minutos que tiene un día
+    public static final int MINUTOS_DIA = 24 * 60;
+
+    private final Map<LocalDate, BitSet> ocupacionPorDia = new HashMap<>();
+    private final ZoneId zona;
+
+    public MapaOcupacion(ZoneId zona) {
+        this.zona = zona;
+    }
+
+    /**
+     * Construye un mapa de ocupación marcando cada cita con la misma duración.
+     *
+     * @param inicios Fechas de inicio de las citas
+     * @param duracionMinutos Duración que ocupa cada cita
+     * @param zona Zona horaria en la que se interpretan las fechas
+     * @return Mapa de ocupación con todas las citas marcadas
+     */
+    public static MapaOcupacion desde(Collection<Instant> inicios, int duracionMinutos, ZoneId zona) {
+        MapaOcupacion mapa = new MapaOcupacion(zona);
+        inicios.forEach(inicio -> mapa.marcar(inicio, duracionMinutos));
+        return mapa;
+    }
+
+    /**
+     * Marca como ocupado el intervalo [inicio, inicio + duracionMinutos).
+     * Si el intervalo cruza la medianoche se reparte entre ambos días.
+     */
+    public void marcar(Instant inicio, int duracionMinutos) {
+        LocalDateTime local = LocalDateTime.ofInstant(inicio, zona);
+        LocalDate fecha = local.toLocalDate();
+        int desde = minutoDelDia(local.toLocalTime());
+        int hasta = desde + duracionMinutos;
+
+        while (hasta > desde) {
+            ocupacionPorDia.computeIfAbsent(fecha, f -> new BitSet(MINUTOS_DIA))
+                    .set(desde, Math.min(hasta, MINUTOS_DIA));
+            hasta -= MINUTOS_DIA;
+            desde = 0;
+            fecha = fecha.plusDays(1);
+        }
+    }
+
+    /**
+     * Indica si algún minuto del intervalo [hora, hora + duracionMinutos) está ocupado.
+     */
+    public boolean estaOcupado(LocalDate fecha, LocalTime hora, int duracionMinutos) {
+        BitSet dia = ocupacionPorDia.get(fecha);
+        if (dia == null) {
+            return false;
+        }
+        int desde = minutoDelDia(hora);
+        int siguienteOcupado = dia.nextSetBit(desde);
+        return siguienteOcupado >= 0 && siguienteOcupado < desde + duracionMinutos;
+    }
+
+    /**
+     * Convierte una hora del día a su posición en el bitmap.
+     */
+    public static int minutoDelDia(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+}
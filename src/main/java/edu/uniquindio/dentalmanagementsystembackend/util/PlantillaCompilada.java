@@ -0,0 +1,177 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla ya compilada por {@link CompiladorPlantillas}: una lista plana de segmentos (texto fijo, variables
+ * y secciones) con los parciales y el layout ya incorporados. Renderizarla solo recorre los segmentos y
+ * escribe en un único StringBuilder del tamaño estimado, sin volver a analizar el texto.
+ * Es inmutable, así que una misma instancia se puede renderizar desde varios hilos a la vez.
+ */
+public final class PlantillaCompilada {
+
+    private final Segmento[] segmentos;
+    private final int largoEstimado;
+
+    PlantillaCompilada(List<Segmento> segmentos) {
+        this.segmentos = segmentos.toArray(Segmento[]::new);
+        int largo = 0;
+        for (Segmento segmento : segmentos) {
+            largo += segmento.largoEstimado();
+        }
+        this.largoEstimado = largo;
+    }
+
+    /**
+     * Renderiza la plantilla con los valores indicados. Las variables que no están en el mapa quedan vacías.
+     */
+    public String renderizar(Map<String, ?> valores) {
+        StringBuilder salida = new StringBuilder(largoEstimado);
+        renderizar(valores, salida);
+        return salida.toString();
+    }
+
+    /**
+     * Renderiza la plantilla al final del StringBuilder indicado.
+     */
+    public void renderizar(Map<String, ?> valores, StringBuilder salida) {
+        escribir(segmentos, valores, null, salida);
+    }
+
+    static void escribir(Segmento[] segmentos, Map<String, ?> valores, Object actual, StringBuilder salida) {
+        for (Segmento segmento : segmentos) {
+            segmento.escribir(valores, actual, salida);
+        }
+    }
+
+    /**
+     * Busca el valor de una variable: {@code .} es el elemento actual de la sección; si el elemento es un mapa,
+     * primero se busca en él y luego en los valores de la plantilla.
+     */
+    static Object resolver(String nombre, Map<String, ?> valores, Object actual) {
+        if (nombre.equals(".")) {
+            return actual;
+        }
+        if (actual instanceof Map<?, ?> elemento && elemento.containsKey(nombre)) {
+            return elemento.get(nombre);
+        }
+        return valores.get(nombre);
+    }
+
+    /**
+     * Parte de una plantilla compilada.
+     */
+    abstract static class Segmento {
+
+        abstract void escribir(Map<String, ?> valores, Object actual, StringBuilder salida);
+
+        abstract int largoEstimado();
+    }
+
+    /**
+     * Texto fijo de la plantilla.
+     */
+    static final class Literal extends Segmento {
+
+        final String texto;
+
+        Literal(String texto) {
+            this.texto = texto;
+        }
+
+        @Override
+        void escribir(Map<String, ?> valores, Object actual, StringBuilder salida) {
+            salida.append(texto);
+        }
+
+        @Override
+        int largoEstimado() {
+            return texto.length();
+        }
+    }
+
+    /**
+     * Variable {@code {{nombre}}} (escapada para HTML) o {@code {{{nombre}}}} (tal cual).
+     */
+    static final class Variable extends Segmento {
+
+        private final String nombre;
+        private final boolean escapar;
+
+        Variable(String nombre, boolean escapar) {
+            this.nombre = nombre;
+            this.escapar = escapar;
+        }
+
+        @Override
+        void escribir(Map<String, ?> valores, Object actual, StringBuilder salida) {
+            Object valor = resolver(nombre, valores, actual);
+            if (valor == null) {
+                return;
+            }
+            CharSequence texto = valor instanceof CharSequence cadena ? cadena : valor.toString();
+            if (escapar) {
+                escaparHtml(texto, salida);
+            } else {
+                salida.append(texto);
+            }
+        }
+
+        @Override
+        int largoEstimado() {
+            return 16;
+        }
+
+        // Escribe carácter por carácter, sin crear una cadena intermedia
+        private static void escaparHtml(CharSequence texto, StringBuilder salida) {
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                switch (c) {
+                    case '<' -> salida.append("&lt;");
+                    case '>' -> salida.append("&gt;");
+                    case '&' -> salida.append("&amp;");
+                    case '"' -> salida.append("&quot;");
+                    case '\'' -> salida.append("&#39;");
+                    default -> salida.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sección {@code {{#nombre}}...{{/nombre}}}: se repite por cada elemento si el valor es una colección,
+     * se escribe una vez si es {@code true} y se omite si es nulo, {@code false} o una colección vacía.
+     */
+    static final class Seccion extends Segmento {
+
+        private final String nombre;
+        private final Segmento[] cuerpo;
+
+        Seccion(String nombre, List<Segmento> cuerpo) {
+            this.nombre = nombre;
+            this.cuerpo = cuerpo.toArray(Segmento[]::new);
+        }
+
+        @Override
+        void escribir(Map<String, ?> valores, Object actual, StringBuilder salida) {
+            Object valor = resolver(nombre, valores, actual);
+            if (valor instanceof Iterable<?> elementos) {
+                for (Object elemento : elementos) {
+                    PlantillaCompilada.escribir(cuerpo, valores, elemento, salida);
+                }
+            } else if (Boolean.TRUE.equals(valor)) {
+                PlantillaCompilada.escribir(cuerpo, valores, actual, salida);
+            }
+        }
+
+        @Override
+        int largoEstimado() {
+            int largo = 0;
+            for (Segmento segmento : cuerpo) {
+                largo += segmento.largoEstimado();
+            }
+            return largo;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.uniquindio.dentalmanagementsystembackend.util;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horario semanal activo de un doctor, indexado por día de la semana.
+ * Es inmutable, por lo que puede compartirse entre hilos y guardarse en caché sin copiarse.
+ */
+public final class PlantillaSemanal {
+
+    public static final PlantillaSemanal VACIA = new PlantillaSemanal(new EnumMap<>(DayOfWeek.class));
+
+    private final Map<DayOfWeek, List<DiaDisponibilidad.Ventana>> ventanasPorDia = new EnumMap<>(DayOfWeek.class);
+
+    private PlantillaSemanal(Map<DayOfWeek, List<DiaDisponibilidad.Ventana>> ventanas) {
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            List<DiaDisponibilidad.Ventana> delDia = new ArrayList<>(ventanas.getOrDefault(dia, List.of()));
+            delDia.sort(Comparator.comparing(DiaDisponibilidad.Ventana::inicio));
+            ventanasPorDia.put(dia, List.copyOf(delDia));
+        }
+    }
+
+    /**
+     * Construye la plantilla a partir de las ventanas de cada día.
+     */
+    public static PlantillaSemanal de(Map<DayOfWeek, List<DiaDisponibilidad.Ventana>> ventanas) {
+        return ventanas.isEmpty() ? VACIA : new PlantillaSemanal(ventanas);
+    }
+
+    /**
+     * Ventanas de atención del día, ordenadas por hora de inicio. Nunca es null.
+     */
+    public List<DiaDisponibilidad.Ventana> ventanas(DayOfWeek dia) {
+        return ventanasPorDia.get(dia);
+    }
+
+    /**
+     * Indica si el doctor no atiende ningún día de la semana.
+     */
+    public boolean estaVacia() {
+        for (List<DiaDisponibilidad.Ventana> ventanas : ventanasPorDia.values()) {
+            if (!ventanas.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+package edu.uniquindio.dentalmanagementsystembackend.Citas;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de concurrencia del agendamiento: muchas solicitudes simultáneas por el mismo horario, o por
+ * horarios que se cruzan, deben terminar con una sola cita creada y el resto rechazadas por conflicto de horario.
+ */
+@SpringBootTest
+public class CitasConcurrenciaTest {
+
+    private static final String ID_DOCTOR = "111111111";
+    private static final int HILOS = 40;
+
+    // Tipos de cita de los datos de prueba: consulta general (30 min) y tratamiento de conducto (90 min)
+    private static final long TIPO_CONSULTA_GENERAL = 1L;
+    private static final long TIPO_TRATAMIENTO_CONDUCTO = 4L;
+
+    @Autowired
+    private ServiciosCitas serviciosCitas;
+
+    @Autowired
+    private ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
+
+    @Autowired
+    private CitasRepository citasRepository;
+
+    private final List<Long> citasCreadas = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() {
+        citasRepository.deleteAllById(citasCreadas);
+        serviciosDisponibilidadDoctor.reconstruirIndice(ID_DOCTOR);
+    }
+
+    @Test
+    void soloUnaSolicitudObtieneElHorario() throws Exception {
+        // Un lunes lejano (el doctor atiende lunes de 08:00 a 17:00) para no chocar con otras pruebas
+        LocalDate fecha = LocalDate.now().plusWeeks(40).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        LocalTime hora = LocalTime.of(16, 0);
+
+        List<CrearCitaNoAutenticadaDTO> solicitudes = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            solicitudes.add(solicitud("CONC" + i, fecha, hora, TIPO_CONSULTA_GENERAL));
+        }
+        competir(solicitudes);
+
+        Instant inicio = fecha.atTime(hora).atZone(ZoneId.systemDefault()).toInstant();
+        int citasEnHorario = citasRepository.findOcupacionByDoctor(ID_DOCTOR, inicio, inicio.plusSeconds(60)).size();
+        assertEquals(1, citasEnHorario, "En la base de datos debe quedar una sola cita activa en el horario");
+    }
+
+    @Test
+    void soloUnaDeDosCitasQueSeCruzanConInicioDistinto() throws Exception {
+        // 09:00 por 90 minutos y 09:30 por 30 minutos se cruzan aunque empiecen a horas distintas,
+        // así que la restricción única de la hora de inicio no basta para rechazar una de ellas
+        LocalDate fecha = LocalDate.now().plusWeeks(41).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        LocalTime nueve = LocalTime.of(9, 0);
+        LocalTime nueveYMedia = LocalTime.of(9, 30);
+
+        List<CrearCitaNoAutenticadaDTO> solicitudes = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            solicitudes.add(i % 2 == 0
+                    ? solicitud("CRUCE" + i, fecha, nueve, TIPO_TRATAMIENTO_CONDUCTO)
+                    : solicitud("CRUCE" + i, fecha, nueveYMedia, TIPO_CONSULTA_GENERAL));
+        }
+        competir(solicitudes);
+
+        Instant inicioDia = fecha.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        int citasDelDia = citasRepository.findOcupacionByDoctor(ID_DOCTOR, inicioDia,
+                fecha.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant()).size();
+        assertEquals(1, citasDelDia, "En la base de datos debe quedar una sola de las citas que se cruzan");
+    }
+
+    private static CrearCitaNoAutenticadaDTO solicitud(String idPaciente, LocalDate fecha, LocalTime hora,
+                                                       long tipoCitaId) {
+        return new CrearCitaNoAutenticadaDTO("Paciente " + idPaciente, idPaciente, "3000000000",
+                idPaciente + "@test.com", ID_DOCTOR, fecha, hora, tipoCitaId);
+    }
+
+    /**
+     * Lanza todas las solicitudes al mismo tiempo y verifica que exactamente una obtenga el horario
+     * y el resto se rechace por conflicto de horario.
+     */
+    private void competir(List<CrearCitaNoAutenticadaDTO> solicitudes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(solicitudes.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger ganadores = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> erroresInesperados = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (CrearCitaNoAutenticadaDTO dto : solicitudes) {
+            tareas.add(executor.submit(() -> {
+                try {
+                    salida.await();
+                    Cita cita = serviciosCitas.crearCitaNoAutenticada(dto);
+                    synchronized (citasCreadas) {
+                        citasCreadas.add(cita.getId());
+                    }
+                    ganadores.incrementAndGet();
+                } catch (HorarioOcupadoException e) {
+                    conflictos.incrementAndGet();
+                } catch (Throwable e) {
+                    erroresInesperados.add(e);
+                }
+                return null;
+            }));
+        }
+
+        // Todas las solicitudes salen al mismo tiempo
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        erroresInesperados.forEach(Throwable::printStackTrace);
+        assertTrue(erroresInesperados.isEmpty(), "Hubo errores que no son conflictos de horario");
+        assertEquals(1, ganadores.get(), "Exactamente una solicitud debe obtener el horario");
+        assertEquals(solicitudes.size() - 1, conflictos.get());
+    }
+}
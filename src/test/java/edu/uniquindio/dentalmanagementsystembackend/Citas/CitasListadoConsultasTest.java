@@ -0,0 +1,119 @@
+package edu.uniquindio.dentalmanagementsystembackend.Citas;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CitaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica que los listados de citas se resuelvan con una sola sentencia SQL,
+ * sin cargar por cada fila las asociaciones perezosas de paciente, doctor y tipo de cita.
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "edu.uniquindio.dentalmanagementsystembackend.Citas.CitasListadoConsultasTest$ContadorSentencias")
+public class CitasListadoConsultasTest {
+
+    private static final String ID_DOCTOR = "111111111";
+    private static final String ID_PACIENTE_NO_AUTENTICADO = "LISTADO01";
+    private static final int CITAS = 5;
+
+    @Autowired
+    private ServiciosCitas serviciosCitas;
+
+    @Autowired
+    private ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
+
+    @Autowired
+    private CitasRepository citasRepository;
+
+    private final List<Long> citasCreadas = new ArrayList<>();
+
+    @BeforeEach
+    void crearCitas() {
+        // Un lunes lejano (el doctor atiende lunes de 08:00 a 17:00) para no chocar con otras pruebas
+        LocalDate fecha = LocalDate.now().plusWeeks(50).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        for (int i = 0; i < CITAS; i++) {
+            citasCreadas.add(serviciosCitas.crearCitaNoAutenticada(new CrearCitaNoAutenticadaDTO(
+                    "Paciente Listado", ID_PACIENTE_NO_AUTENTICADO, "3000000000", "listado@test.com",
+                    ID_DOCTOR, fecha, LocalTime.of(8 + i, 0), 1L)).getId());
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        citasRepository.deleteAllById(citasCreadas);
+        serviciosDisponibilidadDoctor.reconstruirIndice(ID_DOCTOR);
+    }
+
+    @Test
+    void listadoPorDoctorUsaUnaSolaSentencia() {
+        List<CitaDTO> citas = contarSentencias(() -> serviciosCitas.obtenerCitasPorDoctor(ID_DOCTOR));
+
+        assertTrue(citas.size() >= CITAS);
+        assertEquals(1, ContadorSentencias.total(), "El listado por doctor debe ejecutar una sola sentencia");
+    }
+
+    @Test
+    void listadoNoAutenticadasUsaUnaSolaSentencia() {
+        List<CitaDTO> porDoctor = contarSentencias(() -> serviciosCitas.obtenerCitasNoAutenticadasPorDoctor(ID_DOCTOR));
+        assertTrue(porDoctor.size() >= CITAS);
+        assertEquals(1, ContadorSentencias.total());
+
+        List<CitaDTO> porPaciente = contarSentencias(
+                () -> serviciosCitas.obtenerCitasNoAutenticadasPorPaciente(ID_PACIENTE_NO_AUTENTICADO));
+        assertEquals(CITAS, porPaciente.size());
+        assertEquals(1, ContadorSentencias.total());
+
+        CitaDTO cita = porPaciente.get(0);
+        assertEquals(ID_PACIENTE_NO_AUTENTICADO, cita.pacienteId());
+        assertEquals("listado@test.com", cita.email());
+        assertEquals(ID_DOCTOR, cita.doctorId());
+        assertNotNull(cita.tipoCitaNombre());
+    }
+
+    private static <T> T contarSentencias(Supplier<T> consulta) {
+        ContadorSentencias.reiniciar();
+        return consulta.get();
+    }
+
+    /**
+     * Cuenta las sentencias SQL que prepara Hibernate en el hilo actual, para que otras tareas
+     * de la aplicación que consultan la base de datos en segundo plano no alteren la cuenta.
+     */
+    public static class ContadorSentencias implements StatementInspector {
+
+        private static final ThreadLocal<int[]> SENTENCIAS = ThreadLocal.withInitial(() -> new int[1]);
+
+        @Override
+        public String inspect(String sql) {
+            SENTENCIAS.get()[0]++;
+            return sql;
+        }
+
+        static void reiniciar() {
+            SENTENCIAS.get()[0] = 0;
+        }
+
+        static int total() {
+            return SENTENCIAS.get()[0];
+        }
+    }
+}
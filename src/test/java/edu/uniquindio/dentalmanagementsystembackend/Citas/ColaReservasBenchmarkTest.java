@@ -0,0 +1,151 @@
+package edu.uniquindio.dentalmanagementsystembackend.Citas;
+
+import edu.uniquindio.dentalmanagementsystembackend.dto.cita.CrearCitaNoAutenticadaDTO;
+import edu.uniquindio.dentalmanagementsystembackend.entity.Cita;
+import edu.uniquindio.dentalmanagementsystembackend.exception.HorarioOcupadoException;
+import edu.uniquindio.dentalmanagementsystembackend.repository.CitasRepository;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosCitas;
+import edu.uniquindio.dentalmanagementsystembackend.service.Interfaces.ServiciosDisponibilidadDoctor;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.ColaReservasDoctor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el rendimiento del agendamiento transaccional con el modo de cola por doctor.
+ * Varios hilos compiten por los mismos horarios de un doctor (cada uno los intenta en distinto orden)
+ * y se mide cuántas solicitudes por segundo se resuelven en cada modo.
+ *
+ * <p>Es lento, por eso solo corre con la variable de entorno CITAS_BENCHMARK=true.</p>
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "CITAS_BENCHMARK", matches = "true")
+public class ColaReservasBenchmarkTest {
+
+    private static final String ID_DOCTOR = "111111111";
+    private static final int HILOS = 16;
+    private static final int LUNES = 3;
+    private static final int HORAS_POR_LUNES = 8;
+
+    @Autowired
+    private ServiciosCitas serviciosCitas;
+
+    @Autowired
+    private ServiciosDisponibilidadDoctor serviciosDisponibilidadDoctor;
+
+    @Autowired
+    private ColaReservasDoctor colaReservasDoctor;
+
+    @Autowired
+    private CitasRepository citasRepository;
+
+    private final List<Long> citasCreadas = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void limpiar() {
+        ReflectionTestUtils.setField(colaReservasDoctor, "modoReserva", "transaccional");
+        citasRepository.deleteAllById(citasCreadas);
+        serviciosDisponibilidadDoctor.reconstruirIndice(ID_DOCTOR);
+    }
+
+    @Test
+    void compararModoTransaccionalConCola() throws Exception {
+        // Lunes lejanos (el doctor atiende lunes de 08:00 a 17:00) distintos para cada modo
+        LocalDate base = LocalDate.now().plusWeeks(60).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+        double transaccional = medir("transaccional", horarios(base));
+        double cola = medir("cola", horarios(base.plusWeeks(LUNES)));
+
+        System.out.println("\n=== Benchmark de agendamiento (" + HILOS + " hilos) ===");
+        System.out.printf("Transaccional: %.1f solicitudes/s%n", transaccional);
+        System.out.printf("Cola por doctor: %.1f solicitudes/s%n", cola);
+        System.out.printf("Relación cola/transaccional: %.2f%n", cola / transaccional);
+    }
+
+    private List<LocalDateTime> horarios(LocalDate primerLunes) {
+        List<LocalDateTime> horarios = new ArrayList<>();
+        for (int semana = 0; semana < LUNES; semana++) {
+            for (int hora = 0; hora < HORAS_POR_LUNES; hora++) {
+                horarios.add(primerLunes.plusWeeks(semana).atTime(LocalTime.of(8 + hora, 0)));
+            }
+        }
+        return horarios;
+    }
+
+    /**
+     * Todos los hilos intentan todos los horarios; cada horario debe quedar con una sola cita.
+     *
+     * @return Solicitudes resueltas por segundo
+     */
+    private double medir(String modo, List<LocalDateTime> horarios) throws Exception {
+        ReflectionTestUtils.setField(colaReservasDoctor, "modoReserva", modo);
+
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger ganadores = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> erroresInesperados = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            String idPaciente = "BENCH" + modo.charAt(0) + i;
+            List<LocalDateTime> orden = new ArrayList<>(horarios);
+            Collections.shuffle(orden, new Random(i));
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                for (LocalDateTime horario : orden) {
+                    CrearCitaNoAutenticadaDTO dto = new CrearCitaNoAutenticadaDTO(
+                            "Paciente " + idPaciente, idPaciente, "3000000000", idPaciente + "@test.com",
+                            ID_DOCTOR, horario.toLocalDate(), horario.toLocalTime(), 1L);
+                    try {
+                        Cita cita = serviciosCitas.crearCitaNoAutenticada(dto);
+                        citasCreadas.add(cita.getId());
+                        ganadores.incrementAndGet();
+                    } catch (HorarioOcupadoException e) {
+                        conflictos.incrementAndGet();
+                    } catch (Throwable e) {
+                        erroresInesperados.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(5, TimeUnit.MINUTES);
+        }
+        long duracionNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        erroresInesperados.forEach(Throwable::printStackTrace);
+        assertTrue(erroresInesperados.isEmpty(), "Hubo errores que no son conflictos de horario en modo " + modo);
+        assertEquals(horarios.size(), ganadores.get(), "Cada horario debe quedar con una sola cita en modo " + modo);
+        assertEquals(HILOS * horarios.size() - horarios.size(), conflictos.get());
+
+        return HILOS * horarios.size() / (duracionNanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.uniquindio.dentalmanagementsystembackend.Correo;
+
+import edu.uniquindio.dentalmanagementsystembackend.util.CompiladorPlantillas;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del compilador de plantillas de correo, sin levantar el contexto de Spring.
+ */
+public class CompiladorPlantillasTest {
+
+    private static final Map<String, String> PARCIALES = Map.of(
+            "layout", "<html>{{$contenido}}</html>",
+            "firma", "<p>{{clinica}}</p>",
+            "ciclo", "{{> ciclo}}");
+
+    private final CompiladorPlantillas compilador = new CompiladorPlantillas(PARCIALES::get);
+
+    @Test
+    void escaparVariablesSalvoConTresLlaves() {
+        String html = compilador.compilar("{{nombre}}|{{{nombre}}}")
+                .renderizar(Map.of("nombre", "<b>Ana & \"Luis\" O'Neil</b>"));
+
+        assertEquals("&lt;b&gt;Ana &amp; &quot;Luis&quot; O&#39;Neil&lt;/b&gt;|<b>Ana & \"Luis\" O'Neil</b>", html);
+    }
+
+    @Test
+    void variableAusenteQuedaVacia() {
+        assertEquals("Hola !", compilador.compilar("Hola {{nombre}}!").renderizar(Map.of()));
+    }
+
+    @Test
+    void renderizarSeccionesAnidadas() {
+        String html = compilador.compilar("{{#doctores}}{{nombre}}:{{#horas}}[{{.}}]{{/horas}};{{/doctores}}")
+                .renderizar(Map.of("doctores", List.of(
+                        Map.of("nombre", "Ana", "horas", List.of("08:00", "08:30")),
+                        Map.of("nombre", "Luis", "horas", List.of()))));
+
+        assertEquals("Ana:[08:00][08:30];Luis:;", html);
+    }
+
+    @Test
+    void seccionBooleanaSeEscribeUnaVezOSeOmite() {
+        String fuente = "{{#urgente}}URGENTE {{/urgente}}{{asunto}}";
+
+        assertEquals("URGENTE Cita", compilador.compilar(fuente).renderizar(Map.of("urgente", true, "asunto", "Cita")));
+        assertEquals("Cita", compilador.compilar(fuente).renderizar(Map.of("urgente", false, "asunto", "Cita")));
+    }
+
+    @Test
+    void insertarContenidoConParcialEnElLayout() {
+        String html = compilador.compilar("{{< layout}}{{! se descarta }}<h1>{{titulo}}</h1>{{> firma}}")
+                .renderizar(Map.of("titulo", "Recordatorio", "clinica", "OdontoLogic"));
+
+        assertEquals("<html><h1>Recordatorio</h1><p>OdontoLogic</p></html>", html);
+    }
+
+    @Test
+    void rechazarEtiquetaSinCerrar() {
+        assertMalFormada("Hola {{nombre", "Etiqueta sin cerrar");
+    }
+
+    @Test
+    void rechazarEtiquetaVacia() {
+        assertMalFormada("Hola {{ }}", "Etiqueta vacía");
+    }
+
+    @Test
+    void rechazarCierreDeOtraSeccion() {
+        assertMalFormada("{{#a}}x{{/b}}", "Se cerró {{/b}}");
+        assertMalFormada("x{{/a}}", "ninguna sección");
+    }
+
+    @Test
+    void rechazarSeccionSinCerrar() {
+        assertMalFormada("{{#a}}x", "Falta cerrar la sección {{#a}}");
+    }
+
+    @Test
+    void rechazarParcialInexistente() {
+        assertMalFormada("{{> pie}}", "No existe el parcial o layout 'pie'");
+        assertMalFormada("{{< otro}}x", "No existe el parcial o layout 'otro'");
+    }
+
+    @Test
+    void rechazarParcialQueSeIncluyeASiMismo() {
+        assertMalFormada("{{> ciclo}}", "Demasiados parciales anidados");
+    }
+
+    @Test
+    void rechazarRanuraFueraDeUnLayout() {
+        assertMalFormada("{{$contenido}}", "fuera de un layout");
+    }
+
+    @Test
+    void rechazarDosLayouts() {
+        assertMalFormada("{{< layout}}{{< layout}}x", "más de un layout");
+    }
+
+    private void assertMalFormada(String fuente, String mensajeEsperado) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compilador.compilar(fuente));
+        assertTrue(e.getMessage().contains(mensajeEsperado), e.getMessage());
+    }
+}
@@ -0,0 +1,207 @@
+package edu.uniquindio.dentalmanagementsystembackend.Correo;
+
+import edu.uniquindio.dentalmanagementsystembackend.config.CorreoConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.simplejavamail.api.email.Email;
+import org.simplejavamail.api.mailer.Mailer;
+import org.simplejavamail.api.mailer.config.TransportStrategy;
+import org.simplejavamail.email.EmailBuilder;
+import org.simplejavamail.mailer.MailerBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el envío de correos creando un Mailer por mensaje (como se hacía antes) con el Mailer compartido
+ * y su pool de conexiones, contra un servidor SMTP local que solo acepta los mensajes. El servidor tarda
+ * {@link #LATENCIA_CONEXION_MS} ms en saludar cada conexión nueva, en lugar del saludo TLS y la
+ * autenticación que cuesta abrir una conexión con el servidor real.
+ *
+ * <p>Solo corre con la variable de entorno CORREO_BENCHMARK=true.</p>
+ */
+@EnabledIfEnvironmentVariable(named = "CORREO_BENCHMARK", matches = "true")
+public class MailerBenchmarkTest {
+
+    private static final int MENSAJES = 200;
+    private static final int HILOS = 4;
+    private static final long LATENCIA_CONEXION_MS = 40;
+
+    private ServidorSmtpFalso servidor;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        servidor = new ServidorSmtpFalso(LATENCIA_CONEXION_MS);
+    }
+
+    @AfterEach
+    void detenerServidor() throws IOException {
+        servidor.close();
+    }
+
+    @Test
+    void compararMailerPorMensajeConMailerCompartido() throws Exception {
+        double porMensaje = medirMailerPorMensaje();
+        int conexionesPorMensaje = servidor.conexiones.getAndSet(0);
+
+        double compartido = medirMailerCompartido();
+        int conexionesCompartido = servidor.conexiones.get();
+
+        assertEquals(2 * MENSAJES, servidor.mensajes.get(), "El servidor debe recibir todos los mensajes");
+        assertTrue(conexionesCompartido <= HILOS, "El mailer compartido debe reutilizar sus conexiones");
+
+        System.out.println("\n=== Benchmark de envío de correos (" + MENSAJES + " mensajes, " + HILOS + " hilos) ===");
+        System.out.printf("Mailer por mensaje: %.1f mensajes/s (%d conexiones)%n", porMensaje, conexionesPorMensaje);
+        System.out.printf("Mailer compartido: %.1f mensajes/s (%d conexiones)%n", compartido, conexionesCompartido);
+        System.out.printf("Relación compartido/por mensaje: %.2f%n", compartido / porMensaje);
+    }
+
+    /**
+     * Cada mensaje abre y cierra su propio Mailer, repartidos en el mismo número de hilos que el pool.
+     */
+    private double medirMailerPorMensaje() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> envios = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < MENSAJES; i++) {
+            Email email = correo(i);
+            envios.add(executor.submit(() -> {
+                try (Mailer mailer = MailerBuilder
+                        .withSMTPServer("localhost", servidor.puerto())
+                        .withTransportStrategy(TransportStrategy.SMTP)
+                        .buildMailer()) {
+                    mailer.sendMail(email);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> envio : envios) {
+            envio.get(5, TimeUnit.MINUTES);
+        }
+        long duracionNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+        return MENSAJES / (duracionNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Todos los mensajes salen por un único Mailer, armado igual que el bean de la aplicación.
+     */
+    private double medirMailerCompartido() throws Exception {
+        try (Mailer mailer = CorreoConfig.construirMailer(MailerBuilder
+                .withSMTPServer("localhost", servidor.puerto())
+                .withTransportStrategy(TransportStrategy.SMTP), HILOS, 60)) {
+            List<CompletableFuture<Void>> envios = new ArrayList<>();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < MENSAJES; i++) {
+                envios.add(mailer.sendMail(correo(i), true));
+            }
+            CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+            long duracionNanos = System.nanoTime() - inicio;
+            return MENSAJES / (duracionNanos / 1_000_000_000.0);
+        }
+    }
+
+    private static Email correo(int i) {
+        return EmailBuilder.startingBlank()
+                .from("benchmark@test.com")
+                .to("paciente" + i + "@test.com")
+                .withSubject("Confirmación de Cita Odontológica")
+                .withHTMLText("<html><body><p>Cita número " + i + "</p></body></html>")
+                .buildEmail();
+    }
+
+    /**
+     * Servidor SMTP mínimo que acepta cualquier mensaje sin entregarlo.
+     */
+    private static class ServidorSmtpFalso implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final ExecutorService conexionesAbiertas = Executors.newCachedThreadPool();
+        private final long latenciaConexionMs;
+        private final AtomicInteger conexiones = new AtomicInteger();
+        private final AtomicInteger mensajes = new AtomicInteger();
+
+        ServidorSmtpFalso(long latenciaConexionMs) throws IOException {
+            this.latenciaConexionMs = latenciaConexionMs;
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            conexionesAbiertas.submit(this::aceptar);
+        }
+
+        int puerto() {
+            return socket.getLocalPort();
+        }
+
+        private void aceptar() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket cliente = socket.accept();
+                    conexiones.incrementAndGet();
+                    conexionesAbiertas.submit(() -> atender(cliente));
+                } catch (IOException e) {
+                    // El servidor se cerró
+                }
+            }
+        }
+
+        private void atender(Socket cliente) {
+            try (cliente;
+                 BufferedReader entrada = new BufferedReader(
+                         new InputStreamReader(cliente.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream salida = cliente.getOutputStream()) {
+                Thread.sleep(latenciaConexionMs);
+                responder(salida, "220 localhost SMTP de prueba");
+
+                String linea;
+                while ((linea = entrada.readLine()) != null) {
+                    String comando = linea.length() >= 4 ? linea.substring(0, 4).toUpperCase() : linea.toUpperCase();
+                    switch (comando) {
+                        case "DATA" -> {
+                            responder(salida, "354 Fin con <CRLF>.<CRLF>");
+                            while ((linea = entrada.readLine()) != null && !linea.equals(".")) {
+                                // Se descarta el contenido del mensaje
+                            }
+                            mensajes.incrementAndGet();
+                            responder(salida, "250 OK");
+                        }
+                        case "QUIT" -> {
+                            responder(salida, "221 Hasta luego");
+                            return;
+                        }
+                        default -> responder(salida, "250 OK");
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // La conexión se cerró
+            }
+        }
+
+        private static void responder(OutputStream salida, String respuesta) throws IOException {
+            salida.write((respuesta + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            salida.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            conexionesAbiertas.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.uniquindio.dentalmanagementsystembackend.Correo;
+
+import edu.uniquindio.dentalmanagementsystembackend.Enum.Idioma;
+import edu.uniquindio.dentalmanagementsystembackend.service.impl.PlantillasCorreo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide cuántos correos de confirmación de cita por segundo se redactan con la plantilla precompilada,
+ * frente al bloque de texto con {@code String.formatted} que se usaba antes (que vuelve a analizar el
+ * formato en cada llamada). Cada medición tiene su calentamiento para que el JIT compile ambas versiones.
+ *
+ * <p>Solo corre con la variable de entorno PLANTILLAS_BENCHMARK=true.</p>
+ */
+@EnabledIfEnvironmentVariable(named = "PLANTILLAS_BENCHMARK", matches = "true")
+public class PlantillasBenchmarkTest {
+
+    private static final int CALENTAMIENTO = 200_000;
+    private static final int ITERACIONES = 1_000_000;
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private static final String CONFIRMACION_ANTERIOR = """
+            <html>
+            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
+                <div style="max-width: 600px; margin: 0 auto; padding: 20px; border: 1px solid #ddd; border-radius: 5px;">
+                    <h2 style="color: #2c3e50;">Confirmación de Cita Odontológica</h2>
+                    <p>Estimado paciente,</p>
+                    <p>Su cita con el Dr. %s ha sido confirmada exitosamente.</p>
+                    <ul>
+                        <li><strong>Fecha y hora:</strong> %s</li>
+                    </ul>
+                    <p>Por favor, asegúrese de llegar 15 minutos antes de su cita.</p>
+                    <p>Si necesita cancelar o reprogramar su cita, puede hacerlo 24 horas antes.</p>
+                    <p>Atentamente,<br/>El equipo de OdontoLogic</p>
+                    <hr style="border: 1px solid #eee; margin: 20px 0;">
+                    <p style="font-size: 12px; color: #777;">Este es un correo automático, por favor no responda.</p>
+                </div>
+            </body>
+            </html>
+            """;
+
+    @Test
+    void compararPlantillaCompiladaConFormatted() throws Exception {
+        PlantillasCorreo plantillas = new PlantillasCorreo();
+        plantillas.cargar();
+        String fechaHora = LocalDateTime.of(2026, 3, 2, 9, 30).format(FORMATO);
+
+        // Ambas versiones deben producir el mismo contenido
+        String html = plantillas.renderizar("cita-confirmacion", Idioma.ES,
+                Map.of("odontologo", "Juan Pérez", "fechaHora", fechaHora)).html();
+        assertTrue(html.contains("Su cita con el Dr. Juan Pérez ha sido confirmada exitosamente."));
+        assertTrue(html.contains(fechaHora));
+        assertTrue(html.contains("El equipo de OdontoLogic"));
+
+        double formatted = medir(i -> CONFIRMACION_ANTERIOR.formatted("Odontólogo " + i, fechaHora));
+        double compilada = medir(i -> plantillas.renderizar("cita-confirmacion", Idioma.ES,
+                Map.of("odontologo", "Odontólogo " + i, "fechaHora", fechaHora)).html());
+
+        System.out.println("\n=== Benchmark de plantillas de correo (cita-confirmacion, " + ITERACIONES + " correos) ===");
+        System.out.printf("String.formatted: %.0f correos/s%n", formatted);
+        System.out.printf("Plantilla compilada: %.0f correos/s%n", compilada);
+        System.out.printf("Relación compilada/formatted: %.2f%n", compilada / formatted);
+    }
+
+    private static double medir(IntFunction<String> redactar) {
+        long largo = 0;
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            largo += redactar.apply(i).length();
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ITERACIONES; i++) {
+            largo += redactar.apply(i).length();
+        }
+        long duracionNanos = System.nanoTime() - inicio;
+        // Se usa el resultado para que el JIT no descarte el trabajo
+        assertTrue(largo > 0);
+        return ITERACIONES / (duracionNanos / 1_000_000_000.0);
+    }
+}